@@ -709,4 +709,310 @@ SET
     is_email_verified = TRUE,
     email_verified_at = CURRENT_TIMESTAMP,
     email_verification_token = NULL
-WHERE username IN ('evowner2', 'admin001', 'buyer001', 'cva001');
\ No newline at end of file
+WHERE username IN ('evowner2', 'admin001', 'buyer001', 'cva001');
+
+-- ============================================
+-- MIGRATION: Auction Bids
+-- Date: 2026-10-17
+-- Purpose: Store accepted auction bids (written in batches by the bidding engine)
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS bids (
+    bid_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    listing_id UUID NOT NULL REFERENCES credit_listings(listing_id),
+    bidder_id UUID NOT NULL REFERENCES users(user_id),
+    amount DECIMAL(10,2) NOT NULL,
+    placed_at TIMESTAMP NOT NULL
+);
+
+-- Highest bid lookup per auction
+CREATE INDEX IF NOT EXISTS idx_bids_listing_amount ON bids(listing_id, amount DESC, placed_at);
+CREATE INDEX IF NOT EXISTS idx_bids_bidder_id ON bids(bidder_id);
+
+-- ============================================
+-- MIGRATION: Transactional Outbox
+-- Date: 2026-10-17
+-- Purpose: Purchase side effects (certificate, audit, notifications) written with the purchase and dispatched in the background
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    outbox_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    dispatched_at TIMESTAMP,
+    CONSTRAINT outbox_events_status_check CHECK (status IN ('PENDING', 'DISPATCHED', 'FAILED'))
+);
+
+-- Dispatcher polls due pending events in creation order
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due ON outbox_events(next_attempt_at, created_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_outbox_events_aggregate ON outbox_events(aggregate_id);
+
+-- ============================================
+-- MIGRATION: Sharded Platform Revenue
+-- Date: 2026-10-17
+-- Purpose: Spread platform fee accrual over several rows instead of the platform wallet; folded into the wallet periodically
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS platform_revenue_shards (
+    shard_id INTEGER PRIMARY KEY,
+    pending_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO platform_revenue_shards (shard_id)
+SELECT generate_series(0, 15)
+ON CONFLICT (shard_id) DO NOTHING;
+
+-- ============================================
+-- MIGRATION: Wallet Ledger
+-- Date: 2026-10-17
+-- Purpose: Append-only double-entry journal of every wallet movement, with periodic per-account balance snapshots
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    entry_id BIGSERIAL PRIMARY KEY,
+    journal_id UUID NOT NULL,
+    account VARCHAR(30) NOT NULL,
+    user_id UUID REFERENCES users(user_id),
+    asset VARCHAR(10) NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    entry_type VARCHAR(30) NOT NULL,
+    reference VARCHAR(100),
+    description VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT ledger_entries_account_check CHECK (account IN ('USER', 'HOLD', 'EXTERNAL', 'PLATFORM_REVENUE')),
+    CONSTRAINT ledger_entries_asset_check CHECK (asset IN ('CASH', 'CREDIT'))
+);
+
+-- Balance tails and keyset history pages per user account
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_user_asset ON ledger_entries(user_id, account, asset, entry_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_user_history ON ledger_entries(user_id, account, entry_id DESC);
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_account ON ledger_entries(account, asset, entry_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_journal ON ledger_entries(journal_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_created ON ledger_entries(created_at);
+
+CREATE TABLE IF NOT EXISTS ledger_snapshots (
+    snapshot_id BIGSERIAL PRIMARY KEY,
+    account VARCHAR(30) NOT NULL,
+    user_id UUID REFERENCES users(user_id),
+    asset VARCHAR(10) NOT NULL,
+    balance DECIMAL(15,2) NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_snapshots_latest ON ledger_snapshots(account, user_id, asset, last_entry_id DESC);
+
+-- Opening balances for wallets and unfolded fees that predate the ledger
+INSERT INTO ledger_entries (journal_id, account, user_id, asset, amount, entry_type, description)
+SELECT j.journal_id, l.account, l.user_id, l.asset, l.amount, 'OPENING', 'Opening balance'
+FROM (SELECT w.user_id, gen_random_uuid() AS journal_id, w.cash_balance, w.credit_balance FROM wallets w) j
+CROSS JOIN LATERAL (VALUES
+    ('USER', j.user_id, 'CASH', j.cash_balance),
+    ('EXTERNAL', NULL::UUID, 'CASH', -j.cash_balance),
+    ('USER', j.user_id, 'CREDIT', j.credit_balance),
+    ('EXTERNAL', NULL::UUID, 'CREDIT', -j.credit_balance)
+) AS l(account, user_id, asset, amount)
+WHERE l.amount <> 0
+  AND NOT EXISTS (SELECT 1 FROM ledger_entries WHERE entry_type = 'OPENING');
+
+INSERT INTO ledger_entries (journal_id, account, user_id, asset, amount, entry_type, description)
+SELECT j.journal_id, l.account, NULL, 'CASH', l.amount, 'OPENING', 'Opening unfolded platform fees'
+FROM (SELECT gen_random_uuid() AS journal_id, SUM(pending_amount) AS total FROM platform_revenue_shards) j
+CROSS JOIN LATERAL (VALUES ('PLATFORM_REVENUE', j.total), ('EXTERNAL', -j.total)) AS l(account, amount)
+WHERE j.total <> 0
+  AND NOT EXISTS (SELECT 1 FROM ledger_entries WHERE entry_type = 'OPENING' AND account = 'PLATFORM_REVENUE');
+
+-- ============================================
+-- MIGRATION: Idempotency Keys
+-- Date: 2026-10-17
+-- Purpose: Run purchases, deposits and payment callbacks once per idempotency key and replay the stored response to retries
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    response_status INTEGER,
+    response_body TEXT,
+    response_location VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT idempotency_keys_status_check CHECK (status IN ('IN_PROGRESS', 'COMPLETED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys(expires_at);
+
+-- ============================================
+-- MIGRATION: JWT Token Version
+-- Date: 2026-10-17
+-- Purpose: Embed a per-user version in issued JWTs; bumping it revokes the user's existing tokens
+-- ============================================
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version BIGINT NOT NULL DEFAULT 0;
+
+-- ============================================
+-- MIGRATION: API Rate Limits
+-- Date: 2026-10-17
+-- Purpose: Requests per minute allowed by RateLimitFilter; 0 disables a limit
+-- ============================================
+
+INSERT INTO system_settings (setting_key, setting_value, description, data_type, is_editable)
+VALUES
+    ('RATE_LIMIT_ENABLED', 'true', 'Enable API rate limiting (429 when exceeded)', 'BOOLEAN', true),
+    ('RATE_LIMIT_PER_IP', '600', 'Requests per minute per client IP (0 = unlimited)', 'INTEGER', true),
+    ('RATE_LIMIT_PER_USER', '300', 'Requests per minute per authenticated user (0 = unlimited)', 'INTEGER', true),
+    ('RATE_LIMIT_LISTING_SEARCH', '30', 'Listing searches per minute per user or IP (0 = unlimited)', 'INTEGER', true),
+    ('RATE_LIMIT_BALANCE_CHECK', '60', 'Balance checks per minute per user or IP (0 = unlimited)', 'INTEGER', true),
+    ('RATE_LIMIT_LOGIN', '10', 'Login and auth requests per minute per IP (0 = unlimited)', 'INTEGER', true)
+ON CONFLICT (setting_key) DO NOTHING;
+
+-- ============================================
+-- MIGRATION: Journey Statistics Indexes
+-- Date: 2026-10-17
+-- Purpose: Let the per-user journey statistics aggregate run as index-only scans
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_journey_user_totals
+    ON journey_data(user_id) INCLUDE (distance_km, energy_consumed_kwh, co2_reduced_kg);
+CREATE INDEX IF NOT EXISTS idx_credit_journey_id ON carbon_credits(journey_id) INCLUDE (credit_amount);
+
+-- ============================================
+-- MIGRATION: User Counters
+-- Date: 2026-10-17
+-- Purpose: Per-user running totals of journeys, issued credits, sales and purchases, read by dashboards
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS user_counters (
+    user_id UUID PRIMARY KEY REFERENCES users(user_id) ON DELETE CASCADE,
+    journey_count BIGINT NOT NULL DEFAULT 0,
+    distance_km DECIMAL(19,2) NOT NULL DEFAULT 0,
+    energy_consumed_kwh DECIMAL(19,2) NOT NULL DEFAULT 0,
+    co2_reduced_kg DECIMAL(19,2) NOT NULL DEFAULT 0,
+    credits_issued BIGINT NOT NULL DEFAULT 0,
+    credits_issued_amount DECIMAL(19,2) NOT NULL DEFAULT 0,
+    sales_count BIGINT NOT NULL DEFAULT 0,
+    sales_amount DECIMAL(19,2) NOT NULL DEFAULT 0,
+    purchase_count BIGINT NOT NULL DEFAULT 0,
+    purchase_amount DECIMAL(19,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill from history; the nightly reconciliation corrects anything written while this runs
+INSERT INTO user_counters (user_id, journey_count, distance_km, energy_consumed_kwh, co2_reduced_kg,
+    credits_issued, credits_issued_amount, sales_count, sales_amount, purchase_count, purchase_amount)
+SELECT u.user_id,
+    COALESCE(j.journey_count, 0), COALESCE(j.distance_km, 0), COALESCE(j.energy_consumed_kwh, 0),
+    COALESCE(j.co2_reduced_kg, 0),
+    COALESCE(c.credits_issued, 0), COALESCE(c.credits_issued_amount, 0),
+    COALESCE(s.sales_count, 0), COALESCE(s.sales_amount, 0),
+    COALESCE(p.purchase_count, 0), COALESCE(p.purchase_amount, 0)
+FROM users u
+LEFT JOIN (SELECT user_id, COUNT(*) AS journey_count, SUM(distance_km) AS distance_km,
+        SUM(energy_consumed_kwh) AS energy_consumed_kwh, SUM(co2_reduced_kg) AS co2_reduced_kg
+    FROM journey_data GROUP BY user_id) j ON j.user_id = u.user_id
+LEFT JOIN (SELECT user_id, COUNT(*) AS credits_issued, SUM(credit_amount) AS credits_issued_amount
+    FROM carbon_credits WHERE status IN ('VERIFIED', 'LISTED', 'SOLD') GROUP BY user_id) c ON c.user_id = u.user_id
+LEFT JOIN (SELECT seller_id, COUNT(*) AS sales_count, SUM(amount) AS sales_amount
+    FROM transactions WHERE status = 'COMPLETED' GROUP BY seller_id) s ON s.seller_id = u.user_id
+LEFT JOIN (SELECT buyer_id, COUNT(*) AS purchase_count, SUM(amount) AS purchase_amount
+    FROM transactions WHERE status = 'COMPLETED' GROUP BY buyer_id) p ON p.buyer_id = u.user_id
+ON CONFLICT (user_id) DO NOTHING;
+
+-- ============================================
+-- MIGRATION: Journey Overlap Index
+-- Date: 2026-10-17
+-- Purpose: Load a vehicle's journey spans with an index-only scan when the overlap index misses
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_journey_vehicle_times
+    ON journey_data(vehicle_id, start_time) INCLUDE (end_time, journey_id);
+
+-- ============================================
+-- MIGRATION: Bulk Credit Issuance Index
+-- Date: 2026-10-17
+-- Purpose: Page through a user's journeys in id order, with the CO2 reduction, without sorting
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_journey_user_id_order
+    ON journey_data(user_id, journey_id) INCLUDE (co2_reduced_kg);
+
+-- ============================================
+-- MIGRATION: CVA Verification Queue
+-- Date: 2026-10-17
+-- Purpose: Lease pending journeys to one CVA at a time, with expiry, instead of every CVA reviewing the whole list
+-- ============================================
+
+ALTER TABLE journey_data ADD COLUMN IF NOT EXISTS leased_by_id UUID REFERENCES users(user_id) ON DELETE SET NULL;
+ALTER TABLE journey_data ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+
+-- The queue scan only touches pending journeys, oldest first
+CREATE INDEX IF NOT EXISTS idx_journey_verification_queue
+    ON journey_data(created_at, journey_id) WHERE verification_status = 'PENDING_VERIFICATION';
+CREATE INDEX IF NOT EXISTS idx_journey_leased_by
+    ON journey_data(leased_by_id) WHERE leased_by_id IS NOT NULL;
+
+-- ============================================
+-- MIGRATION: Listing Row Version
+-- Date: 2026-10-17
+-- Purpose: Order listing change events so the order book never applies an older listing state over a newer one
+-- ============================================
+
+ALTER TABLE credit_listings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- ============================================
+-- MIGRATION: Failed Auction Settlements
+-- Date: 2026-10-17
+-- Purpose: Record auctions the closer could not settle, so a sweep retries them instead of leaving the winning bid reserved
+-- ============================================
+
+ALTER TABLE credit_listings ADD COLUMN IF NOT EXISTS settlement_failed_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_listings_settlement_failed
+    ON credit_listings(listing_id) WHERE settlement_failed_at IS NOT NULL AND status = 'ACTIVE';
+
+-- ============================================
+-- MIGRATION: Idempotency Request Hash
+-- Date: 2026-10-17
+-- Purpose: Reject an idempotency key reused for a different request instead of replaying the other response
+-- ============================================
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS request_hash VARCHAR(64);
+
+-- ============================================
+-- MIGRATION: Snowflake Worker Leases
+-- Date: 2026-10-17
+-- Purpose: Nodes without a configured ids.worker-id lease a free worker ID instead of hashing host and PID
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS id_worker_leases (
+    worker_id INTEGER PRIMARY KEY,
+    holder VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT id_worker_leases_worker_id_check CHECK (worker_id BETWEEN 0 AND 1023)
+);
+
+-- ============================================
+-- MIGRATION: Buyer Activity Index
+-- Date: 2026-10-17
+-- Purpose: Load one buyer's recent purchase activity on demand instead of scanning all recent transactions at startup
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_transactions_buyer_created ON transactions(buyer_id, created_at);
+
+-- ============================================
+-- MIGRATION: Unique Journey Credits
+-- Date: 2026-10-17
+-- Purpose: Let the database, not a per-node guard, stop two credit issuance runs crediting the same journey twice
+-- ============================================
+
+-- Fails while a journey has more than one credit; find those with
+-- SELECT journey_id FROM carbon_credits GROUP BY journey_id HAVING COUNT(*) > 1
+ALTER TABLE carbon_credits
+    ADD CONSTRAINT carbon_credits_journey_id_key UNIQUE (journey_id) INCLUDE (credit_amount);
+-- The unique index serves the same lookups
+DROP INDEX IF EXISTS idx_credit_journey_id;
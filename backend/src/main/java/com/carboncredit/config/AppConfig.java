@@ -1,13 +1,19 @@
 package com.carboncredit.config;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @Configuration
 public class AppConfig {
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    /**
+     * Runs payment gateway calls outside database transactions.
+     * Virtual threads keep a blocked gateway round trip cheap.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService paymentExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
     }
 }
@@ -0,0 +1,151 @@
+package com.carboncredit.config;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.carboncredit.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs BCrypt on a small dedicated pool, so password checks can only take
+ * a fixed share of the CPU and of the request threads.
+ *
+ * At most {@code threads} hashes run at once and {@code queueCapacity} wait;
+ * further logins are turned away at once with {@link ServiceBusyException}
+ * (503 + Retry-After), and a caller that waited longer than
+ * {@code maxWait} gives up the same way. A login spike therefore holds at
+ * most threads + queueCapacity request threads and leaves the rest of the
+ * Tomcat pool to other traffic.
+ *
+ * Metrics: executor.* tagged name=passwordHashing (queued, active,
+ * completed, queue remaining), password.hashing (wait plus hash time) and
+ * password.hashing.rejected (tagged reason=full|timeout).
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+    private final Timer hashTimer;
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait,
+            MeterRegistry registry) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWait.toMillis();
+        this.retryAfterSeconds = Math.max(1, maxWait.toSeconds());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        new ExecutorServiceMetrics(executor, "passwordHashing", Tags.empty()).bindTo(registry);
+        this.hashTimer = Timer.builder("password.hashing").register(registry);
+        this.rejectedFull = Counter.builder("password.hashing.rejected").tag("reason", "full").register(registry);
+        this.rejectedTimeout = Counter.builder("password.hashing.rejected").tag("reason", "timeout").register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Only reads the cost from the hash, so it stays on the caller's thread
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        try {
+            return delegate.upgradeEncoding(encodedPassword);
+        } catch (IllegalArgumentException e) {
+            return false; // not a BCrypt hash
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> T run(Callable<T> task) {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedFull.increment();
+            throw new ServiceBusyException("Too many logins in progress, please try again shortly", retryAfterSeconds);
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedTimeout.increment();
+            throw new ServiceBusyException("Too many logins in progress, please try again shortly", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ServiceBusyException("Password check interrupted", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Highest BCrypt strength in [minStrength, maxStrength] whose hash takes
+     * at most the target time on this machine. The cost doubles per step, so
+     * it is extrapolated from timing the lowest strength.
+     */
+    public static int calibrateStrength(int minStrength, int maxStrength, Duration target) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode("calibration-warmup");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration-" + i);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int strength = minStrength;
+        long estimate = best;
+        while (strength < maxStrength && estimate * 2 <= target.toNanos()) {
+            estimate *= 2;
+            strength++;
+        }
+        log.info("BCrypt strength {} hashes in about {} ms (target {} ms)",
+                strength, estimate / 1_000_000, target.toMillis());
+        return strength;
+    }
+}
@@ -0,0 +1,138 @@
+package com.carboncredit.config;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.carboncredit.service.CacheInvalidationBus;
+
+/**
+ * Cache manager whose caches publish every eviction and clear on the
+ * {@link CacheInvalidationBus}, and which applies invalidations received
+ * from other nodes to the underlying caches. Cache keys travel as strings,
+ * so entries are stored under the string form of their key as well, and a
+ * remote eviction of a UUID key finds the entry cached under that UUID.
+ */
+public class BroadcastingCacheManager implements CacheManager {
+
+    private final CacheManager target;
+    private final CacheInvalidationBus bus;
+    private final ConcurrentMap<String, BroadcastingCache> caches = new ConcurrentHashMap<>();
+
+    public BroadcastingCacheManager(CacheManager target, CacheInvalidationBus bus) {
+        this.target = target;
+        this.bus = bus;
+        bus.addListener(this::applyRemote);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = target.getCache(name);
+        return cache == null ? null : caches.computeIfAbsent(name, n -> new BroadcastingCache(cache, bus));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    private void applyRemote(String cacheName, String key) {
+        if (cacheName == null) {
+            target.getCacheNames().forEach(name -> target.getCache(name).clear());
+            return;
+        }
+        Cache cache = target.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (key == null) {
+            cache.clear();
+        } else {
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * Delegating cache that also broadcasts its evictions
+     */
+    public static class BroadcastingCache implements Cache {
+
+        private final Cache target;
+        private final CacheInvalidationBus bus;
+
+        BroadcastingCache(Cache target, CacheInvalidationBus bus) {
+            this.target = target;
+            this.bus = bus;
+        }
+
+        public Cache getTarget() {
+            return target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key.toString());
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key.toString(), type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key.toString(), valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key.toString(), value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key.toString(), value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key.toString());
+            bus.publish(getName(), key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean present = target.evictIfPresent(key.toString());
+            // Other nodes may hold the entry even if this one does not
+            bus.publish(getName(), key);
+            return present;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            bus.publish(getName(), null);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean present = target.invalidate();
+            bus.publish(getName(), null);
+            return present;
+        }
+    }
+}
@@ -1,15 +1,138 @@
 package com.carboncredit.config;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.carboncredit.config.BroadcastingCacheManager.BroadcastingCache;
+import com.carboncredit.service.CacheInvalidationBus;
+import com.carboncredit.service.InvalidationTransport;
+import com.carboncredit.service.LoopbackInvalidationTransport;
+import com.carboncredit.service.PostgresInvalidationTransport;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 /**
- * Cache configuration for system settings
- * Uses Spring's simple in-memory cache by default
+ * Bounded Caffeine caches (W-TinyLFU size eviction) with per-cache size and
+ * expiry from the {@code caches} properties. Caches requested by a name
+ * that is not configured get the defaults, so no cache is unbounded.
+ *
+ * Statistics are recorded for every cache, and actuator exports them as
+ * cache.gets (hit/miss), cache.puts, cache.evictions and cache.size.
+ * Puts and evictions inside a transaction are applied after it commits,
+ * so a reader cannot cache a value the transaction is about to change.
+ * Evictions are then broadcast to the other nodes through the
+ * {@link CacheInvalidationBus}, over Postgres LISTEN/NOTIFY or, with
+ * {@code cache-invalidation.transport=loopback}, in-process.
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheConfig.CacheProperties.class)
 public class CacheConfig {
-    // Spring Boot auto-configures SimpleCacheManager with default TTL
 
+    public static final String SYSTEM_SETTINGS = "systemSettings";
+    public static final String USERS = "users";
+    public static final String LISTINGS = "listings";
+    public static final String MARKETPLACE_STATS = "marketplaceStats";
+    public static final String TOKEN_VERSIONS = "tokenVersions";
+    public static final String AUTH_TOKENS = "authTokens";
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties, CacheInvalidationBus invalidationBus) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(builder(properties.getDefaults()));
+        properties.getSpecs().forEach((name, spec) -> cacheManager.registerCustomCache(name, builder(spec).build()));
+        return new TransactionAwareCacheManagerProxy(new BroadcastingCacheManager(cacheManager, invalidationBus));
+    }
+
+    // Lets actuator bind the Caffeine statistics behind the broadcasting wrapper
+    @Bean
+    public CacheMeterBinderProvider<BroadcastingCache> broadcastingCacheMeterBinderProvider() {
+        return (cache, tags) -> cache.getTarget() instanceof CaffeineCache caffeineCache
+                ? new CaffeineCacheMetrics<>(caffeineCache.getNativeCache(), cache.getName(), tags)
+                : null;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "postgres", matchIfMissing = true)
+    public InvalidationTransport postgresInvalidationTransport(JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSource,
+            @Value("${cache-invalidation.channel:cache_invalidation}") String channel) {
+        return new PostgresInvalidationTransport(jdbcTemplate, dataSource.determineUrl(),
+                dataSource.determineUsername(), dataSource.determinePassword(), channel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "loopback")
+    public InvalidationTransport loopbackInvalidationTransport() {
+        return new LoopbackInvalidationTransport();
+    }
+
+    static Caffeine<Object, Object> builder(CacheSpec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.getMaxSize())
+                .recordStats();
+        if (spec.getExpiry() == Expiry.AFTER_ACCESS) {
+            builder.expireAfterAccess(spec.getTtl());
+        } else {
+            builder.expireAfterWrite(spec.getTtl());
+        }
+        return builder;
+    }
+
+    public enum Expiry {
+        // Entries expire a fixed time after they were loaded
+        AFTER_WRITE,
+        // Entries expire when they have not been read for the TTL
+        AFTER_ACCESS
+    }
+
+    /**
+     * Size and expiry of one cache
+     */
+    public static class CacheSpec {
+        private long maxSize = 1000;
+        private Duration ttl = Duration.ofMinutes(10);
+        private Expiry expiry = Expiry.AFTER_WRITE;
+
+        public long getMaxSize() { return maxSize; }
+        public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public Expiry getExpiry() { return expiry; }
+        public void setExpiry(Expiry expiry) { this.expiry = expiry; }
+    }
+
+    /**
+     * POJO for the caches block of application.yml
+     */
+    @ConfigurationProperties(prefix = "caches")
+    public static class CacheProperties {
+        private CacheSpec defaults = new CacheSpec();
+        private Map<String, CacheSpec> specs = new LinkedHashMap<>();
+
+        public CacheSpec getDefaults() { return defaults; }
+        public void setDefaults(CacheSpec defaults) { this.defaults = defaults; }
+
+        public Map<String, CacheSpec> getSpecs() { return specs; }
+        public void setSpecs(Map<String, CacheSpec> specs) { this.specs = specs; }
+    }
 }
@@ -1,19 +1,23 @@
 package com.carboncredit.config;
 
 import java.io.IOException;
-import java.security.Security;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
 
-import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.carboncredit.service.JwtService;
+import com.carboncredit.service.JwtService.VerifiedToken;
+import com.carboncredit.service.UserService;
 
 import io.micrometer.common.lang.NonNull;
 import jakarta.servlet.FilterChain;
@@ -23,13 +27,23 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Authenticates requests from the roles embedded in the bearer token.
+ *
+ * A token is parsed and its signature checked once; the result is cached
+ * by the token's SHA-256 digest. Each request then only compares the
+ * token's version with the user's current one (also cached), which
+ * rejects tokens of deleted users and tokens issued before a role,
+ * username or password change.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserService userService;
+    private final CacheManager cacheManager;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
@@ -37,7 +51,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         //Check If Authorization header exists and starts with "Bearer"
         if(authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -49,24 +62,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            //Extract us    ername from JWT
-            username = jwtService.extractUsername(jwt);
+            // If user is not already authenticated
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                VerifiedToken token = verify(jwt);
 
-            // If username is present and user is not already authenticated
-            if(username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-              // Validate token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (isCurrent(token)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            token.principal(),
                             null,
-                            userDetails.getAuthorities()
+                            token.principal().getAuthorities()
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-                    
-                    log.debug("JWT authentication successful for user: {}", username);
+
+                    log.debug("JWT authentication successful for user: {}", token.principal().getUsername());
+                } else {
+                    log.debug("JWT rejected for user {}: expired or revoked", token.principal().getUsername());
                 }
             }
         } catch (Exception e) {
@@ -75,4 +86,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Parse and check the signature only for tokens not seen recently
+    private VerifiedToken verify(String jwt) {
+        Cache cache = cacheManager.getCache(CacheConfig.AUTH_TOKENS);
+        String digest = digest(jwt);
+        VerifiedToken token = cache.get(digest, VerifiedToken.class);
+        if (token == null) {
+            token = jwtService.verify(jwt);
+            cache.put(digest, token);
+        }
+        return token;
+    }
+
+    private boolean isCurrent(VerifiedToken token) {
+        if (!token.expiresAt().isAfter(Instant.now())) {
+            return false;
+        }
+        Long currentVersion = userService.findTokenVersion(token.userId());
+        return currentVersion != null && currentVersion == token.version();
+    }
+
+    private static String digest(String jwt) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
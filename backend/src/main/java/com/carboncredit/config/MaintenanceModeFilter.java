@@ -45,9 +45,7 @@ public class MaintenanceModeFilter implements Filter {
         
         // Check maintenance mode
         try {
-            Boolean maintenanceMode = systemSettingService.getSettingAsBoolean("MAINTENANCE_MODE");
-            
-            if (Boolean.TRUE.equals(maintenanceMode)) {
+            if (systemSettingService.isMaintenanceMode()) {
                 log.warn("🚧 Maintenance mode active - blocking request to: {}", path);
                 
                 httpResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
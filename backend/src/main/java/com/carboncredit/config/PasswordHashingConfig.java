@@ -0,0 +1,76 @@
+package com.carboncredit.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Password encoder used for logins, registration and password changes:
+ * BCrypt on the bounded pool of {@link BoundedPasswordEncoder}.
+ *
+ * With {@code password-hashing.adaptive} the strength is calibrated at
+ * startup to the target time instead of the fixed {@code strength}.
+ * Hashes of a lower strength are re-encoded on the user's next login.
+ */
+@Configuration
+@EnableConfigurationProperties(PasswordHashingConfig.PasswordHashingProperties.class)
+public class PasswordHashingConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry registry) {
+        int strength = properties.isAdaptive()
+                ? BoundedPasswordEncoder.calibrateStrength(properties.getMinStrength(), properties.getMaxStrength(),
+                        properties.getTargetTime())
+                : properties.getStrength();
+        int threads = properties.getThreads() > 0
+                ? properties.getThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads,
+                properties.getQueueCapacity(), properties.getMaxWait(), registry);
+    }
+
+    /**
+     * POJO for the password-hashing block of application.yml
+     */
+    @ConfigurationProperties(prefix = "password-hashing")
+    public static class PasswordHashingProperties {
+        private int threads;
+        private int queueCapacity = 64;
+        private Duration maxWait = Duration.ofSeconds(2);
+        private int strength = 10;
+        private boolean adaptive;
+        private Duration targetTime = Duration.ofMillis(250);
+        private int minStrength = 10;
+        private int maxStrength = 14;
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+        public int getStrength() { return strength; }
+        public void setStrength(int strength) { this.strength = strength; }
+
+        public boolean isAdaptive() { return adaptive; }
+        public void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+
+        public Duration getTargetTime() { return targetTime; }
+        public void setTargetTime(Duration targetTime) { this.targetTime = targetTime; }
+
+        public int getMinStrength() { return minStrength; }
+        public void setMinStrength(int minStrength) { this.minStrength = minStrength; }
+
+        public int getMaxStrength() { return maxStrength; }
+        public void setMaxStrength(int maxStrength) { this.maxStrength = maxStrength; }
+    }
+}
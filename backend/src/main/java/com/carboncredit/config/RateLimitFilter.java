@@ -0,0 +1,189 @@
+package com.carboncredit.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.carboncredit.service.SettingsSnapshot;
+import com.carboncredit.service.SystemSettingService;
+import com.carboncredit.util.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-bucket rate limits per client IP, per authenticated user and, for
+ * a few expensive routes, per route and client (the user, or the IP when
+ * anonymous). A request needs a token from every bucket that applies;
+ * otherwise it gets 429 with Retry-After, and the tokens it took from the
+ * other buckets are given back, so a rejected request counts against none.
+ *
+ * The client IP is the remote address as resolved by the servlet
+ * container: with {@code server.forward-headers-strategy=native},
+ * X-Forwarded-For is honoured only when the connection comes from one of
+ * {@code server.tomcat.remoteip.internal-proxies}, so clients cannot pick
+ * their own IP bucket.
+ *
+ * Runs in the security filter chain right after JWT authentication so the
+ * user is known. Limits are requests per minute read from system settings
+ * on every request, so changes apply immediately; a missing setting uses
+ * the default and 0 disables that limit. Counting is per node.
+ *
+ * INTEGRATION POINT: Uses SystemSettings for RATE_LIMIT_* values
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String RATE_LIMIT_ENABLED = "RATE_LIMIT_ENABLED";
+    public static final String RATE_LIMIT_PER_IP = "RATE_LIMIT_PER_IP";
+    public static final String RATE_LIMIT_PER_USER = "RATE_LIMIT_PER_USER";
+    public static final String RATE_LIMIT_LISTING_SEARCH = "RATE_LIMIT_LISTING_SEARCH";
+    public static final String RATE_LIMIT_BALANCE_CHECK = "RATE_LIMIT_BALANCE_CHECK";
+    public static final String RATE_LIMIT_LOGIN = "RATE_LIMIT_LOGIN";
+
+    private static final Duration PERIOD = Duration.ofMinutes(1);
+
+    private record RouteLimit(String name, String pathPrefix, String settingKey, int defaultLimit) {
+    }
+
+    // Checked before the per-user and per-IP limits
+    private static final List<RouteLimit> ROUTE_LIMITS = List.of(
+            new RouteLimit("search", "/api/listings/search", RATE_LIMIT_LISTING_SEARCH, 30),
+            new RouteLimit("balance", "/api/wallets/balance-check", RATE_LIMIT_BALANCE_CHECK, 60),
+            new RouteLimit("login", "/api/users/login", RATE_LIMIT_LOGIN, 10),
+            new RouteLimit("auth", "/api/auth/", RATE_LIMIT_LOGIN, 10));
+
+    private static final int DEFAULT_PER_USER = 300;
+    private static final int DEFAULT_PER_IP = 600;
+
+    private final SystemSettingService systemSettingService;
+    private final ObjectMapper objectMapper;
+    private final RateLimiter limiter;
+
+    @Autowired
+    public RateLimitFilter(SystemSettingService systemSettingService, ObjectMapper objectMapper) {
+        this(systemSettingService, objectMapper, new RateLimiter());
+    }
+
+    RateLimitFilter(SystemSettingService systemSettingService, ObjectMapper objectMapper, RateLimiter limiter) {
+        this.systemSettingService = systemSettingService;
+        this.objectMapper = objectMapper;
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        SettingsSnapshot settings = systemSettingService.getSnapshot();
+        if (path.startsWith("/actuator/health") || Boolean.FALSE.equals(settings.getBoolean(RATE_LIMIT_ENABLED))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Already resolved from X-Forwarded-For when the peer is a trusted proxy
+        String ip = request.getRemoteAddr();
+        String user = authenticatedUser();
+        String client = user != null ? "u:" + user : "ip:" + ip;
+
+        List<Bucket> buckets = new ArrayList<>();
+        for (RouteLimit route : ROUTE_LIMITS) {
+            if (path.startsWith(route.pathPrefix())) {
+                buckets.add(new Bucket(route.name() + "|" + client,
+                        limit(settings, route.settingKey(), route.defaultLimit())));
+            }
+        }
+        if (user != null) {
+            buckets.add(new Bucket("u:" + user, limit(settings, RATE_LIMIT_PER_USER, DEFAULT_PER_USER)));
+        }
+        buckets.add(new Bucket("ip:" + ip, limit(settings, RATE_LIMIT_PER_IP, DEFAULT_PER_IP)));
+
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket.limit() <= 0) {
+                continue;
+            }
+            long waitNanos = limiter.tryAcquire(bucket.key(), bucket.limit(), PERIOD);
+            if (waitNanos > 0) {
+                for (Bucket taken : buckets.subList(0, i)) {
+                    if (taken.limit() > 0) {
+                        limiter.release(taken.key(), taken.limit(), PERIOD);
+                    }
+                }
+                reject(response, bucket, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private record Bucket(String key, int limit) {
+    }
+
+    /**
+     * Forget clients whose buckets have refilled, keeping memory bounded by recent traffic
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void evictIdleBuckets() {
+        int evicted = limiter.evictIdle();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets, {} remain", evicted, limiter.size());
+        }
+    }
+
+    private void reject(HttpServletResponse response, Bucket bucket, long waitNanos) throws IOException {
+        String key = bucket.key();
+        int limit = bucket.limit();
+        long retryAfterSeconds = Math.max(1, Duration.ofNanos(waitNanos).toSeconds()
+                + (waitNanos % 1_000_000_000 == 0 ? 0 : 1));
+        log.debug("Rate limit of {}/min exceeded for {}", limit, key);
+
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setHeader("X-RateLimit-Limit", String.valueOf(limit));
+        response.setContentType("application/json");
+        Map<String, Object> errorResponse = Map.of(
+                "success", false,
+                "message", "Too many requests. Please try again later.",
+                "status", 429);
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+
+    private static String authenticatedUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    // Requests per minute; an unparsable setting falls back to the default
+    private static int limit(SettingsSnapshot settings, String key, int defaultLimit) {
+        if (!settings.contains(key)) {
+            return defaultLimit;
+        }
+        try {
+            return settings.getDouble(key).intValue();
+        } catch (IllegalStateException e) {
+            return defaultLimit;
+        }
+    }
+}
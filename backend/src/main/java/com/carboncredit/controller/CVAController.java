@@ -18,17 +18,21 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.carboncredit.dto.ApiResponse;
 import com.carboncredit.dto.CarbonCreditDTO;
+import com.carboncredit.dto.CreditIssuanceResultDTO;
 import com.carboncredit.dto.CreditListingDTO;
 import com.carboncredit.dto.JourneyDataDTO;
 import com.carboncredit.dto.MonthlyReportDTO;
+import com.carboncredit.dto.VerificationLeaseDTO;
 import com.carboncredit.entity.JourneyData;
 import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
 import com.carboncredit.exception.ResourceNotFoundException;
 import com.carboncredit.service.CVAService;
 import com.carboncredit.service.CreditListingService;
 import com.carboncredit.service.JourneyDataService;
 import com.carboncredit.service.PdfGenerationService;
 import com.carboncredit.service.UserService;
+import com.carboncredit.service.VerificationQueueService;
 
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
@@ -63,6 +67,7 @@ public class CVAController {
     private final UserService userService;
     private final JourneyDataService journeyDataService;
     private final CreditListingService creditListingService;
+    private final VerificationQueueService verificationQueueService;
 
     /**
      * Get all pending journey for CVA reviews
@@ -85,6 +90,70 @@ public class CVAController {
         }
     }
 
+    /**
+     * Lease the next pending journeys from the verification queue
+     */
+    @PostMapping("/queue/lease")
+    @PreAuthorize("hasRole('CVA')")
+    public ResponseEntity<ApiResponse<VerificationLeaseDTO>> leaseJourneys(
+            @RequestParam(defaultValue = "10") int count,
+            Authentication authentication) {
+        try {
+            User cva = userService.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new ResourceNotFoundException("CVA user not found"));
+
+            List<JourneyData> leased = verificationQueueService.lease(cva, count);
+            return ResponseEntity.ok(ApiResponse.success(toLease(leased)));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Renew the CVA's leases; returns the journeys it still holds
+     */
+    @PostMapping("/queue/heartbeat")
+    @PreAuthorize("hasRole('CVA')")
+    public ResponseEntity<ApiResponse<VerificationLeaseDTO>> renewLeases(Authentication authentication) {
+        try {
+            User cva = userService.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new ResourceNotFoundException("CVA user not found"));
+
+            return ResponseEntity.ok(ApiResponse.success(toLease(verificationQueueService.heartbeat(cva))));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Hand leased journeys back to the queue
+     */
+    @PostMapping("/queue/release")
+    @PreAuthorize("hasRole('CVA')")
+    public ResponseEntity<ApiResponse<Integer>> releaseLeases(@RequestBody List<UUID> journeyIds,
+            Authentication authentication) {
+        try {
+            User cva = userService.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new ResourceNotFoundException("CVA user not found"));
+
+            int released = verificationQueueService.release(cva, journeyIds);
+            return ResponseEntity.ok(ApiResponse.success("Released " + released + " journeys", released));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    private static VerificationLeaseDTO toLease(List<JourneyData> journeys) {
+        List<JourneyDataDTO> dtos = journeys.stream().map(JourneyDataDTO::new).collect(Collectors.toList());
+        return new VerificationLeaseDTO(dtos, journeys.isEmpty() ? null : journeys.get(0).getLeaseExpiresAt());
+    }
+
     /**
      * Get speciofc journey for review
      * 
@@ -250,6 +319,33 @@ public class CVAController {
         }
     }
 
+    /**
+     * Issue PENDING credits for all of a user's journeys that have none yet
+     */
+    @PostMapping("/user/{username}/issue-credits")
+    @PreAuthorize("hasAnyRole('ADMIN', 'CVA')")
+    public ResponseEntity<ApiResponse<CreditIssuanceResultDTO>> issueCreditsForUser(
+            @PathVariable String username,
+            Authentication authentication) {
+        try {
+            User targetUser = userService.findByUsername(username)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+
+            CreditIssuanceResultDTO result = journeyDataService.createCarbonCreditsForUser(targetUser);
+
+            log.info("{} issued {} credits for user {}", authentication.getName(), result.getCreditsIssued(),
+                    username);
+            return ResponseEntity.ok(ApiResponse.success("Issued " + result.getCreditsIssued() + " credits", result));
+
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException e) {
+            return ResponseEntity.status(409)
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * Get verification statistic
      */
@@ -5,24 +5,35 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.carboncredit.dto.ApiResponse;
+import com.carboncredit.dto.BidDTO;
+import com.carboncredit.dto.BidRequest;
 import com.carboncredit.dto.CreditListingDTO;
 import com.carboncredit.dto.CreditListingRequest;
 import com.carboncredit.dto.MarketplaceStatsDTO;
+import com.carboncredit.dto.OrderBookDepthDTO;
+import com.carboncredit.dto.OrderBookMatchDTO;
 import com.carboncredit.dto.UpdateListingPriceRequest;
 import com.carboncredit.entity.CreditListing;
 import com.carboncredit.entity.User;
 import com.carboncredit.exception.BusinessOperationException;
 import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.exception.InsufficientBalanceException;
 import com.carboncredit.exception.ResourceNotFoundException;
+import com.carboncredit.exception.UnauthorizedOperationException;
+import com.carboncredit.exception.ValidationException;
+import com.carboncredit.service.AuctionBiddingService;
 import com.carboncredit.service.CreditListingService;
 import com.carboncredit.service.CreditListingService.MarketplaceStats;
+import com.carboncredit.service.OrderBookService;
 import com.carboncredit.service.UserService;
+import com.carboncredit.util.OrderBook;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
@@ -45,6 +56,8 @@ public class CreditListingController {
 
     private final CreditListingService listingService;
     private final UserService userService;
+    private final OrderBookService orderBookService;
+    private final AuctionBiddingService auctionBiddingService;
 
     /**
      * Helper authentication method
@@ -307,4 +320,119 @@ public class CreditListingController {
         }
     }
 
+    // ==================================================
+    // ORDER BOOK (In-memory, fixed-price listings)
+    // ==================================================
+
+    /**
+     * (PUBLIC) Best ask and aggregated price levels for a credit class.
+     */
+    @GetMapping("/order-book")
+    public ResponseEntity<ApiResponse<OrderBookDepthDTO>> getOrderBookDepth(
+            @RequestParam(defaultValue = OrderBookService.DEFAULT_CREDIT_CLASS) String creditClass,
+            @RequestParam(defaultValue = "10") int levels) {
+
+        try {
+            if (levels < 1 || levels > 100) {
+                throw new IllegalArgumentException("Levels must be between 1 and 100");
+            }
+            OrderBook book = orderBookService.getBook(creditClass);
+            OrderBookDepthDTO depthDTO = new OrderBookDepthDTO(book, book.depth(levels));
+            return ResponseEntity.ok(ApiResponse.success(depthDTO));
+        } catch (IllegalArgumentException e) {
+            log.warn("Bad request for order book depth: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Unexpected error getting order book depth", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("An unexpected error occurred"));
+        }
+    }
+
+    /**
+     * (BUYER) Preview which listings would fill a buy order, cheapest first.
+     */
+    @GetMapping("/order-book/match")
+    @PreAuthorize("hasRole('BUYER')")
+    public ResponseEntity<ApiResponse<OrderBookMatchDTO>> matchBuyOrder(
+            @RequestParam BigDecimal limitPrice,
+            @RequestParam BigDecimal quantity,
+            @RequestParam(defaultValue = OrderBookService.DEFAULT_CREDIT_CLASS) String creditClass,
+            Authentication authentication) {
+
+        try {
+            User buyer = getCurrentUser(authentication);
+            List<OrderBook.Order> fills = orderBookService.matchBuyOrder(creditClass, limitPrice, quantity,
+                    buyer.getId());
+            return ResponseEntity.ok(ApiResponse.success(new OrderBookMatchDTO(limitPrice, quantity, fills)));
+        } catch (ResourceNotFoundException e) {
+            log.warn("Cannot match buy order - user not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Bad request for buy order match: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Unexpected error matching buy order", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("An unexpected error occurred"));
+        }
+    }
+
+    // ==================================================
+    // AUCTION BIDDING
+    // ==================================================
+
+    /**
+     * (BUYER) Place a bid on an active auction listing.
+     * The bid amount is reserved from the buyer's wallet while it leads.
+     */
+    @PostMapping("/{id}/bids")
+    @PreAuthorize("hasRole('BUYER')")
+    public ResponseEntity<ApiResponse<BidDTO>> placeBid(
+            @PathVariable UUID id,
+            @Valid @RequestBody BidRequest request,
+            Authentication authentication) {
+
+        try {
+            User bidder = getCurrentUser(authentication);
+            BidDTO bidDTO = auctionBiddingService.placeBid(id, bidder, request.getBidAmount());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success("Bid placed successfully", bidDTO));
+        } catch (EntityNotFoundException | ResourceNotFoundException e) {
+            log.warn("Failed to place bid - not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (InsufficientBalanceException e) {
+            log.warn("Failed to place bid - insufficient funds: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException | ValidationException | UnauthorizedOperationException
+                | IllegalArgumentException e) {
+            log.debug("Bid rejected on listing {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Unexpected error placing bid", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("An unexpected error occurred"));
+        }
+    }
+
+    /**
+     * (PUBLIC) Current leading bid of an auction listing.
+     */
+    @GetMapping("/{id}/bids/best")
+    public ResponseEntity<ApiResponse<BidDTO>> getBestBid(@PathVariable UUID id) {
+        try {
+            BidDTO bidDTO = auctionBiddingService.getBestBid(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Bid", "listingId", id));
+            return ResponseEntity.ok(ApiResponse.success(bidDTO));
+        } catch (EntityNotFoundException | ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Unexpected error getting best bid", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("An unexpected error occurred"));
+        }
+    }
+
 }
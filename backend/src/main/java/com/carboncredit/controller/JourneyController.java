@@ -2,16 +2,19 @@ package com.carboncredit.controller;
 
 import com.carboncredit.dto.ApiResponse;
 import com.carboncredit.dto.JourneyDataDTO;
+import com.carboncredit.dto.JourneyImportResultDTO;
 import com.carboncredit.dto.JourneyStatistics;
 import com.carboncredit.entity.JourneyData;
 import com.carboncredit.entity.User;
 import com.carboncredit.exception.ResourceNotFoundException;
 import com.carboncredit.service.JourneyDataService;
+import com.carboncredit.service.JourneyImportService;
 import com.carboncredit.service.UserService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,6 +22,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -32,6 +36,7 @@ import java.util.stream.Collectors;
 public class JourneyController {
 
     private final JourneyDataService journeyDataService;
+    private final JourneyImportService journeyImportService;
     private final UserService userService;
 
     // ================ EV OWNER ENDPOINTS ===================
@@ -68,6 +73,35 @@ public class JourneyController {
         }
     }
 
+    /*
+     * Bulk upload of journeys, streamed as NDJSON (Content-Type application/x-ndjson,
+     * one JSON object per line) or CSV (text/csv, header row first) with the fields
+     * vehicleId, distanceKm, energyConsumedKwh, startTime, endTime
+     *
+     * Every row is validated like a single journey; valid rows are created with
+     * PENDING status and the response lists the outcome of each row
+     */
+    @PostMapping(value = "/bulk", consumes = { "application/x-ndjson", "text/csv" })
+    @PreAuthorize("hasRole('EV_OWNER')")
+    public ResponseEntity<ApiResponse<JourneyImportResultDTO>> importJourneys(InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, Authentication authentication) {
+        try {
+            User user = userService.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+            JourneyImportService.Format format = contentType.startsWith("text/csv")
+                    ? JourneyImportService.Format.CSV
+                    : JourneyImportService.Format.NDJSON;
+            JourneyImportResultDTO result = journeyImportService.importJourneys(user, body, format);
+
+            return ResponseEntity.ok(ApiResponse.success(String.format("%d of %d journeys imported",
+                    result.getAcceptedRows(), result.getTotalRows()), result));
+        } catch (Exception e) {
+            log.error("Error importing journeys: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to import journeys: " + e.getMessage()));
+        }
+    }
+
     /**
      * Get all journeys for the authenticated user
      * show all journeys with verification status
@@ -1,6 +1,8 @@
 package com.carboncredit.controller;
 
 import com.carboncredit.dto.ApiResponse;
+import com.carboncredit.dto.CartCheckoutRequest;
+import com.carboncredit.dto.CartCheckoutResultDTO;
 import com.carboncredit.dto.TransactionDTO; // Make sure this DTO exists
 import com.carboncredit.entity.Transaction; // Keep entity import if service returns it sometimes
 import com.carboncredit.entity.Transaction.TransactionStatus; // Import status enum
@@ -11,10 +13,14 @@ import com.carboncredit.exception.InsufficientBalanceException;
 import com.carboncredit.exception.PaymentException;
 import com.carboncredit.exception.ResourceNotFoundException; // Assuming this exists
 import com.carboncredit.exception.UnauthorizedOperationException; // Assuming this exists
+import com.carboncredit.exception.ValidationException;
+import com.carboncredit.service.CartCheckoutService;
+import com.carboncredit.service.IdempotencyService;
 import com.carboncredit.service.TransactionService;
 import com.carboncredit.service.UserService;
 import com.carboncredit.util.DTOMapper; // Keep if you still need it for single entities
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -37,6 +43,8 @@ public class TransactionController {
     
     private final TransactionService transactionService;
     private final UserService userService;
+    private final CartCheckoutService cartCheckoutService;
+    private final IdempotencyService idempotencyService;
     // No DTOMapper here, assuming service returns DTOs
 
     /**
@@ -59,8 +67,14 @@ public class TransactionController {
     @PreAuthorize("hasRole('BUYER')")
     public ResponseEntity<ApiResponse<TransactionDTO>> initiatePurchase(
             @PathVariable UUID listingId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
-        
+        // A retried request with the same key gets the first response instead of buying again
+        return idempotencyService.execute("purchase:" + authentication.getName(), idempotencyKey, listingId,
+                () -> purchase(listingId, authentication));
+    }
+
+    private ResponseEntity<ApiResponse<TransactionDTO>> purchase(UUID listingId, Authentication authentication) {
         log.info("Received purchase request for listing {} from user {}", listingId, authentication.getName());
         try {
             User buyer = getCurrentUser(authentication);
@@ -105,6 +119,57 @@ public class TransactionController {
         }
     }
 
+    /**
+     * (BUYER) Buy several fixed-price listings with one payment and one wallet settlement.
+     * With allOrNothing=false, available listings are bought and each line reports its outcome.
+     */
+    @PostMapping("/checkout")
+    @PreAuthorize("hasRole('BUYER')")
+    public ResponseEntity<ApiResponse<CartCheckoutResultDTO>> checkoutCart(
+            @Valid @RequestBody CartCheckoutRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return idempotencyService.execute("checkout:" + authentication.getName(), idempotencyKey, request,
+                () -> checkout(request, authentication));
+    }
+
+    private ResponseEntity<ApiResponse<CartCheckoutResultDTO>> checkout(CartCheckoutRequest request,
+            Authentication authentication) {
+        log.info("Received cart checkout of {} listings from user {}", request.getListingIds().size(),
+                authentication.getName());
+        try {
+            User buyer = getCurrentUser(authentication);
+            CartCheckoutResultDTO result = cartCheckoutService.checkout(request.getListingIds(), buyer,
+                    request.isAllOrNothing());
+
+            if (result.getFilledListings() == 0) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(ApiResponse.error("No listings in the cart could be purchased", result));
+            }
+            String message = result.isFullyFilled() ? "Cart checkout completed successfully"
+                    : "Cart checkout partially filled: " + result.getFilledListings() + "/" + result.getRequestedListings();
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(message, result));
+
+        } catch (EntityNotFoundException | ResourceNotFoundException e) {
+            log.warn("Cart checkout failed - resource not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (InsufficientBalanceException e) {
+            log.warn("Cart checkout failed - insufficient funds: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(ApiResponse.error(e.getMessage()));
+        } catch (PaymentException e) {
+            log.error("Cart checkout failed - payment error: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error(e.getMessage()));
+        } catch (BusinessOperationException | ValidationException | UnauthorizedOperationException
+                | SecurityException | IllegalArgumentException e) {
+            log.warn("Cart checkout failed - invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Unexpected error during cart checkout for user {}: ", authentication.getName(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("An unexpected error occurred during checkout."));
+        }
+    }
+
     // ==========================================================
     // TRANSACTION HISTORY & QUERYING
     // ==========================================================
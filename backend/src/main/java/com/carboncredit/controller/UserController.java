@@ -6,8 +6,11 @@ import com.carboncredit.dto.LoginResponse;
 import com.carboncredit.dto.RegisterRequest;
 import com.carboncredit.dto.UserDTO;
 import com.carboncredit.entity.User;
+import com.carboncredit.entity.UserCounters;
 import com.carboncredit.exception.ResourceNotFoundException;
+import com.carboncredit.exception.ServiceBusyException;
 import com.carboncredit.service.JwtService;
+import com.carboncredit.service.UserCounterService;
 import com.carboncredit.service.UserService;
 import com.carboncredit.util.DTOMapper;
 
@@ -52,6 +55,7 @@ public class UserController {
     private AuthenticationManager authenticationManager;
 
     private final UserService userService;
+    private final UserCounterService userCounterService;
 
     // ==================== PUBLIC ENDPOINTS ====================
 
@@ -98,6 +102,9 @@ public class UserController {
         log.info("✅ Login successful for verified user: {}", loginRequest.getUsername());
         return ResponseEntity.ok(ApiResponse.success("Login successful", response));
         
+        } catch (ServiceBusyException e) {
+            // Password hashing pool is full: 503 with Retry-After, not a failed login
+            throw e;
         } catch (Exception e) {
             log.error("Login failed for user {}: {}", loginRequest.getUsername(), e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.<LoginResponse>builder().success(false).message("Invalid username or password").build());
@@ -180,6 +187,23 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(userDTO));
     }
 
+    /**
+     * Sustainability and trading totals of the current user, read from one
+     * counters row: journeys, distance, energy, CO2 reduced, credits issued,
+     * sales and purchases
+     * GET /api/users/me/counters
+     * 
+     * @param authentication Current authenticated user
+     * @return The user's counters
+     */
+    @GetMapping("/me/counters")
+    public ResponseEntity<ApiResponse<UserCounters>> getCurrentUserCounters(Authentication authentication) {
+        User user = userService.findByUsername(authentication.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        return ResponseEntity.ok(ApiResponse.success(userCounterService.getCounters(user.getId())));
+    }
+
     /**
      * Update user profile
      * PUT /api/users/{id}
@@ -14,10 +14,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.carboncredit.config.MoMoConfig;
 import com.carboncredit.dto.ApiResponse;
 import com.carboncredit.dto.DepositRequest;
+import com.carboncredit.dto.LedgerPageDTO;
 import com.carboncredit.dto.TransactionDTO;
 import com.carboncredit.dto.VNPayDepositRequest;
 import com.carboncredit.dto.WalletResponse;
@@ -37,7 +40,11 @@ import com.carboncredit.repository.PaymentRepository;
 import com.carboncredit.dto.WithdrawRequest;
 import com.carboncredit.service.BankingService;
 import com.carboncredit.service.CurrencyService;
+import com.carboncredit.service.IdService;
+import com.carboncredit.service.IdempotencyService;
+import com.carboncredit.service.LedgerService;
 import com.carboncredit.service.MoMoService;
+import com.carboncredit.service.PlatformRevenueService;
 import com.carboncredit.service.SystemSettingService;
 import com.carboncredit.util.DTOMapper;
 import com.carboncredit.service.TransactionService;
@@ -78,6 +85,18 @@ public class WalletController {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdService idService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     // ADD THIS TO YOUR WALLETCONTROLLER.JAVA
 
     // First, add MoMoService and MoMoConfig to existing @Autowired fields:
@@ -87,6 +106,9 @@ public class WalletController {
     @Autowired
     private MoMoConfig momoConfig;
 
+    @Autowired
+    private PlatformRevenueService platformRevenueService;
+
     /**
      * 🧪 TEST - Manually complete MoMo payment (bypasses signature check)
      */
@@ -121,7 +143,7 @@ public class WalletController {
             log.info("✅ Payment status updated to COMPLETED");
 
             // Update wallet balance
-            walletService.updateCashBalance(user.getId(), payment.getAmount());
+            walletService.deposit(user.getId(), payment.getAmount(), orderId);
             log.info("✅ Wallet balance updated: +${} USD", payment.getAmount());
 
             return ResponseEntity.ok(Map.of(
@@ -146,9 +168,15 @@ public class WalletController {
     @PostMapping("/deposit/momo")
     public ResponseEntity<Map<String, Object>> depositViaMoMo(
             @RequestBody @Valid VNPayDepositRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication,
             HttpServletRequest httpRequest) {
+        return idempotencyService.execute("deposit-momo:" + authentication.getName(), idempotencyKey, request,
+                () -> createMoMoDeposit(request, authentication));
+    }
 
+    private ResponseEntity<Map<String, Object>> createMoMoDeposit(VNPayDepositRequest request,
+            Authentication authentication) {
         try {
             User user = userService.findByUsername(authentication.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -162,7 +190,7 @@ public class WalletController {
             log.info("Converted: {} VND (rate: {})", amountVnd, exchangeRate);
 
             // Generate unique transaction reference
-            String txnRef = "DEP_" + System.currentTimeMillis();
+            String txnRef = idService.paymentReference("DEP");
 
             // Create payment record
             Payment payment = new Payment();
@@ -224,34 +252,49 @@ public class WalletController {
         log.info("🔔 MoMo IPN notification received");
 
         try {
-            String resultCode = params.get("resultCode");
-            String orderId = params.get("orderId"); // This is our txnRef
-            String amount = params.get("amount");
-            String signature = params.get("signature");
-
-            // Build raw signature for verification
-            String rawSignature = String.format(
-                    "accessKey=%s&amount=%s&extraData=%s&message=%s&orderId=%s&orderInfo=%s&orderType=%s&partnerCode=%s&payType=%s&requestId=%s&responseTime=%s&resultCode=%s&transId=%s",
-                    momoConfig.getAccessKey(),
-                    amount,
-                    params.getOrDefault("extraData", ""),
-                    params.getOrDefault("message", ""),
-                    orderId,
-                    params.getOrDefault("orderInfo", ""),
-                    params.getOrDefault("orderType", ""),
-                    momoConfig.getPartnerCode(),
-                    params.getOrDefault("payType", ""),
-                    params.getOrDefault("requestId", ""),
-                    params.getOrDefault("responseTime", ""),
-                    resultCode,
-                    params.getOrDefault("transId", ""));
-
-            // Verify signature
-            if (!momoService.verifySignature(rawSignature, signature)) {
+            // Verify signature before the idempotency key is claimed, so forged callbacks cannot occupy it
+            if (!verifyMoMoSignature(params)) {
                 log.warn("❌ Invalid MoMo signature - possible tampering");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("message", "Invalid signature"));
             }
+        } catch (Exception e) {
+            log.error("❌ Error verifying MoMo callback", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Callback processing failed: " + e.getMessage()));
+        }
+
+        // IPN retries and the browser return carry the same order and result, so the wallet is credited once
+        return idempotencyService.execute("momo", params.get("orderId") + ":" + params.get("resultCode"),
+                Map.of("orderId", String.valueOf(params.get("orderId")),
+                        "resultCode", String.valueOf(params.get("resultCode")),
+                        "amount", String.valueOf(params.get("amount"))),
+                () -> applyMoMoResult(params));
+    }
+
+    private boolean verifyMoMoSignature(Map<String, String> params) {
+        String rawSignature = String.format(
+                "accessKey=%s&amount=%s&extraData=%s&message=%s&orderId=%s&orderInfo=%s&orderType=%s&partnerCode=%s&payType=%s&requestId=%s&responseTime=%s&resultCode=%s&transId=%s",
+                momoConfig.getAccessKey(),
+                params.get("amount"),
+                params.getOrDefault("extraData", ""),
+                params.getOrDefault("message", ""),
+                params.get("orderId"),
+                params.getOrDefault("orderInfo", ""),
+                params.getOrDefault("orderType", ""),
+                momoConfig.getPartnerCode(),
+                params.getOrDefault("payType", ""),
+                params.getOrDefault("requestId", ""),
+                params.getOrDefault("responseTime", ""),
+                params.get("resultCode"),
+                params.getOrDefault("transId", ""));
+        return momoService.verifySignature(rawSignature, params.get("signature"));
+    }
+
+    private ResponseEntity<Map<String, Object>> applyMoMoResult(Map<String, String> params) {
+        try {
+            String resultCode = params.get("resultCode");
+            String orderId = params.get("orderId"); // This is our txnRef
 
             // Check if payment was successful (resultCode "0" means success)
             if ("0".equals(resultCode)) {
@@ -263,14 +306,15 @@ public class WalletController {
                     Payment payment = paymentOpt.get();
                     User user = payment.getPayer();
 
-                    // Update payment status
-                    payment.setPaymentStatus(Payment.PaymentStatus.COMPLETED);
-                    payment.setPaymentReference(params.get("transId")); // MoMo transaction ID
-                    paymentRepository.save(payment);
+                    // Complete the payment and credit the wallet, unless another callback already settled it
+                    if (!settleDeposit(payment, params.get("transId"), payment.getAmount())) {
+                        log.warn("⚠️ MoMo payment {} was already {}, not depositing again", orderId,
+                                payment.getPaymentStatus());
+                        return ResponseEntity.ok(Map.of(
+                                "message", "Payment already processed",
+                                "orderId", orderId));
+                    }
                     log.info("   Payment record updated: {}", payment.getId());
-
-                    // Update wallet balance
-                    walletService.updateCashBalance(user.getId(), payment.getAmount());
                     log.info("✅ Wallet updated for user: {}", user.getUsername());
                     log.info("   Added: ${} USD", payment.getAmount());
 
@@ -285,11 +329,8 @@ public class WalletController {
             } else {
                 log.warn("⚠️ MoMo payment failed. Result code: {}", resultCode);
 
-                // Update payment status to failed
-                paymentRepository.findByPaymentReference(orderId).ifPresent(payment -> {
-                    payment.setPaymentStatus(Payment.PaymentStatus.FAILED);
-                    paymentRepository.save(payment);
-                });
+                // Update payment status to failed, unless it was already settled
+                paymentRepository.findByPaymentReference(orderId).ifPresent(this::failPending);
 
                 return ResponseEntity.ok(Map.of(
                         "message", "Payment failed",
@@ -309,7 +350,14 @@ public class WalletController {
      */
     @PostMapping("/deposit/vnpay")
     public ResponseEntity<?> depositViaVNPay(@RequestBody @Valid VNPayDepositRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication, HttpServletRequest httpRequest) {
+        return idempotencyService.execute("deposit-vnpay:" + authentication.getName(), idempotencyKey, request,
+                () -> createVNPayDeposit(request, authentication, httpRequest));
+    }
+
+    private ResponseEntity<?> createVNPayDeposit(VNPayDepositRequest request, Authentication authentication,
+            HttpServletRequest httpRequest) {
         try {
             User user = userService.findByUsername(authentication.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -326,7 +374,7 @@ public class WalletController {
             log.info("Converted: {} VND (rate: {})", amountVnd, exchangeRate);
 
             // Generate transaction reference BEFORE creating payment
-            String txnRef = "DEP_" + System.currentTimeMillis();
+            String txnRef = idService.paymentReference("DEP");
 
             // Create pending payment record (store in USD)
             Payment payment = new Payment();
@@ -376,13 +424,28 @@ public class WalletController {
             log.info("TxnRef: {}", params.get("vnp_TxnRef"));
             log.info("Amount: {} VND cents", params.get("vnp_Amount"));
 
-            // Verify signature
+            // Verify signature before the idempotency key is claimed, so forged callbacks cannot occupy it
             boolean isValid = vnPayService.verifyReturnUrl(params);
             if (!isValid) {
                 log.warn("Invalid VNPAY signature - possible tampering");
                 return redirectToFrontend("invalid", "signature_eror");
             }
+        } catch (Exception e) {
+            log.error("Error processing VNPAY callback", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
 
+        // A reloaded return page replays the first redirect instead of crediting the wallet again
+        return idempotencyService.execute("vnpay", params.get("vnp_TxnRef") + ":" + params.get("vnp_ResponseCode"),
+                Map.of("vnp_TxnRef", String.valueOf(params.get("vnp_TxnRef")),
+                        "vnp_ResponseCode", String.valueOf(params.get("vnp_ResponseCode")),
+                        "vnp_Amount", String.valueOf(params.get("vnp_Amount"))),
+                () -> applyVNPayResult(params));
+    }
+
+    private ResponseEntity<?> applyVNPayResult(Map<String, String> params) {
+        try {
             // extact payment details
             String responseCode = params.get("vnp_ResponseCode");
             String amountStr = params.get("vnp_Amount");
@@ -411,16 +474,15 @@ public class WalletController {
                     Payment payment = paymentOpt.get();
                     User user = payment.getPayer();
 
-                    // update payment status and reference
-                    payment.setPaymentStatus(Payment.PaymentStatus.COMPLETED);
-                    payment.setPaymentReference(transactionNo);
-                    paymentRepository.save(payment);
+                    // Complete the payment and credit the wallet, unless another callback already settled it
+                    if (!settleDeposit(payment, transactionNo, amountUsd)) {
+                        log.warn("Payment {} was already {}, not depositing again", txnRef,
+                                payment.getPaymentStatus());
+                        return redirectToFrontend("error", "payment_already_processed");
+                    }
 
                     log.info("Payment record updated: {}", payment.getId());
 
-                    // Update wallet balance
-                    walletService.updateCashBalance(user.getId(), amountUsd);
-
                     log.info(" Wallet updated for user: {}", user.getUsername());
                     log.info("Added: ${} USD", amountUsd);
                     return redirectToFrontend("success", amountUsd.toString());
@@ -439,12 +501,8 @@ public class WalletController {
 
                 // TODO: Update payment status to FAILED
                 Optional<Payment> paymentOpt = paymentRepository.findByPaymentReference(txnRef);
-                if (paymentOpt.isPresent()) {
-                    Payment payment = paymentOpt.get();
-                    payment.setPaymentStatus(Payment.PaymentStatus.FAILED);
-                    paymentRepository.save(payment);
-
-                    log.info("   Payment marked as FAILED: {}", payment.getId());
+                if (paymentOpt.isPresent() && failPending(paymentOpt.get())) {
+                    log.info("   Payment marked as FAILED: {}", paymentOpt.get().getId());
                 }
                 return redirectToFrontend("failed", responseCode);
             }
@@ -455,6 +513,23 @@ public class WalletController {
         }
     }
 
+    // Callback keys are not a dedupe guarantee on their own: the payment must still be PENDING
+    private boolean settleDeposit(Payment payment, String gatewayReference, BigDecimal amount) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (paymentRepository.settlePending(payment.getId(), Payment.PaymentStatus.COMPLETED,
+                    gatewayReference) == 0) {
+                return false;
+            }
+            walletService.deposit(payment.getPayer().getId(), amount, gatewayReference);
+            return true;
+        }));
+    }
+
+    private boolean failPending(Payment payment) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> paymentRepository.settlePending(
+                payment.getId(), Payment.PaymentStatus.FAILED, payment.getPaymentReference()) == 1));
+    }
+
     /**
      * Get VNPAY error message by response code
      */
@@ -474,17 +549,11 @@ public class WalletController {
     }
 
     /**
-     * Get client IP address
-     * FIXED HERE WHEN DEPLOY
+     * Get client IP address, already resolved from X-Forwarded-For when the
+     * request came through a trusted proxy
      */
     private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty()) {
-            ip = request.getRemoteAddr();
-        }
+        String ip = request.getRemoteAddr();
         // Handle localhost IPv6
         if ("0:0:0:0:0:0:0:1".equals(ip)) {
             ip = "127.0.0.1";
@@ -568,7 +637,13 @@ public class WalletController {
     @PostMapping("/deposit")
     public ResponseEntity<WalletResponse> depositFunds(
             @Valid @RequestBody DepositRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
+        return idempotencyService.execute("deposit:" + authentication.getName(), idempotencyKey, request,
+                () -> deposit(request, authentication));
+    }
+
+    private ResponseEntity<WalletResponse> deposit(DepositRequest request, Authentication authentication) {
         try {
             User user = userService.findByUsername(authentication.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -583,7 +658,8 @@ public class WalletController {
             }
 
             // Update wallet balance
-            Wallet updatedWallet = walletService.updateCashBalance(user.getId(), request.getAmount());
+            Wallet updatedWallet = walletService.deposit(user.getId(), request.getAmount(),
+                    request.getPaymentMethodId());
             WalletResponse response = mapToWalletResponse(updatedWallet);
 
             log.info("Deposit successful: {} added to wallet for user {}", request.getAmount(), user.getUsername());
@@ -623,8 +699,8 @@ public class WalletController {
                 return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).build();
             }
 
-            // Update wallet balance (negative amount for withdrawal)
-            Wallet updatedWallet = walletService.updateCashBalance(user.getId(), request.getAmount().negate());
+            // Update wallet balance
+            Wallet updatedWallet = walletService.withdraw(user.getId(), request.getAmount(), null);
             WalletResponse response = mapToWalletResponse(updatedWallet);
 
             log.info("Withdrawal successful: {} deducted from wallet for user {}",
@@ -640,45 +716,62 @@ public class WalletController {
         }
     }
 
-    // Get wallet transaction history - Fixed to use existing TransactionService
+    // Get wallet transaction history
     @GetMapping("/transactions")
-    public ResponseEntity<ApiResponse<Page<TransactionDTO>>> getWalletTransactions( // Added ApiResponse wrapper
+    public ResponseEntity<ApiResponse<Page<TransactionDTO>>> getWalletTransactions(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             Authentication authentication) {
         log.info("Fetching wallet transactions for user {}", authentication.getName());
         try {
             User user = userService.findByUsername(authentication.getName())
-                    .orElseThrow(() -> new ResourceNotFoundException("User", "username", authentication.getName())); // Use
-                                                                                                                     // specific
-                                                                                                                     // exception
+                    .orElseThrow(() -> new ResourceNotFoundException("User", "username", authentication.getName()));
 
-            // *** FIX HERE ***
-            // Service now returns the DTO page directly
             Page<TransactionDTO> transactionDTOs = transactionService.getUserTransactions(user, page, size);
-            // *** REMOVED: Page<Transaction> transactions = ... ***
-            // *** REMOVED: Page<TransactionDTO> transactionDTOs =
-            // DTOMapper.toTransactionDTOPage(transactions); ***
 
             log.info("Retrieved {} wallet transactions for user: {}",
-                    transactionDTOs.getTotalElements(), user.getUsername()); // Use DTO page for count
-
-            // Wrap in ApiResponse
+                    transactionDTOs.getTotalElements(), user.getUsername());
             return ResponseEntity.ok(ApiResponse.success(transactionDTOs));
 
-        } catch (ResourceNotFoundException e) { // Catch specific exception
+        } catch (ResourceNotFoundException e) {
             log.warn("Cannot get transactions - user not found: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             log.error("Error retrieving wallet transactions for user {}: {}", authentication.getName(), e.getMessage(),
-                    e); // Log full exception
-            // Wrap in ApiResponse
+                    e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to retrieve transaction history."));
         }
 
     }
 
+    // Get wallet history from the ledger, newest first. Pass the returned
+    // nextCursor as cursor to read the following page.
+    @GetMapping("/ledger")
+    public ResponseEntity<ApiResponse<LedgerPageDTO>> getWalletLedger(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        log.info("Fetching wallet ledger for user {}", authentication.getName());
+        try {
+            User user = userService.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new ResourceNotFoundException("User", "username", authentication.getName()));
+
+            LedgerPageDTO history = ledgerService.getHistory(user.getId(), cursor, size);
+
+            log.info("Retrieved {} ledger entries for user: {}", history.getEntries().size(), user.getUsername());
+            return ResponseEntity.ok(ApiResponse.success(history));
+
+        } catch (ResourceNotFoundException e) {
+            log.warn("Cannot get ledger - user not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving wallet ledger for user {}: {}", authentication.getName(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to retrieve wallet history."));
+        }
+    }
+
     // Admin: Get any user's wallet (admin only)
     @GetMapping("/admin/user/{userId}")
     public ResponseEntity<WalletResponse> getUserWallet(@PathVariable UUID userId, Authentication authentication) { // Fixed:
@@ -729,9 +822,10 @@ public class WalletController {
             User platformUser = userService.findByUsername(platformUsername)
                     .orElseThrow(() -> new ResourceNotFoundException("User", "username", platformUsername));
 
-            // 3. Get that user's wallet
+            // 3. Get that user's wallet; fees still sitting in revenue shards are included
             Wallet wallet = walletService.getOrCreateWallet(platformUser);
             WalletResponse response = mapToWalletResponse(wallet); //
+            response.setCashBalance(platformRevenueService.getTotalRevenue(platformUser.getId()));
 
             log.info("✅ Platform revenue wallet retrieved successfully. Cash Balance: {}", response.getCashBalance());
 
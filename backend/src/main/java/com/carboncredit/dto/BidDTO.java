@@ -0,0 +1,20 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidDTO {
+    private UUID listingId;
+    private UUID bidderId;
+    private BigDecimal amount;
+    private LocalDateTime placedAt;
+    private LocalDateTime auctionEndTime;
+}
@@ -0,0 +1,23 @@
+package com.carboncredit.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartCheckoutRequest {
+
+    @NotEmpty(message = "Cart must contain at least one listing")
+    @Size(max = 100, message = "Cart can contain at most 100 listings")
+    private List<UUID> listingIds;
+
+    // true: buy everything or nothing; false: buy what is available and affordable
+    private boolean allOrNothing = true;
+}
@@ -0,0 +1,43 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a cart checkout, with one line per requested listing
+ */
+@Data
+@NoArgsConstructor
+public class CartCheckoutResultDTO {
+    private int requestedListings;
+    private int filledListings;
+    private BigDecimal totalCost = BigDecimal.ZERO;
+    private BigDecimal totalCredits = BigDecimal.ZERO;
+    private String paymentReference;
+    private List<LineResult> lines = new ArrayList<>();
+
+    public boolean isFullyFilled() {
+        return filledListings == requestedListings;
+    }
+
+    public enum LineStatus {
+        FILLED, REJECTED, SKIPPED_INSUFFICIENT_FUNDS
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineResult {
+        private UUID listingId;
+        private LineStatus status;
+        private BigDecimal price;
+        private UUID transactionId;
+        private String reason;
+    }
+}
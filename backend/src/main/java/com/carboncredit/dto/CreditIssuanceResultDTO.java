@@ -0,0 +1,21 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of issuing PENDING credits for all of a user's journeys without one
+ */
+@Data
+@NoArgsConstructor
+public class CreditIssuanceResultDTO {
+    private long eligibleJourneys;
+    private long creditsIssued;
+    private BigDecimal creditAmount = BigDecimal.ZERO;
+    // Journeys another run credited between being read and inserted
+    private long skippedJourneys;
+    // Journeys of chunks that failed to save; they stay eligible for the next run
+    private long failedJourneys;
+}
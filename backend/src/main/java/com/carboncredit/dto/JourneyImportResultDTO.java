@@ -0,0 +1,40 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk journey upload, with one result per data row
+ */
+@Data
+@NoArgsConstructor
+public class JourneyImportResultDTO {
+    private int totalRows;
+    private int acceptedRows;
+    private int rejectedRows;
+    // Set when the upload had more rows than allowed; rows after the limit were not read
+    private boolean truncated;
+    private List<RowResult> rows = new ArrayList<>();
+
+    public enum RowStatus {
+        ACCEPTED, REJECTED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        // 1-based line number in the upload
+        private long line;
+        private RowStatus status;
+        private UUID journeyId;
+        private BigDecimal co2ReducedKg;
+        private String reason;
+    }
+}
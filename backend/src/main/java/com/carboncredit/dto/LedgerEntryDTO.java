@@ -0,0 +1,23 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntryDTO {
+    private Long entryId;
+    private UUID journalId;
+    private String entryType;
+    private String asset;
+    private BigDecimal amount;
+    private String reference;
+    private String description;
+    private LocalDateTime createdAt;
+}
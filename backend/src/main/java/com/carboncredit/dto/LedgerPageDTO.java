@@ -0,0 +1,19 @@
+package com.carboncredit.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of ledger history. Pass nextCursor as the cursor of the next
+ * request; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPageDTO {
+    private List<LedgerEntryDTO> entries;
+    private Long nextCursor;
+}
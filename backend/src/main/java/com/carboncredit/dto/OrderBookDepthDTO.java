@@ -0,0 +1,48 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.carboncredit.util.OrderBook;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class OrderBookDepthDTO {
+    private String creditClass;
+    private int totalListings;
+
+    // Best ask (null when the book is empty)
+    private UUID bestAskListingId;
+    private BigDecimal bestAskPrice;
+
+    private List<PriceLevelDTO> levels;
+
+    public OrderBookDepthDTO(OrderBook book, List<OrderBook.PriceLevel> levels) {
+        this.creditClass = book.getCreditClass();
+        this.totalListings = book.size();
+        book.bestAsk().ifPresent(best -> {
+            this.bestAskListingId = best.getListingId();
+            this.bestAskPrice = best.getPrice();
+        });
+        this.levels = levels.stream().map(PriceLevelDTO::new).collect(Collectors.toList());
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class PriceLevelDTO {
+        private BigDecimal price;
+        private int listingCount;
+        private BigDecimal creditAmount;
+
+        public PriceLevelDTO(OrderBook.PriceLevel level) {
+            this.price = level.getPrice();
+            this.listingCount = level.getOrderCount();
+            this.creditAmount = level.getCreditAmount();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.carboncredit.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.carboncredit.util.OrderBook;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fill plan for a buy order: the listings to purchase, cheapest first.
+ */
+@Data
+@NoArgsConstructor
+public class OrderBookMatchDTO {
+    private BigDecimal limitPrice;
+    private BigDecimal requestedCredits;
+    private BigDecimal filledCredits = BigDecimal.ZERO;
+    private BigDecimal totalCost = BigDecimal.ZERO;
+    private List<UUID> listingIds;
+
+    public OrderBookMatchDTO(BigDecimal limitPrice, BigDecimal requestedCredits, List<OrderBook.Order> fills) {
+        this.limitPrice = limitPrice;
+        this.requestedCredits = requestedCredits;
+        for (OrderBook.Order fill : fills) {
+            this.filledCredits = this.filledCredits.add(fill.getCreditAmount());
+            this.totalCost = this.totalCost.add(fill.getPrice());
+        }
+        this.listingIds = fills.stream().map(OrderBook.Order::getListingId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,21 @@
+package com.carboncredit.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Journeys a CVA holds in the verification queue; renew the lease with a
+ * heartbeat before it expires or the journeys go back to the queue
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificationLeaseDTO {
+    private List<JourneyDataDTO> journeys;
+    // Null when nothing is held
+    private LocalDateTime leaseExpiresAt;
+}
@@ -18,7 +18,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class AuditLog {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "audit_id")
     private UUID id;
 
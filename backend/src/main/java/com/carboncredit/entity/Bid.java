@@ -0,0 +1,49 @@
+package com.carboncredit.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Accepted bid on an auction listing. Bids are append-only; the winning bid
+ * is the highest amount, ties broken by the earliest placement.
+ */
+@Entity
+@Table(name = "bids")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Bid {
+
+    @Id
+    @TimeOrderedUuid
+    @Column(name = "bid_id")
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "listing_id", nullable = false)
+    private CreditListing listing;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bidder_id", nullable = false)
+    private User bidder;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    // Set by the bidding engine when the bid was accepted, not at insert time
+    @Column(name = "placed_at", nullable = false)
+    private LocalDateTime placedAt;
+}
@@ -20,7 +20,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class CarbonCredit {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "credit_id")
     private UUID id;
 
@@ -29,7 +29,7 @@ public class CarbonCredit {
     private User user;
 
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "journey_id")
+    @JoinColumn(name = "journey_id", unique = true)
     private JourneyData journey;
 
     @Column(name = "co2_reduced_kg", nullable = false, precision = 10, scale = 2)
@@ -19,7 +19,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Certificate {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "certificate_id")
     private UUID id;
 
@@ -20,10 +20,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({ AuditingEntityListener.class, CreditListingListener.class })
 public class CreditListing {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "listing_id")
     private UUID id;
 
@@ -56,6 +56,11 @@ public class CreditListing {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped on every update, so listing change events can be ordered
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "listing", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Transaction> transactions;
 
@@ -76,6 +81,10 @@ public class CreditListing {
     @Column(name = "rejection_reason", length = 500)
     private String rejectionReason;
 
+    // Set when an ended auction could not be settled; the auction closer retries it from here
+    @Column(name = "settlement_failed_at")
+    private LocalDateTime settlementFailedAt;
+
     public enum ListingType {
         FIXED, AUCTION
     }
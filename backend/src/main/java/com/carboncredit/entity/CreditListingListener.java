@@ -0,0 +1,61 @@
+package com.carboncredit.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.CreditListing.ListingType;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * JPA listener that publishes a {@link ListingChangedEvent} whenever a
+ * credit listing is inserted, updated or deleted, so in-memory views of the
+ * marketplace (e.g. the order book and the auction closer) can follow status, price
+ * and end time changes.
+ * Instantiated by Hibernate through Spring's bean container.
+ */
+public class CreditListingListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CreditListingListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(CreditListing listing) {
+        eventPublisher.publishEvent(new ListingChangedEvent(listing.getId(), listing.getListingType(),
+                listing.getStatus(), listing.getPrice(), listing.getAuctionEndTime(), listing.getVersion()));
+    }
+
+    @PostRemove
+    public void onRemoved(CreditListing listing) {
+        eventPublisher.publishEvent(new ListingChangedEvent(listing.getId(), listing.getListingType(),
+                null, listing.getPrice(), listing.getAuctionEndTime(), listing.getVersion()));
+    }
+
+    /**
+     * Snapshot of the listing columns relevant to market views.
+     * A null status means the listing row was deleted. The version is the
+     * row version the snapshot was written at.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ListingChangedEvent {
+        private final UUID listingId;
+        private final ListingType listingType;
+        private final ListingStatus status;
+        private final BigDecimal price;
+        private final LocalDateTime auctionEndTime;
+        private final Long version;
+    }
+}
@@ -18,7 +18,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Dispute {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "dispute_id")
     private UUID id;
 
@@ -0,0 +1,35 @@
+package com.carboncredit.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snowflake worker ID held by one running node. Written with plain JDBC by
+ * IdService; mapped so the schema is created and validated.
+ */
+@Entity
+@Table(name = "id_worker_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdWorkerLease {
+
+    @Id
+    @Column(name = "worker_id")
+    private Integer workerId;
+
+    // Host, process and a random suffix, so a restarted process does not inherit the lease
+    @Column(nullable = false, length = 255)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
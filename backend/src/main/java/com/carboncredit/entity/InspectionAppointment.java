@@ -18,7 +18,7 @@ public class InspectionAppointment {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
     @Column(name = "appointment_id")
     private UUID id;
 
@@ -19,7 +19,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class JourneyData {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "journey_id")
     private UUID id;
 
@@ -68,6 +68,14 @@ public class JourneyData {
     @Column(name = "rejection_reason", length = 500)
     private String rejectionReason;
 
+    // CVA working on the journey through the verification queue, until the lease expires
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "leased_by_id")
+    private User leasedBy;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     @OneToOne(mappedBy = "journey", fetch = FetchType.LAZY)
     private InspectionAppointment inspectionAppointment;
 
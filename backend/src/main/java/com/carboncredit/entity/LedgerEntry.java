@@ -0,0 +1,84 @@
+package com.carboncredit.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One leg of a double-entry journal. Entries are only ever inserted; the
+ * legs of a journal share a journal id and sum to zero per asset.
+ */
+@Entity
+@Table(name = "ledger_entries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    // Assigned by the database on insert, so ids follow insertion order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "entry_id")
+    private Long id;
+
+    @Column(name = "journal_id", nullable = false)
+    private UUID journalId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private LedgerAccount account;
+
+    // Owner for USER and HOLD accounts, null for platform-wide accounts
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Asset asset;
+
+    // Signed: positive increases the account balance
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 30)
+    private EntryType entryType;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(length = 255)
+    private String description;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum LedgerAccount {
+        USER,             // spendable wallet balance
+        HOLD,             // cash reserved for a pending purchase or leading bid
+        EXTERNAL,         // money and credits entering or leaving the platform
+        PLATFORM_REVENUE  // fees accrued but not yet folded into the platform wallet
+    }
+
+    public enum Asset {
+        CASH, CREDIT
+    }
+
+    public enum EntryType {
+        OPENING, DEPOSIT, WITHDRAWAL, ADJUSTMENT, CREDIT_ISSUANCE, RESERVE, RELEASE, PURCHASE, TRANSFER,
+        FEE_SETTLEMENT
+    }
+}
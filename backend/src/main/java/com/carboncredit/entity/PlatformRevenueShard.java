@@ -0,0 +1,36 @@
+package com.carboncredit.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slice of the platform fee sub-ledger. Written with plain JDBC by
+ * PlatformRevenueService; mapped so the schema is created and validated.
+ */
+@Entity
+@Table(name = "platform_revenue_shards")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlatformRevenueShard {
+
+    @Id
+    @Column(name = "shard_id")
+    private Integer shardId;
+
+    // Fees accrued since the last fold into the platform wallet
+    @Column(name = "pending_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal pendingAmount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
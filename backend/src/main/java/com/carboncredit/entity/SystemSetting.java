@@ -22,7 +22,7 @@ import java.util.UUID;
 public class SystemSetting {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
     @Column(name = "setting_id")
     private UUID settingId;
 
@@ -20,7 +20,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Transaction {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "transaction_id")
     private UUID id;
 
@@ -24,7 +24,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class User implements UserDetails {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "user_id")
     private UUID id;
 
@@ -78,6 +78,10 @@ public class User implements UserDetails {
     @Column(name = "password_reset_requested_at")
     private LocalDateTime passwordResetRequestedAt;
 
+    // Embedded in issued JWTs; bumping it rejects every token issued before
+    @Column(name = "token_version", nullable = false)
+    private Long tokenVersion = 0L;
+
     // Relationships
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Vehicle> vehicles;
@@ -148,4 +152,11 @@ public class User implements UserDetails {
         this.passwordResetExpiresAt = null;
         this.passwordResetRequestedAt = null;
     }
+
+    /**
+     * Helper method: Reject every token issued so far, e.g. after a role or password change
+     */
+    public void revokeTokens() {
+        this.tokenVersion = (tokenVersion == null ? 0L : tokenVersion) + 1;
+    }
 }
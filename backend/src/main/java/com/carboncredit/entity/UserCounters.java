@@ -0,0 +1,67 @@
+package com.carboncredit.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running sustainability and trading totals of one user. Written with plain
+ * JDBC by UserCounterService in the transactions that change the underlying
+ * rows; mapped so the schema is created and validated.
+ */
+@Entity
+@Table(name = "user_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCounters {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    // All journeys of the user, whatever their verification status
+    @Column(name = "journey_count", nullable = false)
+    private Long journeyCount;
+
+    @Column(name = "distance_km", nullable = false, precision = 19, scale = 2)
+    private BigDecimal distanceKm;
+
+    @Column(name = "energy_consumed_kwh", nullable = false, precision = 19, scale = 2)
+    private BigDecimal energyConsumedKwh;
+
+    @Column(name = "co2_reduced_kg", nullable = false, precision = 19, scale = 2)
+    private BigDecimal co2ReducedKg;
+
+    // Credits the user earned that passed verification (VERIFIED, LISTED or SOLD)
+    @Column(name = "credits_issued", nullable = false)
+    private Long creditsIssued;
+
+    @Column(name = "credits_issued_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal creditsIssuedAmount;
+
+    // COMPLETED transactions as seller and as buyer
+    @Column(name = "sales_count", nullable = false)
+    private Long salesCount;
+
+    @Column(name = "sales_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal salesAmount;
+
+    @Column(name = "purchase_count", nullable = false)
+    private Long purchaseCount;
+
+    @Column(name = "purchase_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal purchaseAmount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -20,7 +20,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Vehicle {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "vehicle_id")
     private UUID id;
 
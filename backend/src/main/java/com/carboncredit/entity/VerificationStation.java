@@ -11,7 +11,7 @@ import java.util.UUID;
 public class VerificationStation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
     @Column(name = "station_id")
     private UUID id;
 
@@ -19,7 +19,7 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Wallet {
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(name = "wallet_id")
     private UUID id;
 
@@ -1,5 +1,6 @@
 package com.carboncredit.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -76,6 +77,17 @@ public class GlobalExceptionHandler {
         return createErrorResponse(HttpStatus.FORBIDDEN, "SECURITY_VIOLATION", ex.getMessage());
     }
 
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceBusy(
+            ServiceBusyException ex, WebRequest request) {
+        log.warn("Request turned away: {}", ex.getMessage());
+        ResponseEntity<Map<String, Object>> response =
+                createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_BUSY", ex.getMessage());
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(
             Exception ex, WebRequest request) {
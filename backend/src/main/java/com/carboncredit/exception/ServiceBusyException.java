@@ -0,0 +1,19 @@
+package com.carboncredit.exception;
+
+/**
+ * Exception thrown when a bounded resource turns work away to protect the
+ * rest of the service; the client should retry after the given delay
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,30 @@
+package com.carboncredit.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.carboncredit.entity.Bid;
+
+@Repository
+public interface BidRepository extends JpaRepository<Bid, UUID> {
+
+    /**
+     * Highest bid for a listing (earliest wins a tie)
+     */
+    @Query("SELECT b FROM Bid b JOIN FETCH b.bidder WHERE b.listing.id = :listingId " +
+            "ORDER BY b.amount DESC, b.placedAt ASC")
+    List<Bid> findTopBids(@Param("listingId") UUID listingId, Pageable pageable);
+
+    default Optional<Bid> findHighestBid(UUID listingId) {
+        return findTopBids(listingId, Pageable.ofSize(1)).stream().findFirst();
+    }
+
+    long countByListingId(UUID listingId);
+}
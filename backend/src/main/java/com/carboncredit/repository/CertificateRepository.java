@@ -9,4 +9,5 @@ import java.util.UUID;
 public interface CertificateRepository extends JpaRepository<Certificate, UUID> {
     List<Certificate> findByBuyerId(UUID buyerId);
     Optional<Certificate> findByIdAndBuyerId(UUID id, UUID buyerId);
+    boolean existsByTransactionId(UUID transactionId);
 }
\ No newline at end of file
@@ -9,9 +9,12 @@ import java.util.UUID;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.carboncredit.entity.CarbonCredit;
 import com.carboncredit.entity.CreditListing;
@@ -19,6 +22,8 @@ import com.carboncredit.entity.CreditListing.ListingStatus;
 import com.carboncredit.entity.CreditListing.ListingType;
 import com.carboncredit.entity.User;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface CreditListingRepository extends JpaRepository<CreditListing, UUID> {
         // basic crud inherited from Jpa Repo
@@ -244,4 +249,63 @@ public interface CreditListingRepository extends JpaRepository<CreditListing, UU
         @Query("SELECT cl FROM CreditListing cl WHERE cl.status = 'ACTIVE' ORDER BY cl.createdAt DESC")
         List<CreditListing> findActiveListingsOrderByNewest();
 
+        // ==================== ORDER BOOK ====================
+
+        /**
+         * Rows for the in-memory order book: listingId, price, creditAmount,
+         * sellerId, listedAt, version. Ordered by listing time to seed time
+         * priority.
+         */
+        @Query("SELECT cl.id, cl.price, c.creditAmount, c.user.id, COALESCE(cl.approvedAt, cl.createdAt), cl.version " +
+                        "FROM CreditListing cl JOIN cl.credit c " +
+                        "WHERE cl.status = 'ACTIVE' AND cl.listingType = 'FIXED' " +
+                        "ORDER BY COALESCE(cl.approvedAt, cl.createdAt) ASC")
+        List<Object[]> findOrderBookRows();
+
+        /**
+         * Order book row for a single listing, if it is an active fixed-price listing
+         */
+        @Query("SELECT cl.id, cl.price, c.creditAmount, c.user.id, COALESCE(cl.approvedAt, cl.createdAt), cl.version " +
+                        "FROM CreditListing cl JOIN cl.credit c " +
+                        "WHERE cl.id = :listingId AND cl.status = 'ACTIVE' AND cl.listingType = 'FIXED'")
+        List<Object[]> findOrderBookRow(@Param("listingId") UUID listingId);
+
+        // ============ AUCTIONS ===============
+
+        // load a listing together with its seller, for use outside a transaction
+        @Query("SELECT cl FROM CreditListing cl JOIN FETCH cl.credit c JOIN FETCH c.user WHERE cl.id = :listingId")
+        Optional<CreditListing> findByIdWithSeller(@Param("listingId") UUID listingId);
+
+        /**
+         * End times of all active auctions, as [listingId, auctionEndTime] rows.
+         * Loaded once at startup to seed the auction closer.
+         */
+        @Query("SELECT cl.id, cl.auctionEndTime FROM CreditListing cl " +
+                        "WHERE cl.status = 'ACTIVE' AND cl.listingType = 'AUCTION' AND cl.auctionEndTime IS NOT NULL")
+        List<Object[]> findActiveAuctionEndTimes();
+
+        /**
+         * Record that an auction could not be settled. A bulk update, so it
+         * publishes no listing change and the auction is not rescheduled.
+         */
+        @Modifying
+        @Transactional
+        @Query("UPDATE CreditListing cl SET cl.settlementFailedAt = :failedAt " +
+                        "WHERE cl.id = :listingId AND cl.status = 'ACTIVE'")
+        int markSettlementFailed(@Param("listingId") UUID listingId, @Param("failedAt") LocalDateTime failedAt);
+
+        // Auctions still active after the auction closer gave up settling them
+        @Query("SELECT cl.id FROM CreditListing cl WHERE cl.status = 'ACTIVE' AND cl.listingType = 'AUCTION' " +
+                        "AND cl.settlementFailedAt IS NOT NULL")
+        List<UUID> findFailedSettlements();
+
+        // ============ CART CHECKOUT ===============
+
+        /**
+         * Lock and load all listings of a cart with their credit and seller in one query
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT cl FROM CreditListing cl JOIN FETCH cl.credit c JOIN FETCH c.user WHERE cl.id IN :listingIds")
+        List<CreditListing> findAllForCheckout(@Param("listingIds") List<UUID> listingIds);
+
 }
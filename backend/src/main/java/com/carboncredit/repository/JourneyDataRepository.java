@@ -4,13 +4,20 @@ import com.carboncredit.entity.JourneyData;
 import com.carboncredit.entity.JourneyData.VerificationStatus;
 import com.carboncredit.entity.User;
 import com.carboncredit.entity.Vehicle;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -25,6 +32,108 @@ public interface JourneyDataRepository extends JpaRepository<JourneyData, UUID>
     @Query("SELECT SUM(j.co2ReducedKg) FROM JourneyData j WHERE j.user = :user")
     BigDecimal getTotalCo2ReductionByUser(User user);
 
+    /**
+     * Totals of a user's journeys and of the credits issued for them
+     */
+    interface JourneyTotals {
+        long getJourneys();
+
+        BigDecimal getDistanceKm();
+
+        BigDecimal getEnergyConsumedKwh();
+
+        BigDecimal getCo2ReducedKg();
+
+        long getJourneysWithCredits();
+
+        BigDecimal getCreditAmount();
+
+        BigDecimal getPotentialCreditAmount();
+    }
+
+    /**
+     * Aggregate a user's journeys in one grouped query. The potential credit of
+     * a journey without one is its CO2 reduction as calculateCO2Reduction works
+     * it out: distance times carKgPerKm less energy times gridKgPerKwh, at least
+     * zero, rounded to 2 decimals.
+     */
+    @Query("SELECT COUNT(j) AS journeys, " +
+            "COALESCE(SUM(j.distanceKm), 0) AS distanceKm, " +
+            "COALESCE(SUM(j.energyConsumedKwh), 0) AS energyConsumedKwh, " +
+            "COALESCE(SUM(j.co2ReducedKg), 0) AS co2ReducedKg, " +
+            "COUNT(c) AS journeysWithCredits, " +
+            "COALESCE(SUM(c.creditAmount), 0) AS creditAmount, " +
+            "COALESCE(SUM(CASE WHEN c.id IS NULL THEN " +
+            "  CASE WHEN j.distanceKm * :carKgPerKm > j.energyConsumedKwh * :gridKgPerKwh " +
+            "  THEN ROUND(j.distanceKm * :carKgPerKm - j.energyConsumedKwh * :gridKgPerKwh, 2) " +
+            "  ELSE 0 END END), 0) AS potentialCreditAmount " +
+            "FROM JourneyData j LEFT JOIN j.carbonCredit c WHERE j.user = :user")
+    JourneyTotals getJourneyTotals(User user, BigDecimal carKgPerKm, BigDecimal gridKgPerKwh);
+
+    /**
+     * Time span of one journey
+     */
+    interface JourneyInterval {
+        UUID getId();
+
+        LocalDateTime getStartTime();
+
+        LocalDateTime getEndTime();
+    }
+
+    /**
+     * Time spans of all timed journeys of a vehicle, for the overlap index
+     */
+    @Query("SELECT j.id AS id, j.startTime AS startTime, j.endTime AS endTime FROM JourneyData j " +
+            "WHERE j.vehicle.id = :vehicleId AND j.startTime IS NOT NULL AND j.endTime IS NOT NULL")
+    List<JourneyInterval> findIntervalsByVehicleId(UUID vehicleId);
+
+    /**
+     * Journey id and CO2 reduction, enough to issue its credit
+     */
+    interface EligibleJourney {
+        UUID getId();
+
+        BigDecimal getCo2ReducedKg();
+    }
+
+    /**
+     * The user's journeys with a CO2 reduction and no carbon credit, in id
+     * order after the given id; pages through them without an offset
+     */
+    @Query("SELECT j.id AS id, j.co2ReducedKg AS co2ReducedKg FROM JourneyData j " +
+            "WHERE j.user.id = :userId AND j.id > :afterId AND j.co2ReducedKg > 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM CarbonCredit c WHERE c.journey = j) ORDER BY j.id")
+    List<EligibleJourney> findEligibleForCredits(UUID userId, UUID afterId, Pageable pageable);
+
+    /**
+     * Lock the oldest journeys in the status that are not leased or whose
+     * lease has expired, skipping rows another CVA is leasing right now.
+     * Native so SKIP LOCKED is sent whatever the dialect.
+     */
+    @Query(nativeQuery = true, value = "SELECT * FROM journey_data WHERE verification_status = :status " +
+            "AND (lease_expires_at IS NULL OR lease_expires_at < :now) " +
+            "ORDER BY created_at, journey_id LIMIT :limit FOR UPDATE SKIP LOCKED")
+    List<JourneyData> lockLeasable(String status, LocalDateTime now, int limit);
+
+    @Query("SELECT j FROM JourneyData j WHERE j.leasedBy.id = :cvaId AND j.verificationStatus = :status " +
+            "AND j.leaseExpiresAt >= :now ORDER BY j.createdAt, j.id")
+    List<JourneyData> findLeasedBy(UUID cvaId, VerificationStatus status, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE JourneyData j SET j.leaseExpiresAt = :until WHERE j.leasedBy.id = :cvaId " +
+            "AND j.verificationStatus = :status AND j.leaseExpiresAt >= :now")
+    int extendLeases(UUID cvaId, VerificationStatus status, LocalDateTime now, LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE JourneyData j SET j.leasedBy = NULL, j.leaseExpiresAt = NULL " +
+            "WHERE j.leasedBy.id = :cvaId AND j.id IN :journeyIds")
+    int releaseLeases(UUID cvaId, Collection<UUID> journeyIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM JourneyData j WHERE j.id = :id")
+    Optional<JourneyData> findByIdForUpdate(UUID id);
+
     @Query("SELECT j FROM JourneyData j WHERE j.carbonCredit IS NULL ORDER BY j.createdAt DESC")
     List<JourneyData> findJourneysWithoutCredits();
 
@@ -0,0 +1,27 @@
+package com.carboncredit.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.carboncredit.entity.LedgerEntry;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Newest entries of an account older than the cursor (keyset page)
+     */
+    @Query("SELECT e FROM LedgerEntry e WHERE e.userId = :userId AND e.account = :account AND e.id < :before " +
+            "ORDER BY e.id DESC")
+    List<LedgerEntry> findPageBefore(@Param("userId") UUID userId, @Param("account") LedgerAccount account,
+            @Param("before") long before, Pageable pageable);
+
+    List<LedgerEntry> findByJournalIdOrderById(UUID journalId);
+}
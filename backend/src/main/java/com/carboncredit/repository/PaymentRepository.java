@@ -7,6 +7,7 @@ import com.carboncredit.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -46,6 +47,18 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
      */
     Optional<Payment> findByPaymentReference(String paymentReference);
 
+    /**
+     * Move a payment that is still PENDING to the status and reference the
+     * gateway reported
+     *
+     * @return 0 if the payment was already settled
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.paymentStatus = :status, p.paymentReference = :reference " +
+            "WHERE p.id = :id AND p.paymentStatus = 'PENDING'")
+    int settlePending(@Param("id") UUID id, @Param("status") PaymentStatus status,
+            @Param("reference") String reference);
+
     /**
      * Find pending payments for a user
      */
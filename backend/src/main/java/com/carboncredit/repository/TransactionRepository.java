@@ -7,12 +7,16 @@ import com.carboncredit.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,6 +26,15 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
 
         Page<Transaction> findByBuyer(User buyer, Pageable pageable);
 
+        // Lock a transaction row so its status can be checked and changed without a concurrent update
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT t FROM Transaction t WHERE t.id = :transactionId")
+        Optional<Transaction> findByIdForUpdate(@Param("transactionId") UUID transactionId);
+
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT t FROM Transaction t WHERE t.id IN :transactionIds ORDER BY t.id")
+        List<Transaction> findAllByIdForUpdate(@Param("transactionIds") Collection<UUID> transactionIds);
+
         Page<Transaction> findBySeller(User seller, Pageable pageable);
 
         Page<Transaction> findByStatus(TransactionStatus status, Pageable pageable);
@@ -56,28 +69,19 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
         Optional<Transaction> findPendingTransactionForListing(@Param("listingId") UUID listingId);
 
         /**
-         * Count recent transactions by user (for security/fraud detection)
-         */
-        @Query("SELECT COUNT(t) FROM Transaction t WHERE t.buyer.id = :userId AND t.createdAt > :since")
-        long countRecentTransactionsByUser(@Param("userId") UUID userId, @Param("since") LocalDateTime since);
-
-        /**
-         * Count today's transactions by user (daily limit check)
-         */
-        @Query("SELECT COUNT(t) FROM Transaction t WHERE t.buyer.id = :userId AND t.createdAt >= :startOfDay AND t.createdAt < :endOfDay")
-        long countTodayTransactionsByUser(@Param("userId") UUID userId, @Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
-
-        /**
-         * Get daily spending by user (daily limit check)
+         * Creation time, status and amount of the buyer's transactions since the
+         * given time (loads the buyer's activity windows)
          */
-        @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.buyer.id = :userId AND t.createdAt >= :startOfDay AND t.createdAt < :endOfDay AND t.status = 'COMPLETED'")
-        BigDecimal getDailySpentByUser(@Param("userId") UUID userId, @Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
+        @Query("SELECT t.createdAt, t.status, t.amount FROM Transaction t "
+                        + "WHERE t.buyer.id = :buyerId AND t.createdAt >= :since")
+        List<Object[]> findBuyerActivitySince(@Param("buyerId") UUID buyerId, @Param("since") LocalDateTime since);
 
         /**
-         * Get average transaction amount by user (fraud detection)
+         * Count and sum of the buyer's completed purchases (loads the running average)
          */
-        @Query("SELECT AVG(t.amount) FROM Transaction t WHERE t.buyer.id = :userId AND t.status = 'COMPLETED'")
-        Optional<BigDecimal> getAverageTransactionAmountByUser(@Param("userId") UUID userId);
+        @Query("SELECT COUNT(t), COALESCE(SUM(t.amount), 0) FROM Transaction t "
+                        + "WHERE t.buyer.id = :buyerId AND t.status = 'COMPLETED'")
+        List<Object[]> summarizeCompletedPurchases(@Param("buyerId") UUID buyerId);
 
         /**
          * Find transactions by credit ID
@@ -27,6 +27,9 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByFullName(String fullName);
 
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findTokenVersionById(UUID id);
+
     @Query("SELECT u FROM User u WHERE u.role = :role AND u.createdAt >= CURRENT_TIMESTAMP - 30 DAY")
     List<User> findRecentUsersByRole(User.UserRole role);
 
@@ -9,6 +9,8 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+public interface WalletRepository extends JpaRepository<Wallet, UUID>, WalletRepositoryCustom {
     Optional<Wallet> findByUserId(UUID userId);
+
+    boolean existsByUserId(UUID userId);
 }
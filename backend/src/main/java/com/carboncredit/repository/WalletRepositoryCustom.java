@@ -0,0 +1,34 @@
+package com.carboncredit.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.carboncredit.entity.Wallet;
+
+public interface WalletRepositoryCustom {
+
+    /**
+     * Add to a wallet's balances with one conditional UPDATE that only
+     * matches while neither balance would go negative. A wallet already
+     * loaded in the persistence context does not see the change; read it
+     * again with {@link #findCurrentByUserId(UUID)}.
+     *
+     * @return 1 if the wallet was updated, 0 if it is missing or the change
+     *         was rejected
+     */
+    int addToBalances(UUID userId, BigDecimal cashDelta, BigDecimal creditDelta);
+
+    /**
+     * Lock the users' wallet rows with SELECT ... FOR UPDATE, in user id
+     * order, until the current transaction ends. Missing wallets are skipped.
+     */
+    void lockByUserIds(Collection<UUID> userIds);
+
+    /**
+     * Load a user's wallet with its balances as currently stored, even if
+     * this persistence context already holds an older copy
+     */
+    Optional<Wallet> findCurrentByUserId(UUID userId);
+}
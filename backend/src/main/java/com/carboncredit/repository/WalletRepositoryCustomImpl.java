@@ -0,0 +1,58 @@
+package com.carboncredit.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import com.carboncredit.entity.Wallet;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class WalletRepositoryCustomImpl implements WalletRepositoryCustom {
+
+    private static final String ADD_TO_BALANCES = "UPDATE Wallet w SET w.cashBalance = w.cashBalance + :cash, "
+            + "w.creditBalance = w.creditBalance + :credit, w.updatedAt = :now "
+            + "WHERE w.user.id = :userId AND w.cashBalance + :cash >= 0 AND w.creditBalance + :credit >= 0";
+
+    private static final String LOCK_WALLET = "SELECT user_id FROM wallets WHERE user_id = :userId FOR UPDATE";
+
+    private static final String FIND_BY_USER = "SELECT w FROM Wallet w WHERE w.user.id = :userId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int addToBalances(UUID userId, BigDecimal cashDelta, BigDecimal creditDelta) {
+        return entityManager.createQuery(ADD_TO_BALANCES)
+                .setParameter("cash", cashDelta)
+                .setParameter("credit", creditDelta)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    @Override
+    public void lockByUserIds(Collection<UUID> userIds) {
+        // One row at a time in a fixed order; a row this transaction already holds is not waited on
+        for (UUID userId : new TreeSet<>(userIds)) {
+            entityManager.createNativeQuery(LOCK_WALLET)
+                    .setParameter("userId", userId)
+                    .getResultList();
+        }
+    }
+
+    @Override
+    public Optional<Wallet> findCurrentByUserId(UUID userId) {
+        List<Wallet> wallets = entityManager.createQuery(FIND_BY_USER, Wallet.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        // The query hands back an instance this context may have loaded before a bulk update
+        wallets.forEach(entityManager::refresh);
+        return wallets.stream().findFirst();
+    }
+}
@@ -0,0 +1,293 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.BidDTO;
+import com.carboncredit.entity.Bid;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.CreditListing.ListingType;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.repository.BidRepository;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bidding engine for AUCTION listings.
+ *
+ * The leading bid of every open auction lives in memory, so bids that do not
+ * beat the current leader are rejected without touching the database. A bid
+ * that does takes the auction's lock and, in one transaction, reserves its
+ * cash through {@link WalletService}, releases the previous leader's
+ * reservation and inserts its row; the lead moves only after that commits.
+ * The highest stored bid is therefore always the one holding cash, which is
+ * what a restarted node reloads and releases. An auction's state is dropped
+ * once it is closed, cancelled or deleted.
+ */
+@Service
+@Slf4j
+public class AuctionBiddingService {
+
+    private final CreditListingRepository creditListingRepository;
+    private final BidRepository bidRepository;
+    private final UserRepository userRepository;
+    private final WalletService walletService;
+    private final ValidationService validationService;
+    // Bids commit before the lead moves, and listing changes are handled after their own commit
+    private final TransactionTemplate writeTemplate;
+
+    private final ConcurrentHashMap<UUID, AuctionState> auctions = new ConcurrentHashMap<>();
+
+    public AuctionBiddingService(CreditListingRepository creditListingRepository, BidRepository bidRepository,
+            UserRepository userRepository, WalletService walletService, ValidationService validationService,
+            TransactionTemplate transactionTemplate) {
+        this.creditListingRepository = creditListingRepository;
+        this.bidRepository = bidRepository;
+        this.userRepository = userRepository;
+        this.walletService = walletService;
+        this.validationService = validationService;
+        this.writeTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ==================== BIDDING ====================
+
+    /**
+     * Place a bid on an active auction.
+     *
+     * @throws BusinessOperationException if the auction is closed, the bid is
+     *                                    below the minimum or not higher than
+     *                                    the current best bid
+     */
+    public BidDTO placeBid(UUID listingId, User bidder, BigDecimal amount) {
+        validationService.validateId(listingId, "CreditListing");
+        validationService.validateUserCanBuy(bidder);
+        validationService.validatePrice(amount);
+
+        AuctionState auction = getAuctionState(listingId);
+        UUID bidderId = bidder.getId();
+
+        // Cheap in-memory checks first: most bids on a hot auction are stale
+        rejectIfNotAcceptable(auction, bidderId, amount, auction.bestBid.get());
+
+        LeadingBid candidate = new LeadingBid(bidderId, amount, LocalDateTime.now(), false);
+        synchronized (auction) {
+            // Re-check under the lock: a higher bid or the close may have landed meanwhile
+            LeadingBid current = auction.bestBid.get();
+            rejectIfNotAcceptable(auction, bidderId, amount, current);
+            writeTemplate.executeWithoutResult(tx -> {
+                walletService.reserveCash(bidderId, amount);
+                if (current != null && current.bidderId != null) {
+                    walletService.releaseCash(current.bidderId, current.amount);
+                }
+                bidRepository.save(toEntity(listingId, candidate));
+            });
+            auction.bestBid.set(candidate);
+        }
+
+        log.debug("Bid {} by {} leads auction {}", amount, bidder.getUsername(), listingId);
+
+        return new BidDTO(listingId, bidderId, amount, candidate.placedAt, auction.endTime);
+    }
+
+    /**
+     * Current leading bid of an auction, if any
+     */
+    public Optional<BidDTO> getBestBid(UUID listingId) {
+        AuctionState auction = getAuctionState(listingId);
+        LeadingBid best = auction.bestBid.get();
+        if (best == null || best.bidderId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new BidDTO(listingId, best.bidderId, best.amount, best.placedAt, auction.endTime));
+    }
+
+    // ==================== CLOSING ====================
+
+    /**
+     * Stop accepting bids on an auction and return its winning bid, if any.
+     * Safe to call more than once: later calls return the same winner.
+     */
+    public Optional<BidDTO> closeAuction(UUID listingId) {
+        AuctionState auction = getAuctionState(listingId);
+        LeadingBid closed = close(auction);
+        if (closed.bidderId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new BidDTO(listingId, closed.bidderId, closed.amount, closed.placedAt,
+                auction.endTime));
+    }
+
+    /**
+     * Drop the in-memory state of a settled auction. Later bids reload the
+     * listing and are rejected because it is no longer active.
+     */
+    public void evictAuction(UUID listingId) {
+        auctions.remove(listingId);
+    }
+
+    /**
+     * Drop the state of auctions that left ACTIVE once the change commits.
+     * A closed auction was settled with its leader's reservation; a cancelled
+     * or deleted one stops taking bids and its leader's cash is released.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        if (event.getListingType() != ListingType.AUCTION) {
+            return;
+        }
+        ListingStatus status = event.getStatus();
+        if (status == ListingStatus.CLOSED) {
+            evictAuction(event.getListingId());
+        } else if (status == null || status == ListingStatus.CANCELLED) {
+            writeTemplate.executeWithoutResult(tx -> withdrawAuction(event.getListingId()));
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void rejectIfNotAcceptable(AuctionState auction, UUID bidderId, BigDecimal amount, LeadingBid current) {
+        if ((current != null && current.closed) || !LocalDateTime.now().isBefore(auction.endTime)) {
+            throw new BusinessOperationException("Auction has ended");
+        }
+        if (auction.sellerId.equals(bidderId)) {
+            throw new BusinessOperationException("Cannot bid on your own auction");
+        }
+        if (amount.compareTo(auction.minBid) < 0) {
+            throw new BusinessOperationException("Bid must be at least the minimum bid of " + auction.minBid);
+        }
+        if (current != null && current.amount != null && amount.compareTo(current.amount) <= 0) {
+            throw new BusinessOperationException("Bid must be higher than the current best bid of " + current.amount);
+        }
+    }
+
+    private AuctionState getAuctionState(UUID listingId) {
+        AuctionState auction = auctions.get(listingId);
+        if (auction != null) {
+            return auction;
+        }
+        // Loaded once per auction; concurrent first bids may both load, only one is kept
+        AuctionState loaded = loadAuctionState(listingId);
+        AuctionState existing = auctions.putIfAbsent(listingId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private AuctionState loadAuctionState(UUID listingId) {
+        CreditListing listing = creditListingRepository.findByIdWithSeller(listingId)
+                .orElseThrow(() -> new EntityNotFoundException("Listing not found with ID: " + listingId));
+
+        if (listing.getListingType() != ListingType.AUCTION) {
+            throw new BusinessOperationException("Listing is not an auction");
+        }
+        if (listing.getStatus() != ListingStatus.ACTIVE) {
+            throw new BusinessOperationException("Auction is not active. Status: " + listing.getStatus());
+        }
+        if (listing.getAuctionEndTime() == null) {
+            throw new BusinessOperationException("Auction has no end time");
+        }
+
+        BigDecimal minBid = listing.getMinBid() != null ? listing.getMinBid() : BigDecimal.ZERO;
+        AuctionState auction = new AuctionState(listing.getCredit().getUser().getId(), minBid,
+                listing.getAuctionEndTime());
+
+        bidRepository.findHighestBid(listingId).ifPresent(bid -> auction.bestBid.set(
+                new LeadingBid(bid.getBidder().getId(), bid.getAmount(), bid.getPlacedAt(), false)));
+        return auction;
+    }
+
+    private void withdrawAuction(UUID listingId) {
+        AuctionState auction = auctions.remove(listingId);
+        if (auction == null) {
+            // Not loaded since startup: the highest stored bid is the one holding cash
+            bidRepository.findHighestBid(listingId).ifPresent(bid -> {
+                walletService.releaseCash(bid.getBidder().getId(), bid.getAmount());
+                log.info("Released bid {} by {} on withdrawn auction {}", bid.getAmount(),
+                        bid.getBidder().getId(), listingId);
+            });
+            return;
+        }
+        // Close first so a bid racing the cancel either is the one released here or is turned away.
+        // The listing is no longer active, so a close already under way cannot settle with this bid.
+        LeadingBid closed = close(auction);
+        if (closed.bidderId != null) {
+            walletService.releaseCash(closed.bidderId, closed.amount);
+            log.info("Released bid {} by {} on withdrawn auction {}", closed.amount, closed.bidderId, listingId);
+        }
+    }
+
+    /**
+     * Swap in a closed marker for the leading bid and return it, or return
+     * the marker already there. Takes the auction's lock, so a bid being
+     * written either commits first and is the winner, or is turned away.
+     */
+    private static LeadingBid close(AuctionState auction) {
+        synchronized (auction) {
+            LeadingBid current = auction.bestBid.get();
+            if (current != null && current.closed) {
+                return current;
+            }
+            LeadingBid closed = current == null
+                    ? new LeadingBid(null, null, null, true)
+                    : new LeadingBid(current.bidderId, current.amount, current.placedAt, true);
+            auction.bestBid.set(closed);
+            return closed;
+        }
+    }
+
+    private Bid toEntity(UUID listingId, LeadingBid leading) {
+        Bid bid = new Bid();
+        bid.setListing(creditListingRepository.getReferenceById(listingId));
+        bid.setBidder(userRepository.getReferenceById(leading.bidderId));
+        bid.setAmount(leading.amount);
+        bid.setPlacedAt(leading.placedAt);
+        return bid;
+    }
+
+    // ==================== IN-MEMORY STATE ====================
+
+    static final class AuctionState {
+        final UUID sellerId;
+        final BigDecimal minBid;
+        final LocalDateTime endTime;
+        final AtomicReference<LeadingBid> bestBid = new AtomicReference<>();
+
+        AuctionState(UUID sellerId, BigDecimal minBid, LocalDateTime endTime) {
+            this.sellerId = sellerId;
+            this.minBid = minBid;
+            this.endTime = endTime;
+        }
+    }
+
+    /**
+     * Immutable leading bid. A closed marker (closed = true) stops further bids;
+     * bidderId is null when an auction closed without bids.
+     */
+    static final class LeadingBid {
+        final UUID bidderId;
+        final BigDecimal amount;
+        final LocalDateTime placedAt;
+        final boolean closed;
+
+        LeadingBid(UUID bidderId, BigDecimal amount, LocalDateTime placedAt, boolean closed) {
+            this.bidderId = bidderId;
+            this.amount = amount;
+            this.placedAt = placedAt;
+            this.closed = closed;
+        }
+    }
+}
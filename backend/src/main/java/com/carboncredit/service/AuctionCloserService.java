@@ -0,0 +1,201 @@
+package com.carboncredit.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.carboncredit.dto.BidDTO;
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.CreditListing.ListingType;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.util.TimingWheel;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Closes auctions when their end time passes.
+ *
+ * Active auction end times are loaded once at startup into a
+ * {@link TimingWheel} and kept up to date from listing change events, so
+ * closing does not poll the listings table. A single ticker thread advances
+ * the wheel every {@link #TICK_MS} ms and hands expired auctions to a small
+ * settlement pool, which stops bidding and sells the credit to the winner
+ * through {@link TransactionService#settleAuction}.
+ *
+ * A close that keeps failing is retried a few times and then marked as a
+ * failed settlement on the listing; a periodic sweep puts those auctions
+ * back on the wheel until they settle, so the winner's reserved cash is
+ * never left behind for good.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuctionCloserService {
+
+    static final long TICK_MS = 10;
+    static final int WHEEL_SIZE = 512;
+    private static final long RETRY_DELAY_MS = 30_000;
+    private static final int MAX_SETTLE_ATTEMPTS = 5;
+
+    private final CreditListingRepository creditListingRepository;
+    private final AuctionBiddingService auctionBiddingService;
+    private final TransactionService transactionService;
+
+    private final TimingWheel<UUID> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, System.currentTimeMillis());
+    private final ConcurrentHashMap<UUID, Integer> failedAttempts = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService ticker;
+    private ExecutorService settlementPool;
+
+    // ==================== LIFECYCLE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<Object[]> rows = creditListingRepository.findActiveAuctionEndTimes();
+        for (Object[] row : rows) {
+            schedule((UUID) row[0], (LocalDateTime) row[1]);
+        }
+        log.info("Auction closer tracking {} active auctions", rows.size());
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "auction-closer-tick"));
+        settlementPool = Executors.newFixedThreadPool(2, r -> daemon(r, "auction-closer-settle"));
+        ticker.scheduleAtFixedRate(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        if (settlementPool != null) {
+            settlementPool.shutdown();
+        }
+    }
+
+    /**
+     * Track new auctions and end time or status changes after they commit
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        if (event.getListingType() == ListingType.AUCTION && event.getStatus() == ListingStatus.ACTIVE
+                && event.getAuctionEndTime() != null) {
+            schedule(event.getListingId(), event.getAuctionEndTime());
+        } else {
+            wheel.cancel(event.getListingId());
+        }
+    }
+
+    public boolean isScheduled(UUID listingId) {
+        return wheel.contains(listingId);
+    }
+
+    public int getScheduledCount() {
+        return wheel.size();
+    }
+
+    // ==================== CLOSING ====================
+
+    void tick() {
+        try {
+            for (UUID listingId : wheel.advance(System.currentTimeMillis())) {
+                settlementPool.execute(() -> closeAuction(listingId));
+            }
+        } catch (Exception e) {
+            // Never let an exception cancel the ticker
+            log.error("Auction closer tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop bidding on an expired auction and settle it
+     */
+    void closeAuction(UUID listingId) {
+        Optional<BidDTO> winner;
+        try {
+            winner = auctionBiddingService.closeAuction(listingId);
+        } catch (BusinessOperationException | EntityNotFoundException e) {
+            // Listing was cancelled, deleted or already settled elsewhere
+            log.info("Skipping close of auction {}: {}", listingId, e.getMessage());
+            return;
+        }
+        try {
+            if (winner.isPresent()) {
+                BidDTO bid = winner.get();
+                transactionService.settleAuction(listingId, bid.getBidderId(), bid.getAmount());
+                log.info("Auction {} sold to {} for {}", listingId, bid.getBidderId(), bid.getAmount());
+            } else {
+                transactionService.closeUnsoldAuction(listingId);
+            }
+            auctionBiddingService.evictAuction(listingId);
+            failedAttempts.remove(listingId);
+        } catch (Exception e) {
+            int attempts = failedAttempts.merge(listingId, 1, Integer::sum);
+            if (attempts >= MAX_SETTLE_ATTEMPTS) {
+                failedAttempts.remove(listingId);
+                markSettlementFailed(listingId, attempts, e);
+                return;
+            }
+            log.warn("Failed to close auction {} (attempt {}), retrying in {} ms: {}", listingId, attempts,
+                    RETRY_DELAY_MS, e.getMessage());
+            wheel.schedule(listingId, System.currentTimeMillis() + RETRY_DELAY_MS);
+        }
+    }
+
+    /**
+     * Put auctions whose settlement failed back on the wheel
+     */
+    @Scheduled(fixedDelayString = "${auctions.settlement-retry-interval-ms:600000}")
+    public void retryFailedSettlements() {
+        List<UUID> failed = creditListingRepository.findFailedSettlements();
+        if (failed.isEmpty()) {
+            return;
+        }
+        log.warn("Retrying settlement of {} auctions", failed.size());
+        long now = System.currentTimeMillis();
+        for (UUID listingId : failed) {
+            wheel.schedule(listingId, now);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void markSettlementFailed(UUID listingId, int attempts, Exception cause) {
+        try {
+            creditListingRepository.markSettlementFailed(listingId, LocalDateTime.now());
+            log.error("Failed to close auction {} after {} attempts, left for the settlement sweep: {}",
+                    listingId, attempts, cause.getMessage());
+        } catch (Exception e) {
+            // Still active with an end time in the past, so the next startup retries it
+            log.error("Failed to close auction {} after {} attempts and to mark it for retry: {}", listingId,
+                    attempts, e.getMessage());
+        }
+    }
+
+    private void schedule(UUID listingId, LocalDateTime endTime) {
+        wheel.schedule(listingId, endTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
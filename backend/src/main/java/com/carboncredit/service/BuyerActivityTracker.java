@@ -0,0 +1,305 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.Transaction.TransactionStatus;
+import com.carboncredit.repository.TransactionRepository;
+import com.carboncredit.util.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory purchase activity per buyer, read by the fraud and limit checks
+ * in {@link ValidationService} instead of aggregating the transactions
+ * table on every purchase attempt.
+ *
+ * Each buyer keeps a ring of their latest transaction times (any status),
+ * today's transaction count and completed spending, and a running count and
+ * sum of all completed purchases. A buyer is loaded with two queries the
+ * first time they are checked and kept in a bounded cache that drops buyers
+ * who have not been checked for a while. Loaded buyers are updated after
+ * each commit that creates or completes one of their transactions; buyers
+ * not loaded are left to their next load. An update racing a load may be
+ * counted twice, which only errs on the strict side.
+ *
+ * After such a commit the buyer is also invalidated on the other nodes,
+ * which reload them on their next check, so every node enforces the limits
+ * on all of the buyer's purchases. Purchase flows {@link #preload} the
+ * buyer before opening their transaction, so the load does not wait for a
+ * second pooled connection while the purchase holds one.
+ */
+@Service
+@Slf4j
+public class BuyerActivityTracker {
+
+    static final String CACHE_NAME = "buyerActivity";
+    // Recent-window queries are exact for up to this many transactions
+    static final int RECENT_CAPACITY = 32;
+    // Longest window countSince is loaded for
+    static final long RECENT_HORIZON_MINUTES = 60;
+
+    private final TransactionRepository transactionRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate loadTemplate;
+    private final Cache<UUID, Activity> activities;
+
+    public BuyerActivityTracker(TransactionRepository transactionRepository, CacheInvalidationBus invalidationBus,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${buyer-activity.max-buyers:50000}") long maxBuyers,
+            @Value("${buyer-activity.expire-after-access:2h}") Duration expireAfterAccess) {
+        this.transactionRepository = transactionRepository;
+        this.invalidationBus = invalidationBus;
+        // Load outside the caller's transaction, so its uncommitted purchase is not counted before its commit is
+        this.loadTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTemplate.setReadOnly(true);
+        this.activities = Caffeine.newBuilder()
+                .maximumSize(maxBuyers)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, activities, CACHE_NAME);
+    }
+
+    @PostConstruct
+    void subscribeToRemoteChanges() {
+        invalidationBus.addListener((cacheName, key) -> {
+            if (cacheName == null || (CACHE_NAME.equals(cacheName) && key == null)) {
+                activities.invalidateAll();
+            } else if (CACHE_NAME.equals(cacheName)) {
+                activities.invalidate(UUID.fromString(key));
+            }
+        });
+    }
+
+    private Activity load(UUID buyerId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusMinutes(RECENT_HORIZON_MINUTES);
+        if (now.toLocalDate().atStartOfDay().isBefore(since)) {
+            since = now.toLocalDate().atStartOfDay();
+        }
+        LocalDateTime from = since;
+        Activity activity = new Activity();
+        loadTemplate.executeWithoutResult(status -> {
+            for (Object[] row : transactionRepository.findBuyerActivitySince(buyerId, from)) {
+                LocalDateTime createdAt = (LocalDateTime) row[0];
+                activity.created(createdAt);
+                if (row[1] == TransactionStatus.COMPLETED) {
+                    activity.spent(createdAt, Money.toCents((BigDecimal) row[2]));
+                }
+            }
+            for (Object[] row : transactionRepository.summarizeCompletedPurchases(buyerId)) {
+                activity.addCompleted((Long) row[0], Money.toCents((BigDecimal) row[1]));
+            }
+        });
+        log.debug("Loaded purchase activity of buyer {}", buyerId);
+        return activity;
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Load the buyer unless already loaded; call before opening a
+     * transaction that checks them
+     */
+    public void preload(UUID buyerId) {
+        activity(buyerId);
+    }
+
+    /**
+     * Transactions the buyer created after the given time, counted exactly up
+     * to {@link #RECENT_CAPACITY}
+     */
+    public int countSince(UUID buyerId, LocalDateTime since) {
+        return activity(buyerId).countSince(toMillis(since));
+    }
+
+    public int countToday(UUID buyerId) {
+        return activity(buyerId).todayCount(LocalDate.now().toEpochDay());
+    }
+
+    public BigDecimal spentToday(UUID buyerId) {
+        return Money.fromCents(activity(buyerId).todaySpentCents(LocalDate.now().toEpochDay()));
+    }
+
+    /**
+     * Average amount of the buyer's completed purchases, empty if there are none
+     */
+    public Optional<BigDecimal> averagePurchase(UUID buyerId) {
+        return activity(buyerId).average();
+    }
+
+    // ==================== UPDATES ====================
+
+    /**
+     * A transaction was created for the buyer; counted once the surrounding
+     * transaction commits
+     */
+    public void recordCreated(Transaction transaction) {
+        UUID buyerId = transaction.getBuyer().getId();
+        LocalDateTime createdAt = createdAt(transaction);
+        afterCommit(buyerId, activity -> activity.created(createdAt));
+    }
+
+    /**
+     * A transaction of the buyer became COMPLETED
+     */
+    public void recordCompleted(Transaction transaction) {
+        UUID buyerId = transaction.getBuyer().getId();
+        LocalDateTime createdAt = createdAt(transaction);
+        long cents = Money.toCents(transaction.getAmount());
+        afterCommit(buyerId, activity -> {
+            activity.spent(createdAt, cents);
+            activity.addCompleted(1, cents);
+        });
+    }
+
+    /**
+     * A COMPLETED transaction of the buyer left that status, e.g. when disputed
+     */
+    public void recordCompletionReverted(Transaction transaction) {
+        UUID buyerId = transaction.getBuyer().getId();
+        LocalDateTime createdAt = createdAt(transaction);
+        long cents = Money.toCents(transaction.getAmount());
+        afterCommit(buyerId, activity -> {
+            activity.spent(createdAt, -cents);
+            activity.addCompleted(-1, -cents);
+        });
+    }
+
+    private Activity activity(UUID buyerId) {
+        return activities.get(buyerId, this::load);
+    }
+
+    // A buyer being loaded is updated once the load finishes
+    private void ifLoaded(UUID buyerId, Consumer<Activity> update) {
+        activities.asMap().computeIfPresent(buyerId, (id, activity) -> {
+            update.accept(activity);
+            return activity;
+        });
+    }
+
+    private static LocalDateTime createdAt(Transaction transaction) {
+        return transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Applies the update here and tells other nodes to reload the buyer
+    private void afterCommit(UUID buyerId, Consumer<Activity> update) {
+        Runnable committed = () -> {
+            ifLoaded(buyerId, update);
+            invalidationBus.publish(CACHE_NAME, buyerId);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.run();
+            }
+        });
+    }
+
+    /**
+     * Counters of one buyer; all access is synchronized on the instance
+     */
+    static final class Activity {
+
+        // Latest creation times in epoch millis, unordered; 0 is an empty slot
+        private final long[] recent = new long[RECENT_CAPACITY];
+        private long day = Long.MIN_VALUE;
+        private int dayCount;
+        private long daySpentCents;
+        private long completedCount;
+        private long completedSumCents;
+
+        synchronized void created(LocalDateTime createdAt) {
+            long millis = toMillis(createdAt);
+            int oldest = 0;
+            for (int i = 1; i < recent.length; i++) {
+                if (recent[i] < recent[oldest]) {
+                    oldest = i;
+                }
+            }
+            if (millis > recent[oldest]) {
+                recent[oldest] = millis;
+            }
+            if (rollTo(createdAt.toLocalDate().toEpochDay())) {
+                dayCount++;
+            }
+        }
+
+        synchronized void spent(LocalDateTime createdAt, long cents) {
+            if (rollTo(createdAt.toLocalDate().toEpochDay())) {
+                daySpentCents += cents;
+            }
+        }
+
+        synchronized void addCompleted(long count, long cents) {
+            completedCount += count;
+            completedSumCents += cents;
+        }
+
+        synchronized int countSince(long sinceMillis) {
+            int count = 0;
+            for (long millis : recent) {
+                if (millis > sinceMillis) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        synchronized int todayCount(long today) {
+            return day == today ? dayCount : 0;
+        }
+
+        synchronized long todaySpentCents(long today) {
+            return day == today ? daySpentCents : 0;
+        }
+
+        synchronized Optional<BigDecimal> average() {
+            if (completedCount <= 0) {
+                return Optional.empty();
+            }
+            return Optional.of(BigDecimal.valueOf(completedSumCents)
+                    .divide(BigDecimal.valueOf(completedCount * 100), 6, RoundingMode.HALF_UP));
+        }
+
+        // Start a new day when the event is newer; false for events of an earlier day
+        private boolean rollTo(long eventDay) {
+            if (eventDay > day) {
+                day = eventDay;
+                dayCount = 0;
+                daySpentCents = 0;
+            }
+            return eventDay == day;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.carboncredit.exception.BusinessOperationException;
 import com.carboncredit.exception.ResourceNotFoundException;
 import com.carboncredit.repository.CarbonCreditRepository;
 import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.service.UserCounterService.CounterChange;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,11 +34,15 @@ public class CVAService {
     private final CarbonCreditRepository carbonCreditRepository;
     private final AuditService auditService;
     private final WalletService walletService;
+    private final UserCounterService userCounterService;
+    private final VerificationQueueService verificationQueueService;
 
 
     
     /**
-     * Get all journeys pending CVA verification
+     * Get all journeys pending CVA verification. To work through them, CVAs
+     * lease journeys from {@link VerificationQueueService} instead, so no two
+     * pick the same one.
      */
     @Transactional(readOnly = true)
     public List<JourneyData> getPendingJourneyForVerification() {
@@ -73,8 +78,8 @@ public class CVAService {
             throw new BusinessOperationException("Onlu CVA users can verify journeys");
         }
 
-        // Featch journey
-        JourneyData journey = journeyDataRepository.findById(journeyId)
+        // Featch journey, locked so two CVAs cannot decide it at once
+        JourneyData journey = journeyDataRepository.findByIdForUpdate(journeyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Journey not foudnd"));
 
         // validate journey status - Allow both PENDING_VERIFICATION and PENDING_INSPECTION
@@ -84,6 +89,8 @@ public class CVAService {
                     + journey.getVerificationStatus());
         }
 
+        verificationQueueService.claimForDecision(journey, cva);
+
         // Get owner's current wallet balance for audit
         BigDecimal walletBefore = walletService.getCreditBalance(journey.getUser().getId());
 
@@ -100,13 +107,17 @@ public class CVAService {
             throw new BusinessOperationException("No carbon credit found for journey");
         }
 
+        boolean wasIssued = UserCounterService.isIssued(credit.getStatus());
         credit.setStatus(CarbonCredit.CreditStatus.VERIFIED);
         credit.setVerifiedBy(cva);
         credit.setVerifiedAt(LocalDateTime.now());
         carbonCreditRepository.save(credit);
+        if (!wasIssued) {
+            userCounterService.apply(journey.getUser().getId(), new CounterChange().addIssuedCredit(credit));
+        }
 
         // add credit tow owner's wallet
-        walletService.updateCreditBalance(journey.getUser().getId(), credit.getCreditAmount());
+        walletService.issueCredits(journey.getUser().getId(), credit.getCreditAmount(), credit.getId().toString());
         BigDecimal walletAfter = walletService.getCreditBalance(journey.getUser().getId());
         // Log verification in audit trail
         auditService.logVerification(credit, cva, walletBefore, walletAfter, notes);
@@ -128,8 +139,8 @@ public class CVAService {
             throw new BusinessOperationException("Onlu CVA users can reject journeys");
         }
 
-        // Fetch journey
-        JourneyData journey = journeyDataRepository.findById(journeyId)
+        // Fetch journey, locked so two CVAs cannot decide it at once
+        JourneyData journey = journeyDataRepository.findByIdForUpdate(journeyId)
                 .orElseThrow(() -> new ResourceNotFoundException("Journey not found"));
 
         // validate journey status - Allow both PENDING_VERIFICATION and PENDING_INSPECTION
@@ -140,6 +151,8 @@ public class CVAService {
                             journey.getVerificationStatus());
         }
 
+        verificationQueueService.claimForDecision(journey, cva);
+
         // Update journey status
         journey.setVerificationStatus(JourneyData.VerificationStatus.REJECTED);
         journey.setVerifiedBy(cva);
@@ -150,8 +163,12 @@ public class CVAService {
         // Update carbon credit status (no credits issued)
         CarbonCredit credit = journey.getCarbonCredit();
         if (credit != null) {
+            boolean wasIssued = UserCounterService.isIssued(credit.getStatus());
             credit.setStatus(CarbonCredit.CreditStatus.REJECTED);
             carbonCreditRepository.save(credit);
+            if (wasIssued) {
+                userCounterService.apply(journey.getUser().getId(), new CounterChange().removeIssuedCredit(credit));
+            }
 
             // Log rejection in audit trail
             auditService.logRejection(credit, cva, reason);
@@ -0,0 +1,91 @@
+package com.carboncredit.service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Broadcasts cache invalidations to the other backend nodes.
+ *
+ * Evictions on the Spring caches are published automatically by the cache
+ * manager (see CacheConfig); in-memory state outside those caches, like the
+ * settings snapshot, subscribes with {@link #addListener}. Messages from
+ * this node are ignored on arrival since they were applied locally when
+ * published.
+ */
+@Service
+@Slf4j
+public class CacheInvalidationBus {
+
+    /**
+     * Receives invalidations from other nodes. A null key means every entry
+     * of the cache; a null cache name means every cache, sent when messages
+     * may have been missed.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void invalidated(String cacheName, String key);
+    }
+
+    private static final String SEPARATOR = "\t";
+    private static final String ALL_KEYS = "*";
+
+    private final InvalidationTransport transport;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public CacheInvalidationBus(InvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    @PostConstruct
+    void start() {
+        transport.subscribe(this::receive, () -> {
+            log.warn("Cache invalidations may have been missed, invalidating all local caches");
+            notifyListeners(null, null);
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tell other nodes to drop the key from the cache, or the whole cache if
+     * the key is null
+     */
+    public void publish(String cacheName, Object key) {
+        String message = nodeId + SEPARATOR + cacheName + SEPARATOR + (key == null ? ALL_KEYS : key.toString());
+        try {
+            transport.publish(message);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the cache TTL
+            log.error("Failed to publish invalidation of {} in cache {}: {}", key, cacheName, e.getMessage());
+        }
+    }
+
+    void receive(String message) {
+        String[] parts = message.split(SEPARATOR, 3);
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed cache invalidation: {}", message);
+            return;
+        }
+        if (parts[0].equals(nodeId)) {
+            return;
+        }
+        String key = ALL_KEYS.equals(parts[2]) ? null : parts[2];
+        log.debug("Invalidating {} in cache {} for node {}", key == null ? "all entries" : key, parts[1], parts[0]);
+        notifyListeners(parts[1], key);
+    }
+
+    private void notifyListeners(String cacheName, String key) {
+        for (Listener listener : listeners) {
+            listener.invalidated(cacheName, key);
+        }
+    }
+}
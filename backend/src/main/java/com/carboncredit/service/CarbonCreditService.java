@@ -6,6 +6,7 @@ import com.carboncredit.entity.JourneyData;
 import com.carboncredit.entity.User;
 import com.carboncredit.repository.CarbonCreditRepository;
 import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.service.UserCounterService.CounterChange;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -37,20 +38,21 @@ import java.util.UUID;
 @Transactional
 public class CarbonCreditService {
 
+    // average gasoline car emission, and grid emission for the energy an EV uses
+    public static final BigDecimal CAR_EMISSION_KG_PER_KM = new BigDecimal("0.21");
+    public static final BigDecimal GRID_EMISSION_KG_PER_KWH = new BigDecimal("0.5");
+
     private final CarbonCreditRepository carbonCreditRepository;
     private final AuditService auditService;
     private final JourneyDataRepository journeyDataRepository;
+    private final UserCounterService userCounterService;
 
 
     public BigDecimal calculateCO2Reduction(BigDecimal distanceKm, BigDecimal energyConsumeKwh) {
-        // avergage gasoline car emission
-        BigDecimal avgCarEmissionPerKm = new BigDecimal("0.21");
-        BigDecimal gidEmissionPerKwh = new BigDecimal("0.5");
-
         // voided emission from not drive a gasoline car
-        BigDecimal avoidedCarEmission = distanceKm.multiply(avgCarEmissionPerKm);
+        BigDecimal avoidedCarEmission = distanceKm.multiply(CAR_EMISSION_KG_PER_KM);
         // emission that from EV
-        BigDecimal electricityEmissions = energyConsumeKwh.multiply(gidEmissionPerKwh);
+        BigDecimal electricityEmissions = energyConsumeKwh.multiply(GRID_EMISSION_KG_PER_KWH);
 
         // net CO2 reduce
         BigDecimal netReduction = avoidedCarEmission.subtract(electricityEmissions);
@@ -83,6 +85,7 @@ public class CarbonCreditService {
         }
 
         BigDecimal beforeAmount = credit.getCreditAmount();
+        CarbonCredit.CreditStatus previousStatus = credit.getStatus();
 
         credit.setStatus(CarbonCredit.CreditStatus.VERIFIED);
         credit.setVerifiedAt(LocalDateTime.now());
@@ -90,6 +93,9 @@ public class CarbonCreditService {
         credit.setCreditAmount(calculateCreditAmount(credit.getCo2ReducedKg(), CarbonCredit.CreditStatus.VERIFIED));
 
         CarbonCredit saved = carbonCreditRepository.save(credit);
+        if (!UserCounterService.isIssued(previousStatus)) {
+            userCounterService.apply(saved.getUser().getId(), new CounterChange().addIssuedCredit(saved));
+        }
 
         // persisit audit recored (before/after amounts)
         try {
@@ -112,8 +118,12 @@ public class CarbonCreditService {
             return credit;
         }
 
+        boolean wasIssued = UserCounterService.isIssued(credit.getStatus());
         credit.setStatus(CarbonCredit.CreditStatus.REJECTED);
         CarbonCredit saved = carbonCreditRepository.save(credit);
+        if (wasIssued) {
+            userCounterService.apply(saved.getUser().getId(), new CounterChange().removeIssuedCredit(saved));
+        }
 
         try {
             auditService.logRejection(saved, verifier, comments);
@@ -219,7 +229,7 @@ public class CarbonCreditService {
         return carbonCreditRepository.save(credit);
     }
 
-    private BigDecimal calculateCreditAmount(BigDecimal co2ReducedKg, CreditStatus status) {
+    BigDecimal calculateCreditAmount(BigDecimal co2ReducedKg, CreditStatus status) {
         // Edge case - invalid CO2 amount
         if (co2ReducedKg == null || co2ReducedKg.compareTo(BigDecimal.ZERO) <= 0) {
             return BigDecimal.ZERO;
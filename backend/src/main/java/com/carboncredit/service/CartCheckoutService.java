@@ -0,0 +1,412 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.CartCheckoutResultDTO;
+import com.carboncredit.dto.CartCheckoutResultDTO.LineResult;
+import com.carboncredit.dto.CartCheckoutResultDTO.LineStatus;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CarbonCredit.CreditStatus;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.Transaction.TransactionStatus;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.InsufficientBalanceException;
+import com.carboncredit.exception.PaymentException;
+import com.carboncredit.exception.ValidationException;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.TransactionRepository;
+import com.carboncredit.service.LedgerService.Journal;
+import com.carboncredit.service.PaymentService.PaymentResult;
+import com.carboncredit.service.WalletPostingService.BalanceChange;
+import com.carboncredit.util.Money;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buys many fixed-price listings with one payment.
+ *
+ * Like a single purchase, a checkout runs in two short database
+ * transactions around the payment call. The first locks and validates all
+ * listings with a single query, fills what the buyer's balance covers,
+ * records a PENDING transaction per listing and holds the buyer's cash for
+ * the cart. The whole cart is then paid with one payment call, without a
+ * connection or row locks held. The second transaction completes every
+ * purchase that is still pending, posts all seller and credit transfers in
+ * one JDBC batch, accrues platform fees to the sharded revenue ledger,
+ * journals each purchase and leaves certificates, audit entries and
+ * notifications to the outbox. Purchases cancelled during payment are
+ * refunded; a failed payment releases the hold and reopens the listings.
+ * In all-or-nothing mode any unavailable listing or a short balance fails
+ * the whole cart; otherwise available listings are filled in cart order
+ * while the buyer can afford them and every line reports its outcome.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartCheckoutService {
+
+    static final int MAX_CART_SIZE = 100;
+
+    private final CreditListingRepository creditListingRepository;
+    private final TransactionRepository transactionRepository;
+    private final ValidationService validationService;
+    private final WalletService walletService;
+    private final WalletPostingService walletPostingService;
+    private final PaymentService paymentService;
+    private final SystemSettingService systemSettingService;
+    private final PlatformRevenueService platformRevenueService;
+    private final LedgerService ledgerService;
+    private final OutboxService outboxService;
+    private final NotificationService notificationService;
+    private final BuyerActivityTracker buyerActivityTracker;
+    private final UserCounterService userCounterService;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartCheckoutResultDTO checkout(List<UUID> listingIds, User buyer, boolean allOrNothing) {
+        validationService.validateUserCanBuy(buyer);
+        if (listingIds == null || listingIds.isEmpty()) {
+            throw new ValidationException("CartCheckout", "listingIds", "Cart cannot be empty");
+        }
+        List<UUID> cart = new ArrayList<>(new LinkedHashSet<>(listingIds));
+        if (cart.size() > MAX_CART_SIZE) {
+            throw new ValidationException("CartCheckout", "listingIds",
+                    "Cart can contain at most " + MAX_CART_SIZE + " listings");
+        }
+        log.info("Checking out cart of {} listings for user {}", cart.size(), buyer.getUsername());
+
+        CartCheckoutResultDTO result = new CartCheckoutResultDTO();
+        result.setRequestedListings(cart.size());
+        buyerActivityTracker.preload(buyer.getId());
+
+        // 1. Reserve the listings and the buyer's cash
+        List<Transaction> reserved = transactionTemplate.execute(
+                status -> reserve(cart, buyer, allOrNothing, result));
+        if (reserved.isEmpty()) {
+            return inCartOrder(result, cart);
+        }
+        List<UUID> transactionIds = reserved.stream().map(Transaction::getId).toList();
+        BigDecimal reservedCost = total(reserved);
+
+        // 2. One payment for the whole cart, outside any database transaction
+        PaymentResult payment = pay(buyer, reservedCost);
+        if (!payment.isSuccess()) {
+            String reason = "Payment failed: " + payment.getErrorMessage();
+            transactionTemplate.executeWithoutResult(status -> release(transactionIds, buyer, reason));
+            throw new PaymentException("Payment processing failed: " + payment.getErrorMessage());
+        }
+
+        // 3. Complete what is still pending and refund the rest
+        List<Transaction> completed = transactionTemplate.execute(
+                status -> settle(transactionIds, buyer, allOrNothing));
+        BigDecimal totalCost = total(completed);
+        refund(payment, buyer, reservedCost.subtract(totalCost));
+        if (completed.isEmpty() && allOrNothing) {
+            throw new BusinessOperationException(
+                    "Cart was changed during payment and has been cancelled; the payment was refunded");
+        }
+
+        Set<UUID> completedIds = completed.stream().map(Transaction::getId).collect(Collectors.toSet());
+        BigDecimal totalCredits = BigDecimal.ZERO;
+        for (Transaction transaction : reserved) {
+            UUID listingId = transaction.getListing().getId();
+            if (completedIds.contains(transaction.getId())) {
+                totalCredits = totalCredits.add(transaction.getCredit().getCreditAmount());
+                result.getLines().add(new LineResult(listingId, LineStatus.FILLED, transaction.getAmount(),
+                        transaction.getId(), null));
+            } else {
+                result.getLines().add(new LineResult(listingId, LineStatus.REJECTED, transaction.getAmount(),
+                        transaction.getId(), "Purchase was cancelled during payment"));
+            }
+        }
+        if (!completed.isEmpty()) {
+            notifyBuyer(buyer, completed.size(), totalCost);
+        }
+
+        result.setFilledListings(completed.size());
+        result.setTotalCost(totalCost);
+        result.setTotalCredits(totalCredits);
+        result.setPaymentReference(payment.getTransactionId());
+        log.info("Cart checkout for {} filled {}/{} listings for {}", buyer.getUsername(), completed.size(),
+                cart.size(), totalCost);
+        return inCartOrder(result, cart);
+    }
+
+    // ==================== PHASES ====================
+
+    /**
+     * Phase 1: lock and validate the listings, pick what the balance covers,
+     * create the PENDING transactions and hold their total. Rejected and
+     * skipped listings are reported on the result.
+     */
+    private List<Transaction> reserve(List<UUID> cart, User buyer, boolean allOrNothing,
+            CartCheckoutResultDTO result) {
+        // Lock and validate every listing with one query
+        Map<UUID, CreditListing> listings = creditListingRepository.findAllForCheckout(cart).stream()
+                .collect(Collectors.toMap(CreditListing::getId, Function.identity()));
+        List<CreditListing> available = new ArrayList<>();
+        for (UUID listingId : cart) {
+            CreditListing listing = listings.get(listingId);
+            String reason = rejectionReason(listing, buyer);
+            if (reason == null) {
+                available.add(listing);
+            } else {
+                result.getLines().add(new LineResult(listingId, LineStatus.REJECTED,
+                        listing != null ? listing.getPrice() : null, null, reason));
+            }
+        }
+        if (allOrNothing && available.size() < cart.size()) {
+            log.warn("Cart checkout for {} rejected: {} listings unavailable", buyer.getUsername(),
+                    cart.size() - available.size());
+            for (CreditListing listing : available) {
+                result.getLines().add(new LineResult(listing.getId(), LineStatus.REJECTED, listing.getPrice(), null,
+                        "Cart rejected because other listings are unavailable"));
+            }
+            return List.of();
+        }
+
+        // Lock the buyer's wallet once and fill what the balance covers
+        long cashAvailable = Money.toCents(walletPostingService.lockCashBalance(buyer.getId()));
+        long totalCostCents = 0;
+        List<CreditListing> toFill = new ArrayList<>();
+        for (CreditListing listing : available) {
+            long next = totalCostCents + Money.toCents(listing.getPrice());
+            if (next <= cashAvailable) {
+                totalCostCents = next;
+                toFill.add(listing);
+            } else if (allOrNothing) {
+                BigDecimal required = available.stream().map(CreditListing::getPrice)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                throw new InsufficientBalanceException("Insufficient cash balance. required: " + required);
+            } else {
+                result.getLines().add(new LineResult(listing.getId(), LineStatus.SKIPPED_INSUFFICIENT_FUNDS,
+                        listing.getPrice(), null, "Insufficient cash balance"));
+            }
+        }
+        if (toFill.isEmpty()) {
+            return List.of();
+        }
+        BigDecimal totalCost = Money.fromCents(totalCostCents);
+
+        validationService.validateSuspiciousActivity(buyer);
+        validationService.validateTransactionLimits(buyer, totalCost);
+
+        List<Transaction> transactions = new ArrayList<>(toFill.size());
+        for (CreditListing listing : toFill) {
+            Transaction transaction = new Transaction();
+            transaction.setCredit(listing.getCredit());
+            transaction.setListing(listing);
+            transaction.setBuyer(buyer);
+            transaction.setSeller(listing.getCredit().getUser());
+            transaction.setAmount(listing.getPrice());
+            transaction.setStatus(TransactionStatus.PENDING);
+            transactions.add(transaction);
+            listing.setStatus(ListingStatus.PENDING_TRANSACTION);
+        }
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        saved.forEach(buyerActivityTracker::recordCreated);
+
+        // Held until the payment outcome is known
+        walletService.reserveCash(buyer.getId(), totalCost);
+        return saved;
+    }
+
+    /**
+     * Phase 3 after a successful payment: complete every purchase still
+     * PENDING on a still reserved listing and fail the others. In
+     * all-or-nothing mode one purchase that cannot complete fails them all.
+     *
+     * @return the completed transactions; the rest of the payment is owed
+     *         back to the buyer
+     */
+    private List<Transaction> settle(List<UUID> transactionIds, User buyer, boolean allOrNothing) {
+        List<Transaction> pending = new ArrayList<>();
+        List<Transaction> stale = new ArrayList<>();
+        for (Transaction transaction : transactionRepository.findAllByIdForUpdate(transactionIds)) {
+            if (transaction.getStatus() != TransactionStatus.PENDING) {
+                // Cancelled during payment, its hold was released then
+                continue;
+            }
+            if (transaction.getListing().getStatus() == ListingStatus.PENDING_TRANSACTION) {
+                pending.add(transaction);
+            } else {
+                stale.add(transaction);
+            }
+        }
+        if (allOrNothing && pending.size() < transactionIds.size()) {
+            stale.addAll(pending);
+            pending.clear();
+        }
+        if (!stale.isEmpty()) {
+            log.warn("{} purchases of the cart of {} can no longer complete", stale.size(), buyer.getUsername());
+            fail(stale, buyer);
+        }
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+
+        List<UUID> walletOwners = new ArrayList<>();
+        walletOwners.add(buyer.getId());
+        pending.forEach(transaction -> walletOwners.add(transaction.getSeller().getId()));
+        walletService.lockWallets(walletOwners);
+        walletService.releaseCash(buyer.getId(), total(pending));
+
+        // Record the transactions and post every transfer in one batch
+        long feePpm = systemSettingService.getPlatformFeePpm();
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, BalanceChange> changes = new HashMap<>();
+        long totalFeeCents = 0;
+        for (Transaction transaction : pending) {
+            CarbonCredit credit = transaction.getCredit();
+            BigDecimal price = transaction.getAmount();
+            long feeCents = Money.applyPpm(Money.toCents(price), feePpm);
+            BigDecimal platformFee = Money.fromCents(feeCents);
+
+            transaction.setPlatformFee(platformFee);
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setCompletedAt(now);
+            transaction.getListing().setStatus(ListingStatus.CLOSED);
+            credit.setStatus(CreditStatus.SOLD);
+
+            BigDecimal creditAmount = credit.getCreditAmount();
+            change(changes, buyer.getId()).addCash(price.negate()).addCredit(creditAmount);
+            change(changes, transaction.getSeller().getId()).addCash(price.subtract(platformFee))
+                    .addCredit(creditAmount.negate());
+            totalFeeCents += feeCents;
+        }
+
+        walletPostingService.post(changes);
+        platformRevenueService.accrueFee(Money.fromCents(totalFeeCents));
+        List<Transaction> completed = transactionRepository.saveAll(pending);
+        ledgerService.record(completed.stream().map(CartCheckoutService::purchaseJournal).toList());
+        completed.forEach(buyerActivityTracker::recordCompleted);
+        userCounterService.recordCompleted(completed);
+
+        // Certificates, audit and notifications are dispatched after commit
+        completed.forEach(transaction -> outboxService.enqueueTransactionCompleted(transaction.getId()));
+        return completed;
+    }
+
+    /**
+     * Phase 3 after a failed payment: cancel every purchase still PENDING,
+     * release its hold and reopen its listing
+     */
+    private void release(List<UUID> transactionIds, User buyer, String reason) {
+        List<Transaction> pending = transactionRepository.findAllByIdForUpdate(transactionIds).stream()
+                .filter(transaction -> transaction.getStatus() == TransactionStatus.PENDING)
+                .toList();
+        log.warn("Cancelling {} purchases of the cart of {}: {}", pending.size(), buyer.getUsername(), reason);
+        fail(pending, buyer);
+    }
+
+    private void fail(List<Transaction> transactions, User buyer) {
+        for (Transaction transaction : transactions) {
+            transaction.setStatus(TransactionStatus.CANCELLED);
+            CreditListing listing = transaction.getListing();
+            if (listing.getStatus() == ListingStatus.PENDING_TRANSACTION) {
+                listing.setStatus(ListingStatus.ACTIVE);
+            }
+        }
+        if (!transactions.isEmpty()) {
+            walletService.releaseCash(buyer.getId(), total(transactions));
+            transactionRepository.saveAll(transactions);
+        }
+    }
+
+    // ==================== PAYMENT ====================
+
+    private PaymentResult pay(User buyer, BigDecimal amount) {
+        try {
+            return paymentService.processPayment(UUID.randomUUID(), amount, buyer.getId().toString(), "CART");
+        } catch (RuntimeException e) {
+            log.error("Payment gateway error for cart of {}: {}", buyer.getUsername(), e.getMessage());
+            return new PaymentResult(false, null, "Payment gateway error: " + e.getMessage());
+        }
+    }
+
+    private void refund(PaymentResult payment, User buyer, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            return;
+        }
+        if (paymentService.refundPayment(payment.getTransactionId(), amount)) {
+            log.info("Refunded {} of payment {} for the cart of {}", amount, payment.getTransactionId(),
+                    buyer.getUsername());
+        } else {
+            log.error("Failed to refund {} of payment {} for the cart of {}, refund it manually", amount,
+                    payment.getTransactionId(), buyer.getUsername());
+        }
+    }
+
+    // The purchases are committed; a lost summary notification must not fail the checkout
+    private void notifyBuyer(User buyer, int listingCount, BigDecimal totalCost) {
+        try {
+            notificationService.notifyCartCheckoutCompleted(buyer, listingCount, totalCost);
+        } catch (RuntimeException e) {
+            log.warn("Failed to notify {} of cart checkout: {}", buyer.getUsername(), e.getMessage());
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String rejectionReason(CreditListing listing, User buyer) {
+        if (listing == null) {
+            return "Listing not found";
+        }
+        try {
+            validationService.validateListingForPurchase(listing);
+            validationService.validateCreditForPurchase(listing.getCredit());
+        } catch (BusinessOperationException | ValidationException e) {
+            return e.getMessage();
+        }
+        if (listing.getCredit().getUser().getId().equals(buyer.getId())) {
+            return "Cannot purchase your own carbon credit";
+        }
+        return null;
+    }
+
+    private static CartCheckoutResultDTO inCartOrder(CartCheckoutResultDTO result, List<UUID> cart) {
+        result.getLines().sort(Comparator.comparingInt(line -> cart.indexOf(line.getListingId())));
+        return result;
+    }
+
+    private static Journal purchaseJournal(Transaction transaction) {
+        BigDecimal price = transaction.getAmount();
+        BigDecimal creditAmount = transaction.getCredit().getCreditAmount();
+        UUID buyerId = transaction.getBuyer().getId();
+        UUID sellerId = transaction.getSeller().getId();
+        return Journal.of(EntryType.PURCHASE, transaction.getId().toString(),
+                "Purchase of listing " + transaction.getListing().getId())
+                .cash(LedgerAccount.USER, buyerId, price.negate())
+                .credit(LedgerAccount.USER, buyerId, creditAmount)
+                .cash(LedgerAccount.USER, sellerId, price.subtract(transaction.getPlatformFee()))
+                .credit(LedgerAccount.USER, sellerId, creditAmount.negate())
+                .cash(LedgerAccount.PLATFORM_REVENUE, null, transaction.getPlatformFee());
+    }
+
+    private static BigDecimal total(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BalanceChange change(Map<UUID, BalanceChange> changes, UUID userId) {
+        return changes.computeIfAbsent(userId, id -> new BalanceChange());
+    }
+}
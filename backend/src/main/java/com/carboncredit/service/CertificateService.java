@@ -25,6 +25,7 @@ import lombok.extern.slf4j.Slf4j;
 public class CertificateService {
 
     private final CertificateRepository certificateRepository;
+    private final IdService idService;
 
     /**
      * Called by TransactionService after a purchase is completed
@@ -42,7 +43,7 @@ public class CertificateService {
         certificate.setCo2ReducedKg(transaction.getCredit().getCo2ReducedKg());
 
         // Generate a unique, human-readable certificate code
-        String code = "CCM-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        String code = idService.certificateCode();
         certificate.setCertificateCode(code);
 
         Certificate savedCertificate = certificateRepository.save(certificate);
@@ -0,0 +1,180 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.CreditIssuanceResultDTO;
+import com.carboncredit.entity.AuditLog;
+import com.carboncredit.entity.CarbonCredit.CreditStatus;
+import com.carboncredit.entity.User;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.JourneyDataRepository.EligibleJourney;
+import com.carboncredit.util.UuidV7;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues a PENDING carbon credit, with its SUBMITTED audit entry, for every
+ * journey of a user that has a CO2 reduction and no credit yet.
+ *
+ * Eligible journeys are read with an anti-join in id order, one chunk at a
+ * time, and each chunk is inserted as JDBC batches in its own transaction.
+ * Credits are unique per journey and inserted with ON CONFLICT DO NOTHING,
+ * so when two runs for the same user overlap, on this node or another, a
+ * journey the other run credited first is skipped. Chunks are saved on a
+ * shared pool, up to parallelism at once, while the next chunk is read;
+ * a chunk is only read once one of those slots is free, so at most
+ * parallelism chunks are in memory however many journeys the user has. A
+ * failed chunk rolls back on its own and its journeys stay eligible for
+ * the next run.
+ */
+@Service
+@Slf4j
+public class CreditIssuanceService {
+
+    private static final UUID BEFORE_ALL_IDS = new UUID(0, 0);
+
+    // Journey credits are unique, so a journey credited by a concurrent run is skipped rather than credited again
+    private static final String INSERT_CREDIT_SQL = "INSERT INTO carbon_credits (credit_id, user_id, journey_id, "
+            + "co2_reduced_kg, credit_amount, status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT DO NOTHING";
+    private static final String INSERT_AUDIT_SQL = "INSERT INTO audit_logs (audit_id, credit_id, verifier_id, "
+            + "action, comments, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JourneyDataRepository journeyDataRepository;
+    private final CarbonCreditService carbonCreditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService chunkPool;
+
+    public CreditIssuanceService(JourneyDataRepository journeyDataRepository,
+            CarbonCreditService carbonCreditService, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${credits.bulk-issuance.chunk-size:1000}") int chunkSize,
+            @Value("${credits.bulk-issuance.parallelism:4}") int parallelism) {
+        this.journeyDataRepository = journeyDataRepository;
+        this.carbonCreditService = carbonCreditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.chunkPool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "credit-issuance-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        new ExecutorServiceMetrics(chunkPool, "creditIssuance", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        chunkPool.shutdown();
+    }
+
+    /**
+     * Issue PENDING credits for all of the user's journeys without one
+     */
+    public CreditIssuanceResultDTO issuePendingCredits(User user) {
+        CreditIssuanceResultDTO result = issue(user.getId());
+        log.info("Issued {} credits ({} total) for user {}, {} of {} eligible journeys skipped and {} failed",
+                result.getCreditsIssued(), result.getCreditAmount(), user.getUsername(), result.getSkippedJourneys(),
+                result.getEligibleJourneys(), result.getFailedJourneys());
+        return result;
+    }
+
+    private CreditIssuanceResultDTO issue(UUID userId) {
+        CreditIssuanceResultDTO result = new CreditIssuanceResultDTO();
+        Semaphore slots = new Semaphore(parallelism);
+        UUID afterId = BEFORE_ALL_IDS;
+        List<EligibleJourney> chunk;
+        do {
+            slots.acquireUninterruptibly();
+            chunk = journeyDataRepository.findEligibleForCredits(userId, afterId, PageRequest.ofSize(chunkSize));
+            if (chunk.isEmpty()) {
+                slots.release();
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+            List<EligibleJourney> journeys = chunk;
+            synchronized (result) {
+                result.setEligibleJourneys(result.getEligibleJourneys() + journeys.size());
+            }
+            chunkPool.execute(() -> {
+                try {
+                    saveChunk(userId, journeys, result);
+                } finally {
+                    slots.release();
+                }
+            });
+        } while (chunk.size() == chunkSize);
+        // Every slot is free again once the last chunk is done
+        slots.acquireUninterruptibly(parallelism);
+        return result;
+    }
+
+    private void saveChunk(UUID userId, List<EligibleJourney> journeys, CreditIssuanceResultDTO result) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            BigDecimal[] outcome = transactionTemplate.execute(status -> {
+                List<Object[]> credits = new ArrayList<>(journeys.size());
+                for (EligibleJourney journey : journeys) {
+                    BigDecimal amount = carbonCreditService.calculateCreditAmount(journey.getCo2ReducedKg(),
+                            CreditStatus.PENDING);
+                    credits.add(new Object[] { UuidV7.next(), userId, journey.getId(), journey.getCo2ReducedKg(),
+                            amount, CreditStatus.PENDING.name(), now });
+                }
+                // A row counts 0 when another run credited its journey since the chunk was read
+                int[] inserted = jdbcTemplate.batchUpdate(INSERT_CREDIT_SQL, credits);
+                List<Object[]> audits = new ArrayList<>(journeys.size());
+                BigDecimal total = BigDecimal.ZERO;
+                for (int i = 0; i < credits.size(); i++) {
+                    if (inserted[i] != 1) {
+                        continue;
+                    }
+                    Object[] credit = credits.get(i);
+                    audits.add(new Object[] { UuidV7.next(), credit[0], userId, AuditLog.AuditAction.SUBMITTED.name(),
+                            "Journeys submitted for CVA verifications", now });
+                    // Summed as stored, at the column's two decimals
+                    total = total.add(((BigDecimal) credit[4]).setScale(2, RoundingMode.HALF_UP));
+                }
+                jdbcTemplate.batchUpdate(INSERT_AUDIT_SQL, audits);
+                return new BigDecimal[] { BigDecimal.valueOf(audits.size()), total };
+            });
+            int issued = outcome[0].intValue();
+            synchronized (result) {
+                result.setCreditsIssued(result.getCreditsIssued() + issued);
+                result.setSkippedJourneys(result.getSkippedJourneys() + journeys.size() - issued);
+                result.setCreditAmount(result.getCreditAmount().add(outcome[1]));
+            }
+        } catch (RuntimeException e) {
+            // Runs on a pool thread, so anything thrown is reported here or not at all
+            log.error("Failed to issue credits for {} journeys of user {}: {}", journeys.size(), userId,
+                    e.getMessage());
+            synchronized (result) {
+                result.setFailedJourneys(result.getFailedJourneys() + journeys.size());
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,6 +13,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.carboncredit.config.CacheConfig;
 import com.carboncredit.dto.CreditListingDTO;
 import com.carboncredit.dto.MarketplaceStatsDTO;
 import com.carboncredit.entity.CarbonCredit;
@@ -190,6 +192,7 @@ public class CreditListingService {
     /**
      * Gets active listing as a DTO Page
      */
+    @Cacheable(value = CacheConfig.LISTINGS, key = "'active:' + #page + ':' + #size + ':' + #sortBy")
     @Transactional(readOnly = true)
     public Page<CreditListingDTO> getActiveListings(int page, int size, String sortBy) {
         validationService.validatePageParameters(page, size);
@@ -308,6 +311,7 @@ public class CreditListingService {
     /**
      * Gets marketplace statistics and returns a DTO.
      */
+    @Cacheable(value = CacheConfig.MARKETPLACE_STATS, key = "'all'")
     @Transactional(readOnly = true)
     public MarketplaceStatsDTO getMarketplaceStats() {
         long totalActiveListings = creditListingRepository.countActiveListings();
@@ -334,6 +338,7 @@ public class CreditListingService {
      * Finds a single listing by ID and returns its DTO.
      * (Needed for the Controller's GET /{id} endpoint)
      */
+    @Cacheable(value = CacheConfig.LISTINGS, key = "'id:' + #listingId", unless = "#result == null")
     @Transactional(readOnly = true)
     public Optional<CreditListingDTO> findListingDtoById(UUID listingId) {
         return creditListingRepository.findById(listingId)
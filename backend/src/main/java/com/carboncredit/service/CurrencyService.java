@@ -6,6 +6,9 @@ import java.math.RoundingMode;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.carboncredit.util.Money;
+
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -14,6 +17,14 @@ public class CurrencyService {
     @Value("${currency.usd-to-vnd-rate}")
     private BigDecimal usdToVndRate;
 
+    // VND per US cent in parts per million, so conversions stay on longs
+    private long vndPerCentPpm;
+
+    @PostConstruct
+    void init() {
+        vndPerCentPpm = Money.toPpm(usdToVndRate.movePointLeft(Money.SCALE));
+    }
+
     /**
      * Convert USD to VND
      * 
@@ -21,13 +32,20 @@ public class CurrencyService {
      * @return Amount in VND (no decimals)
      */
     public BigDecimal convertUsdToVnd(BigDecimal usdAmount) {
-        BigDecimal vndAmount = usdAmount.multiply(usdToVndRate).setScale(0, RoundingMode.HALF_UP);
+        BigDecimal vndAmount = BigDecimal.valueOf(usdCentsToVnd(Money.toCents(usdAmount)));
 
         log.debug("Current conversion: ${} USD -> {} VND (rate: {})", usdAmount, vndAmount, usdToVndRate);
 
         return vndAmount;
     }
 
+    /**
+     * Convert US cents to whole VND, rounded half-up
+     */
+    public long usdCentsToVnd(long usdCents) {
+        return Money.applyPpm(usdCents, vndPerCentPpm);
+    }
+
     /**
      * Convert VND to USD
      * 
@@ -35,7 +53,8 @@ public class CurrencyService {
      * @return Amount in USD (2 decimal places)
      */
     public BigDecimal convertVndToUsd(BigDecimal vndAmount) {
-        BigDecimal usdAmount = vndAmount.divide(usdToVndRate, 2, RoundingMode.HALF_UP);
+        BigDecimal usdAmount = Money.fromCents(vndToUsdCents(vndAmount.setScale(0, RoundingMode.HALF_UP)
+                .longValueExact()));
 
         log.debug("Currency conversion: {} VND → ${} USD (rate: {})",
                 vndAmount, usdAmount, usdToVndRate);
@@ -43,6 +62,13 @@ public class CurrencyService {
         return usdAmount;
     }
 
+    /**
+     * Convert whole VND to US cents, rounded half-up
+     */
+    public long vndToUsdCents(long vnd) {
+        return Money.divideByPpm(vnd, vndPerCentPpm);
+    }
+
     /**
      * Get current exchange rate
      */
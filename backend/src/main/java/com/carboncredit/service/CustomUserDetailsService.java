@@ -7,15 +7,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.carboncredit.entity.User;
+import com.carboncredit.service.UserService.UserCredentials;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
@@ -33,26 +35,26 @@ public class CustomUserDetailsService implements UserDetailsService {
         // TODO Auto-generated method stub
         log.debug("Loading user details for username: {}", username);
 
-        // step 1: Find user in database
-        User user = userService.findByUsername(username).orElseThrow(() -> {
+        // step 1: Find user (cached by username)
+        UserCredentials user = userService.findCredentialsByUsername(username).orElseThrow(() -> {
             log.error("User not found: {}", username);
             return new UsernameNotFoundException("User not found: " + username);
         });
 
-        log.info("✅ [AUTH] User found: {}", user.getUsername());
-        log.info("🔑 [AUTH] Password hash exists: {}", user.getPasswordHash() != null);
+        log.info("✅ [AUTH] User found: {}", user.username());
+        log.info("🔑 [AUTH] Password hash exists: {}", user.passwordHash() != null);
         log.info("🔑 [AUTH] Password hash length: {}",
-                user.getPasswordHash() != null ? user.getPasswordHash().length() : 0);
+                user.passwordHash() != null ? user.passwordHash().length() : 0);
         log.info("🔑 [AUTH] Password hash preview: {}",
-                user.getPasswordHash() != null ? user.getPasswordHash().substring(0, 20) : "null");
-        String passwordHash = user.getPasswordHash();
+                user.passwordHash() != null ? user.passwordHash().substring(0, 20) : "null");
+        String passwordHash = user.passwordHash();
          log.info("🔧 [AUTH] About to create UserDetails with password: '{}'", passwordHash != null ? passwordHash.substring(0, 20) + "..." : "NULL");
     
         // Step 2: Convert YOUR User entity to Spring Security UserDetails
         UserDetails userDetails = new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
+                user.username(),
                 passwordHash, // ⭐ Explicitly use the variable
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.role().name())));
 
         log.info("✅ [AUTH] UserDetails created, authorities: {}", userDetails.getAuthorities());
         log.info("🔧 [AUTH] UserDetails password from object: '{}'",
@@ -61,6 +63,18 @@ public class CustomUserDetailsService implements UserDetailsService {
         return userDetails;
     }
 
+    /**
+     * Store the re-encoded hash after a login with a hash of lower strength
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.info("Upgrading password hash strength for user: {}", user.getUsername());
+        userService.updatePasswordHash(user.getUsername(), newPassword);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
     // handle password
     private String getValidPassword(User user) {
         // Handle both plain text and hashed passwords
@@ -0,0 +1,197 @@
+package com.carboncredit.service;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.util.Snowflake;
+import com.carboncredit.util.UuidV7;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Central source of IDs: time-ordered UUIDs for primary keys and Snowflake
+ * IDs for references that leave the system, such as deposit references
+ * sent to MoMo and VNPay and certificate codes printed for buyers.
+ *
+ * Each node needs its own worker ID. A node with {@code ids.worker-id} set
+ * uses it; otherwise it leases a free one from id_worker_leases at startup,
+ * in a transaction of its own, renews the lease while it runs and gives it
+ * back on shutdown. A lease left by a node that died is taken over once it
+ * expires. No Snowflake IDs are issued while the node holds no unexpired
+ * lease, since another node may have taken its worker ID over.
+ */
+@Service
+@Slf4j
+public class IdService {
+
+    // Claims a free ID, or takes over one whose lease has expired, in one statement
+    private static final String LEASE_SQL = "INSERT INTO id_worker_leases (worker_id, holder, expires_at) "
+            + "VALUES (?, ?, ?) ON CONFLICT (worker_id) DO UPDATE SET holder = EXCLUDED.holder, "
+            + "expires_at = EXCLUDED.expires_at WHERE id_worker_leases.expires_at < ?";
+    private static final String RENEW_SQL = "UPDATE id_worker_leases SET expires_at = ? "
+            + "WHERE worker_id = ? AND holder = ?";
+    private static final String RELEASE_SQL = "DELETE FROM id_worker_leases WHERE worker_id = ? AND holder = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leaseTemplate;
+    private final Duration leaseDuration;
+    private final String holder;
+    private final boolean configured;
+    private volatile boolean released;
+    // Null while no lease is held
+    private volatile Snowflake snowflake;
+    private volatile int leasedWorkerId = -1;
+    // Epoch millis after which the lease may have been taken over
+    private volatile long leaseValidUntil = Long.MAX_VALUE;
+
+    public IdService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${ids.worker-id:-1}") int workerId,
+            @Value("${ids.lease-duration:10m}") Duration leaseDuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.leaseTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseDuration = leaseDuration;
+        this.holder = hostName() + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID();
+        this.configured = workerId >= 0;
+        if (configured) {
+            this.snowflake = new Snowflake(workerId);
+        }
+    }
+
+    /**
+     * Lease a worker ID unless one is configured; fails startup if none is free
+     */
+    @PostConstruct
+    public synchronized void acquireLease() {
+        if (!configured) {
+            lease();
+        }
+    }
+
+    public UUID newUuid() {
+        return UuidV7.next();
+    }
+
+    public long nextId() {
+        return snowflake().next();
+    }
+
+    /**
+     * Unique payment reference such as {@code DEP_123456789012345678}
+     */
+    public String paymentReference(String prefix) {
+        return prefix + "_" + snowflake().next();
+    }
+
+    /**
+     * Unique certificate code such as {@code CCM-0J2T8N5Q1R7XG}
+     */
+    public String certificateCode() {
+        return "CCM-" + Snowflake.toBase32(snowflake().next());
+    }
+
+    /** Worker ID this node holds a lease on, or -1 if it has none */
+    public int getLeasedWorkerId() {
+        return leasedWorkerId;
+    }
+
+    private Snowflake snowflake() {
+        Snowflake current = snowflake;
+        if (current == null || System.currentTimeMillis() >= leaseValidUntil) {
+            throw new IllegalStateException("No Snowflake worker ID lease is held; set ids.worker-id or check "
+                    + "that id_worker_leases can be written");
+        }
+        return current;
+    }
+
+    // Start from a hash of the holder so nodes starting together try different IDs first
+    private void lease() {
+        long leasedAt = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp expiresAt = Timestamp.valueOf(now.plus(leaseDuration));
+        Timestamp expiredBefore = Timestamp.valueOf(now);
+        int start = holder.hashCode() & Snowflake.MAX_WORKER_ID;
+        Integer workerId = leaseTemplate.execute(status -> {
+            for (int i = 0; i <= Snowflake.MAX_WORKER_ID; i++) {
+                int candidate = (start + i) & Snowflake.MAX_WORKER_ID;
+                if (jdbcTemplate.update(LEASE_SQL, candidate, holder, expiresAt, expiredBefore) == 1) {
+                    return candidate;
+                }
+            }
+            return null;
+        });
+        if (workerId == null) {
+            throw new IllegalStateException("No free Snowflake worker ID; set ids.worker-id or wait for leases of "
+                    + "stopped nodes to expire");
+        }
+        snowflake = new Snowflake(workerId);
+        leasedWorkerId = workerId;
+        leaseValidUntil = leasedAt + leaseDuration.toMillis();
+        log.info("Leased Snowflake worker ID {} as {}", workerId, holder);
+    }
+
+    /**
+     * Extend this node's lease. A lease that was lost, because renewals
+     * failed until it expired and another node took the ID over, is
+     * replaced by a new one; until then no IDs are issued.
+     */
+    @Scheduled(fixedDelayString = "${ids.lease-renew-interval-ms:60000}")
+    public synchronized void renewLease() {
+        if (configured || released) {
+            return;
+        }
+        int workerId = leasedWorkerId;
+        if (workerId < 0) {
+            // Replacing a lost lease failed last time
+            lease();
+            return;
+        }
+        long renewedAt = System.currentTimeMillis();
+        Timestamp expiresAt = Timestamp.valueOf(LocalDateTime.now().plus(leaseDuration));
+        Integer renewed = leaseTemplate.execute(status -> jdbcTemplate.update(RENEW_SQL, expiresAt, workerId, holder));
+        if (renewed != null && renewed == 1) {
+            leaseValidUntil = renewedAt + leaseDuration.toMillis();
+            return;
+        }
+        log.error("Lost the lease on Snowflake worker ID {}, leasing a new one", workerId);
+        snowflake = null;
+        leasedWorkerId = -1;
+        lease();
+    }
+
+    @PreDestroy
+    public synchronized void releaseLease() {
+        released = true;
+        int workerId = leasedWorkerId;
+        if (workerId < 0) {
+            return;
+        }
+        snowflake = null;
+        leasedWorkerId = -1;
+        try {
+            leaseTemplate.executeWithoutResult(status -> jdbcTemplate.update(RELEASE_SQL, workerId, holder));
+        } catch (RuntimeException e) {
+            log.warn("Cannot release Snowflake worker ID {}; it expires on its own: {}", workerId, e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.carboncredit.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.exception.InsufficientBalanceException;
+import com.carboncredit.exception.InvalidStatusException;
+import com.carboncredit.exception.ServiceBusyException;
+import com.carboncredit.exception.UnauthorizedOperationException;
+import com.carboncredit.exception.ValidationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a request at most once per idempotency key and replays its response
+ * to retries.
+ *
+ * A key is claimed by inserting its row; the primary key makes exactly one
+ * of several concurrent requests win. The winner's response is stored on
+ * the row and kept in an in-memory LRU, so a retry storm from a payment
+ * gateway is answered from memory without touching the wallet again.
+ * Only a request turned down as invalid releases its claim. Server errors
+ * and unexpected exceptions keep it, replayed as the error, and a response
+ * that cannot be stored is kept without its body: the wallet change may
+ * already have been committed, so a retry must not run it again. A claim
+ * left behind by a crash is never taken over before it expires. The claim records a hash
+ * of the request, and reusing a key for a different request is rejected
+ * instead of being answered with the other request's response.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 200;
+
+    private static final String DELETE_EXPIRED_KEY_SQL = "DELETE FROM idempotency_keys "
+            + "WHERE idempotency_key = ? AND expires_at < ?";
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_keys "
+            + "(idempotency_key, request_hash, status, created_at, expires_at) VALUES (?, ?, 'IN_PROGRESS', ?, ?)";
+    private static final String FIND_SQL = "SELECT status, request_hash, response_status, response_body, "
+            + "response_location, expires_at FROM idempotency_keys WHERE idempotency_key = ?";
+    private static final String COMPLETE_SQL = "UPDATE idempotency_keys SET status = 'COMPLETED', "
+            + "response_status = ?, response_body = ?, response_location = ? WHERE idempotency_key = ?";
+    private static final String RELEASE_SQL = "DELETE FROM idempotency_keys WHERE idempotency_key = ? "
+            + "AND status = 'IN_PROGRESS'";
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE expires_at < ?";
+
+    // Thrown when a request is turned down before anything is committed, so the key can be used again
+    private static final Set<Class<?>> REJECTIONS = Set.of(ValidationException.class,
+            BusinessOperationException.class, InsufficientBalanceException.class, EntityNotFoundException.class,
+            InvalidStatusException.class, UnauthorizedOperationException.class, IllegalArgumentException.class,
+            ServiceBusyException.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlHours;
+    private final Map<String, StoredResponse> recent;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.cache-size:10000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlHours = ttlHours;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    // A null status means the request is still in progress
+    record StoredResponse(String requestHash, Integer status, String body, String location,
+            LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Run the action once for this scope and key, or replay the response of
+     * the run that already happened. Without a key the action simply runs.
+     *
+     * @param request what the key must stand for: the body or parameters
+     *            the action acts on, compared by its JSON form
+     * @throws IllegalStateException if another request with the key is still running
+     * @throws BusinessOperationException if the key was used for a different request
+     */
+    public <R extends ResponseEntity<?>> R execute(String scope, String clientKey, Object request,
+            Supplier<R> action) {
+        if (clientKey == null || clientKey.isBlank()) {
+            return action.get();
+        }
+        if (clientKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException("Request", HEADER,
+                    "must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = scope + ":" + clientKey.trim();
+        String requestHash = hash(request);
+        LocalDateTime now = LocalDateTime.now();
+
+        StoredResponse cached = recent.get(key);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return replay(key, requestHash, cached);
+        }
+
+        if (!claim(key, requestHash, now)) {
+            StoredResponse stored = find(key);
+            if (stored == null) {
+                // Released between our claim and the lookup
+                throw new IllegalStateException("A request with this idempotency key is still being processed");
+            }
+            requireSameRequest(key, requestHash, stored);
+            if (stored.status() == null) {
+                throw new IllegalStateException("A request with this idempotency key is still being processed");
+            }
+            recent.put(key, stored);
+            return replay(key, requestHash, stored);
+        }
+
+        LocalDateTime expiresAt = now.plusHours(ttlHours);
+        R response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            if (REJECTIONS.contains(e.getClass())) {
+                release(key);
+            } else {
+                // The failure may have come after the wallet change committed, so the key stays used
+                markCompleted(key, requestHash, HttpStatus.INTERNAL_SERVER_ERROR.value(), expiresAt);
+            }
+            throw e;
+        }
+        // Server errors are stored like any response, for the same reason
+        try {
+            store(key, requestHash, response, expiresAt);
+        } catch (RuntimeException e) {
+            log.error("Cannot store response for idempotency key {}, keeping it without a body: {}", key,
+                    e.getMessage());
+            markCompleted(key, requestHash, response.getStatusCode().value(), expiresAt);
+        }
+        return response;
+    }
+
+    private boolean claim(String key, String requestHash, LocalDateTime now) {
+        Timestamp nowTs = Timestamp.valueOf(now);
+        jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, key, nowTs);
+        try {
+            jdbcTemplate.update(CLAIM_SQL, key, requestHash, nowTs, Timestamp.valueOf(now.plusHours(ttlHours)));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // Replayed without a body; if even that cannot be written the claim stays in progress until it expires
+    private void markCompleted(String key, String requestHash, int status, LocalDateTime expiresAt) {
+        recent.put(key, new StoredResponse(requestHash, status, null, null, expiresAt));
+        try {
+            jdbcTemplate.update(COMPLETE_SQL, status, null, null, key);
+        } catch (RuntimeException e) {
+            log.error("Cannot complete idempotency key {}; it stays in progress until it expires: {}", key,
+                    e.getMessage());
+        }
+    }
+
+    private void release(String key) {
+        try {
+            jdbcTemplate.update(RELEASE_SQL, key);
+        } catch (RuntimeException e) {
+            log.error("Cannot release idempotency key {}; it stays claimed until it expires: {}", key,
+                    e.getMessage());
+        }
+    }
+
+    private StoredResponse find(String key) {
+        List<StoredResponse> rows = jdbcTemplate.query(FIND_SQL, (rs, n) -> new StoredResponse(
+                rs.getString("request_hash"),
+                "COMPLETED".equals(rs.getString("status")) ? rs.getInt("response_status") : null,
+                rs.getString("response_body"), rs.getString("response_location"),
+                rs.getTimestamp("expires_at").toLocalDateTime()), key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void store(String key, String requestHash, ResponseEntity<?> response, LocalDateTime expiresAt) {
+        String body;
+        try {
+            body = response.getBody() == null ? null : objectMapper.writeValueAsString(response.getBody());
+        } catch (JsonProcessingException e) {
+            // The action already ran; keep its status so it cannot run twice, but the body cannot be replayed
+            log.error("Cannot serialize response for idempotency key {}: {}", key, e.getMessage());
+            body = null;
+        }
+        String location = response.getHeaders().getFirst(HttpHeaders.LOCATION);
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(), body, location,
+                expiresAt);
+        jdbcTemplate.update(COMPLETE_SQL, stored.status(), body, location, key);
+        recent.put(key, stored);
+    }
+
+    // Rows claimed before request hashes were recorded match any request
+    private static void requireSameRequest(String key, String requestHash, StoredResponse stored) {
+        if (stored.requestHash() != null && !stored.requestHash().equals(requestHash)) {
+            log.warn("Idempotency key {} reused for a different request", key);
+            throw new BusinessOperationException(
+                    "This idempotency key was already used for a different request");
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] json = request == null ? "null".getBytes(StandardCharsets.UTF_8)
+                    : objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                            .writeValueAsBytes(request);
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint request for idempotency key", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R extends ResponseEntity<?>> R replay(String key, String requestHash, StoredResponse stored) {
+        requireSameRequest(key, requestHash, stored);
+        log.info("Replaying stored response for idempotency key {}", key);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.body() == null) {
+            return (R) builder.build();
+        }
+        // Stored JSON is written back as-is
+        return (R) builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
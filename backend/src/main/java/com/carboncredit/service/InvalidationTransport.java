@@ -0,0 +1,21 @@
+package com.carboncredit.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidation messages between backend nodes for
+ * {@link CacheInvalidationBus}.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Send a message to every subscribed node, including this one
+     */
+    void publish(String message);
+
+    /**
+     * Start delivering messages to the consumer. {@code onGap} runs when
+     * messages may have been lost, e.g. after a reconnect.
+     */
+    void subscribe(Consumer<String> consumer, Runnable onGap);
+}
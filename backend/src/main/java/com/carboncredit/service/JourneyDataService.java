@@ -3,12 +3,12 @@ package com.carboncredit.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
 
+import com.carboncredit.dto.CreditIssuanceResultDTO;
 import com.carboncredit.dto.JourneyStatistics;
 import com.carboncredit.dto.JourneyStatisticsWithCredits;
 import com.carboncredit.entity.CarbonCredit;
@@ -19,6 +19,9 @@ import com.carboncredit.exception.ResourceNotFoundException;
 import com.carboncredit.exception.UnauthorizedOperationException;
 import com.carboncredit.repository.CarbonCreditRepository;
 import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.JourneyDataRepository.JourneyTotals;
+import com.carboncredit.service.UserCounterService.CounterChange;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ValidationException;
@@ -36,6 +39,9 @@ public class JourneyDataService {
     private final CarbonCreditRepository carbonCreditRepository;
     private final AuditService auditService;
     private final UserService userService;
+    private final UserCounterService userCounterService;
+    private final JourneyOverlapIndex journeyOverlapIndex;
+    private final CreditIssuanceService creditIssuanceService;
 
     private void validateJourneyData(JourneyData journeyData) {
         validationService.validateJourneyData(journeyData);
@@ -73,6 +79,7 @@ public class JourneyDataService {
         }
 
         JourneyData savedJourney = journeyDataRepository.save(journeyData);
+        reserveSpan(savedJourney, "create");
 
         CarbonCredit credit = new CarbonCredit();
         credit.setJourney(savedJourney);
@@ -82,6 +89,7 @@ public class JourneyDataService {
         credit.setStatus(CarbonCredit.CreditStatus.PENDING); // ⭐ PENDING
 
         carbonCreditRepository.save(credit);
+        userCounterService.apply(savedJourney.getUser().getId(), new CounterChange().addJourney(savedJourney));
 
         // Log audit
         auditService.logSubmission(credit, journeyData.getUser());
@@ -127,15 +135,14 @@ public class JourneyDataService {
         return journeyDataRepository.findByUserAndStartTimeBetween(user, startDate, endDate);
     }
 
-    // get total co2 reduction by user
+    // get total co2 reduction by user, read from the user's counters row
     @Transactional(readOnly = true)
     public BigDecimal getTotalCO2ReductionByUser(User user) {
         if (user == null) {
             throw new ValidationException("User cannot be null");
         }
 
-        BigDecimal total = journeyDataRepository.getTotalCo2ReductionByUser(user);
-        return total != null ? total : BigDecimal.ZERO;
+        return userCounterService.getCounters(user.getId()).getCo2ReducedKg();
     }
 
     // Find journeys without carbon credits
@@ -173,6 +180,8 @@ public class JourneyDataService {
         // validate updated data
         validateJourneyData(updatedData);
 
+        CounterChange change = new CounterChange().removeJourney(existing);
+
         // Update fields
         existing.setDistanceKm(updatedData.getDistanceKm());
         existing.setEnergyConsumedKwh(updatedData.getEnergyConsumedKwh());
@@ -186,6 +195,8 @@ public class JourneyDataService {
         existing.setCo2ReducedKg(co2Reduced);
 
         JourneyData saved = journeyDataRepository.save(existing);
+        reserveSpan(saved, "update");
+        userCounterService.apply(saved.getUser().getId(), change.addJourney(saved));
         log.info("Journey {} updated successfully", journeyId);
 
         return saved;
@@ -212,31 +223,18 @@ public class JourneyDataService {
         // }
 
         journeyDataRepository.delete(journey);
+        journeyOverlapIndex.remove(vehicleId(journey), journeyId);
+        userCounterService.apply(journey.getUser().getId(), journeyRemoved(journey));
         log.info("Journey {} deleted successfully", journeyId);
     }
 
-    // Get journey statistics for a user
+    // Get journey statistics for a user, summed by the database
     @Transactional(readOnly = true)
     public JourneyStatistics getJourneyStatistics(User user) {
-        List<JourneyData> journeys = findByUser(user);
-
-        if (journeys.isEmpty()) {
-            return new JourneyStatistics(0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
-        }
-
-        BigDecimal totalDistance = journeys.stream().map(JourneyData::getDistanceKm).reduce(BigDecimal.ZERO,
-                BigDecimal::add);
-
-        BigDecimal totalEnergy = journeys.stream().map(JourneyData::getEnergyConsumedKwh).reduce(BigDecimal.ZERO,
-                BigDecimal::add);
-
-        BigDecimal totalCo2Reduced = journeys.stream().map(JourneyData::getCo2ReducedKg).reduce(BigDecimal.ZERO,
-                BigDecimal::add);
-
-        BigDecimal averageDistance = totalDistance.divide(BigDecimal.valueOf(journeys.size()), 2, RoundingMode.HALF_UP);
+        JourneyTotals totals = getJourneyTotals(user);
 
-        return new JourneyStatistics(
-                journeys.size(), totalDistance, totalEnergy, averageDistance, totalCo2Reduced);
+        return new JourneyStatistics(Math.toIntExact(totals.getJourneys()), totals.getDistanceKm(),
+                totals.getEnergyConsumedKwh(), averageDistance(totals), totals.getCo2ReducedKg());
     }
 
     @Transactional(readOnly = true)
@@ -248,65 +246,36 @@ public class JourneyDataService {
                 .toList();
     }
 
-    // Bulk create carbon credit for multiple journeys
-    @Transactional
-    public List<CarbonCredit> createCarbonCreditsForUser(User user) {
-        List<JourneyData> eligibleJourneys = findEligibleForCarbonCredits(user);
-        List<CarbonCredit> createdCredits = new ArrayList<>();
-
-        for (JourneyData journey : eligibleJourneys) {
-            try {
-                CarbonCredit credit = carbonCreditService.createCarbonCredit(journey);
-                createdCredits.add(credit);
-                log.info("Created carbon credit for journey {}", journey.getId());
-            } catch (Exception e) {
-                log.error("Failed to create carbon credit for journey {}: {}", journey.getId(), e.getMessage());
-            }
-        }
-        return createdCredits;
+    // Bulk create carbon credit for multiple journeys, in chunks that commit on their own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CreditIssuanceResultDTO createCarbonCreditsForUser(User user) {
+        return creditIssuanceService.issuePendingCredits(user);
     }
 
     // Get journey statistics including carbon credit information
     @Transactional(readOnly = true)
     public JourneyStatisticsWithCredits getDetailedJourneyStatistics(User user) {
-        List<JourneyData> journeys = findByUser(user);
-
-        if (journeys.isEmpty()) {
-            return new JourneyStatisticsWithCredits(0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO,
-                    BigDecimal.ZERO,
-                    0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
-        }
-
-        // Basic statistics
-        BigDecimal totalDistance = journeys.stream().map(JourneyData::getDistanceKm).reduce(BigDecimal.ZERO,
-                BigDecimal::add);
-
-        BigDecimal totalEnergy = journeys.stream().map(JourneyData::getEnergyConsumedKwh).reduce(BigDecimal.ZERO,
-                BigDecimal::add);
-
-        BigDecimal totalCo2Reduced = journeys.stream()
-                .map(JourneyData::getCo2ReducedKg)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal averageDistance = totalDistance.divide(BigDecimal.valueOf(journeys.size()), 2, RoundingMode.HALF_UP);
-
-        // Carbon credit statistics
-        List<JourneyData> journeysWithCredits = journeys.stream().filter(j -> j.getCarbonCredit() != null).toList();
-
-        int journeysWithCreditCount = journeysWithCredits.size();
-        int journeysWithoutCreditCount = journeys.size() - journeysWithCreditCount;
-
-        BigDecimal totalCreditAmount = journeysWithCredits.stream().map(j -> j.getCarbonCredit().getCreditAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        JourneyTotals totals = getJourneyTotals(user);
+
+        int journeys = Math.toIntExact(totals.getJourneys());
+        int journeysWithCredits = Math.toIntExact(totals.getJourneysWithCredits());
+        return new JourneyStatisticsWithCredits(journeys, totals.getDistanceKm(), totals.getEnergyConsumedKwh(),
+                averageDistance(totals), totals.getCo2ReducedKg(),
+                journeysWithCredits, journeys - journeysWithCredits, totals.getCreditAmount(),
+                totals.getPotentialCreditAmount());
+    }
 
-        BigDecimal potentialCreditAmount = journeys.stream()
-                .filter(j -> j.getCarbonCredit() == null)
-                .map(j -> carbonCreditService.calculateCO2Reduction(j.getDistanceKm(), j.getEnergyConsumedKwh()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // One grouped query over the user's journeys and their credits, whatever the history size
+    private JourneyTotals getJourneyTotals(User user) {
+        return journeyDataRepository.getJourneyTotals(user, CarbonCreditService.CAR_EMISSION_KG_PER_KM,
+                CarbonCreditService.GRID_EMISSION_KG_PER_KWH);
+    }
 
-        return new JourneyStatisticsWithCredits(journeys.size(), totalDistance, totalEnergy, averageDistance,
-                totalCo2Reduced,
-                journeysWithCreditCount, journeysWithoutCreditCount, totalCreditAmount, potentialCreditAmount);
+    private static BigDecimal averageDistance(JourneyTotals totals) {
+        if (totals.getJourneys() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return totals.getDistanceKm().divide(BigDecimal.valueOf(totals.getJourneys()), 2, RoundingMode.HALF_UP);
     }
 
     public void deleteJourney(UUID journeyId) {
@@ -324,9 +293,34 @@ public class JourneyDataService {
         }
 
         journeyDataRepository.delete(journey);
+        journeyOverlapIndex.remove(vehicleId(journey), journeyId);
+        userCounterService.apply(journey.getUser().getId(), journeyRemoved(journey));
         log.info("Journey {} deleted successfully", journeyId);
     }
 
+    // A journey may not overlap another journey of the same vehicle
+    private void reserveSpan(JourneyData journey, String operation) {
+        journeyOverlapIndex.reserve(vehicleId(journey), journey.getId(), journey.getStartTime(), journey.getEndTime())
+                .ifPresent(overlapping -> {
+                    throw new BusinessOperationException("journeyData", operation,
+                            "Journey overlaps journey " + overlapping + " of the same vehicle");
+                });
+    }
+
+    private static UUID vehicleId(JourneyData journey) {
+        return journey.getVehicle() == null ? null : journey.getVehicle().getId();
+    }
+
+    // The journey and, if it was issued, its credit leave the owner's counters
+    private static CounterChange journeyRemoved(JourneyData journey) {
+        CounterChange change = new CounterChange().removeJourney(journey);
+        CarbonCredit credit = journey.getCarbonCredit();
+        if (credit != null && UserCounterService.isIssued(credit.getStatus())) {
+            change.removeIssuedCredit(credit);
+        }
+        return change;
+    }
+
     /**
      * Find journeys by verification status
      * Used by CVA to get pending journeys, and by admin to filter journeys
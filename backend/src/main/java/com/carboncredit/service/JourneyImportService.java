@@ -0,0 +1,297 @@
+package com.carboncredit.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.JourneyImportResultDTO;
+import com.carboncredit.dto.JourneyImportResultDTO.RowResult;
+import com.carboncredit.dto.JourneyImportResultDTO.RowStatus;
+import com.carboncredit.entity.AuditLog;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.User;
+import com.carboncredit.entity.Vehicle;
+import com.carboncredit.exception.ValidationException;
+import com.carboncredit.repository.VehicleRepository;
+import com.carboncredit.service.UserCounterService.CounterChange;
+import com.carboncredit.util.UuidV7;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk journey upload for fleet operators.
+ *
+ * The body is read one line at a time, as NDJSON (one JSON object per
+ * line) or CSV with a header row, with the fields vehicleId, distanceKm,
+ * energyConsumedKwh, startTime and endTime. Each row is validated like a
+ * single journey and, if valid, written the way
+ * {@link JourneyDataService#createJourney} writes it: a PENDING_VERIFICATION
+ * journey, a PENDING carbon credit and a SUBMITTED audit entry, counted in
+ * the user's counters. A row overlapping another journey of its vehicle,
+ * stored or earlier in the upload, is rejected. Valid rows are inserted
+ * with one JDBC batch per table every batch-size rows, each batch in its
+ * own transaction, so a failed batch only rejects its own rows.
+ */
+@Service
+@Slf4j
+public class JourneyImportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final String INSERT_JOURNEY_SQL = "INSERT INTO journey_data (journey_id, vehicle_id, user_id, "
+            + "distance_km, energy_consumed_kwh, start_time, end_time, co2_reduced_kg, created_at, "
+            + "verification_status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CREDIT_SQL = "INSERT INTO carbon_credits (credit_id, user_id, journey_id, "
+            + "co2_reduced_kg, credit_amount, status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_AUDIT_SQL = "INSERT INTO audit_logs (audit_id, credit_id, verifier_id, "
+            + "action, comments, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * One uploaded row; fields missing from the upload are null
+     */
+    public record JourneyRow(UUID vehicleId, BigDecimal distanceKm, BigDecimal energyConsumedKwh,
+            LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    private record PendingRow(RowResult result, UUID journeyId, UUID creditId, JourneyRow row) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ValidationService validationService;
+    private final CarbonCreditService carbonCreditService;
+    private final VehicleRepository vehicleRepository;
+    private final UserCounterService userCounterService;
+    private final JourneyOverlapIndex journeyOverlapIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxRows;
+
+    public JourneyImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ValidationService validationService, CarbonCreditService carbonCreditService,
+            VehicleRepository vehicleRepository, UserCounterService userCounterService,
+            JourneyOverlapIndex journeyOverlapIndex, ObjectMapper objectMapper,
+            @Value("${journeys.import.batch-size:500}") int batchSize,
+            @Value("${journeys.import.max-rows:100000}") int maxRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validationService = validationService;
+        this.carbonCreditService = carbonCreditService;
+        this.vehicleRepository = vehicleRepository;
+        this.userCounterService = userCounterService;
+        this.journeyOverlapIndex = journeyOverlapIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Import the journeys of an upload for the user, reading it as it arrives
+     */
+    public JourneyImportResultDTO importJourneys(User user, InputStream body, Format format) throws IOException {
+        Set<UUID> ownVehicles = vehicleRepository.findByUser(user).stream()
+                .map(Vehicle::getId)
+                .collect(Collectors.toSet());
+        JourneyImportResultDTO result = new JourneyImportResultDTO();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Map<String, Integer> csvColumns = null;
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && csvColumns == null) {
+                csvColumns = parseCsvHeader(line);
+                continue;
+            }
+            if (result.getTotalRows() == maxRows) {
+                result.setTruncated(true);
+                break;
+            }
+            result.setTotalRows(result.getTotalRows() + 1);
+
+            RowResult rowResult = new RowResult(lineNumber, null, null, null, null);
+            result.getRows().add(rowResult);
+            try {
+                JourneyRow row = format == Format.CSV ? parseCsvRow(line, csvColumns) : parseJsonRow(line);
+                rowResult.setCo2ReducedKg(validate(user, row, ownVehicles));
+                batch.add(new PendingRow(rowResult, UuidV7.next(), UuidV7.next(), row));
+            } catch (ValidationException | IllegalArgumentException | DateTimeParseException e) {
+                reject(rowResult, e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                flush(user, batch);
+            }
+        }
+        flush(user, batch);
+
+        for (RowResult row : result.getRows()) {
+            if (row.getStatus() == RowStatus.ACCEPTED) {
+                result.setAcceptedRows(result.getAcceptedRows() + 1);
+            } else {
+                result.setRejectedRows(result.getRejectedRows() + 1);
+            }
+        }
+        log.info("Imported {} of {} journeys for user {} ({} rejected{})", result.getAcceptedRows(),
+                result.getTotalRows(), user.getUsername(), result.getRejectedRows(),
+                result.isTruncated() ? ", upload truncated" : "");
+        return result;
+    }
+
+    // Validate as a single journey would be; returns the CO2 reduction
+    private BigDecimal validate(User user, JourneyRow row, Set<UUID> ownVehicles) {
+        if (row.vehicleId() != null && !ownVehicles.contains(row.vehicleId())) {
+            throw new ValidationException("JourneyData", "vehicleId", "Vehicle not found: " + row.vehicleId());
+        }
+        JourneyData journey = new JourneyData();
+        journey.setUser(user);
+        if (row.vehicleId() != null) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(row.vehicleId());
+            journey.setVehicle(vehicle);
+        }
+        journey.setDistanceKm(row.distanceKm());
+        journey.setEnergyConsumedKwh(row.energyConsumedKwh());
+        journey.setStartTime(row.startTime());
+        journey.setEndTime(row.endTime());
+        validationService.validateJourneyData(journey);
+        return carbonCreditService.calculateCO2Reduction(row.distanceKm(), row.energyConsumedKwh());
+    }
+
+    private void flush(User user, List<PendingRow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<PendingRow> saved = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> journeys = new ArrayList<>(batch.size());
+                List<Object[]> credits = new ArrayList<>(batch.size());
+                List<Object[]> audits = new ArrayList<>(batch.size());
+                CounterChange counters = new CounterChange();
+                for (PendingRow pending : batch) {
+                    JourneyRow row = pending.row();
+                    // Reserved spans are released again if this batch rolls back
+                    Optional<UUID> overlapping = journeyOverlapIndex.reserve(row.vehicleId(), pending.journeyId(),
+                            row.startTime(), row.endTime());
+                    if (overlapping.isPresent()) {
+                        reject(pending.result(), "Overlaps journey " + overlapping.get() + " of the same vehicle");
+                        continue;
+                    }
+                    saved.add(pending);
+                    BigDecimal co2 = pending.result().getCo2ReducedKg();
+                    counters.addJourneys(1, row.distanceKm(), row.energyConsumedKwh(), co2);
+                    journeys.add(new Object[] { pending.journeyId(), row.vehicleId(), user.getId(), row.distanceKm(),
+                            row.energyConsumedKwh(), timestamp(row.startTime()), timestamp(row.endTime()), co2, now,
+                            JourneyData.VerificationStatus.PENDING_VERIFICATION.name() });
+                    credits.add(new Object[] { pending.creditId(), user.getId(), pending.journeyId(), co2, co2,
+                            CarbonCredit.CreditStatus.PENDING.name(), now });
+                    audits.add(new Object[] { UuidV7.next(), pending.creditId(), user.getId(),
+                            AuditLog.AuditAction.SUBMITTED.name(), "Journeys submitted for CVA verifications", now });
+                }
+                if (saved.isEmpty()) {
+                    return;
+                }
+                jdbcTemplate.batchUpdate(INSERT_JOURNEY_SQL, journeys);
+                jdbcTemplate.batchUpdate(INSERT_CREDIT_SQL, credits);
+                jdbcTemplate.batchUpdate(INSERT_AUDIT_SQL, audits);
+                userCounterService.apply(user.getId(), counters);
+            });
+            for (PendingRow pending : saved) {
+                pending.result().setStatus(RowStatus.ACCEPTED);
+                pending.result().setJourneyId(pending.journeyId());
+            }
+        } catch (DataAccessException e) {
+            log.error("Journey import batch of {} rows failed: {}", saved.size(), e.getMessage());
+            for (PendingRow pending : saved) {
+                reject(pending.result(), "Could not be saved: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        batch.clear();
+    }
+
+    private static void reject(RowResult result, String reason) {
+        result.setStatus(RowStatus.REJECTED);
+        result.setCo2ReducedKg(null);
+        result.setReason(reason);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    // ==================== PARSING ====================
+
+    private JourneyRow parseJsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, JourneyRow.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = line.split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim(), i);
+        }
+        if (!columns.containsKey("distanceKm") || !columns.containsKey("energyConsumedKwh")) {
+            throw new ValidationException("CSV header must name the distanceKm and energyConsumedKwh columns");
+        }
+        return columns;
+    }
+
+    private static JourneyRow parseCsvRow(String line, Map<String, Integer> columns) {
+        String[] values = line.split(",", -1);
+        String vehicleId = csvValue(values, columns, "vehicleId");
+        String distance = csvValue(values, columns, "distanceKm");
+        String energy = csvValue(values, columns, "energyConsumedKwh");
+        String start = csvValue(values, columns, "startTime");
+        String end = csvValue(values, columns, "endTime");
+        return new JourneyRow(
+                vehicleId == null ? null : UUID.fromString(vehicleId),
+                distance == null ? null : new BigDecimal(distance),
+                energy == null ? null : new BigDecimal(energy),
+                start == null ? null : LocalDateTime.parse(start),
+                end == null ? null : LocalDateTime.parse(end));
+    }
+
+    private static String csvValue(String[] values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.length || values[index].isBlank()) {
+            return null;
+        }
+        return values[index].trim();
+    }
+}
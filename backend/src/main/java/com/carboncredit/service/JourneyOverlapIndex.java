@@ -0,0 +1,203 @@
+package com.carboncredit.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.JourneyDataRepository.JourneyInterval;
+import com.carboncredit.util.IntervalTree;
+import com.carboncredit.util.IntervalTree.Interval;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory index of journey time spans per vehicle, used to reject a
+ * journey that overlaps another journey of the same vehicle.
+ *
+ * Each vehicle's spans live in an {@link IntervalTree}, loaded with one
+ * query the first time the vehicle is checked and kept in a bounded cache,
+ * so a check is an O(log n) lookup instead of a query per submission.
+ * {@link #reserve} checks and records a span in one step under the
+ * vehicle's lock, so concurrent submissions on this node cannot both pass;
+ * the span is withdrawn if the surrounding transaction rolls back. After
+ * commit the vehicle is invalidated on the other nodes, which reload it
+ * from the database on their next check, and on this node too if its tree
+ * was replaced meanwhile, since a reload before the commit missed the
+ * journey.
+ */
+@Service
+@Slf4j
+public class JourneyOverlapIndex {
+
+    static final String CACHE_NAME = "journeyIntervals";
+
+    private final JourneyDataRepository journeyDataRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate loadTemplate;
+    private final Cache<UUID, IntervalTree<UUID>> vehicles;
+
+    public JourneyOverlapIndex(JourneyDataRepository journeyDataRepository, CacheInvalidationBus invalidationBus,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${journeys.overlap-index.max-vehicles:20000}") long maxVehicles,
+            @Value("${journeys.overlap-index.expire-after-access:1h}") Duration expireAfterAccess) {
+        this.journeyDataRepository = journeyDataRepository;
+        this.invalidationBus = invalidationBus;
+        this.loadTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTemplate.setReadOnly(true);
+        this.vehicles = Caffeine.newBuilder()
+                .maximumSize(maxVehicles)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, vehicles, CACHE_NAME);
+    }
+
+    @PostConstruct
+    void subscribeToRemoteChanges() {
+        invalidationBus.addListener((cacheName, key) -> {
+            if (cacheName == null || (CACHE_NAME.equals(cacheName) && key == null)) {
+                vehicles.invalidateAll();
+            } else if (CACHE_NAME.equals(cacheName)) {
+                vehicles.invalidate(UUID.fromString(key));
+            }
+        });
+    }
+
+    /**
+     * Record the journey's span on its vehicle unless it overlaps another
+     * journey of the vehicle. A span the journey already had is replaced.
+     * Journeys without a vehicle or without both times are not indexed.
+     *
+     * @return the id of an overlapping journey, in which case nothing is
+     *         recorded
+     */
+    public Optional<UUID> reserve(UUID vehicleId, UUID journeyId, LocalDateTime startTime, LocalDateTime endTime) {
+        if (vehicleId == null || startTime == null || endTime == null) {
+            return Optional.empty();
+        }
+        Interval interval = interval(startTime, endTime);
+        IntervalTree<UUID> tree = tree(vehicleId);
+        Interval previous;
+        synchronized (tree) {
+            previous = tree.remove(journeyId);
+            UUID overlapping = tree.findOverlap(interval.start(), interval.end());
+            if (overlapping != null) {
+                restore(tree, journeyId, previous);
+                return Optional.of(overlapping);
+            }
+            tree.put(journeyId, interval);
+        }
+        afterTransaction(vehicleId, tree, () -> {
+            synchronized (tree) {
+                restore(tree, journeyId, previous);
+            }
+        });
+        return Optional.empty();
+    }
+
+    /**
+     * Drop a deleted journey's span once the surrounding transaction commits
+     */
+    public void remove(UUID vehicleId, UUID journeyId) {
+        if (vehicleId == null) {
+            return;
+        }
+        IntervalTree<UUID> tree = vehicles.getIfPresent(vehicleId);
+        if (tree == null) {
+            afterTransaction(vehicleId, null, () -> {
+            });
+            return;
+        }
+        Interval previous;
+        synchronized (tree) {
+            previous = tree.remove(journeyId);
+        }
+        afterTransaction(vehicleId, tree, () -> {
+            synchronized (tree) {
+                restore(tree, journeyId, previous);
+            }
+        });
+    }
+
+    long cachedVehicles() {
+        vehicles.cleanUp();
+        return vehicles.estimatedSize();
+    }
+
+    private IntervalTree<UUID> tree(UUID vehicleId) {
+        return vehicles.get(vehicleId, this::load);
+    }
+
+    // Read in a transaction of its own so the tree holds committed journeys only
+    private IntervalTree<UUID> load(UUID vehicleId) {
+        IntervalTree<UUID> tree = new IntervalTree<>();
+        List<JourneyInterval> journeys = loadTemplate.execute(
+                status -> journeyDataRepository.findIntervalsByVehicleId(vehicleId));
+        for (JourneyInterval journey : journeys) {
+            if (!journey.getEndTime().isBefore(journey.getStartTime())) {
+                tree.put(journey.getId(), interval(journey.getStartTime(), journey.getEndTime()));
+            }
+        }
+        log.debug("Loaded {} journey spans of vehicle {}", tree.size(), vehicleId);
+        return tree;
+    }
+
+    // Runs the undo if the transaction rolls back and tells other nodes once it commits
+    private void afterTransaction(UUID vehicleId, IntervalTree<UUID> tree, Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(vehicleId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    // A tree loaded after the change was made holds committed journeys only, so it lacks this one
+                    IntervalTree<UUID> current = vehicles.getIfPresent(vehicleId);
+                    if (current != null && current != tree) {
+                        vehicles.asMap().remove(vehicleId, current);
+                    }
+                    publish(vehicleId);
+                } else {
+                    undo.run();
+                }
+            }
+        });
+    }
+
+    private void publish(UUID vehicleId) {
+        invalidationBus.publish(CACHE_NAME, vehicleId);
+    }
+
+    private static void restore(IntervalTree<UUID> tree, UUID journeyId, Interval previous) {
+        if (previous == null) {
+            tree.remove(journeyId);
+        } else {
+            tree.put(journeyId, previous);
+        }
+    }
+
+    // A zero-length journey still occupies its instant, so an identical resubmission overlaps it
+    private static Interval interval(LocalDateTime startTime, LocalDateTime endTime) {
+        long start = startTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long end = endTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return new Interval(start, Math.max(end, start + 1));
+    }
+}
@@ -1,18 +1,28 @@
 package com.carboncredit.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.carboncredit.entity.User;
+
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
@@ -25,6 +35,27 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
     private Long jwtExpiration;
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLES_CLAIM = "roles";
+    static final String VERSION_CLAIM = "ver";
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * Claims of a token whose signature and expiry were checked
+     *
+     * @param version the user's token version when the token was issued
+     */
+    public record VerifiedToken(UUID userId, long version, Instant expiresAt, UserDetails principal) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     /**
      * Extract username from JWT token
      */
@@ -47,6 +78,18 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * Generate token for a user with the id, roles and token version embedded,
+     * so requests carrying it can be authenticated without loading the user
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId().toString());
+        claims.put(ROLES_CLAIM, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        claims.put(VERSION_CLAIM, user.getTokenVersion());
+        return generateToken(claims, user);
+    }
+
     /**
      * Generate token with extra claims
      */
@@ -79,6 +122,32 @@ public class JwtService {
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
     }
 
+    /**
+     * Verify a token issued by {@link #generateToken(User)}, parsing it once
+     *
+     * @throws io.jsonwebtoken.JwtException if the signature is invalid, the
+     *         token has expired or it lacks the user claims
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = extractAllClaims(token);
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        Number version = claims.get(VERSION_CLAIM, Number.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || version == null || roles == null) {
+            throw new MalformedJwtException("Token has no user claims");
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        UserDetails principal = org.springframework.security.core.userdetails.User
+                .withUsername(claims.getSubject())
+                .password("")
+                .authorities(authorities)
+                .build();
+        return new VerifiedToken(UUID.fromString(userId), version.longValue(),
+                claims.getExpiration().toInstant(), principal);
+    }
+
     /**
      * Check if token is expired
      */
@@ -97,19 +166,14 @@ public class JwtService {
      * Extract all claims from token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     /**
      * Get signing key for JWT
      */
     private SecretKey getSignInKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     /**
@@ -0,0 +1,217 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.carboncredit.dto.LedgerEntryDTO;
+import com.carboncredit.dto.LedgerPageDTO;
+import com.carboncredit.entity.LedgerEntry;
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.repository.LedgerEntryRepository;
+import com.carboncredit.util.UuidV7;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only double-entry ledger behind every wallet movement.
+ *
+ * Deposits, withdrawals, holds, purchases, fees and credit transfers are
+ * recorded as journals whose legs sum to zero per asset. Legs are inserted
+ * with one JDBC batch and never updated, so recording a movement contends
+ * on no existing row. Balances are the latest snapshot of an account plus
+ * the entries after it, and history is read newest first by entry id.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO ledger_entries (journal_id, account, user_id, asset, "
+            + "amount, entry_type, reference, description, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LATEST_SNAPSHOT_SQL = "SELECT balance, last_entry_id FROM ledger_snapshots "
+            + "WHERE account = ? AND user_id IS NOT DISTINCT FROM ? AND asset = ? "
+            + "ORDER BY last_entry_id DESC LIMIT 1";
+    private static final String TAIL_SUM_SQL = "SELECT COALESCE(SUM(amount), 0) FROM ledger_entries "
+            + "WHERE account = ? AND user_id IS NOT DISTINCT FROM ? AND asset = ? AND entry_id > ?";
+    private static final String SNAPSHOT_CUT_SQL = "SELECT COALESCE(MAX(entry_id), 0) FROM ledger_entries "
+            + "WHERE created_at < ?";
+    // One new snapshot per account that has entries between its last snapshot and the cut
+    private static final String SNAPSHOT_SQL = "INSERT INTO ledger_snapshots "
+            + "(account, user_id, asset, balance, last_entry_id, created_at) "
+            + "SELECT e.account, e.user_id, e.asset, SUM(e.amount) + COALESCE((SELECT s.balance FROM ledger_snapshots s "
+            + "  WHERE s.account = e.account AND s.user_id IS NOT DISTINCT FROM e.user_id AND s.asset = e.asset "
+            + "  ORDER BY s.last_entry_id DESC LIMIT 1), 0), ?, ? "
+            + "FROM ledger_entries e WHERE e.entry_id <= ? AND e.entry_id > COALESCE((SELECT MAX(s.last_entry_id) "
+            + "  FROM ledger_snapshots s WHERE s.account = e.account AND s.user_id IS NOT DISTINCT FROM e.user_id "
+            + "  AND s.asset = e.asset), 0) "
+            + "GROUP BY e.account, e.user_id, e.asset";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final long snapshotLagSeconds;
+
+    public LedgerService(JdbcTemplate jdbcTemplate, LedgerEntryRepository ledgerEntryRepository,
+            @Value("${ledger.snapshot-lag-seconds:300}") long snapshotLagSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.snapshotLagSeconds = snapshotLagSeconds;
+    }
+
+    /**
+     * Append journals in the caller's transaction
+     *
+     * @throws BusinessOperationException if a journal does not balance
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<Journal> journals) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (Journal journal : journals) {
+            journal.validate();
+            for (Leg leg : journal.getLegs()) {
+                rows.add(new Object[] { journal.getJournalId(), leg.account().name(), leg.userId(),
+                        leg.asset().name(), leg.amount(), journal.getType().name(), journal.getReference(),
+                        journal.getDescription(), now });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Journal journal) {
+        record(List.of(journal));
+    }
+
+    /**
+     * Balance of an account: latest snapshot plus the entries after it
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(LedgerAccount account, UUID userId, Asset asset) {
+        List<Map<String, Object>> snapshot = jdbcTemplate.queryForList(LATEST_SNAPSHOT_SQL, account.name(), userId,
+                asset.name());
+        BigDecimal base = BigDecimal.ZERO;
+        long lastEntryId = 0;
+        if (!snapshot.isEmpty()) {
+            base = (BigDecimal) snapshot.get(0).get("balance");
+            lastEntryId = ((Number) snapshot.get(0).get("last_entry_id")).longValue();
+        }
+        BigDecimal tail = jdbcTemplate.queryForObject(TAIL_SUM_SQL, BigDecimal.class, account.name(), userId,
+                asset.name(), lastEntryId);
+        return base.add(tail);
+    }
+
+    /**
+     * One page of a user's wallet history, newest first
+     *
+     * @param cursor entry id to continue before, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public LedgerPageDTO getHistory(UUID userId, Long cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<LedgerEntry> entries = ledgerEntryRepository.findPageBefore(userId, LedgerAccount.USER,
+                cursor != null ? cursor : Long.MAX_VALUE, Pageable.ofSize(pageSize));
+        Long nextCursor = entries.size() == pageSize ? entries.get(entries.size() - 1).getId() : null;
+        return new LedgerPageDTO(entries.stream().map(LedgerService::toDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Snapshot every account with new entries. Entries younger than the lag
+     * are left to the tail, so a journal still being committed cannot be
+     * skipped by a snapshot taken past its entry ids.
+     *
+     * @return number of snapshots written
+     */
+    @Scheduled(fixedDelayString = "${ledger.snapshot-interval-ms:900000}")
+    @Transactional
+    public int takeSnapshots() {
+        LocalDateTime now = LocalDateTime.now();
+        Long cut = jdbcTemplate.queryForObject(SNAPSHOT_CUT_SQL, Long.class,
+                Timestamp.valueOf(now.minusSeconds(snapshotLagSeconds)));
+        if (cut == null || cut == 0) {
+            return 0;
+        }
+        int written = jdbcTemplate.update(SNAPSHOT_SQL, cut, Timestamp.valueOf(now), cut);
+        log.info("Wrote {} ledger snapshots up to entry {}", written, cut);
+        return written;
+    }
+
+    private static LedgerEntryDTO toDTO(LedgerEntry entry) {
+        return new LedgerEntryDTO(entry.getId(), entry.getJournalId(), entry.getEntryType().name(),
+                entry.getAsset().name(), entry.getAmount(), entry.getReference(), entry.getDescription(),
+                entry.getCreatedAt());
+    }
+
+    // ==================== JOURNAL ====================
+
+    public record Leg(LedgerAccount account, UUID userId, Asset asset, BigDecimal amount) {
+    }
+
+    /**
+     * Legs of one business event, built before recording
+     */
+    @Getter
+    public static class Journal {
+        private final UUID journalId = UuidV7.next();
+        private final EntryType type;
+        private final String reference;
+        private final String description;
+        private final List<Leg> legs = new ArrayList<>();
+
+        private Journal(EntryType type, String reference, String description) {
+            this.type = type;
+            this.reference = reference;
+            this.description = description;
+        }
+
+        public static Journal of(EntryType type, String reference, String description) {
+            return new Journal(type, reference, description);
+        }
+
+        public Journal cash(LedgerAccount account, UUID userId, BigDecimal amount) {
+            return leg(account, userId, Asset.CASH, amount);
+        }
+
+        public Journal credit(LedgerAccount account, UUID userId, BigDecimal amount) {
+            return leg(account, userId, Asset.CREDIT, amount);
+        }
+
+        private Journal leg(LedgerAccount account, UUID userId, Asset asset, BigDecimal amount) {
+            if (amount != null && amount.signum() != 0) {
+                legs.add(new Leg(account, userId, asset, amount));
+            }
+            return this;
+        }
+
+        void validate() {
+            Map<Asset, BigDecimal> totals = new EnumMap<>(Asset.class);
+            legs.forEach(leg -> totals.merge(leg.asset(), leg.amount(), BigDecimal::add));
+            totals.forEach((asset, total) -> {
+                if (total.signum() != 0) {
+                    throw new BusinessOperationException("Unbalanced " + type + " journal: " + asset
+                            + " legs sum to " + total);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.carboncredit.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.carboncredit.config.CacheConfig;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drops cached listing details, listing pages and marketplace stats after
+ * any listing change commits, whether it came from listing CRUD, a
+ * purchase, a cart checkout or an auction closing.
+ *
+ * Listing pages are keyed by page rather than by listing, so any of them
+ * may show the changed listing, on this node or another; the listing cache
+ * is cleared as a whole and the clear is broadcast like any eviction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ListingCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        // invalidate() applies at once; an eviction deferred to after commit would never run from here
+        invalidate(CacheConfig.LISTINGS);
+        invalidate(CacheConfig.MARKETPLACE_STATS);
+        log.debug("Invalidated listing caches after change to listing {}", event.getListingId());
+    }
+
+    private void invalidate(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+}
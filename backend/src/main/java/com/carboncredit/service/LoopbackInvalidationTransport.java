@@ -0,0 +1,27 @@
+package com.carboncredit.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport for tests and single-node runs. Every bus
+ * subscribed to the same instance acts as a separate node, and messages
+ * are delivered synchronously on the publishing thread.
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private final List<Consumer<String>> consumers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> consumer : consumers) {
+            consumer.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> consumer, Runnable onGap) {
+        consumers.add(consumer);
+    }
+}
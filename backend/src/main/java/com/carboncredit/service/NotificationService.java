@@ -11,6 +11,7 @@ import com.carboncredit.entity.User;
 import com.carboncredit.repository.NotificationRepository;
 import com.carboncredit.repository.UserRepository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -257,6 +258,30 @@ public class NotificationService {
             transactionId, Notification.EntityType.TRANSACTION);
     }
 
+    public void notifyCartCheckoutCompleted(User buyer, int listingCount, BigDecimal totalCost) {
+        notifyUser(buyer, "✅ Thanh toán giỏ hàng thành công",
+            String.format("Bạn đã mua %d tín chỉ carbon với tổng giá %s. Tín chỉ đã được chuyển vào tài khoản.",
+                listingCount, totalCost),
+            Notification.NotificationType.TRANSACTION_COMPLETED,
+            null, Notification.EntityType.TRANSACTION);
+    }
+
+    // ========== Auction Notifications ==========
+
+    public void notifyAuctionWon(User winner, UUID listingId, BigDecimal winningBid) {
+        notifyUser(winner, "🏆 Thắng đấu giá",
+            "Bạn đã thắng phiên đấu giá với giá " + winningBid + ". Tín chỉ carbon đã được chuyển vào tài khoản.",
+            Notification.NotificationType.AUCTION_WON,
+            listingId, Notification.EntityType.LISTING);
+    }
+
+    public void notifyAuctionEndedWithoutBids(User seller, UUID listingId) {
+        notifyUser(seller, "⌛ Phiên đấu giá kết thúc",
+            "Phiên đấu giá của bạn đã kết thúc mà không có lượt trả giá nào. Bạn có thể niêm yết lại tín chỉ.",
+            Notification.NotificationType.OTHER,
+            listingId, Notification.EntityType.LISTING);
+    }
+
     // ========== Dispute Notifications ==========
 
     public void notifyDisputeCreated(User disputeRaiser, User otherParty, UUID disputeId) {
@@ -0,0 +1,127 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.CreditListing.ListingType;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.util.OrderBook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps one in-memory {@link OrderBook} per credit class with every ACTIVE
+ * fixed-price listing, so best-ask, depth and match queries never touch the
+ * database. The books are rebuilt from credit_listings at startup and then
+ * follow listing changes after each commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBookService {
+
+    /**
+     * All credits issued by the platform are EV CO2 reduction credits, so there
+     * is a single credit class for now.
+     */
+    public static final String DEFAULT_CREDIT_CLASS = "EV_CO2";
+
+    private final CreditListingRepository creditListingRepository;
+
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    // ==================== BOOK MAINTENANCE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        OrderBook book = getBook(DEFAULT_CREDIT_CLASS);
+        book.clear();
+        List<Object[]> rows = creditListingRepository.findOrderBookRows();
+        rows.forEach(row -> upsertRow(book, row));
+        log.info("Order book '{}' rebuilt with {} active listings", DEFAULT_CREDIT_CLASS, book.size());
+    }
+
+    /**
+     * Apply a listing change once the surrounding transaction has committed.
+     * Leaving ACTIVE is applied from the event alone; entering ACTIVE or a price
+     * change re-reads the listing row. Listeners of different transactions run
+     * in whichever order their commits return, so the book only takes a state
+     * newer than the one it holds.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        OrderBook book = getBook(DEFAULT_CREDIT_CLASS);
+        // A deleted listing never comes back
+        long version = event.getStatus() == null ? Long.MAX_VALUE : event.getVersion();
+        if (event.getListingType() != ListingType.FIXED || event.getStatus() != ListingStatus.ACTIVE) {
+            if (book.remove(event.getListingId(), version)) {
+                log.debug("Listing {} removed from order book ({})", event.getListingId(), event.getStatus());
+            }
+            return;
+        }
+
+        List<Object[]> rows = creditListingRepository.findOrderBookRow(event.getListingId());
+        if (rows.isEmpty()) {
+            book.remove(event.getListingId(), version);
+            return;
+        }
+        if (upsertRow(book, rows.get(0))) {
+            log.debug("Listing {} added to order book at {}", event.getListingId(), event.getPrice());
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    public OrderBook getBook(String creditClass) {
+        return books.computeIfAbsent(creditClass, OrderBook::new);
+    }
+
+    public Optional<OrderBook.Order> getBestAsk(String creditClass) {
+        return getBook(creditClass).bestAsk();
+    }
+
+    public List<OrderBook.PriceLevel> getDepth(String creditClass, int maxLevels) {
+        return getBook(creditClass).depth(maxLevels);
+    }
+
+    /**
+     * Find the cheapest ACTIVE listings that fill a buy order.
+     * Nothing is reserved; the purchase flow re-validates each listing.
+     */
+    public List<OrderBook.Order> matchBuyOrder(String creditClass, BigDecimal limitPrice, BigDecimal quantity,
+            UUID buyerId) {
+        if (limitPrice == null || limitPrice.signum() <= 0) {
+            throw new IllegalArgumentException("Limit price must be positive");
+        }
+        if (quantity == null || quantity.signum() <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return getBook(creditClass).match(limitPrice, quantity, buyerId);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private boolean upsertRow(OrderBook book, Object[] row) {
+        UUID listingId = (UUID) row[0];
+        BigDecimal price = (BigDecimal) row[1];
+        if (price == null) {
+            log.warn("Active fixed listing {} has no price, skipping order book entry", listingId);
+            return false;
+        }
+        return book.upsert(listingId, price, (BigDecimal) row[2], (UUID) row[3], (LocalDateTime) row[4],
+                (Long) row[5]);
+    }
+}
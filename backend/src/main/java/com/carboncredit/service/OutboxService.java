@@ -0,0 +1,186 @@
+package com.carboncredit.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.OutboxEvent;
+import com.carboncredit.entity.OutboxEvent.EventType;
+import com.carboncredit.entity.OutboxEvent.OutboxStatus;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.repository.CertificateRepository;
+import com.carboncredit.repository.OutboxEventRepository;
+import com.carboncredit.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transactional outbox for purchase side effects.
+ *
+ * Certificates, audit entries and notifications are recorded as outbox
+ * events in the purchase transaction and carried out afterwards by a
+ * background dispatcher, so they add no latency or lock time to the
+ * purchase. Events are claimed in batches with SKIP LOCKED and handled in
+ * one transaction per batch; if the batch fails each event is retried on
+ * its own, with exponential backoff, until it is marked FAILED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    static final int BATCH_SIZE = 50;
+    static final int MAX_ATTEMPTS = 8;
+    private static final long CLAIM_LEASE_SECONDS = 60;
+    private static final long MAX_BACKOFF_SECONDS = 600;
+    private static final int DISPATCHED_RETENTION_DAYS = 7;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionRepository transactionRepository;
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final AuditService auditService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Record a side effect in the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(EventType eventType, UUID aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setStatus(OutboxStatus.PENDING);
+        event.setNextAttemptAt(now);
+        event.setCreatedAt(now);
+        outboxEventRepository.save(event);
+    }
+
+    /**
+     * Certificate, audit entry and buyer/seller notifications for a
+     * completed purchase
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueTransactionCompleted(UUID transactionId) {
+        enqueue(EventType.TRANSACTION_CERTIFICATE, transactionId);
+        enqueue(EventType.TRANSACTION_AUDIT, transactionId);
+        enqueue(EventType.TRANSACTION_NOTIFICATION, transactionId);
+    }
+
+    // ==================== DISPATCHER ====================
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch-interval-ms:500}")
+    public void dispatchPending() {
+        List<UUID> claimed;
+        do {
+            claimed = claimBatch();
+            if (!claimed.isEmpty()) {
+                dispatchBatch(claimed);
+            }
+        } while (claimed.size() == BATCH_SIZE);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeDispatched() {
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteDispatchedBefore(
+                OutboxStatus.DISPATCHED, LocalDateTime.now().minusDays(DISPATCHED_RETENTION_DAYS)));
+        log.info("Purged {} dispatched outbox events", deleted);
+    }
+
+    public long getPendingCount() {
+        return outboxEventRepository.countByStatus(OutboxStatus.PENDING);
+    }
+
+    /**
+     * Lock due events and push their next attempt past the lease, so other
+     * dispatchers skip them and a crashed dispatcher's events come back.
+     */
+    List<UUID> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = outboxEventRepository.findDueForDispatch(OutboxStatus.PENDING, now,
+                    Pageable.ofSize(BATCH_SIZE));
+            due.forEach(event -> event.setNextAttemptAt(now.plusSeconds(CLAIM_LEASE_SECONDS)));
+            return due.stream().map(OutboxEvent::getId).toList();
+        });
+    }
+
+    void dispatchBatch(List<UUID> eventIds) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findAllById(eventIds)
+                    .forEach(this::handleAndMark));
+            log.debug("Dispatched {} outbox events", eventIds.size());
+        } catch (Exception e) {
+            log.warn("Outbox batch of {} failed ({}), retrying events one by one", eventIds.size(), e.getMessage());
+            eventIds.forEach(this::dispatchOne);
+        }
+    }
+
+    private void dispatchOne(UUID eventId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findById(eventId)
+                    .ifPresent(this::handleAndMark));
+        } catch (Exception e) {
+            recordFailure(eventId, e);
+        }
+    }
+
+    private void handleAndMark(OutboxEvent event) {
+        if (event.getStatus() != OutboxStatus.PENDING) {
+            return;
+        }
+        handle(event);
+        event.setStatus(OutboxStatus.DISPATCHED);
+        event.setDispatchedAt(LocalDateTime.now());
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(null);
+    }
+
+    private void recordFailure(UUID eventId, Exception error) {
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findById(eventId).ifPresent(event -> {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(error.getMessage());
+            if (attempts >= MAX_ATTEMPTS) {
+                event.setStatus(OutboxStatus.FAILED);
+                log.error("Outbox event {} ({} for {}) failed {} times, giving up: {}", eventId,
+                        event.getEventType(), event.getAggregateId(), attempts, error.getMessage());
+            } else {
+                long backoff = Math.min(1L << attempts, MAX_BACKOFF_SECONDS);
+                event.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+                log.warn("Outbox event {} failed (attempt {}), retrying in {}s: {}", eventId, attempts, backoff,
+                        error.getMessage());
+            }
+        }));
+    }
+
+    // ==================== HANDLERS ====================
+
+    private void handle(OutboxEvent event) {
+        Transaction transaction = transactionRepository.findById(event.getAggregateId())
+                .orElseThrow(() -> new EntityNotFoundException("Transaction not found: " + event.getAggregateId()));
+        switch (event.getEventType()) {
+            case TRANSACTION_CERTIFICATE -> {
+                // Guard against a dispatcher whose lease ran out after it issued the certificate
+                if (!certificateRepository.existsByTransactionId(transaction.getId())) {
+                    certificateService.generateCertificate(transaction);
+                }
+            }
+            case TRANSACTION_AUDIT -> auditService.logTransactionCompleted(transaction.getId().toString(),
+                    transaction.getBuyer().getId().toString(), transaction.getSeller().getId().toString());
+            case TRANSACTION_NOTIFICATION -> notificationService.notifyTransactionCompleted(transaction.getBuyer(),
+                    transaction.getSeller(), transaction.getId());
+        }
+    }
+}
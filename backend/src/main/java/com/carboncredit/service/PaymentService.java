@@ -8,6 +8,12 @@ import org.springframework.stereotype.Service;
 @Service
 public class PaymentService {
 
+    private final IdService idService;
+
+    public PaymentService(IdService idService) {
+        this.idService = idService;
+    }
+
     public static class PaymentResult {
         private boolean success;
         private String transactionId;
@@ -42,7 +48,7 @@ public class PaymentService {
             boolean success = Math.random() > 0.05;
 
             if (success) {
-                return new PaymentResult(true, "PAY_" + UUID.randomUUID().toString(), null);
+                return new PaymentResult(true, idService.paymentReference("PAY"), null);
             } else {
                 return new PaymentResult(false, null, "Payment gateway error");
             }
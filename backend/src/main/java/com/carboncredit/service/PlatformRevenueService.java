@@ -0,0 +1,173 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.EntityNotFoundException;
+import com.carboncredit.service.LedgerService.Journal;
+import com.carboncredit.service.WalletPostingService.BalanceChange;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sharded sub-ledger for platform fees.
+ *
+ * Trades add their fee to one of N shard rows picked at random instead of
+ * the platform user's wallet, so concurrent purchases no longer queue on a
+ * single wallet row. A scheduled fold moves the shard balances into the
+ * platform wallet in one transaction, keeping wallet plus shards constant,
+ * and {@link #getTotalRevenue} reads both in a single statement so the
+ * reported total is exact at any time. Each fold is journaled as a fee
+ * settlement from the ledger's platform revenue account to the platform
+ * user.
+ */
+@Service
+@Slf4j
+public class PlatformRevenueService {
+
+    private static final String ACCRUE_SQL = "UPDATE platform_revenue_shards SET pending_amount = pending_amount + ?, "
+            + "updated_at = ? WHERE shard_id = ?";
+    private static final String SEED_SQL = "INSERT INTO platform_revenue_shards (shard_id, pending_amount, updated_at) "
+            + "SELECT ?, 0, ? WHERE NOT EXISTS (SELECT 1 FROM platform_revenue_shards WHERE shard_id = ?)";
+    private static final String LOCK_SHARDS_SQL = "SELECT shard_id, pending_amount FROM platform_revenue_shards "
+            + "WHERE pending_amount <> 0 ORDER BY shard_id FOR UPDATE";
+    private static final String DRAIN_SHARD_SQL = "UPDATE platform_revenue_shards SET pending_amount = pending_amount - ?, "
+            + "updated_at = ? WHERE shard_id = ?";
+    private static final String UNFOLDED_SQL = "SELECT COALESCE(SUM(pending_amount), 0) FROM platform_revenue_shards";
+    private static final String TOTAL_SQL = "SELECT w.cash_balance + COALESCE((SELECT SUM(s.pending_amount) "
+            + "FROM platform_revenue_shards s), 0) FROM wallets w WHERE w.user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletPostingService walletPostingService;
+    private final LedgerService ledgerService;
+    private final SystemSettingService systemSettingService;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final int shardCount;
+
+    public PlatformRevenueService(JdbcTemplate jdbcTemplate, WalletPostingService walletPostingService,
+            LedgerService ledgerService, SystemSettingService systemSettingService, UserService userService,
+            TransactionTemplate transactionTemplate, @Value("${platform-revenue.shards:16}") int shardCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletPostingService = walletPostingService;
+        this.ledgerService = ledgerService;
+        this.systemSettingService = systemSettingService;
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.shardCount = shardCount;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createShards() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int shard = 0; shard < shardCount; shard++) {
+            jdbcTemplate.update(SEED_SQL, shard, now, shard);
+        }
+        log.info("Platform revenue ledger ready with {} shards", shardCount);
+    }
+
+    /**
+     * Add a platform fee to a random shard in the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void accrueFee(BigDecimal fee) {
+        if (fee.signum() == 0) {
+            return;
+        }
+        int shard = ThreadLocalRandom.current().nextInt(shardCount);
+        int updated = jdbcTemplate.update(ACCRUE_SQL, fee, Timestamp.valueOf(LocalDateTime.now()), shard);
+        if (updated == 0) {
+            throw new BusinessOperationException("Platform revenue shard " + shard + " is missing");
+        }
+    }
+
+    /**
+     * Move every shard balance into the platform wallet
+     *
+     * @return the amount folded
+     */
+    @Scheduled(fixedDelayString = "${platform-revenue.fold-interval-ms:5000}")
+    public BigDecimal foldShards() {
+        if (getUnfoldedRevenue().signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // Resolved outside the fold transaction so a missing setting cannot mark it rollback-only
+        User platformUser;
+        try {
+            platformUser = getPlatformUser();
+        } catch (BusinessOperationException | EntityNotFoundException e) {
+            log.error("CRITICAL: Cannot fold platform revenue: {}", e.getMessage());
+            return BigDecimal.ZERO;
+        }
+        return transactionTemplate.execute(status -> foldInto(platformUser));
+    }
+
+    private BigDecimal foldInto(User platformUser) {
+        List<Map<String, Object>> shards = jdbcTemplate.queryForList(LOCK_SHARDS_SQL);
+        if (shards.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map<String, Object> shard : shards) {
+            BigDecimal amount = (BigDecimal) shard.get("pending_amount");
+            jdbcTemplate.update(DRAIN_SHARD_SQL, amount, now, shard.get("shard_id"));
+            total = total.add(amount);
+        }
+        walletPostingService.post(Map.of(platformUser.getId(), new BalanceChange().addCash(total)));
+        ledgerService.record(Journal.of(EntryType.FEE_SETTLEMENT, null, "Platform fees folded from revenue shards")
+                .cash(LedgerAccount.PLATFORM_REVENUE, null, total.negate())
+                .cash(LedgerAccount.USER, platformUser.getId(), total));
+        log.debug("Folded {} from {} revenue shards into {}", total, shards.size(), platformUser.getUsername());
+        return total;
+    }
+
+    /**
+     * Fees accrued but not yet folded into the platform wallet
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getUnfoldedRevenue() {
+        return jdbcTemplate.queryForObject(UNFOLDED_SQL, BigDecimal.class);
+    }
+
+    /**
+     * Platform wallet cash plus all unfolded fees, read in one statement
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenue(UUID platformUserId) {
+        List<BigDecimal> rows = jdbcTemplate.queryForList(TOTAL_SQL, BigDecimal.class, platformUserId);
+        if (rows.isEmpty()) {
+            throw new EntityNotFoundException("Wallet not found for user: " + platformUserId);
+        }
+        return rows.get(0);
+    }
+
+    private User getPlatformUser() {
+        String platformUsername = systemSettingService.getSettingValue("PLATFORM_REVENUE_USERNAME");
+        if (platformUsername == null || platformUsername.isEmpty()) {
+            throw new BusinessOperationException("Platform revenue account is not configured");
+        }
+        return userService.findByUsername(platformUsername)
+                .orElseThrow(() -> new EntityNotFoundException("Platform revenue user '" + platformUsername
+                        + "' not found!"));
+    }
+}
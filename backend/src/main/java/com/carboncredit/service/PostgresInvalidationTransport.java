@@ -0,0 +1,126 @@
+package com.carboncredit.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transport over PostgreSQL LISTEN/NOTIFY.
+ *
+ * Messages are sent with pg_notify on a pooled connection and received on
+ * a dedicated connection that is not taken from the pool, watched by one
+ * daemon thread. Postgres delivers a notification to every listening
+ * session within milliseconds of the sending transaction's commit. When
+ * the listening connection is lost it reconnects and reports a gap, since
+ * notifications sent meanwhile are gone.
+ */
+@Slf4j
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresInvalidationTransport(JdbcTemplate jdbcTemplate, String url, String username, String password,
+            String channel) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(String message) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message);
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> consumer, Runnable onGap) {
+        if (listener != null) {
+            throw new IllegalStateException("Already subscribed");
+        }
+        running = true;
+        listener = new Thread(() -> listen(consumer, onGap), "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    private void listen(Consumer<String> consumer, Runnable onGap) {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for cache invalidations on channel {}", channel);
+                if (connectedBefore) {
+                    onGap.run();
+                }
+                connectedBefore = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(consumer, notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cache invalidation listener lost its connection, reconnecting: {}", e.getMessage());
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    private static void deliver(Consumer<String> consumer, String message) {
+        try {
+            consumer.accept(message);
+        } catch (RuntimeException e) {
+            log.error("Failed to apply cache invalidation '{}': {}", message, e.getMessage(), e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = listener;
+        if (thread != null) {
+            thread.join(POLL_TIMEOUT_MS * 2L);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.carboncredit.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.carboncredit.entity.SystemSetting;
+import com.carboncredit.util.Money;
+
+/**
+ * Immutable, parsed copy of all system settings.
+ *
+ * Every value is parsed once when the snapshot is built; values that fail
+ * to parse keep the error and report it when read, so one bad setting does
+ * not hide the others. {@link SystemSettingService} replaces the whole
+ * snapshot after a settings write commits.
+ */
+public final class SettingsSnapshot {
+
+    private final long version;
+    private final Map<String, Value> values;
+    private final boolean maintenanceMode;
+
+    private record Value(String raw, Double asDouble, Long asPpm) {
+    }
+
+    SettingsSnapshot(long version, List<SystemSetting> settings) {
+        Map<String, Value> parsed = new HashMap<>();
+        for (SystemSetting setting : settings) {
+            String raw = setting.getSettingValue();
+            parsed.put(setting.getSettingKey(), new Value(raw, parseDouble(raw), parsePpm(raw)));
+        }
+        this.version = version;
+        this.values = Collections.unmodifiableMap(parsed);
+        Value maintenance = parsed.get(SystemSettingService.MAINTENANCE_MODE);
+        this.maintenanceMode = maintenance != null && Boolean.parseBoolean(maintenance.raw());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isMaintenanceMode() {
+        return maintenanceMode;
+    }
+
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Raw value, or null if the setting does not exist
+     */
+    public String getValue(String key) {
+        Value value = values.get(key);
+        return value == null ? null : value.raw();
+    }
+
+    /**
+     * @throws IllegalStateException if the value is not a valid decimal
+     */
+    public Double getDouble(String key) {
+        Value value = values.get(key);
+        if (value != null && value.asDouble() == null) {
+            throw new IllegalStateException("Setting '" + key + "' is not a valid decimal: " + value.raw());
+        }
+        return value == null ? null : value.asDouble();
+    }
+
+    public Boolean getBoolean(String key) {
+        Value value = values.get(key);
+        return value == null ? null : Boolean.parseBoolean(value.raw());
+    }
+
+    /**
+     * Percentage setting as parts per million
+     *
+     * @throws IllegalStateException if the value is not a valid percentage
+     */
+    public Long getPpm(String key) {
+        Value value = values.get(key);
+        if (value != null && value.asPpm() == null) {
+            throw new IllegalStateException("Setting '" + key + "' is not a valid decimal: " + value.raw());
+        }
+        return value == null ? null : value.asPpm();
+    }
+
+    private static Double parseDouble(String raw) {
+        try {
+            return raw == null ? null : Double.parseDouble(raw);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parsePpm(String raw) {
+        try {
+            return raw == null ? null : Money.percentToPpm(raw);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.carboncredit.service;
 
+import com.carboncredit.config.CacheConfig;
 import com.carboncredit.dto.SystemSettingDTO;
 import com.carboncredit.entity.SystemSetting;
 import com.carboncredit.repository.SystemSettingRepository;
 import com.carboncredit.util.DTOMapper;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +15,8 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -21,7 +25,24 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SystemSettingService {
 
+    public static final String PLATFORM_FEE_PERCENT = "PLATFORM_FEE_PERCENT";
+    public static final String MAINTENANCE_MODE = "MAINTENANCE_MODE";
+
     private final SystemSettingRepository settingRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    // Parsed settings for hot-path reads; replaced as a whole after every settings commit
+    private volatile SettingsSnapshot snapshot;
+
+    // Settings written on another node clear its settings cache there; reload our snapshot too
+    @PostConstruct
+    void subscribeToRemoteChanges() {
+        invalidationBus.addListener((cacheName, key) -> {
+            if (cacheName == null || CacheConfig.SYSTEM_SETTINGS.equals(cacheName)) {
+                reloadSnapshot();
+            }
+        });
+    }
 
     // ========================================
     // 1. READ OPERATIONS (Public API)
@@ -30,7 +51,7 @@ public class SystemSettingService {
     /**
      * Get all system settings (cached)
      */
-    @Cacheable(value = "systemSettings", key = "'all'")
+    @Cacheable(value = CacheConfig.SYSTEM_SETTINGS, key = "'all'")
     @Transactional(readOnly = true)
     public List<SystemSettingDTO> getAllSettings() {
         log.debug("📋 Fetching all system settings");
@@ -42,7 +63,7 @@ public class SystemSettingService {
     /**
      * Get a specific setting by key (cached)
      */
-    @Cacheable(value = "systemSettings", key = "#key")
+    @Cacheable(value = CacheConfig.SYSTEM_SETTINGS, key = "#key")
     @Transactional(readOnly = true)
     public SystemSettingDTO getSettingByKey(String key) {
         log.debug("🔍 Fetching setting: {}", key);
@@ -54,42 +75,55 @@ public class SystemSettingService {
         return DTOMapper.toSystemSettingDTO(setting);
     }
 
+    /**
+     * Current parsed settings. Loaded on first use and swapped after each
+     * settings write commits; callers needing several values that agree
+     * with each other should read them from one snapshot.
+     */
+    public SettingsSnapshot getSnapshot() {
+        SettingsSnapshot current = snapshot;
+        return current != null ? current : loadInitialSnapshot();
+    }
+
     /**
      * Get raw setting value (for convenience)
      */
-    @Transactional(readOnly = true)
     public String getSettingValue(String key) {
-        SystemSettingDTO setting = getSettingByKey(key);
-        return setting.getSettingValue();
+        return existing(getSnapshot(), key).getValue(key);
     }
 
     /**
      * Get setting as Double
      */
-    @Transactional(readOnly = true)
     public Double getSettingAsDouble(String key) {
-        String value = getSettingValue(key);
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            log.error("❌ Cannot parse setting '{}' as Double: {}", key, value);
-            throw new IllegalStateException("Setting '" + key + "' is not a valid decimal: " + value);
-        }
+        return existing(getSnapshot(), key).getDouble(key);
+    }
+
+    /**
+     * Platform fee as parts per million of the trade amount
+     */
+    public long getPlatformFeePpm() {
+        return existing(getSnapshot(), PLATFORM_FEE_PERCENT).getPpm(PLATFORM_FEE_PERCENT);
     }
 
     /**
      * Get setting as Boolean
      */
-    @Transactional(readOnly = true)
     public Boolean getSettingAsBoolean(String key) {
-        String value = getSettingValue(key);
-        return Boolean.parseBoolean(value);
+        return existing(getSnapshot(), key).getBoolean(key);
+    }
+
+    /**
+     * Whether MAINTENANCE_MODE is on; false when the setting does not exist
+     */
+    public boolean isMaintenanceMode() {
+        return getSnapshot().isMaintenanceMode();
     }
 
     /**
      * Update a setting value (clears cache)
      */
-    @CacheEvict(value = "systemSettings", allEntries = true)
+    @CacheEvict(value = CacheConfig.SYSTEM_SETTINGS, allEntries = true)
     @Transactional
     public SystemSettingDTO updateSetting(String key, String newValue) {
         log.debug("🔄 Updating setting: {} = {}", key, newValue);
@@ -106,6 +140,8 @@ public class SystemSettingService {
         setting.setSettingValue(newValue);
         SystemSetting updated = settingRepository.save(setting);
 
+        reloadSnapshotAfterCommit();
+
         log.info("✅ Updated setting: {} | {} → {}", key, oldValue, newValue);
         return DTOMapper.toSystemSettingDTO(updated);
     }
@@ -113,7 +149,7 @@ public class SystemSettingService {
     /**
      * Create new setting (clears cache)
      */
-    @CacheEvict(value = "systemSettings", allEntries = true)
+    @CacheEvict(value = CacheConfig.SYSTEM_SETTINGS, allEntries = true)
     @Transactional
     public SystemSettingDTO createSetting(String key, String value, String description, String dataType) {
         log.debug("➕ Creating setting: {}", key);
@@ -125,7 +161,43 @@ public class SystemSettingService {
         SystemSetting setting = new SystemSetting(key, value, description, dataType);
         SystemSetting saved = settingRepository.save(setting);
 
+        reloadSnapshotAfterCommit();
+
         log.info("✅ Created setting: {} = {}", key, value);
         return DTOMapper.toSystemSettingDTO(saved);
     }
+
+    private static SettingsSnapshot existing(SettingsSnapshot settings, String key) {
+        if (!settings.contains(key)) {
+            throw new EntityNotFoundException("System setting not found: " + key);
+        }
+        return settings;
+    }
+
+    private synchronized SettingsSnapshot loadInitialSnapshot() {
+        return snapshot != null ? snapshot : reloadSnapshot();
+    }
+
+    private void reloadSnapshotAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadSnapshot();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reloadSnapshot();
+            }
+        });
+    }
+
+    // Serialized, so a reload that started later also installs later
+    private synchronized SettingsSnapshot reloadSnapshot() {
+        SettingsSnapshot previous = snapshot;
+        SettingsSnapshot loaded = new SettingsSnapshot(previous == null ? 1 : previous.getVersion() + 1,
+                settingRepository.findAllOrderedByKey());
+        snapshot = loaded;
+        log.debug("🔄 Loaded settings snapshot v{}", loaded.getVersion());
+        return loaded;
+    }
 }
@@ -1,27 +1,38 @@
 package com.carboncredit.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.carboncredit.dto.TransactionDTO;
 import com.carboncredit.entity.CarbonCredit;
 import com.carboncredit.entity.CarbonCredit.CreditStatus;
 import com.carboncredit.entity.CreditListing;
 import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
 import com.carboncredit.entity.Transaction;
 import com.carboncredit.entity.Transaction.TransactionStatus;
 import com.carboncredit.entity.User;
@@ -33,8 +44,10 @@ import com.carboncredit.exception.UnauthorizedOperationException;
 import com.carboncredit.repository.CarbonCreditRepository;
 import com.carboncredit.repository.CreditListingRepository;
 import com.carboncredit.repository.TransactionRepository;
+import com.carboncredit.service.LedgerService.Journal;
 import com.carboncredit.service.PaymentService.PaymentResult;
 import com.carboncredit.util.DTOMapper;
+import com.carboncredit.util.Money;
 
 @Service
 public class TransactionService {
@@ -72,14 +85,71 @@ public class TransactionService {
     private UserService userService;
 
     @Autowired
-    private CertificateService certificateService;
+    private OutboxService outboxService;
+
+    @Autowired
+    private PlatformRevenueService platformRevenueService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BuyerActivityTracker buyerActivityTracker;
+
+    @Autowired
+    private UserCounterService userCounterService;
+
+    @Autowired
+    @Qualifier("paymentExecutor")
+    private ExecutorService paymentExecutor;
+
+    @Value("${payment.gateway.timeout-ms:30000}")
+    private long paymentTimeoutMs;
 
     // ==== TRANSACTION AND PROCESSING ================
 
-    @Transactional
+    /**
+     * Purchase a fixed-price listing in two short database transactions.
+     *
+     * Phase 1 validates the purchase, holds the buyer's cash and marks the
+     * listing pending. The payment gateway is then called on the payment
+     * executor without holding a connection or row locks. Phase 2 completes
+     * the purchase, or releases the hold and reopens the listing if payment
+     * failed. A purchase cancelled while the gateway was charging is not
+     * completed and the charge is refunded.
+     */
     public Transaction initiatePurchase(UUID listingId, User buyer) {
         log.info("Initiating purchase for listing {} by user {}", listingId, buyer.getUsername());
 
+        buyerActivityTracker.preload(buyer.getId());
+        Transaction reserved = transactionTemplate.execute(status -> reservePurchase(listingId, buyer));
+        log.info("Transaction {} reserved, proceeding to payment.", reserved.getId());
+
+        PaymentResult paymentResult = callPaymentGateway(reserved);
+
+        if (paymentResult.isSuccess()) {
+            log.info("Payment successful for transaction {}, completing transaction.", reserved.getId());
+            Optional<Transaction> completed = transactionTemplate
+                    .execute(status -> completeReservedPurchase(reserved.getId()));
+            if (completed.isPresent()) {
+                return completed.get();
+            }
+            refundPayment(reserved, paymentResult);
+            throw new BusinessOperationException(
+                    "Transaction " + reserved.getId() + " was cancelled during payment; the payment was refunded");
+        }
+
+        log.warn("Payment failed for transaction {}: {}", reserved.getId(), paymentResult.getErrorMessage());
+        transactionTemplate.execute(
+                status -> failReservedPurchase(reserved.getId(), "Payment failed: " + paymentResult.getErrorMessage()));
+        throw new PaymentException("Payment processing failed: " + paymentResult.getErrorMessage());
+    }
+
+    /**
+     * Phase 1 of a purchase: validate, hold the buyer's cash and create the
+     * PENDING transaction. Runs in the caller's transaction.
+     */
+    private Transaction reservePurchase(UUID listingId, User buyer) {
         validationService.validateId(listingId, "CreditLisitng");
         validationService.validateUser(buyer);
 
@@ -106,65 +176,87 @@ public class TransactionService {
         transaction.setAmount(listing.getPrice());
         transaction.setStatus(TransactionStatus.PENDING);
 
+        validationService.validateTransactionSecurity(transaction);
+
         Transaction savedTransaction = transactionRepository.save(transaction);
+        buyerActivityTracker.recordCreated(savedTransaction);
 
         listing.setStatus(ListingStatus.PENDING_TRANSACTION);
         creditListingRepository.save(listing);
 
-        log.info("Transaction {} initiated, proceeding to payment.", savedTransaction.getId());
-        // Trigger asynchronous payment processing or handle synchronously
+        // Held until the payment outcome is known
+        walletService.reserveCash(buyer.getId(), listing.getPrice());
+        return savedTransaction;
+    }
+
+    /**
+     * Call the payment gateway on the payment executor, outside any database
+     * transaction. A timeout or interruption counts as a failed payment.
+     */
+    private PaymentResult callPaymentGateway(Transaction transaction) {
+        UUID transactionId = transaction.getId();
+        BigDecimal amount = transaction.getAmount();
+        String buyerId = transaction.getBuyer().getId().toString();
+        String sellerId = transaction.getSeller().getId().toString();
+
+        Future<PaymentResult> future = paymentExecutor
+                .submit(() -> paymentService.processPayment(transactionId, amount, buyerId, sellerId));
         try {
-            // Option 1: Synchronous Payment
-            processPayment(savedTransaction);
-            // If processPayment throws an exception, the @Transactional will rollback
-            // everything
-            // If it succeeds, completeTransaction is called within processPayment
-
-            // Option 2: Asynchronous Payment (more complex set up)
-            // paymentService.initiateAsynchronousPayment(savedTransaction);
-            // log.info("Asynchronous payment initiated for transaction {}",
-            // savedTransaction.getId());
-        } catch (Exception e) {
-            // This catch block might not be strictly needed if processPayment
-            // but it's good for logging the initiation failure context.
-            log.error("Payment initiation failed for transaction {}: {}", savedTransaction.getId(), e.getMessage());
-            // The @Transactional rollback should handle reverting the listing status and
-            // transaction.
-            // Explicit rollback of listing status might be needed if processPayment error
-            // isn't transactional.
-            if (e instanceof PaymentException) {
-                // Payment specific exception already handled or thrown by processPayment
-                throw e;
-            } else {
-                // Wrap unexpected errors
-                throw new RuntimeException("Unexpected error during payment initiation: " + e.getMessage(), e);
-            }
+            return future.get(paymentTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.error("Payment gateway timed out after {} ms for transaction {}", paymentTimeoutMs, transactionId);
+            return new PaymentResult(false, null, "Payment gateway timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return new PaymentResult(false, null, "Payment processing interrupted");
+        } catch (ExecutionException e) {
+            log.error("Payment gateway error for transaction {}: {}", transactionId, e.getCause().getMessage());
+            return new PaymentResult(false, null, "Payment gateway error: " + e.getCause().getMessage());
         }
-        // Return the PENDING transaction reference (caller should check status later if
-        // async)
-        return savedTransaction; // Or return the final completed/failed transaction if sync
     }
 
-    @Transactional
-    public void processPayment(Transaction transaction) {
-        log.info("Processing payment for transaction {}", transaction.getId());
-        validationService.validateTransactionSecurity(transaction);
+    /**
+     * Phase 2 on success: turn the cash hold into the actual payment.
+     * Empty if the purchase was cancelled or its listing changed while the
+     * gateway was charging; the hold is released and the charge must be
+     * refunded.
+     */
+    private Optional<Transaction> completeReservedPurchase(UUID transactionId) {
+        Transaction transaction = lockTransaction(transactionId);
+        if (transaction.getStatus() != TransactionStatus.PENDING) {
+            log.warn("Transaction {} was {} during payment", transactionId, transaction.getStatus());
+            return Optional.empty();
+        }
+        if (transaction.getListing().getStatus() != ListingStatus.PENDING_TRANSACTION) {
+            failTransaction(transaction, "Listing " + transaction.getListing().getId() + " is no longer reserved");
+            return Optional.empty();
+        }
+        // Both wallets are locked before the first write; completeTransaction debits the full price
+        walletService.lockWallets(List.of(transaction.getBuyer().getId(), transaction.getSeller().getId()));
+        walletService.releaseCash(transaction.getBuyer().getId(), transaction.getAmount());
+        return Optional.of(completeTransaction(transaction));
+    }
 
-        PaymentResult paymentResult = paymentService.processPayment(transaction.getId(),
-                transaction.getAmount(), transaction.getBuyer().getId().toString(),
-                transaction.getSeller().getId().toString());
+    /**
+     * Phase 2 on failure: release the cash hold and reopen the listing
+     */
+    private Transaction failReservedPurchase(UUID transactionId, String reason) {
+        return failTransaction(lockTransaction(transactionId), reason);
+    }
 
-        if (paymentResult.isSuccess()) {
-            log.info("Payment successful for transaction {}, completing transaction.", transaction.getId());
-            completeTransaction(transaction);
+    /**
+     * Give back a charge whose purchase could not be completed. Runs outside
+     * any database transaction, like the charge itself.
+     */
+    private void refundPayment(Transaction transaction, PaymentResult paymentResult) {
+        if (paymentService.refundPayment(paymentResult.getTransactionId(), transaction.getAmount())) {
+            log.info("Refunded payment {} of {} for transaction {}", paymentResult.getTransactionId(),
+                    transaction.getAmount(), transaction.getId());
         } else {
-            log.warn("Payment failed for transaction {}: {}", transaction.getId(), paymentResult.getErrorMessage());
-            // Transactional rollback should handle failing the transaction record,
-            // but we might need explicit state changes depending on PaymentService
-            // behavior.
-            failTransaction(transaction, "Payment failed: " + paymentResult.getErrorMessage());
-            throw new PaymentException("Payment processing failed: " + paymentResult.getErrorMessage());
-
+            log.error("Failed to refund payment {} of {} for cancelled transaction {}, refund it manually",
+                    paymentResult.getTransactionId(), transaction.getAmount(), transaction.getId());
         }
     }
 
@@ -176,8 +268,8 @@ public class TransactionService {
         Transaction currentTransaction = findTransactionById(transaction.getId()); // Use internal helper
 
         // Get dynamic platform fee from system settings
-        Double feePercent = systemSettingService.getSettingAsDouble("PLATFORM_FEE_PERCENT");
-        log.info("📊 Using platform fee: {}%", feePercent);
+        long feePpm = systemSettingService.getPlatformFeePpm();
+        log.debug("📊 Using platform fee: {} ppm", feePpm);
 
         CreditListing currentListing = creditListingRepository.findById(currentTransaction.getListing().getId())
                 .orElseThrow(() -> new EntityNotFoundException(
@@ -190,24 +282,11 @@ public class TransactionService {
         User seller = currentTransaction.getSeller();
         BigDecimal price = currentTransaction.getAmount();
 
-        // === Getting fee =====
-        BigDecimal platformFee = price.multiply(BigDecimal.valueOf(feePercent)).divide(BigDecimal.valueOf(100), 2,
-                RoundingMode.HALF_UP);
-        BigDecimal sellerReceives = price.subtract(platformFee);
-
-        // Get the patform user for the fee
-        String platformUsername = systemSettingService.getSettingValue("PLATFORM_REVENUE_USERNAME");
-        if (platformUsername == null || platformUsername.isEmpty()) {
-            log.error(
-                    "CRITICLA: PLARFORM_REVENUE_USERNAME system setting is not defnied! Transaction will be rolled back.");
-            throw new BusinessOperationException("Platform revenue account is not configured. Transaction halted");
-        }
-
-        User platformUser = userService.findByUsername(platformUsername)
-                .orElseThrow(() -> {
-                    log.error("CRITICAL: Platform revenue user '{}' not found in database!", platformUsername);
-                    return new EntityNotFoundException("Platform revenue user '" + platformUsername + "' not found!");
-                });
+        // === Getting fee (in cents, converted back at the wallet and entity boundary) =====
+        long priceCents = Money.toCents(price);
+        long feeCents = Money.applyPpm(priceCents, feePpm);
+        BigDecimal platformFee = Money.fromCents(feeCents);
+        BigDecimal sellerReceives = Money.fromCents(priceCents - feeCents);
 
         BigDecimal creditAmount = currentCredit.getCreditAmount();
 
@@ -225,18 +304,18 @@ public class TransactionService {
 
         // --- Perform Atomic Transfers (Idempotency check recommended in WalletService)
 
-        log.debug("Transferring cash: {} from {} (Buyer)", price, buyer.getUsername());
-        walletService.updateCashBalance(buyer.getId(), price.negate()); // Buyer pays full price
-
-        log.debug("Transferring cash: {} to {} (Seller)", sellerReceives, seller.getUsername());
-        walletService.updateCashBalance(seller.getId(), sellerReceives); // Seller gets proceeds
-
-        log.debug("Transferring platform fee: {} to {} (Platform)", platformFee, platformUser.getUsername());
-        walletService.updateCashBalance(platformUser.getId(), platformFee); // Platform gets the fee
-
-        log.debug("Transferring credits: {} from {} to {}", creditAmount, seller.getUsername(), buyer.getUsername());
-        walletService.updateCreditBalance(seller.getId(), creditAmount.negate());
-        walletService.updateCreditBalance(buyer.getId(), creditAmount);
+        log.debug("Transferring cash: {} from buyer {} to seller {} ({} to seller), credits: {}", price,
+                buyer.getId(), seller.getId(), sellerReceives, creditAmount);
+        walletService.post(Journal.of(EntryType.PURCHASE, currentTransaction.getId().toString(),
+                "Purchase of listing " + currentListing.getId())
+                .cash(LedgerAccount.USER, buyer.getId(), price.negate()) // Buyer pays full price
+                .credit(LedgerAccount.USER, buyer.getId(), creditAmount)
+                .cash(LedgerAccount.USER, seller.getId(), sellerReceives) // Seller gets proceeds
+                .credit(LedgerAccount.USER, seller.getId(), creditAmount.negate())
+                .cash(LedgerAccount.PLATFORM_REVENUE, null, platformFee));
+
+        log.debug("Accruing platform fee: {}", platformFee);
+        platformRevenueService.accrueFee(platformFee); // Platform gets the fee via a revenue shard
         // --- Update Entity Statuses ---
         currentTransaction.setStatus(TransactionStatus.COMPLETED);
         currentTransaction.setCompletedAt(LocalDateTime.now());
@@ -250,16 +329,13 @@ public class TransactionService {
 
         // --- Save all changes ---
         Transaction completedTransaction = transactionRepository.save(currentTransaction);
+        buyerActivityTracker.recordCompleted(completedTransaction);
+        userCounterService.recordCompleted(completedTransaction);
         creditListingRepository.save(currentListing);
         carbonCreditRepository.save(currentCredit);
 
-        // ---- 2. GENERATE THE CERTIFICATE
-        certificateService.generateCertificate(completedTransaction);
-
-        // --- Log Audit & Notify ---
-        auditService.logTransactionCompleted(completedTransaction.getId().toString(), buyer.getId().toString(),
-                seller.getId().toString());
-        notificationService.notifyTransactionCompleted(buyer, seller, completedTransaction.getId());
+        // ---- Certificate, audit and notifications are dispatched after commit
+        outboxService.enqueueTransactionCompleted(completedTransaction.getId());
 
         log.info("Transaction {} completed successfully", completedTransaction.getId());
         return completedTransaction; // Return the completed entity
@@ -269,8 +345,8 @@ public class TransactionService {
     public Transaction failTransaction(Transaction transaction, String reason) {
         log.warn("Failing transaction {} with reason: {}", transaction.getId(), reason);
 
-        // Re-fetch for sagety
-        Transaction currentTransaction = findTransactionById(transaction.getId());
+        // Re-fetch and lock, so completion and cancellation cannot both act on a PENDING transaction
+        Transaction currentTransaction = lockTransaction(transaction.getId());
 
         // Onlye fail if it's Pending
         if (currentTransaction.getStatus() != TransactionStatus.PENDING) {
@@ -278,6 +354,8 @@ public class TransactionService {
                     currentTransaction.getStatus());
             return currentTransaction; // Already completed or failed, do nothing
         }
+        // A PENDING purchase still holds the buyer's cash
+        walletService.releaseCash(currentTransaction.getBuyer().getId(), currentTransaction.getAmount());
         currentTransaction.setStatus(TransactionStatus.CANCELLED);
         Transaction failedTransaction = transactionRepository.save(currentTransaction);
 
@@ -297,10 +375,75 @@ public class TransactionService {
         return failedTransaction;
     }
 
+    // ==== AUCTION SETTLEMENT ================
+
+    /**
+     * Sell an ended auction to its winning bidder. The winner's cash was held
+     * by the bidding engine; the hold is released here and the purchase goes
+     * through the regular completeTransaction path in the same transaction.
+     */
+    @Transactional
+    public Transaction settleAuction(UUID listingId, UUID winnerId, BigDecimal winningBid) {
+        log.info("Settling auction {} for winner {} at {}", listingId, winnerId, winningBid);
+
+        CreditListing listing = creditListingRepository.findById(listingId)
+                .orElseThrow(() -> new EntityNotFoundException("Listing not found with ID: " + listingId));
+        if (listing.getStatus() != ListingStatus.ACTIVE) {
+            throw new BusinessOperationException("Auction is not active. Status: " + listing.getStatus());
+        }
+        User winner = userService.findById(winnerId)
+                .orElseThrow(() -> new EntityNotFoundException("Winning bidder not found with ID: " + winnerId));
+
+        CarbonCredit credit = listing.getCredit();
+
+        Transaction transaction = new Transaction();
+        transaction.setCredit(credit);
+        transaction.setListing(listing);
+        transaction.setBuyer(winner);
+        transaction.setSeller(credit.getUser());
+        transaction.setAmount(winningBid);
+        transaction.setStatus(TransactionStatus.PENDING);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        buyerActivityTracker.recordCreated(savedTransaction);
+
+        listing.setStatus(ListingStatus.PENDING_TRANSACTION);
+        creditListingRepository.save(listing);
+
+        // Both wallets are locked before the first write; completeTransaction debits the full price
+        walletService.lockWallets(List.of(winnerId, credit.getUser().getId()));
+        walletService.releaseCash(winnerId, winningBid);
+        Transaction completed = completeTransaction(savedTransaction);
+
+        notificationService.notifyAuctionWon(winner, listingId, winningBid);
+        return completed;
+    }
+
+    /**
+     * Close an ended auction that received no bids and return the credit to
+     * its owner so it can be listed again.
+     */
+    @Transactional
+    public void closeUnsoldAuction(UUID listingId) {
+        CreditListing listing = creditListingRepository.findById(listingId)
+                .orElseThrow(() -> new EntityNotFoundException("Listing not found with ID: " + listingId));
+        if (listing.getStatus() != ListingStatus.ACTIVE) {
+            log.warn("Auction {} already closed (Status: {})", listingId, listing.getStatus());
+            return;
+        }
+        CarbonCredit credit = listing.getCredit();
+        listing.setStatus(ListingStatus.CLOSED);
+        credit.setStatus(CreditStatus.VERIFIED);
+        creditListingRepository.save(listing);
+        carbonCreditRepository.save(credit);
+
+        notificationService.notifyAuctionEndedWithoutBids(credit.getUser(), listingId);
+        log.info("Auction {} closed without bids", listingId);
+    }
+
     @Transactional
     public Transaction cancelTransaction(UUID transactionId, User requestingUser) {
         log.info("User {} attempting to cancel transaction {}", requestingUser.getUsername(), transactionId);
-        Transaction transaction = findTransactionById(transactionId);
+        Transaction transaction = lockTransaction(transactionId);
 
         if (transaction.getStatus() != TransactionStatus.PENDING) {
             throw new BusinessOperationException(
@@ -344,6 +487,13 @@ public class TransactionService {
                 .orElseThrow(() -> new EntityNotFoundException("Transaction not found with ID: " + transactionId));
     }
 
+    // Load and lock for a status change; the first load in a transaction, so the status read is current
+    private Transaction lockTransaction(UUID transactionId) {
+        validationService.validateId(transactionId, "Transaction");
+        return transactionRepository.findByIdForUpdate(transactionId)
+                .orElseThrow(() -> new EntityNotFoundException("Transaction not found with ID: " + transactionId));
+    }
+
     @Transactional(readOnly = true)
     public Page<TransactionDTO> getUserTransactions(User user, int page, int size) {
         validationService.validateUser(user);
@@ -409,8 +559,13 @@ public class TransactionService {
         Transaction transaction = findTransactionById(transactionId); // Use internal helper
         validationService.validateTransactionStatusChange(transaction, TransactionStatus.DISPUTED); // Assumes this
                                                                                                     // exists
+        boolean wasCompleted = transaction.getStatus() == TransactionStatus.COMPLETED;
         transaction.setStatus(TransactionStatus.DISPUTED);
         Transaction updatedTransaction = transactionRepository.save(transaction);
+        if (wasCompleted) {
+            buyerActivityTracker.recordCompletionReverted(updatedTransaction);
+            userCounterService.recordCompletionReverted(updatedTransaction);
+        }
         log.info("Transaction {} marked as DISPUTED", transactionId);
         return updatedTransaction; // Return entity as this is likely internal
     }
@@ -428,6 +583,7 @@ public class TransactionService {
             // Proceed cautiously or throw error based on requirements
         }
 
+        boolean wasCompleted = transaction.getStatus() == TransactionStatus.COMPLETED;
         transaction.setStatus(finalStatus);
 
         CreditListing listing = transaction.getListing();
@@ -453,6 +609,13 @@ public class TransactionService {
         }
 
         Transaction updatedTransaction = transactionRepository.save(transaction);
+        if (!wasCompleted && finalStatus == TransactionStatus.COMPLETED) {
+            buyerActivityTracker.recordCompleted(updatedTransaction);
+            userCounterService.recordCompleted(updatedTransaction);
+        } else if (wasCompleted && finalStatus != TransactionStatus.COMPLETED) {
+            buyerActivityTracker.recordCompletionReverted(updatedTransaction);
+            userCounterService.recordCompletionReverted(updatedTransaction);
+        }
         log.info("Transaction {} status updated to {} after dispute resolution", transactionId, finalStatus);
         return updatedTransaction; // Return entity as this is likely internal
     }
@@ -496,15 +659,14 @@ public class TransactionService {
      * Calculate transaction fee preview (used in frontend)
      */
     public BigDecimal calculateTransactionFee(BigDecimal amount) {
-        Double feePercent = systemSettingService.getSettingAsDouble("PLATFORM_FEE_PERCENT");
-        return amount.multiply(BigDecimal.valueOf(feePercent)).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        return Money.fromCents(Money.applyPpm(Money.toCents(amount), systemSettingService.getPlatformFeePpm()));
     }
 
     /**
      * Get current plafrom fee percentage
      */
     public Double getCurrentPlatformFeePercent() {
-        return systemSettingService.getSettingAsDouble("PLATFORM_FEE_PERCENT");
+        return systemSettingService.getSettingAsDouble(SystemSettingService.PLATFORM_FEE_PERCENT);
     }
 
 }
@@ -0,0 +1,421 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CarbonCredit.CreditStatus;
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.UserCounters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-user running totals of journeys, issued credits, sales and purchases.
+ *
+ * The services that change those rows add their change to the user's
+ * user_counters row in the same transaction, so dashboards read one row
+ * instead of aggregating the user's history. Rows are updated in user id
+ * order, and a missing row is created on first use under a savepoint, so
+ * losing that race to another transaction does not abort the caller. A nightly
+ * reconciliation recomputes every user's totals from the source tables and
+ * rewrites the rows that drifted, counting them in user.counters.drift.
+ */
+@Service
+@Slf4j
+public class UserCounterService {
+
+    private static final String UPDATE_SQL = "UPDATE user_counters SET journey_count = journey_count + ?, "
+            + "distance_km = distance_km + ?, energy_consumed_kwh = energy_consumed_kwh + ?, "
+            + "co2_reduced_kg = co2_reduced_kg + ?, credits_issued = credits_issued + ?, "
+            + "credits_issued_amount = credits_issued_amount + ?, sales_count = sales_count + ?, "
+            + "sales_amount = sales_amount + ?, purchase_count = purchase_count + ?, "
+            + "purchase_amount = purchase_amount + ?, updated_at = ? WHERE user_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO user_counters (journey_count, distance_km, "
+            + "energy_consumed_kwh, co2_reduced_kg, credits_issued, credits_issued_amount, sales_count, "
+            + "sales_amount, purchase_count, purchase_amount, updated_at, user_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String OVERWRITE_SQL = "UPDATE user_counters SET journey_count = ?, distance_km = ?, "
+            + "energy_consumed_kwh = ?, co2_reduced_kg = ?, credits_issued = ?, credits_issued_amount = ?, "
+            + "sales_count = ?, sales_amount = ?, purchase_count = ?, purchase_amount = ?, updated_at = ? "
+            + "WHERE user_id = ?";
+    // SQLSTATE of a unique constraint violation, in Postgres and H2 alike
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String SELECT_SQL = "SELECT * FROM user_counters WHERE user_id = ?";
+    private static final String LOCK_SQL = SELECT_SQL + " FOR UPDATE";
+    private static final String SELECT_ALL_SQL = "SELECT * FROM user_counters";
+
+    // Source aggregates, each grouped by user; %s narrows them to one user
+    private static final String JOURNEY_TOTALS_SQL = "SELECT user_id, COUNT(*), COALESCE(SUM(distance_km), 0), "
+            + "COALESCE(SUM(energy_consumed_kwh), 0), COALESCE(SUM(co2_reduced_kg), 0) FROM journey_data "
+            + "WHERE user_id IS NOT NULL %s GROUP BY user_id";
+    private static final String CREDIT_TOTALS_SQL = "SELECT user_id, COUNT(*), COALESCE(SUM(credit_amount), 0) "
+            + "FROM carbon_credits WHERE status IN ('VERIFIED', 'LISTED', 'SOLD') AND user_id IS NOT NULL %s "
+            + "GROUP BY user_id";
+    private static final String SALES_TOTALS_SQL = "SELECT seller_id, COUNT(*), COALESCE(SUM(amount), 0) "
+            + "FROM transactions WHERE status = 'COMPLETED' AND seller_id IS NOT NULL %s GROUP BY seller_id";
+    private static final String PURCHASE_TOTALS_SQL = "SELECT buyer_id, COUNT(*), COALESCE(SUM(amount), 0) "
+            + "FROM transactions WHERE status = 'COMPLETED' AND buyer_id IS NOT NULL %s GROUP BY buyer_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftCounter;
+
+    public UserCounterService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.driftCounter = Counter.builder("user.counters.drift")
+                .description("User counter rows found out of step with their source tables and rewritten")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a credit in this status counts as issued to its owner
+     */
+    public static boolean isIssued(CreditStatus status) {
+        return status == CreditStatus.VERIFIED || status == CreditStatus.LISTED || status == CreditStatus.SOLD;
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * The user's totals; all zero for a user without a counters row
+     */
+    @Transactional(readOnly = true)
+    public UserCounters getCounters(UUID userId) {
+        List<UserCounters> rows = jdbcTemplate.query(SELECT_SQL, UserCounterService::mapRow, userId);
+        return rows.isEmpty() ? new CounterChange().toCounters(userId) : rows.get(0);
+    }
+
+    // ==================== UPDATES ====================
+
+    /**
+     * Add a change to one user's counters in the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(UUID userId, CounterChange change) {
+        apply(Map.of(userId, change));
+    }
+
+    /**
+     * Add changes to several users' counters in the caller's transaction, in
+     * one JDBC batch ordered by user id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Map<UUID, CounterChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<UUID, CounterChange>> entries = new ArrayList<>(new TreeMap<>(changes).entrySet());
+        List<Object[]> batch = new ArrayList<>(entries.size());
+        for (Map.Entry<UUID, CounterChange> entry : entries) {
+            batch.add(entry.getValue().toParameters(now, entry.getKey()));
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                createWith(entries.get(i).getKey(), entries.get(i).getValue(), now);
+            }
+        }
+    }
+
+    // Insert the user's row holding the change; if another transaction created it first, add to that
+    private void createWith(UUID userId, CounterChange change, Timestamp now) {
+        Object[] parameters = change.toParameters(now, userId);
+        boolean inserted = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    insert.setObject(i + 1, parameters[i]);
+                }
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return false;
+            }
+        }));
+        if (!inserted) {
+            jdbcTemplate.update(UPDATE_SQL, parameters);
+        }
+    }
+
+    /**
+     * Transactions that became COMPLETED: a sale for each seller and a
+     * purchase for each buyer
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompleted(Collection<Transaction> transactions) {
+        apply(tradeChanges(transactions, 1));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompleted(Transaction transaction) {
+        recordCompleted(List.of(transaction));
+    }
+
+    /**
+     * A COMPLETED transaction left that status, e.g. when disputed
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompletionReverted(Transaction transaction) {
+        apply(tradeChanges(List.of(transaction), -1));
+    }
+
+    private static Map<UUID, CounterChange> tradeChanges(Collection<Transaction> transactions, int sign) {
+        Map<UUID, CounterChange> changes = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            BigDecimal amount = sign < 0 ? transaction.getAmount().negate() : transaction.getAmount();
+            if (transaction.getSeller() != null) {
+                changes.computeIfAbsent(transaction.getSeller().getId(), id -> new CounterChange())
+                        .addSales(sign, amount);
+            }
+            if (transaction.getBuyer() != null) {
+                changes.computeIfAbsent(transaction.getBuyer().getId(), id -> new CounterChange())
+                        .addPurchases(sign, amount);
+            }
+        }
+        return changes;
+    }
+
+    // ==================== RECONCILIATION ====================
+
+    /**
+     * Recompute every user's totals from the source tables and rewrite the
+     * rows that drifted
+     *
+     * @return the number of users whose counters were corrected
+     */
+    @Scheduled(cron = "${user-counters.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        long started = System.nanoTime();
+        Map<UUID, CounterChange> expected = new HashMap<>();
+        loadTotals(expected, "", new Object[0]);
+        Map<UUID, UserCounters> stored = new HashMap<>();
+        for (UserCounters row : jdbcTemplate.query(SELECT_ALL_SQL, UserCounterService::mapRow)) {
+            stored.put(row.getUserId(), row);
+        }
+
+        Set<UUID> userIds = new HashSet<>(expected.keySet());
+        userIds.addAll(stored.keySet());
+        int repaired = 0;
+        for (UUID userId : userIds) {
+            CounterChange totals = expected.getOrDefault(userId, new CounterChange());
+            UserCounters row = stored.get(userId);
+            if (row == null ? totals.isZero() : totals.matches(row)) {
+                continue;
+            }
+            // Writes committed since the scan can explain the difference; check again under the row lock
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> repair(userId)))) {
+                repaired++;
+            }
+        }
+        driftCounter.increment(repaired);
+        log.info("Reconciled counters of {} users in {} ms, {} corrected", userIds.size(),
+                (System.nanoTime() - started) / 1_000_000, repaired);
+        return repaired;
+    }
+
+    private boolean repair(UUID userId) {
+        List<UserCounters> rows = jdbcTemplate.query(LOCK_SQL, UserCounterService::mapRow, userId);
+        Map<UUID, CounterChange> expected = new HashMap<>();
+        loadTotals(expected, "AND %s = ?", new Object[] { userId });
+        CounterChange totals = expected.getOrDefault(userId, new CounterChange());
+        UserCounters row = rows.isEmpty() ? null : rows.get(0);
+        if (row == null ? totals.isZero() : totals.matches(row)) {
+            return false;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (row == null) {
+            createWith(userId, totals, now);
+        } else {
+            jdbcTemplate.update(OVERWRITE_SQL, totals.toParameters(now, userId));
+        }
+        log.warn("User counters of {} drifted and were rewritten: stored {}, recomputed {}", userId, row,
+                totals.toCounters(userId));
+        return true;
+    }
+
+    // The filter is formatted with each table's user column
+    private void loadTotals(Map<UUID, CounterChange> totals, String filter, Object[] parameters) {
+        load(totals, JOURNEY_TOTALS_SQL, filter, "user_id", parameters,
+                (change, rs) -> change.setJourneys(rs, 2));
+        load(totals, CREDIT_TOTALS_SQL, filter, "user_id", parameters,
+                (change, rs) -> change.setCredits(rs, 2));
+        load(totals, SALES_TOTALS_SQL, filter, "seller_id", parameters,
+                (change, rs) -> change.setSales(rs, 2));
+        load(totals, PURCHASE_TOTALS_SQL, filter, "buyer_id", parameters,
+                (change, rs) -> change.setPurchases(rs, 2));
+    }
+
+    private interface TotalsReader {
+        void read(CounterChange change, ResultSet rs) throws SQLException;
+    }
+
+    private void load(Map<UUID, CounterChange> totals, String sql, String filter, String userColumn,
+            Object[] parameters, TotalsReader reader) {
+        jdbcTemplate.query(String.format(sql, String.format(filter, userColumn)), rs -> {
+            UUID userId = rs.getObject(1, UUID.class);
+            reader.read(totals.computeIfAbsent(userId, id -> new CounterChange()), rs);
+        }, parameters);
+    }
+
+    private static UserCounters mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new UserCounters(rs.getObject("user_id", UUID.class), rs.getLong("journey_count"),
+                rs.getBigDecimal("distance_km"), rs.getBigDecimal("energy_consumed_kwh"),
+                rs.getBigDecimal("co2_reduced_kg"), rs.getLong("credits_issued"),
+                rs.getBigDecimal("credits_issued_amount"), rs.getLong("sales_count"),
+                rs.getBigDecimal("sales_amount"), rs.getLong("purchase_count"),
+                rs.getBigDecimal("purchase_amount"), rs.getTimestamp("updated_at").toLocalDateTime());
+    }
+
+    /**
+     * Amounts to add to a user's counters; also holds recomputed totals
+     */
+    @Getter
+    public static class CounterChange {
+        private long journeyCount;
+        private BigDecimal distanceKm = BigDecimal.ZERO;
+        private BigDecimal energyConsumedKwh = BigDecimal.ZERO;
+        private BigDecimal co2ReducedKg = BigDecimal.ZERO;
+        private long creditsIssued;
+        private BigDecimal creditsIssuedAmount = BigDecimal.ZERO;
+        private long salesCount;
+        private BigDecimal salesAmount = BigDecimal.ZERO;
+        private long purchaseCount;
+        private BigDecimal purchaseAmount = BigDecimal.ZERO;
+
+        public CounterChange addJourney(JourneyData journey) {
+            return addJourneys(1, journey.getDistanceKm(), journey.getEnergyConsumedKwh(), journey.getCo2ReducedKg());
+        }
+
+        public CounterChange removeJourney(JourneyData journey) {
+            return addJourneys(-1, negate(journey.getDistanceKm()), negate(journey.getEnergyConsumedKwh()),
+                    negate(journey.getCo2ReducedKg()));
+        }
+
+        public CounterChange addJourneys(long count, BigDecimal distanceKm, BigDecimal energyConsumedKwh,
+                BigDecimal co2ReducedKg) {
+            journeyCount += count;
+            this.distanceKm = add(this.distanceKm, distanceKm);
+            this.energyConsumedKwh = add(this.energyConsumedKwh, energyConsumedKwh);
+            this.co2ReducedKg = add(this.co2ReducedKg, co2ReducedKg);
+            return this;
+        }
+
+        public CounterChange addIssuedCredit(CarbonCredit credit) {
+            creditsIssued++;
+            creditsIssuedAmount = add(creditsIssuedAmount, credit.getCreditAmount());
+            return this;
+        }
+
+        public CounterChange removeIssuedCredit(CarbonCredit credit) {
+            creditsIssued--;
+            creditsIssuedAmount = add(creditsIssuedAmount, negate(credit.getCreditAmount()));
+            return this;
+        }
+
+        public CounterChange addSales(long count, BigDecimal amount) {
+            salesCount += count;
+            salesAmount = add(salesAmount, amount);
+            return this;
+        }
+
+        public CounterChange addPurchases(long count, BigDecimal amount) {
+            purchaseCount += count;
+            purchaseAmount = add(purchaseAmount, amount);
+            return this;
+        }
+
+        private void setJourneys(ResultSet rs, int column) throws SQLException {
+            journeyCount = rs.getLong(column);
+            distanceKm = rs.getBigDecimal(column + 1);
+            energyConsumedKwh = rs.getBigDecimal(column + 2);
+            co2ReducedKg = rs.getBigDecimal(column + 3);
+        }
+
+        private void setCredits(ResultSet rs, int column) throws SQLException {
+            creditsIssued = rs.getLong(column);
+            creditsIssuedAmount = rs.getBigDecimal(column + 1);
+        }
+
+        private void setSales(ResultSet rs, int column) throws SQLException {
+            salesCount = rs.getLong(column);
+            salesAmount = rs.getBigDecimal(column + 1);
+        }
+
+        private void setPurchases(ResultSet rs, int column) throws SQLException {
+            purchaseCount = rs.getLong(column);
+            purchaseAmount = rs.getBigDecimal(column + 1);
+        }
+
+        boolean isZero() {
+            return new CounterChange().matches(toCounters(null));
+        }
+
+        boolean matches(UserCounters row) {
+            return journeyCount == row.getJourneyCount()
+                    && distanceKm.compareTo(row.getDistanceKm()) == 0
+                    && energyConsumedKwh.compareTo(row.getEnergyConsumedKwh()) == 0
+                    && co2ReducedKg.compareTo(row.getCo2ReducedKg()) == 0
+                    && creditsIssued == row.getCreditsIssued()
+                    && creditsIssuedAmount.compareTo(row.getCreditsIssuedAmount()) == 0
+                    && salesCount == row.getSalesCount()
+                    && salesAmount.compareTo(row.getSalesAmount()) == 0
+                    && purchaseCount == row.getPurchaseCount()
+                    && purchaseAmount.compareTo(row.getPurchaseAmount()) == 0;
+        }
+
+        UserCounters toCounters(UUID userId) {
+            return new UserCounters(userId, journeyCount, distanceKm, energyConsumedKwh, co2ReducedKg,
+                    creditsIssued, creditsIssuedAmount, salesCount, salesAmount, purchaseCount, purchaseAmount,
+                    null);
+        }
+
+        private Object[] toParameters(Timestamp now, UUID userId) {
+            return new Object[] { journeyCount, distanceKm, energyConsumedKwh, co2ReducedKg, creditsIssued,
+                    creditsIssuedAmount, salesCount, salesAmount, purchaseCount, purchaseAmount, now, userId };
+        }
+
+        private static BigDecimal add(BigDecimal total, BigDecimal amount) {
+            return amount == null ? total : total.add(amount);
+        }
+
+        private static BigDecimal negate(BigDecimal amount) {
+            return amount == null ? null : amount.negate();
+        }
+    }
+}
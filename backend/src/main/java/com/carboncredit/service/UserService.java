@@ -1,11 +1,15 @@
 package com.carboncredit.service;
 
+import com.carboncredit.config.CacheConfig;
 import com.carboncredit.dto.RegisterRequest;
 import com.carboncredit.entity.User;
 import com.carboncredit.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -33,6 +37,7 @@ public class UserService {
      * @param request
      * @return
      */
+    @CacheEvict(value = CacheConfig.USERS, allEntries = true)
     @Transactional
     public User registerUser(RegisterRequest request) {
         log.info(" Regigetering new user: {}", request.getUsername());
@@ -92,6 +97,7 @@ public class UserService {
      * @param request
      * @return
      */
+    @CacheEvict(value = CacheConfig.USERS, allEntries = true)
     @Transactional
     public User verifyUserEmail(String token) {
         log.info("Verifying email with token: {}", token.substring(0, 10) + "..");
@@ -216,6 +222,7 @@ public class UserService {
     /**
      * ✅ Reset password using token
      */
+    @CacheEvict(value = { CacheConfig.USERS, CacheConfig.TOKEN_VERSIONS }, allEntries = true)
     @Transactional
     public void resetPassword(String token, String newPassword) {
         log.info("🔐 Resetting password with token: {}", token.substring(0, 10) + "...");
@@ -231,6 +238,7 @@ public class UserService {
         // Update password
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         user.clearPasswordResetToken(); // Clear token after use
+        user.revokeTokens(); // Log out sessions that used the old password
 
         userRepository.save(user);
 
@@ -269,6 +277,7 @@ public class UserService {
      * ✅ Delete unverified users older than 7 days (runs daily at 3 AM)
      */
     @Scheduled(cron = "0 0 3 * * *")
+    @CacheEvict(value = { CacheConfig.USERS, CacheConfig.TOKEN_VERSIONS }, allEntries = true)
     @Transactional
     public void deleteUnverifiedOldAccounts() {
         log.info("🧹 Starting cleanup of unverified old accounts");
@@ -285,6 +294,7 @@ public class UserService {
         log.info("✅ Deleted {} unverified old accounts", unverifiedUsers.size());
     }
 
+    @CacheEvict(value = CacheConfig.USERS, allEntries = true)
     @Transactional
     public User createUser(RegisterRequest request) {
         log.info("Creating user: {}", request.getUsername());
@@ -334,6 +344,7 @@ public class UserService {
         return savedUser;
     }
 
+    @CacheEvict(value = CacheConfig.USERS, allEntries = true)
     public User createUser(User user) {
         log.info("Creating user from User entity: {}", user.getUsername());
 
@@ -390,6 +401,45 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * Login data of a user, cached by username for request authentication.
+     * Evicted by every method here that writes users.
+     */
+    @Cacheable(value = CacheConfig.USERS, key = "#username", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<UserCredentials> findCredentialsByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> new UserCredentials(user.getId(), user.getUsername(), user.getPasswordHash(),
+                        user.getRole()));
+    }
+
+    public record UserCredentials(UUID id, String username, String passwordHash, User.UserRole role) {
+    }
+
+    /**
+     * Replace the hash of an unchanged password, e.g. one re-encoded at a
+     * higher BCrypt strength; the user's tokens stay valid
+     */
+    @CacheEvict(value = CacheConfig.USERS, key = "#username")
+    @Transactional
+    public void updatePasswordHash(String username, String passwordHash) {
+        userRepository.findByUsername(username).ifPresent(user -> {
+            user.setPasswordHash(passwordHash);
+            userRepository.save(user);
+        });
+    }
+
+    /**
+     * Current token version of the user, null once the user is deleted.
+     * Cached per user, the null included, so the JWT filter can check
+     * tokens without a query; the methods that change it evict the entry.
+     */
+    @Cacheable(value = CacheConfig.TOKEN_VERSIONS, key = "#userId")
+    @Transactional(readOnly = true)
+    public Long findTokenVersion(UUID userId) {
+        return userRepository.findTokenVersionById(userId).orElse(null);
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
@@ -400,10 +450,16 @@ public class UserService {
         return userRepository.findByRole(role);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.USERS, allEntries = true),
+            @CacheEvict(value = CacheConfig.TOKEN_VERSIONS, key = "#user.id", condition = "#user.id != null") })
     public User updateUser(User user) {
         return userRepository.save(user);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.USERS, allEntries = true),
+            @CacheEvict(value = CacheConfig.TOKEN_VERSIONS, key = "#id") })
     public void deleteUser(UUID id) {
         userRepository.deleteById(id);
     }
@@ -436,6 +492,7 @@ public class UserService {
     }
 
     // Method to create user with simple password
+    @CacheEvict(value = CacheConfig.USERS, allEntries = true)
     public User createUserWithSimplePassword(String username, String email, String password,
             String fullName, String phone, User.UserRole role) {
         User user = new User();
@@ -450,6 +507,9 @@ public class UserService {
         return createUser(user);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.USERS, allEntries = true),
+            @CacheEvict(value = CacheConfig.TOKEN_VERSIONS, key = "#id") })
     public User updateUser(UUID id, User userDetails) {
         User existing = userRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + id));
@@ -479,6 +539,11 @@ public class UserService {
             throw new IllegalArgumentException("Phone already exists: " + userDetails.getPhone());
         }
 
+        // Tokens carry the username and role, so changing either revokes them
+        boolean revokeTokens = (userDetails.getUsername() != null
+                && !userDetails.getUsername().equals(existing.getUsername()))
+                || (userDetails.getRole() != null && userDetails.getRole() != existing.getRole());
+
         // merge allowed fields
         if (userDetails.getUsername() != null)
             existing.setUsername(userDetails.getUsername());
@@ -495,6 +560,10 @@ public class UserService {
         if (userDetails.getPassword() != null && !userDetails.getPassword().isEmpty()) {
             existing.setPassword(userDetails.getPassword());
             existing.setPasswordHash(passwordEncoder.encode(userDetails.getPassword()));
+            revokeTokens = true;
+        }
+        if (revokeTokens) {
+            existing.revokeTokens();
         }
         return userRepository.save(existing);
 
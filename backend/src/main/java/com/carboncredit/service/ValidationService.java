@@ -36,6 +36,9 @@ public class ValidationService {
     @Autowired
     private DisputeRepository disputeRepository;
 
+    @Autowired
+    private BuyerActivityTracker buyerActivityTracker;
+
     // ======================== TRANSACTION VALIDATIONS ===============
 
     // validate transction purchase request
@@ -146,7 +149,7 @@ public class ValidationService {
     // validate suspicious activity patterns
     public void validateSuspiciousActivity(User buyer) {
         // Check for rapid consecutive transactions
-        long recentTransactions = transactionRepository.countRecentTransactionsByUser(buyer.getId(),
+        long recentTransactions = buyerActivityTracker.countSince(buyer.getId(),
                 LocalDateTime.now().minusMinutes(15));
 
         if (recentTransactions > 5) {
@@ -154,9 +157,7 @@ public class ValidationService {
         }
 
         // check for high-frequencey trading patterns
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        long todayTransactions = transactionRepository.countTodayTransactionsByUser(buyer.getId(), startOfDay, endOfDay);
+        long todayTransactions = buyerActivityTracker.countToday(buyer.getId());
 
         if (todayTransactions > 20) {
             throw new SecurityException("Daily transaction limit exceeded (20/day)");
@@ -173,9 +174,7 @@ public class ValidationService {
         }
 
         // Daily spending limit
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        BigDecimal dailySpent = transactionRepository.getDailySpentByUser(buyer.getId(), startOfDay, endOfDay);
+        BigDecimal dailySpent = buyerActivityTracker.spentToday(buyer.getId());
         BigDecimal dailyLimit = new BigDecimal("5000.00");
         if (dailySpent.add(amount).compareTo(dailyLimit) > 0) {
             throw new SecurityException("Transcation would exceed daily spending limit: $" + dailyLimit);
@@ -185,7 +184,7 @@ public class ValidationService {
     // validate fraud prevention
     public void validateFraudPreventation(Transaction transaction) {
         // check for unsual patterns comapared to user' history
-        Optional<BigDecimal> averageTransaction = transactionRepository.getAverageTransactionAmountByUser(transaction.getBuyer().getId());
+        Optional<BigDecimal> averageTransaction = buyerActivityTracker.averagePurchase(transaction.getBuyer().getId());
 
         if(averageTransaction.isPresent() && averageTransaction.get().compareTo(BigDecimal.ZERO) > 0) {
             BigDecimal ratio = transaction.getAmount().divide(averageTransaction.get(), 2, RoundingMode.HALF_UP);
@@ -0,0 +1,128 @@
+package com.carboncredit.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.JourneyData.VerificationStatus;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.repository.JourneyDataRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Work queue handing journeys pending verification to CVAs.
+ *
+ * A CVA leases the oldest pending journeys that nobody else holds; the
+ * rows are picked with SELECT ... FOR UPDATE SKIP LOCKED, so CVAs leasing
+ * at the same moment get different journeys without waiting on each
+ * other. A lease lasts lease-duration and is renewed by a heartbeat; a
+ * journey whose lease expires goes back to the queue. Leasing again also
+ * renews and returns the journeys the CVA already holds. Approving or
+ * rejecting a journey ends its lease, and a journey another CVA holds
+ * cannot be decided.
+ */
+@Service
+@Slf4j
+@Transactional
+public class VerificationQueueService {
+
+    private final JourneyDataRepository journeyDataRepository;
+    private final Duration leaseDuration;
+    private final int maxLeased;
+
+    public VerificationQueueService(JourneyDataRepository journeyDataRepository,
+            @Value("${cva.verification-queue.lease-duration:5m}") Duration leaseDuration,
+            @Value("${cva.verification-queue.max-leased:50}") int maxLeased) {
+        this.journeyDataRepository = journeyDataRepository;
+        this.leaseDuration = leaseDuration;
+        this.maxLeased = maxLeased;
+    }
+
+    /**
+     * Lease up to count pending journeys to the CVA, counting the ones it
+     * already holds. Those are all renewed and come first; only the
+     * difference is leased from the queue.
+     */
+    public List<JourneyData> lease(User cva, int count) {
+        requireCva(cva);
+        if (count < 1) {
+            throw new BusinessOperationException("journeyData", "lease", "At least one journey must be leased");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(leaseDuration);
+        journeyDataRepository.extendLeases(cva.getId(), VerificationStatus.PENDING_VERIFICATION, now, until);
+        List<JourneyData> journeys = new ArrayList<>(
+                journeyDataRepository.findLeasedBy(cva.getId(), VerificationStatus.PENDING_VERIFICATION, now));
+        int held = journeys.size();
+        int wanted = Math.min(count, maxLeased) - held;
+        if (wanted > 0) {
+            for (JourneyData journey : journeyDataRepository.lockLeasable(
+                    VerificationStatus.PENDING_VERIFICATION.name(), now, wanted)) {
+                journey.setLeasedBy(cva);
+                journey.setLeaseExpiresAt(until);
+                journeys.add(journey);
+            }
+        }
+        log.info("CVA {} holds {} journeys until {}, {} newly leased", cva.getUsername(), journeys.size(), until,
+                journeys.size() - held);
+        return journeys;
+    }
+
+    /**
+     * Extend the CVA's unexpired leases
+     *
+     * @return the journeys the CVA still holds
+     */
+    public List<JourneyData> heartbeat(User cva) {
+        requireCva(cva);
+        LocalDateTime now = LocalDateTime.now();
+        journeyDataRepository.extendLeases(cva.getId(), VerificationStatus.PENDING_VERIFICATION, now,
+                now.plus(leaseDuration));
+        return journeyDataRepository.findLeasedBy(cva.getId(), VerificationStatus.PENDING_VERIFICATION, now);
+    }
+
+    /**
+     * Hand the journeys back to the queue before their lease expires
+     */
+    public int release(User cva, Collection<UUID> journeyIds) {
+        requireCva(cva);
+        if (journeyIds.isEmpty()) {
+            return 0;
+        }
+        int released = journeyDataRepository.releaseLeases(cva.getId(), journeyIds);
+        log.info("CVA {} released {} journeys", cva.getUsername(), released);
+        return released;
+    }
+
+    /**
+     * Take the journey out of the queue for the CVA deciding it; fails if
+     * another CVA holds an unexpired lease on it. The caller must hold the
+     * journey's row lock.
+     */
+    public void claimForDecision(JourneyData journey, User cva) {
+        User holder = journey.getLeasedBy();
+        if (holder != null && !holder.getId().equals(cva.getId()) && journey.getLeaseExpiresAt() != null
+                && journey.getLeaseExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new BusinessOperationException("journeyData", "verify",
+                    "Journey is being verified by another CVA until " + journey.getLeaseExpiresAt());
+        }
+        journey.setLeasedBy(null);
+        journey.setLeaseExpiresAt(null);
+    }
+
+    private static void requireCva(User cva) {
+        if (cva.getRole() != User.UserRole.CVA) {
+            throw new BusinessOperationException("Only CVA users can lease journeys");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.carboncredit.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.carboncredit.exception.BusinessOperationException;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applies wallet balance changes for many users with plain JDBC.
+ *
+ * Used by multi-listing flows that would otherwise load and save one wallet
+ * entity per transfer. Must run inside an existing transaction; callers
+ * should not modify the same wallets through JPA in that transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
+public class WalletPostingService {
+
+    private static final String LOCK_CASH_SQL = "SELECT cash_balance FROM wallets WHERE user_id = ? FOR UPDATE";
+
+    // Guards keep both balances non-negative; a guarded-out row updates nothing
+    private static final String POST_SQL = "UPDATE wallets SET cash_balance = cash_balance + ?, "
+            + "credit_balance = credit_balance + ?, updated_at = ? "
+            + "WHERE user_id = ? AND cash_balance + ? >= 0 AND credit_balance + ? >= 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lock a user's wallet row for the rest of the transaction and return
+     * the cash balance.
+     */
+    public BigDecimal lockCashBalance(UUID userId) {
+        List<BigDecimal> rows = jdbcTemplate.queryForList(LOCK_CASH_SQL, BigDecimal.class, userId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Wallet not found for user: " + userId);
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * Apply all balance changes in a single JDBC batch. Rows are updated in
+     * user id order so concurrent postings lock wallets in the same order.
+     *
+     * @throws BusinessOperationException if a wallet is missing or a change
+     *                                    would make a balance negative
+     */
+    public void post(Map<UUID, BalanceChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(changes.size());
+        List<UUID> userIds = new ArrayList<>(changes.size());
+        for (Map.Entry<UUID, BalanceChange> entry : new TreeMap<>(changes).entrySet()) {
+            BalanceChange change = entry.getValue();
+            batch.add(new Object[] { change.getCash(), change.getCredit(), now, entry.getKey(),
+                    change.getCash(), change.getCredit() });
+            userIds.add(entry.getKey());
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(POST_SQL, batch);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new BusinessOperationException(
+                        "Wallet update rejected for user " + userIds.get(i) + ": wallet missing or balance too low");
+            }
+        }
+        log.debug("Posted balance changes to {} wallets in one batch", updated.length);
+    }
+
+    /**
+     * Net cash and credit change for one wallet
+     */
+    @Getter
+    public static class BalanceChange {
+        private BigDecimal cash = BigDecimal.ZERO;
+        private BigDecimal credit = BigDecimal.ZERO;
+
+        public BalanceChange addCash(BigDecimal amount) {
+            cash = cash.add(amount);
+            return this;
+        }
+
+        public BalanceChange addCredit(BigDecimal amount) {
+            credit = credit.add(amount);
+            return this;
+        }
+    }
+}
@@ -3,23 +3,46 @@ package com.carboncredit.service;
 import java.math.BigDecimal;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
 import com.carboncredit.entity.Wallet;
 import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.InsufficientBalanceException;
 import com.carboncredit.repository.WalletRepository;
+import com.carboncredit.service.LedgerService.Journal;
+import com.carboncredit.service.LedgerService.Leg;
+import com.carboncredit.service.WalletPostingService.BalanceChange;
 
 import lombok.RequiredArgsConstructor;
 
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 
+/**
+ * Wallet balances and the ledger journals behind them.
+ *
+ * Every change is applied to the wallet row with a guarded update and
+ * journaled in the same transaction. The row is the ledger's projection for
+ * one user: overdraft checks and balance reads use it, and
+ * {@link WalletReconciliationService} rewrites rows that drift from the
+ * entries.
+ */
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class WalletService {
+
     private final WalletRepository walletRepository;
+    private final LedgerService ledgerService;
 
     public Wallet createWalletForUser(User user) {
         Wallet wallet = new Wallet();
@@ -39,45 +62,159 @@ public class WalletService {
             .orElseGet(() -> createWalletForUser(user));
     }
     
+    /**
+     * Manual credit adjustment, journaled against the external account
+     */
     public Wallet updateCreditBalance(UUID userId, BigDecimal amount) {
-        Wallet wallet = findByUserId(userId)
-            .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user: " + userId));
-        
-        if (amount.compareTo(BigDecimal.ZERO) < 0 && 
-            wallet.getCreditBalance().add(amount).compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Insufficient credit balance");
+        if (walletRepository.addToBalances(userId, BigDecimal.ZERO, amount) == 0) {
+            throw rejected(userId, "Insufficient credit balance");
         }
-        
-        wallet.setCreditBalance(wallet.getCreditBalance().add(amount));
-        return walletRepository.save(wallet);
+        ledgerService.record(Journal.of(EntryType.ADJUSTMENT, null, "Credit balance adjustment")
+                .credit(LedgerAccount.USER, userId, amount)
+                .credit(LedgerAccount.EXTERNAL, null, amount.negate()));
+        return getWallet(userId);
     }
     
+    /**
+     * Manual cash adjustment, journaled against the external account
+     */
     public Wallet updateCashBalance(UUID userId, BigDecimal amount) {
-        Wallet wallet = findByUserId(userId)
-            .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user: " + userId));
-        
-        if (amount.compareTo(BigDecimal.ZERO) < 0 && 
-            wallet.getCashBalance().add(amount).compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Insufficient cash balance");
+        return moveCash(userId, amount, EntryType.ADJUSTMENT, null, "Cash balance adjustment");
+    }
+
+    /** Cash paid in through a payment gateway */
+    public Wallet deposit(UUID userId, BigDecimal amount, String paymentReference) {
+        return moveCash(userId, amount, EntryType.DEPOSIT, paymentReference, "Wallet deposit");
+    }
+
+    /** Cash paid out of the platform */
+    public Wallet withdraw(UUID userId, BigDecimal amount, String reference) {
+        return moveCash(userId, amount.negate(), EntryType.WITHDRAWAL, reference, "Wallet withdrawal");
+    }
+
+    /** Newly verified carbon credits entering the user's wallet */
+    public Wallet issueCredits(UUID userId, BigDecimal amount, String creditReference) {
+        if (walletRepository.addToBalances(userId, BigDecimal.ZERO, amount) == 0) {
+            throw rejected(userId, "Insufficient credit balance");
         }
-        
-        wallet.setCashBalance(wallet.getCashBalance().add(amount));
-        return walletRepository.save(wallet);
+        ledgerService.record(Journal.of(EntryType.CREDIT_ISSUANCE, creditReference, "Carbon credits issued")
+                .credit(LedgerAccount.USER, userId, amount)
+                .credit(LedgerAccount.EXTERNAL, null, amount.negate()));
+        return getWallet(userId);
+    }
+
+    private Wallet moveCash(UUID userId, BigDecimal amount, EntryType type, String reference, String description) {
+        if (walletRepository.addToBalances(userId, amount, BigDecimal.ZERO) == 0) {
+            throw rejected(userId, "Insufficient cash balance");
+        }
+        ledgerService.record(Journal.of(type, reference, description)
+                .cash(LedgerAccount.USER, userId, amount)
+                .cash(LedgerAccount.EXTERNAL, null, amount.negate()));
+        return getWallet(userId);
+    }
+
+    /**
+     * Hold cash for a pending commitment such as a leading auction bid.
+     * The amount leaves the spendable balance until it is released or settled.
+     */
+    public void reserveCash(UUID userId, BigDecimal amount) {
+        if (walletRepository.addToBalances(userId, amount.negate(), BigDecimal.ZERO) == 0) {
+            if (!walletRepository.existsByUserId(userId)) {
+                throw new IllegalArgumentException("Wallet not found for user: " + userId);
+            }
+            throw new InsufficientBalanceException("Insufficient cash balance to reserve: " + amount);
+        }
+        ledgerService.record(Journal.of(EntryType.RESERVE, null, "Cash reserved")
+                .cash(LedgerAccount.USER, userId, amount.negate())
+                .cash(LedgerAccount.HOLD, userId, amount));
     }
 
-    /** Get credit balance for a user */
+    /**
+     * Return cash previously held with {@link #reserveCash(UUID, BigDecimal)}.
+     * The hold is checked after the wallet row is updated, so concurrent
+     * releases for the same user see each other's entries.
+     *
+     * @throws BusinessOperationException if the user holds less than the amount
+     */
+    public void releaseCash(UUID userId, BigDecimal amount) {
+        if (walletRepository.addToBalances(userId, amount, BigDecimal.ZERO) == 0) {
+            throw rejected(userId, "Insufficient cash balance");
+        }
+        if (ledgerService.getBalance(LedgerAccount.HOLD, userId, Asset.CASH).compareTo(amount) < 0) {
+            throw new BusinessOperationException("No cash held to release: " + amount);
+        }
+        ledgerService.record(Journal.of(EntryType.RELEASE, null, "Cash released")
+                .cash(LedgerAccount.HOLD, userId, amount.negate())
+                .cash(LedgerAccount.USER, userId, amount));
+    }
+
+    /**
+     * Apply cash and credit changes to several wallets in the caller's
+     * transaction as one balanced transfer journal.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyBalanceChanges(Map<UUID, BalanceChange> changes) {
+        Journal journal = Journal.of(EntryType.TRANSFER, null, "Wallet transfer");
+        changes.forEach((userId, change) -> journal.cash(LedgerAccount.USER, userId, change.getCash())
+                .credit(LedgerAccount.USER, userId, change.getCredit()));
+        post(journal);
+    }
+
+    /**
+     * Apply a journal's user legs to the wallets and record it, in the
+     * caller's transaction. With more than one wallet involved the rows are
+     * locked first and updated in user id order, so concurrent transfers
+     * between the same users wait on each other instead of deadlocking.
+     *
+     * @throws BusinessOperationException if the journal does not balance
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void post(Journal journal) {
+        Map<UUID, BalanceChange> changes = new TreeMap<>();
+        for (Leg leg : journal.getLegs()) {
+            if (leg.account() != LedgerAccount.USER) {
+                continue;
+            }
+            BalanceChange change = changes.computeIfAbsent(leg.userId(), id -> new BalanceChange());
+            if (leg.asset() == Asset.CASH) {
+                change.addCash(leg.amount());
+            } else {
+                change.addCredit(leg.amount());
+            }
+        }
+        if (changes.size() > 1) {
+            lockWallets(changes.keySet());
+        }
+        for (Map.Entry<UUID, BalanceChange> entry : changes.entrySet()) {
+            BalanceChange change = entry.getValue();
+            if (walletRepository.addToBalances(entry.getKey(), change.getCash(), change.getCredit()) == 0) {
+                throw rejected(entry.getKey(), "Insufficient balance");
+            }
+        }
+        ledgerService.record(journal);
+    }
+
+    /**
+     * Lock these users' wallet rows in the database until the caller's
+     * transaction completes, in user id order. Lock every wallet the
+     * transaction will update before the first update; locking a wallet the
+     * transaction already holds again is free.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockWallets(Collection<UUID> userIds) {
+        walletRepository.lockByUserIds(userIds);
+    }
+
+    /** Get credit balance for a user, as the overdraft guards see it */
     @Transactional(readOnly = true)
     public BigDecimal getCreditBalance(UUID userId) {
-        Wallet wallet = findByUserId(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user: " + userId));
-        return wallet.getCreditBalance();
+        return getWallet(userId).getCreditBalance();
     }
 
+    /** Get spendable cash balance for a user, as the overdraft guards see it */
     @Transactional(readOnly = true)
     public BigDecimal getCashBalance(UUID userId) {
-        Wallet wallet = findByUserId(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user: " + userId));
-        return wallet.getCashBalance();
+        return getWallet(userId).getCashBalance();
     }
 
     /**
@@ -103,4 +240,16 @@ public class WalletService {
         }
     }
 
+    private Wallet getWallet(UUID userId) {
+        return walletRepository.findCurrentByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user: " + userId));
+    }
+
+    // A conditional update matches nothing if the wallet is missing or the guard failed
+    private IllegalArgumentException rejected(UUID userId, String insufficientMessage) {
+        if (!walletRepository.existsByUserId(userId)) {
+            return new IllegalArgumentException("Wallet not found for user: " + userId);
+        }
+        return new IllegalArgumentException(insufficientMessage);
+    }
 }
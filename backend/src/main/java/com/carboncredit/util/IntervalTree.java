@@ -0,0 +1,183 @@
+package com.carboncredit.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Interval tree over half-open intervals [start, end), one per key.
+ *
+ * A treap ordered by start and augmented with the largest end in each
+ * subtree, so inserting, removing and finding an interval that overlaps a
+ * given one all take O(log n) expected time. Stored intervals may overlap
+ * each other. Not thread-safe.
+ */
+public class IntervalTree<K> {
+
+    public record Interval(long start, long end) {
+        public Interval {
+            if (end < start) {
+                throw new IllegalArgumentException("Interval ends before it starts: " + start + " > " + end);
+            }
+        }
+    }
+
+    private static final class Node<K> {
+        final K key;
+        final Interval interval;
+        // Breaks ties between equal starts so every node has a distinct position
+        final long sequence;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        long maxEnd;
+        Node<K> left;
+        Node<K> right;
+
+        Node(K key, Interval interval, long sequence) {
+            this.key = key;
+            this.interval = interval;
+            this.sequence = sequence;
+            this.maxEnd = interval.end();
+        }
+
+        int compareTo(Node<K> other) {
+            int byStart = Long.compare(interval.start(), other.interval.start());
+            return byStart != 0 ? byStart : Long.compare(sequence, other.sequence);
+        }
+
+        void update() {
+            maxEnd = interval.end();
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private Node<K> root;
+    private long nextSequence;
+
+    /**
+     * Store the key's interval, replacing any it had
+     *
+     * @return the interval it replaced, or null
+     */
+    public Interval put(K key, Interval interval) {
+        Interval previous = remove(key);
+        Node<K> node = new Node<>(key, interval, nextSequence++);
+        nodes.put(key, node);
+        root = insert(root, node);
+        return previous;
+    }
+
+    /**
+     * @return the key's interval, or null if it had none
+     */
+    public Interval remove(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        root = delete(root, node);
+        return node.interval;
+    }
+
+    public Interval get(K key) {
+        Node<K> node = nodes.get(key);
+        return node == null ? null : node.interval;
+    }
+
+    /**
+     * Some key whose interval overlaps [start, end), or null if none does.
+     * Intervals that only touch at an end point do not overlap.
+     */
+    public K findOverlap(long start, long end) {
+        Node<K> node = root;
+        while (node != null) {
+            if (node.interval.start() < end && start < node.interval.end()) {
+                return node.key;
+            }
+            // If the left subtree reaches past start but holds no overlap, its intervals start at or
+            // after end, and so does everything to the right of it
+            node = node.left != null && node.left.maxEnd > start ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    private Node<K> insert(Node<K> tree, Node<K> node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            Node<K>[] parts = split(tree, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            node.update();
+            return node;
+        }
+        if (node.compareTo(tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        tree.update();
+        return tree;
+    }
+
+    private Node<K> delete(Node<K> tree, Node<K> node) {
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (node.compareTo(tree) < 0) {
+            tree.left = delete(tree.left, node);
+        } else {
+            tree.right = delete(tree.right, node);
+        }
+        tree.update();
+        return tree;
+    }
+
+    // Nodes ordered before the pivot, and the rest
+    @SuppressWarnings("unchecked")
+    private Node<K>[] split(Node<K> tree, Node<K> pivot) {
+        if (tree == null) {
+            return new Node[] { null, null };
+        }
+        if (tree.compareTo(pivot) < 0) {
+            Node<K>[] parts = split(tree.right, pivot);
+            tree.right = parts[0];
+            tree.update();
+            parts[0] = tree;
+            return parts;
+        }
+        Node<K>[] parts = split(tree.left, pivot);
+        tree.left = parts[1];
+        tree.update();
+        parts[1] = tree;
+        return parts;
+    }
+
+    // Every node of the first tree is ordered before every node of the second
+    private Node<K> merge(Node<K> first, Node<K> second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+        second.left = merge(first, second.left);
+        second.update();
+        return second;
+    }
+}
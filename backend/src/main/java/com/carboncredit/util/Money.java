@@ -0,0 +1,61 @@
+package com.carboncredit.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on primitive longs.
+ *
+ * Amounts are held as minor units (cents for USD, whole dong for VND) and
+ * rates as parts per million, so fee and currency calculations on hot paths
+ * run on longs without allocating. BigDecimal is only produced at the API
+ * and persistence boundary via {@link #toCents} and {@link #fromCents}.
+ * Rounding is half-up, matching the BigDecimal code it replaces. All
+ * multiplications are overflow-checked and throw ArithmeticException.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long PPM = 1_000_000L;
+
+    private Money() {
+    }
+
+    /** Whole cents of an amount, rounded half-up to two decimals */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /** A decimal rate such as 26330.5 as parts per million of one unit */
+    public static long toPpm(BigDecimal rate) {
+        return rate.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** A percentage such as "5.0" as parts per million of the amount it applies to */
+    public static long percentToPpm(String percent) {
+        return new BigDecimal(percent.trim()).movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** amount * ppm / 1,000,000, rounded half-up */
+    public static long applyPpm(long amount, long ppm) {
+        return divideHalfUp(Math.multiplyExact(amount, ppm), PPM);
+    }
+
+    /** amount * 1,000,000 / ppm, rounded half-up */
+    public static long divideByPpm(long amount, long ppm) {
+        return divideHalfUp(Math.multiplyExact(amount, PPM), ppm);
+    }
+
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder != 0 && Math.abs(remainder) >= Math.abs(divisor) - Math.abs(remainder)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+}
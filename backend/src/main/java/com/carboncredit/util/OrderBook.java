@@ -0,0 +1,251 @@
+package com.carboncredit.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory ask side of the marketplace for one credit class.
+ * Orders are kept in price-time priority: lowest price first, then the order
+ * in which the listing entered the book. Reads are lock-free, writes are
+ * serialized per book.
+ *
+ * Every write carries the listing's row version and is dropped unless it is
+ * newer than what the book last applied for that listing, so listing changes
+ * delivered out of commit order cannot bring back an older state. Versions
+ * of removed listings are remembered for the most recent removals.
+ */
+public class OrderBook {
+
+    private static final Comparator<Order> PRICE_TIME_PRIORITY = Comparator
+            .comparing(Order::getPrice)
+            .thenComparingLong(Order::getSequence);
+
+    static final int MAX_REMOVED_VERSIONS = 10_000;
+
+    private final String creditClass;
+    private final ConcurrentSkipListSet<Order> asks = new ConcurrentSkipListSet<>(PRICE_TIME_PRIORITY);
+    private final ConcurrentHashMap<UUID, Order> ordersByListing = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Only touched while holding the book's monitor
+    private final Map<UUID, Long> removedVersions = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+            return size() > MAX_REMOVED_VERSIONS;
+        }
+    };
+
+    public OrderBook(String creditClass) {
+        this.creditClass = creditClass;
+    }
+
+    public String getCreditClass() {
+        return creditClass;
+    }
+
+    /**
+     * Add a listing to the book, or update it in place.
+     * A listing keeps its time priority unless its price changes.
+     *
+     * @param version row version of the listing state being applied
+     * @return false if the book already holds this or a newer version of the
+     *         listing, or removed it at this or a newer version
+     */
+    public synchronized boolean upsert(UUID listingId, BigDecimal price, BigDecimal creditAmount, UUID sellerId,
+            LocalDateTime listedAt, long version) {
+        Long removedAt = removedVersions.get(listingId);
+        if (removedAt != null && removedAt >= version) {
+            return false;
+        }
+        Order previous = ordersByListing.get(listingId);
+        if (previous != null && previous.getVersion() >= version) {
+            return false;
+        }
+        removedVersions.remove(listingId);
+        long orderSequence;
+        if (previous != null && previous.getPrice().compareTo(price) == 0) {
+            orderSequence = previous.getSequence();
+        } else {
+            orderSequence = sequence.incrementAndGet();
+        }
+        if (previous != null) {
+            asks.remove(previous);
+        }
+        Order order = new Order(listingId, price, creditAmount, sellerId, listedAt, orderSequence, version);
+        asks.add(order);
+        ordersByListing.put(listingId, order);
+        return true;
+    }
+
+    /**
+     * Take a listing out of the book as of the given version
+     *
+     * @return true if an older entry of the listing was removed
+     */
+    public synchronized boolean remove(UUID listingId, long version) {
+        removedVersions.merge(listingId, version, Math::max);
+        Order current = ordersByListing.get(listingId);
+        if (current == null || current.getVersion() > version) {
+            return false;
+        }
+        ordersByListing.remove(listingId);
+        asks.remove(current);
+        return true;
+    }
+
+    public synchronized void clear() {
+        asks.clear();
+        ordersByListing.clear();
+        removedVersions.clear();
+    }
+
+    public boolean contains(UUID listingId) {
+        return ordersByListing.containsKey(listingId);
+    }
+
+    public int size() {
+        return ordersByListing.size();
+    }
+
+    public Optional<Order> bestAsk() {
+        try {
+            return Optional.of(asks.first());
+        } catch (NoSuchElementException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Aggregate the book into at most {@code maxLevels} price levels, best first.
+     */
+    public List<PriceLevel> depth(int maxLevels) {
+        List<PriceLevel> levels = new ArrayList<>();
+        PriceLevel current = null;
+        for (Order order : asks) {
+            if (current == null || current.getPrice().compareTo(order.getPrice()) != 0) {
+                if (levels.size() == maxLevels) {
+                    break;
+                }
+                current = new PriceLevel(order.getPrice());
+                levels.add(current);
+            }
+            current.add(order);
+        }
+        return levels;
+    }
+
+    /**
+     * Match a buy order against the cheapest asks.
+     * Listings are indivisible, so a listing is only taken when it fits in the
+     * remaining quantity. The buyer's own listings are skipped.
+     *
+     * @param limitPrice highest listing price the buyer accepts
+     * @param quantity   credit amount the buyer wants
+     * @param buyerId    buyer, excluded as a counterparty (may be null)
+     */
+    public List<Order> match(BigDecimal limitPrice, BigDecimal quantity, UUID buyerId) {
+        List<Order> fills = new ArrayList<>();
+        BigDecimal remaining = quantity;
+        for (Order order : asks) {
+            if (order.getPrice().compareTo(limitPrice) > 0 || remaining.signum() <= 0) {
+                break;
+            }
+            if (buyerId != null && buyerId.equals(order.getSellerId())) {
+                continue;
+            }
+            if (order.getCreditAmount().compareTo(remaining) <= 0) {
+                fills.add(order);
+                remaining = remaining.subtract(order.getCreditAmount());
+            }
+        }
+        return fills;
+    }
+
+    // ==================== BOOK ENTRIES ====================
+
+    public static final class Order {
+        private final UUID listingId;
+        private final BigDecimal price;
+        private final BigDecimal creditAmount;
+        private final UUID sellerId;
+        private final LocalDateTime listedAt;
+        private final long sequence;
+        private final long version;
+
+        Order(UUID listingId, BigDecimal price, BigDecimal creditAmount, UUID sellerId, LocalDateTime listedAt,
+                long sequence, long version) {
+            this.listingId = listingId;
+            this.price = price;
+            this.creditAmount = creditAmount;
+            this.sellerId = sellerId;
+            this.listedAt = listedAt;
+            this.sequence = sequence;
+            this.version = version;
+        }
+
+        public UUID getListingId() {
+            return listingId;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public BigDecimal getCreditAmount() {
+            return creditAmount;
+        }
+
+        public UUID getSellerId() {
+            return sellerId;
+        }
+
+        public LocalDateTime getListedAt() {
+            return listedAt;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        long getVersion() {
+            return version;
+        }
+    }
+
+    public static final class PriceLevel {
+        private final BigDecimal price;
+        private int orderCount;
+        private BigDecimal creditAmount = BigDecimal.ZERO;
+
+        PriceLevel(BigDecimal price) {
+            this.price = price;
+        }
+
+        void add(Order order) {
+            orderCount++;
+            creditAmount = creditAmount.add(order.getCreditAmount());
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        public BigDecimal getCreditAmount() {
+            return creditAmount;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.carboncredit.util;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets by key, for request rate limiting.
+ *
+ * Each bucket is one AtomicLong holding the time at which it is full again
+ * (the GCRA form of a token bucket). Taking a token moves that time one
+ * refill interval forward; the request is refused when the time would end
+ * up more than a whole period ahead of now, i.e. the bucket is empty.
+ * Updates are a compare-and-set loop, so no locks are taken.
+ *
+ * Keys are spread over {@link #SHARDS} maps. A bucket whose full-again time
+ * has passed is indistinguishable from a new one, so {@link #evictIdle()}
+ * can drop it without changing any outcome.
+ */
+public class RateLimiter {
+
+    static final int SHARDS = 16;
+
+    private final ConcurrentHashMap<String, AtomicLong>[] shards;
+    private final LongSupplier nanoClock;
+
+    public RateLimiter() {
+        this(System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    public RateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.shards = new ConcurrentHashMap[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Take a token from the bucket of the key, which holds {@code limit}
+     * tokens and refills completely over {@code period}
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until
+     *         the next token is available
+     */
+    public long tryAcquire(String key, int limit, Duration period) {
+        long now = nanoClock.getAsLong();
+        long window = period.toNanos();
+        long interval = Math.max(1, window / limit);
+        AtomicLong bucket = shard(key).computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + interval;
+            if (next - now > window) {
+                return next - now - window;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken with {@link #tryAcquire}, e.g. because another
+     * limit turned the request away. Moving the full-again time back one
+     * interval undoes the take even if other requests took tokens since.
+     */
+    public void release(String key, int limit, Duration period) {
+        long interval = Math.max(1, period.toNanos() / limit);
+        AtomicLong bucket = shard(key).get(key);
+        if (bucket != null) {
+            bucket.addAndGet(-interval);
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely
+     *
+     * @return the number of buckets dropped
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            int before = shard.size();
+            shard.values().removeIf(bucket -> bucket.get() - now <= 0);
+            evicted += before - shard.size();
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<String, AtomicLong> shard(String key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+    }
+}
@@ -0,0 +1,186 @@
+package com.carboncredit.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel.
+ *
+ * The lowest level has {@code wheelSize} buckets of {@code tickMs} each; every
+ * higher level is created on demand with buckets as wide as the whole level
+ * below it. Scheduling and cancelling are O(1) and advancing the clock only
+ * touches the buckets whose time has come, so thousands of deadlines can be
+ * tracked without scanning them on every tick. Entries in a higher level are
+ * cascaded down as the clock reaches their bucket, and a key is returned once
+ * the tick containing its deadline has fully elapsed, so it never fires early
+ * and at most one tick late.
+ *
+ * Each key has at most one deadline. Rescheduling or cancelling a key leaves
+ * its old entry in place and it is ignored when its bucket expires.
+ */
+public class TimingWheel<K> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final Level root;
+
+    // Current deadline of each scheduled key; entries not matching it are stale
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private final List<K> expired = new ArrayList<>();
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize greater than 1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.root = new Level(tickMs, startMs - (startMs % tickMs));
+    }
+
+    /**
+     * Schedule (or reschedule) a key. A deadline that has already passed is
+     * returned by the next call to {@link #advance(long)}.
+     */
+    public synchronized void schedule(K key, long deadlineMs) {
+        deadlines.put(key, deadlineMs);
+        insert(new Entry<>(key, deadlineMs));
+    }
+
+    /**
+     * @return true if the key was scheduled
+     */
+    public synchronized boolean cancel(K key) {
+        return deadlines.remove(key) != null;
+    }
+
+    public synchronized boolean contains(K key) {
+        return deadlines.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Move the clock forward and return the keys whose deadline has passed,
+     * roughly in deadline order. Returned keys are no longer scheduled.
+     */
+    public synchronized List<K> advance(long nowMs) {
+        if (deadlines.isEmpty()) {
+            // Nothing to cascade, jump straight to the current tick
+            root.reset(nowMs - (nowMs % tickMs));
+        }
+        while (root.currentTime + tickMs <= nowMs) {
+            // The current bucket's whole tick has elapsed, so everything in it is due
+            for (Entry<K> entry : root.drainCurrentBucket()) {
+                expire(entry);
+            }
+            root.currentTime += tickMs;
+
+            // Move every higher level whose bucket boundary was crossed, then drain
+            // top-down so cascading entries land in an already-advanced level
+            List<Level> crossed = new ArrayList<>();
+            for (Level level = root.overflow; level != null; level = level.overflow) {
+                long levelStart = root.currentTime - (root.currentTime % level.tick);
+                if (levelStart == level.currentTime) {
+                    break;
+                }
+                level.currentTime = levelStart;
+                crossed.add(level);
+            }
+            for (int i = crossed.size() - 1; i >= 0; i--) {
+                for (Entry<K> entry : crossed.get(i).drainCurrentBucket()) {
+                    insert(entry);
+                }
+            }
+        }
+        List<K> due = new ArrayList<>(expired);
+        expired.clear();
+        return due;
+    }
+
+    private void insert(Entry<K> entry) {
+        Long current = deadlines.get(entry.key);
+        if (current == null || current != entry.deadlineMs) {
+            return; // cancelled or rescheduled
+        }
+        if (!root.add(entry)) {
+            expire(entry);
+        }
+    }
+
+    private void expire(Entry<K> entry) {
+        Long current = deadlines.get(entry.key);
+        if (current != null && current == entry.deadlineMs) {
+            deadlines.remove(entry.key);
+            expired.add(entry.key);
+        }
+    }
+
+    private final class Level {
+        final long tick;
+        final long interval;
+        final List<List<Entry<K>>> buckets;
+        long currentTime;
+        Level overflow;
+
+        Level(long tick, long currentTime) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * @return false if the deadline is before the current tick, i.e. already due
+         */
+        boolean add(Entry<K> entry) {
+            if (entry.deadlineMs < currentTime) {
+                return false;
+            }
+            if (entry.deadlineMs < currentTime + interval) {
+                buckets.get(bucketIndex(entry.deadlineMs)).add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime - (currentTime % interval));
+            }
+            return overflow.add(entry);
+        }
+
+        List<Entry<K>> drainCurrentBucket() {
+            int index = bucketIndex(currentTime);
+            List<Entry<K>> bucket = buckets.get(index);
+            if (bucket.isEmpty()) {
+                return List.of();
+            }
+            buckets.set(index, new ArrayList<>());
+            return bucket;
+        }
+
+        void reset(long time) {
+            for (Level level = this; level != null; level = level.overflow) {
+                level.currentTime = time - (time % level.tick);
+            }
+        }
+
+        private int bucketIndex(long timeMs) {
+            return (int) ((timeMs / tick) % wheelSize);
+        }
+    }
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadlineMs;
+
+        Entry(K key, long deadlineMs) {
+            this.key = key;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+}
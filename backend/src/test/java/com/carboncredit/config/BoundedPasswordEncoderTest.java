@@ -0,0 +1,112 @@
+package com.carboncredit.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.carboncredit.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    // Delegate whose hashing blocks until released
+    private static PasswordEncoder blocking(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+    }
+
+    @Test
+    void encodesAndMatchesOnThePool() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, Duration.ofSeconds(5), registry);
+
+        String hash = encoder.encode("secret123");
+
+        assertTrue(encoder.matches("secret123", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(3, registry.get("password.hashing").timer().count());
+        assertNotNull(registry.get("executor.queued").tag("name", "passwordHashing").gauge());
+    }
+
+    @Test
+    void fullQueue_rejectsImmediately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(blocking(started, release), 1, 1, Duration.ofSeconds(5), registry);
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "b"));
+        while (encoder.getQueueDepth() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> encoder.matches("c", "c"));
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("password.hashing.rejected").tag("reason", "full").counter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitingLongerThanMaxWait_givesUp() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(blocking(started, release), 1, 4, Duration.ofMillis(100), registry);
+
+        assertThrows(ServiceBusyException.class, () -> encoder.matches("a", "a"));
+        assertEquals(1.0, registry.get("password.hashing.rejected").tag("reason", "timeout").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void hashesBelowConfiguredStrength_needUpgrade() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(6), 1, 4, Duration.ofSeconds(5), registry);
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret123")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret123")));
+        assertFalse(encoder.upgradeEncoding("plain-text"));
+    }
+
+    @Test
+    void calibrateStrength_staysWithinBounds() {
+        assertEquals(4, BoundedPasswordEncoder.calibrateStrength(4, 4, Duration.ofSeconds(10)));
+        assertEquals(4, BoundedPasswordEncoder.calibrateStrength(4, 8, Duration.ZERO));
+        assertEquals(6, BoundedPasswordEncoder.calibrateStrength(4, 6, Duration.ofSeconds(10)));
+    }
+}
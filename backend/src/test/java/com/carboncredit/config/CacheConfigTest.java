@@ -0,0 +1,87 @@
+package com.carboncredit.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.carboncredit.config.CacheConfig.CacheProperties;
+import com.carboncredit.config.CacheConfig.CacheSpec;
+import com.carboncredit.config.CacheConfig.Expiry;
+import com.carboncredit.service.CacheInvalidationBus;
+import com.carboncredit.service.LoopbackInvalidationTransport;
+
+class CacheConfigTest {
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.getDefaults().setMaxSize(50);
+        CacheSpec users = new CacheSpec();
+        users.setMaxSize(10);
+        users.setTtl(Duration.ofMinutes(5));
+        users.setExpiry(Expiry.AFTER_ACCESS);
+        properties.getSpecs().put(CacheConfig.USERS, users);
+        cacheManager = new CacheConfig().cacheManager(properties,
+                new CacheInvalidationBus(new LoopbackInvalidationTransport()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(Cache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+    }
+
+    @Test
+    void configuredCache_isBoundedAndRecordsStats() {
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        for (int i = 0; i < 1000; i++) {
+            users.put("user" + i, i);
+        }
+        users.get("user999");
+        users.get("missing");
+
+        var caffeine = nativeCache(users);
+        caffeine.cleanUp();
+        assertTrue(caffeine.estimatedSize() <= 10);
+        assertTrue(caffeine.stats().evictionCount() >= 990);
+        assertEquals(1, caffeine.stats().missCount());
+        assertEquals(Duration.ofMinutes(5),
+                caffeine.policy().expireAfterAccess().orElseThrow().getExpiresAfter());
+        assertTrue(caffeine.policy().expireAfterWrite().isEmpty());
+    }
+
+    @Test
+    void unconfiguredCache_getsBoundedDefaults() {
+        Cache other = cacheManager.getCache("somethingNew");
+
+        var caffeine = nativeCache(other);
+        assertEquals(50, caffeine.policy().eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofMinutes(10),
+                caffeine.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+    }
+
+    @Test
+    void writesInsideTransaction_applyAfterCommit() {
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        users.put("alice", "old");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            users.evict("alice");
+            assertEquals("old", users.get("alice").get());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertNull(users.get("alice"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.carboncredit.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.carboncredit.config.CacheConfig.CacheProperties;
+import com.carboncredit.entity.User;
+import com.carboncredit.service.CacheInvalidationBus;
+import com.carboncredit.service.JwtService;
+import com.carboncredit.service.LoopbackInvalidationTransport;
+import com.carboncredit.service.UserService;
+
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private UserService userService;
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", "test-secret-key-that-is-long-enough-for-hmac-sha256");
+        ReflectionTestUtils.setField(service, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        jwtService = spy(service);
+        filter = new JwtAuthenticationFilter(jwtService, userService, new CacheConfig().cacheManager(
+                new CacheProperties(), new CacheInvalidationBus(new LoopbackInvalidationTransport())));
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("cva1");
+        user.setRole(User.UserRole.CVA);
+        user.setTokenVersion(3L);
+        when(userService.findTokenVersion(user.getId())).thenReturn(3L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void validToken_authenticatesFromEmbeddedRoles() throws Exception {
+        Authentication authentication = authenticate(jwtService.generateToken(user));
+
+        assertNotNull(authentication);
+        assertEquals("cva1", authentication.getName());
+        assertEquals("ROLE_CVA", authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).findFirst().orElseThrow());
+        verify(userService, never()).findCredentialsByUsername(any());
+    }
+
+    @Test
+    void repeatedToken_isParsedOnce() throws Exception {
+        String token = jwtService.generateToken(user);
+
+        assertNotNull(authenticate(token));
+        assertNotNull(authenticate(token));
+
+        verify(jwtService, times(1)).verify(token);
+        verify(userService, times(2)).findTokenVersion(user.getId());
+    }
+
+    @Test
+    void revokedToken_isRejected() throws Exception {
+        String token = jwtService.generateToken(user);
+        assertNotNull(authenticate(token));
+
+        when(userService.findTokenVersion(user.getId())).thenReturn(4L);
+
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void deletedUser_isRejected() throws Exception {
+        when(userService.findTokenVersion(user.getId())).thenReturn(null);
+
+        assertNull(authenticate(jwtService.generateToken(user)));
+    }
+
+    @Test
+    void tamperedOrClaimlessToken_isRejected() throws Exception {
+        String token = jwtService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(authenticate(tampered));
+        assertNull(authenticate(jwtService.generateToken((org.springframework.security.core.userdetails.UserDetails) user)));
+    }
+}
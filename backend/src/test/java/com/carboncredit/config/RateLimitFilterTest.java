@@ -0,0 +1,172 @@
+package com.carboncredit.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.carboncredit.service.SettingsSnapshot;
+import com.carboncredit.service.SystemSettingService;
+import com.carboncredit.util.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class RateLimitFilterTest {
+
+    @Mock
+    private SystemSettingService systemSettingService;
+
+    @Mock
+    private SettingsSnapshot settings;
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private RateLimiter limiter;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(systemSettingService.getSnapshot()).thenReturn(settings);
+        when(settings.getBoolean(anyString())).thenReturn(null); // setting absent
+        limiter = new RateLimiter(nanos::get);
+        filter = new RateLimitFilter(systemSettingService, new ObjectMapper(), limiter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void setting(String key, String value) {
+        when(settings.contains(key)).thenReturn(true);
+        when(settings.getDouble(key)).thenReturn(Double.valueOf(value));
+    }
+
+    private MockHttpServletResponse request(String path, String ip, String user) throws Exception {
+        SecurityContextHolder.clearContext();
+        if (user != null) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void searchRoute_allowsLimitThenReturns429WithRetryAfter() throws Exception {
+        setting(RateLimitFilter.RATE_LIMIT_LISTING_SEARCH, "3");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, request("/api/listings/search", "10.0.0.1", null).getStatus());
+        }
+        MockHttpServletResponse limited = request("/api/listings/search", "10.0.0.1", null);
+
+        assertEquals(429, limited.getStatus());
+        assertEquals("20", limited.getHeader("Retry-After"));
+        assertEquals("3", limited.getHeader("X-RateLimit-Limit"));
+        assertTrue(limited.getContentAsString().contains("Too many requests"));
+
+        // Other clients and routes are unaffected
+        assertEquals(200, request("/api/listings/search", "10.0.0.2", null).getStatus());
+        assertEquals(200, request("/api/listings", "10.0.0.1", null).getStatus());
+
+        // One token is back after a third of the minute
+        nanos.addAndGet(20_000_000_000L);
+        assertEquals(200, request("/api/listings/search", "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    void usersAreLimitedSeparatelyFromTheirSharedIp() throws Exception {
+        setting(RateLimitFilter.RATE_LIMIT_PER_USER, "2");
+
+        assertEquals(200, request("/api/wallets/my-wallet", "10.0.0.1", "alice").getStatus());
+        assertEquals(200, request("/api/wallets/my-wallet", "10.0.0.1", "alice").getStatus());
+        assertEquals(429, request("/api/wallets/my-wallet", "10.0.0.1", "alice").getStatus());
+
+        assertEquals(200, request("/api/wallets/my-wallet", "10.0.0.1", "bob").getStatus());
+    }
+
+    @Test
+    void ipLimitAppliesToAnonymousAndAuthenticatedRequests() throws Exception {
+        setting(RateLimitFilter.RATE_LIMIT_PER_IP, "2");
+
+        assertEquals(200, request("/api/listings", "10.0.0.1", null).getStatus());
+        assertEquals(200, request("/api/listings", "10.0.0.1", "alice").getStatus());
+        assertEquals(429, request("/api/listings", "10.0.0.1", "bob").getStatus());
+    }
+
+    @Test
+    void rejectedRequest_givesBackTokensOfTheOtherLimits() throws Exception {
+        setting(RateLimitFilter.RATE_LIMIT_PER_USER, "2");
+        setting(RateLimitFilter.RATE_LIMIT_PER_IP, "1");
+
+        assertEquals(200, request("/api/listings", "10.0.0.1", "alice").getStatus());
+        // Turned away by the IP limit, so it must not count against alice
+        assertEquals(429, request("/api/listings", "10.0.0.1", "alice").getStatus());
+        assertEquals(200, request("/api/listings", "10.0.0.2", "alice").getStatus());
+        assertEquals(429, request("/api/listings", "10.0.0.3", "alice").getStatus());
+    }
+
+    @Test
+    void zeroLimitOrDisabledFlag_letsEverythingThrough() throws Exception {
+        setting(RateLimitFilter.RATE_LIMIT_LOGIN, "0");
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, request("/api/users/login", "10.0.0.1", null).getStatus());
+        }
+
+        setting(RateLimitFilter.RATE_LIMIT_PER_IP, "1");
+        when(settings.getBoolean(RateLimitFilter.RATE_LIMIT_ENABLED)).thenReturn(false);
+        assertEquals(200, request("/api/listings", "10.0.0.1", null).getStatus());
+        assertEquals(200, request("/api/listings", "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    void idleBuckets_areEvictedOnceRefilled() throws Exception {
+        request("/api/listings/search", "10.0.0.1", "alice");
+        request("/api/listings", "10.0.0.2", null);
+        assertEquals(4, limiter.size());
+
+        filter.evictIdleBuckets();
+        assertEquals(4, limiter.size());
+
+        nanos.addAndGet(2_000_000_000L);
+        filter.evictIdleBuckets();
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void concurrentAcquires_neverExceedTheLimit() throws Exception {
+        int threads = 8;
+        AtomicLong granted = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("shared", 500, java.time.Duration.ofMinutes(1)) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(500, granted.get());
+    }
+}
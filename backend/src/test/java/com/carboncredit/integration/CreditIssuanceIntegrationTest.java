@@ -0,0 +1,174 @@
+package com.carboncredit.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.CreditIssuanceResultDTO;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.User;
+import com.carboncredit.repository.CarbonCreditRepository;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.UserRepository;
+import com.carboncredit.service.CarbonCreditService;
+import com.carboncredit.service.CreditIssuanceService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Issues credits in chunks of three on two threads. Chunks commit on their
+ * own, so the test data is committed rather than rolled back.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CreditIssuanceIntegrationTest {
+
+    @Autowired
+    private JourneyDataRepository journeyDataRepository;
+
+    @Autowired
+    private CarbonCreditRepository carbonCreditRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarbonCreditService carbonCreditService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CreditIssuanceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService();
+    }
+
+    private CreditIssuanceService newService() {
+        return new CreditIssuanceService(journeyDataRepository, carbonCreditService, jdbcTemplate,
+                transactionTemplate, new SimpleMeterRegistry(), 3, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    private User saveUser() {
+        User user = new User();
+        String name = "issuance_" + UUID.randomUUID().toString().substring(0, 8);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setFullName("Issuance Test User");
+        user.setPasswordHash("hashed_password123");
+        user.setRole(User.UserRole.EV_OWNER);
+        return userRepository.save(user);
+    }
+
+    private JourneyData saveJourney(User user, String co2ReducedKg) {
+        JourneyData journey = new JourneyData();
+        journey.setUser(user);
+        journey.setDistanceKm(new BigDecimal("100"));
+        journey.setEnergyConsumedKwh(new BigDecimal("18"));
+        journey.setCo2ReducedKg(new BigDecimal(co2ReducedKg));
+        journey.setStartTime(LocalDateTime.now().minusHours(2));
+        journey.setEndTime(LocalDateTime.now().minusHours(1));
+        return journeyDataRepository.save(journey);
+    }
+
+    private int count(String sql, UUID userId) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, userId);
+    }
+
+    @Test
+    void issuesOneCreditPerEligibleJourney() {
+        User owner = saveUser();
+        for (int i = 0; i < 8; i++) {
+            saveJourney(owner, "60.00");
+        }
+        saveJourney(owner, "0.00");
+        JourneyData credited = saveJourney(owner, "60.00");
+        CarbonCredit existing = new CarbonCredit();
+        existing.setUser(owner);
+        existing.setJourney(credited);
+        existing.setCo2ReducedKg(credited.getCo2ReducedKg());
+        existing.setCreditAmount(new BigDecimal("0.09"));
+        existing.setStatus(CarbonCredit.CreditStatus.VERIFIED);
+        carbonCreditRepository.save(existing);
+        saveJourney(saveUser(), "60.00");
+
+        CreditIssuanceResultDTO result = service.issuePendingCredits(owner);
+
+        assertEquals(8, result.getEligibleJourneys());
+        assertEquals(8, result.getCreditsIssued());
+        assertEquals(0, result.getFailedJourneys());
+        assertEquals(0, result.getSkippedJourneys());
+        // 60 kg / 1000 with the 1.5 long trip bonus at the 0.7 pending rate, 0.063 stored as 0.06
+        assertEquals(0, new BigDecimal("0.48").compareTo(result.getCreditAmount()));
+        assertEquals(0, new BigDecimal("0.48").compareTo(jdbcTemplate.queryForObject(
+                "SELECT SUM(credit_amount) FROM carbon_credits WHERE user_id = ? AND status = 'PENDING'",
+                BigDecimal.class, owner.getId())));
+        assertEquals(9, count("SELECT COUNT(*) FROM carbon_credits WHERE user_id = ?", owner.getId()));
+        assertEquals(8, count("SELECT COUNT(*) FROM carbon_credits WHERE user_id = ? AND status = 'PENDING'",
+                owner.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM (SELECT journey_id FROM carbon_credits WHERE user_id = ? "
+                + "GROUP BY journey_id HAVING COUNT(*) > 1) d", owner.getId()));
+        assertEquals(8, count("SELECT COUNT(*) FROM audit_logs a JOIN carbon_credits c ON a.credit_id = c.credit_id "
+                + "WHERE c.user_id = ? AND a.action = 'SUBMITTED'", owner.getId()));
+
+        CreditIssuanceResultDTO again = service.issuePendingCredits(owner);
+        assertEquals(0, again.getEligibleJourneys());
+        assertEquals(List.of(), journeyDataRepository.findEligibleForCredits(owner.getId(), new UUID(0, 0),
+                PageRequest.ofSize(10)));
+    }
+
+    @Test
+    void overlappingRunsCreditEachJourneyOnce() throws Exception {
+        User owner = saveUser();
+        for (int i = 0; i < 30; i++) {
+            saveJourney(owner, "60.00");
+        }
+        // A second node issuing for the same user at the same time
+        CreditIssuanceService other = newService();
+        ExecutorService runs = Executors.newFixedThreadPool(2);
+        try {
+            Future<CreditIssuanceResultDTO> first = runs.submit(() -> service.issuePendingCredits(owner));
+            Future<CreditIssuanceResultDTO> second = runs.submit(() -> other.issuePendingCredits(owner));
+            CreditIssuanceResultDTO a = first.get(30, TimeUnit.SECONDS);
+            CreditIssuanceResultDTO b = second.get(30, TimeUnit.SECONDS);
+
+            assertEquals(0, a.getFailedJourneys() + b.getFailedJourneys());
+            assertEquals(30, a.getCreditsIssued() + b.getCreditsIssued());
+            assertEquals(a.getEligibleJourneys() + b.getEligibleJourneys() - 30,
+                    a.getSkippedJourneys() + b.getSkippedJourneys());
+        } finally {
+            runs.shutdown();
+            other.stop();
+        }
+        assertEquals(30, count("SELECT COUNT(*) FROM carbon_credits WHERE user_id = ?", owner.getId()));
+        assertEquals(30, count("SELECT COUNT(*) FROM audit_logs a JOIN carbon_credits c ON a.credit_id = c.credit_id "
+                + "WHERE c.user_id = ?", owner.getId()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.carboncredit.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.carboncredit.dto.JourneyStatistics;
+import com.carboncredit.dto.JourneyStatisticsWithCredits;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.User;
+import com.carboncredit.entity.Vehicle;
+import com.carboncredit.repository.CarbonCreditRepository;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.UserRepository;
+import com.carboncredit.repository.VehicleRepository;
+import com.carboncredit.service.JourneyDataService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class JourneyStatisticsIntegrationTest {
+
+    @Autowired
+    private JourneyDataService journeyDataService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private JourneyDataRepository journeyDataRepository;
+
+    @Autowired
+    private CarbonCreditRepository carbonCreditRepository;
+
+    private User owner;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("stats_owner");
+        vehicle = new Vehicle();
+        vehicle.setUser(owner);
+        vehicle.setVin(UUID.randomUUID().toString().substring(0, 17));
+        vehicle = vehicleRepository.save(vehicle);
+    }
+
+    private User saveUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setFullName("Statistics Test User");
+        user.setPasswordHash("hashed_password123");
+        user.setRole(User.UserRole.EV_OWNER);
+        return userRepository.save(user);
+    }
+
+    private JourneyData saveJourney(User user, String distanceKm, String energyKwh, String creditAmount) {
+        JourneyData journey = new JourneyData();
+        journey.setUser(user);
+        journey.setVehicle(vehicle);
+        journey.setDistanceKm(new BigDecimal(distanceKm));
+        journey.setEnergyConsumedKwh(new BigDecimal(energyKwh));
+        journey.setCo2ReducedKg(new BigDecimal(distanceKm).multiply(new BigDecimal("0.1")));
+        journey.setStartTime(LocalDateTime.now().minusHours(2));
+        journey.setEndTime(LocalDateTime.now().minusHours(1));
+        journey = journeyDataRepository.save(journey);
+        if (creditAmount != null) {
+            CarbonCredit credit = new CarbonCredit();
+            credit.setUser(user);
+            credit.setJourney(journey);
+            credit.setCo2ReducedKg(journey.getCo2ReducedKg());
+            credit.setCreditAmount(new BigDecimal(creditAmount));
+            credit.setStatus(CarbonCredit.CreditStatus.PENDING);
+            carbonCreditRepository.save(credit);
+        }
+        return journey;
+    }
+
+    @Test
+    void statistics_areAggregatedPerUser() {
+        saveJourney(owner, "100.00", "18.00", "12.00");
+        saveJourney(owner, "33.33", "5.55", null);   // 6.9993 - 2.775 = 4.2243 -> 4.22
+        saveJourney(owner, "10.00", "20.00", null);  // net increase, no potential credit
+        saveJourney(saveUser("stats_other"), "500.00", "50.00", "80.00");
+
+        JourneyStatistics stats = journeyDataService.getJourneyStatistics(owner);
+        assertEquals(3, stats.getTotalJourneys());
+        assertEquals(0, new BigDecimal("143.33").compareTo(stats.getTotalDistanceKm()));
+        assertEquals(0, new BigDecimal("43.55").compareTo(stats.getTotalEnergyConsumedKwh()));
+        assertEquals(0, new BigDecimal("47.78").compareTo(stats.getAverageDistanceKm()));
+        assertEquals(0, new BigDecimal("14.33").compareTo(stats.getTotalCo2ReducedKg()));
+
+        JourneyStatisticsWithCredits detailed = journeyDataService.getDetailedJourneyStatistics(owner);
+        assertEquals(3, detailed.getTotalJourneys());
+        assertEquals(1, detailed.getJourneysWithCredits());
+        assertEquals(2, detailed.getJourneyWithoutCredits());
+        assertEquals(0, new BigDecimal("12.00").compareTo(detailed.getTotalCreditAmount()));
+        assertEquals(0, new BigDecimal("4.22").compareTo(detailed.getPotentialCreditAmount()));
+    }
+
+    @Test
+    void statistics_ofUserWithoutJourneys_areZero() {
+        JourneyStatisticsWithCredits detailed = journeyDataService.getDetailedJourneyStatistics(owner);
+
+        assertEquals(0, detailed.getTotalJourneys());
+        assertEquals(0, detailed.getJourneyWithoutCredits());
+        assertEquals(0, BigDecimal.ZERO.compareTo(detailed.getTotalDistanceKm()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(detailed.getAverageDistanceKm()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(detailed.getTotalCreditAmount()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(detailed.getPotentialCreditAmount()));
+    }
+}
@@ -0,0 +1,184 @@
+package com.carboncredit.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.UserRepository;
+import com.carboncredit.service.CVAService;
+import com.carboncredit.service.VerificationQueueService;
+
+/**
+ * Several CVAs draining the verification queue. Leases commit, so the test
+ * journeys are dated before any other test data to sit at the head of the
+ * queue, and are taken out of it afterwards.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VerificationQueueIntegrationTest {
+
+    @Autowired
+    private VerificationQueueService verificationQueueService;
+
+    @Autowired
+    private CVAService cvaService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JourneyDataRepository journeyDataRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> journeyIds = new ArrayList<>();
+    private User cvaA;
+    private User cvaB;
+
+    @BeforeEach
+    void setUp() {
+        cvaA = saveUser(User.UserRole.CVA);
+        cvaB = saveUser(User.UserRole.CVA);
+        User owner = saveUser(User.UserRole.EV_OWNER);
+        for (int i = 0; i < 6; i++) {
+            JourneyData journey = new JourneyData();
+            journey.setUser(owner);
+            journey.setDistanceKm(new BigDecimal("50"));
+            journey.setEnergyConsumedKwh(new BigDecimal("9"));
+            journey.setCo2ReducedKg(new BigDecimal("6"));
+            journey = journeyDataRepository.save(journey);
+            jdbcTemplate.update("UPDATE journey_data SET created_at = ? WHERE journey_id = ?",
+                    Timestamp.valueOf(LocalDateTime.of(2000, 1, 1, 0, i)), journey.getId());
+            journeyIds.add(journey.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (UUID journeyId : journeyIds) {
+            jdbcTemplate.update("UPDATE journey_data SET verification_status = 'REJECTED', leased_by_id = NULL, "
+                    + "lease_expires_at = NULL WHERE journey_id = ?", journeyId);
+        }
+    }
+
+    private User saveUser(User.UserRole role) {
+        User user = new User();
+        String name = "queue_" + UUID.randomUUID().toString().substring(0, 8);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setFullName("Queue Test User");
+        user.setPasswordHash("hashed_password123");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private static List<UUID> ids(List<JourneyData> journeys) {
+        return journeys.stream().map(JourneyData::getId).toList();
+    }
+
+    @Test
+    void lease_handsOutTheOldestJourneysToOneCvaEach() {
+        List<JourneyData> leasedByA = verificationQueueService.lease(cvaA, 2);
+        List<JourneyData> leasedByB = verificationQueueService.lease(cvaB, 2);
+
+        assertEquals(journeyIds.subList(0, 2), ids(leasedByA));
+        assertEquals(journeyIds.subList(2, 4), ids(leasedByB));
+
+        // Leasing again renews what A holds and tops it up
+        assertEquals(journeyIds.subList(0, 2), ids(verificationQueueService.lease(cvaA, 2)));
+        assertEquals(List.of(journeyIds.get(0), journeyIds.get(1), journeyIds.get(4)),
+                ids(verificationQueueService.lease(cvaA, 3)));
+        assertEquals(journeyIds.subList(2, 4), ids(verificationQueueService.heartbeat(cvaB)));
+    }
+
+    @Test
+    void lease_countsNewerJourneysTheCvaHoldsBeforeOlderFreeOnes() {
+        List<UUID> older = ids(verificationQueueService.lease(cvaB, 4));
+        assertEquals(journeyIds.subList(4, 6), ids(verificationQueueService.lease(cvaA, 2)));
+        verificationQueueService.release(cvaB, older);
+
+        // The free journeys are older, but A already holds two
+        assertEquals(journeyIds.subList(4, 6), ids(verificationQueueService.lease(cvaA, 2)));
+        assertEquals(List.of(journeyIds.get(4), journeyIds.get(5), journeyIds.get(0)),
+                ids(verificationQueueService.lease(cvaA, 3)));
+        assertEquals(3, verificationQueueService.heartbeat(cvaA).size());
+    }
+
+    @Test
+    void concurrentLeases_skipRowsBeingLeased() throws Exception {
+        CountDownLatch aLocked = new CountDownLatch(1);
+        CountDownLatch bDone = new CountDownLatch(1);
+        CompletableFuture<List<UUID>> leaseA = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            List<UUID> leased = ids(verificationQueueService.lease(cvaA, 3));
+            aLocked.countDown();
+            try {
+                // Hold the row locks until B has leased
+                bDone.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return leased;
+        }));
+        assertTrue(aLocked.await(10, TimeUnit.SECONDS));
+
+        List<UUID> leasedByB;
+        try {
+            leasedByB = CompletableFuture.supplyAsync(() -> ids(verificationQueueService.lease(cvaB, 3)))
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            bDone.countDown();
+        }
+        List<UUID> leasedByA = leaseA.get(10, TimeUnit.SECONDS);
+
+        assertEquals(journeyIds.subList(0, 3), leasedByA);
+        assertTrue(Collections.disjoint(leasedByA, leasedByB));
+        // H2 applies the limit before skipping locked rows and Postgres after, so B may have come back empty
+        // here; once A has committed, B holds the rest either way
+        assertEquals(journeyIds.subList(3, 6), ids(verificationQueueService.lease(cvaB, 3)));
+    }
+
+    @Test
+    void leasedJourney_canOnlyBeDecidedByItsHolderUntilTheLeaseExpires() {
+        UUID journeyId = ids(verificationQueueService.lease(cvaA, 1)).get(0);
+
+        assertThrows(BusinessOperationException.class,
+                () -> cvaService.rejectJourneyByCVA(journeyId, cvaB, "Duplicate"));
+
+        jdbcTemplate.update("UPDATE journey_data SET lease_expires_at = ? WHERE journey_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), journeyId);
+        assertTrue(verificationQueueService.heartbeat(cvaA).isEmpty());
+        assertEquals(List.of(journeyId), ids(verificationQueueService.lease(cvaB, 1)));
+
+        assertEquals(1, verificationQueueService.release(cvaB, List.of(journeyId)));
+        JourneyData rejected = cvaService.rejectJourneyByCVA(journeyId, cvaA, "Duplicate");
+        assertEquals(JourneyData.VerificationStatus.REJECTED, rejected.getVerificationStatus());
+        assertNull(jdbcTemplate.queryForObject("SELECT leased_by_id FROM journey_data WHERE journey_id = ?",
+                UUID.class, journeyId));
+    }
+}
@@ -0,0 +1,163 @@
+package com.carboncredit.integration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.entity.User;
+import com.carboncredit.repository.UserRepository;
+import com.carboncredit.service.LedgerService;
+import com.carboncredit.service.WalletPostingService.BalanceChange;
+import com.carboncredit.service.WalletService;
+
+/**
+ * Hammers the atomic wallet updates from many threads against the H2 test
+ * database: every transfer must be applied exactly once and no balance may
+ * go negative.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class WalletConcurrencyIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int TRANSFERS = 500;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UUID createFundedUser(String cash, String credits) {
+        User user = new User();
+        String name = "stress_" + UUID.randomUUID().toString().substring(0, 8);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setFullName("Stress Test User");
+        user.setPasswordHash("hashed_password");
+        user.setRole(User.UserRole.BUYER);
+        user = userRepository.save(user);
+        walletService.createWalletForUser(user);
+        walletService.updateCashBalance(user.getId(), new BigDecimal(cash));
+        walletService.updateCreditBalance(user.getId(), new BigDecimal(credits));
+        return user.getId();
+    }
+
+    private static <T> void runConcurrently(int tasks, java.util.function.IntFunction<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.apply(n);
+                }));
+            }
+            start.countDown();
+            for (Future<T> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentTransfers_noLostUpdatesAndNoDeadlocks() throws Exception {
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            users.add(createFundedUser("1000.00", "1000.00"));
+        }
+        Map<UUID, BigDecimal> expectedCash = new ConcurrentHashMap<>();
+        Map<UUID, BigDecimal> expectedCredit = new ConcurrentHashMap<>();
+        users.forEach(id -> {
+            expectedCash.put(id, new BigDecimal("1000.00"));
+            expectedCredit.put(id, new BigDecimal("1000.00"));
+        });
+
+        // Random pairs in both directions, so opposite transfers between the same users overlap
+        runConcurrently(TRANSFERS, n -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            UUID buyer = users.get(random.nextInt(users.size()));
+            UUID seller = users.get(random.nextInt(users.size()));
+            while (seller.equals(buyer)) {
+                seller = users.get(random.nextInt(users.size()));
+            }
+            BigDecimal cash = BigDecimal.valueOf(random.nextInt(100, 500), 2);
+            BigDecimal credits = BigDecimal.valueOf(random.nextInt(1, 5));
+
+            Map<UUID, BalanceChange> changes = new HashMap<>();
+            changes.put(buyer, new BalanceChange().addCash(cash.negate()).addCredit(credits));
+            changes.put(seller, new BalanceChange().addCash(cash).addCredit(credits.negate()));
+            transactionTemplate.executeWithoutResult(status -> walletService.applyBalanceChanges(changes));
+
+            expectedCash.merge(buyer, cash.negate(), BigDecimal::add);
+            expectedCash.merge(seller, cash, BigDecimal::add);
+            expectedCredit.merge(buyer, credits, BigDecimal::add);
+            expectedCredit.merge(seller, credits.negate(), BigDecimal::add);
+            return null;
+        });
+
+        BigDecimal totalCash = BigDecimal.ZERO;
+        for (UUID id : users) {
+            assertEquals(0, expectedCash.get(id).compareTo(walletService.getCashBalance(id)), "cash of " + id);
+            assertEquals(0, expectedCredit.get(id).compareTo(walletService.getCreditBalance(id)), "credit of " + id);
+            totalCash = totalCash.add(walletService.getCashBalance(id));
+            // The wallet rows and the ledger agree
+            assertEquals(0, expectedCash.get(id).compareTo(ledgerService.getBalance(LedgerAccount.USER, id,
+                    Asset.CASH)), "ledger cash of " + id);
+            assertEquals(0, expectedCredit.get(id).compareTo(ledgerService.getBalance(LedgerAccount.USER, id,
+                    Asset.CREDIT)), "ledger credit of " + id);
+        }
+        assertEquals(0, new BigDecimal("8000.00").compareTo(totalCash));
+    }
+
+    @Test
+    void concurrentWithdrawals_neverOverdraw() throws Exception {
+        UUID user = createFundedUser("300.00", "0");
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(TRANSFERS, n -> {
+            try {
+                walletService.updateCashBalance(user, new BigDecimal("-1.00"));
+                succeeded.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(300, succeeded.get());
+        assertEquals(TRANSFERS - 300, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getCashBalance(user)));
+    }
+}
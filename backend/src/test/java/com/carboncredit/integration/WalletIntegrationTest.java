@@ -11,8 +11,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.carboncredit.entity.Payment;
 import com.carboncredit.entity.User;
 import com.carboncredit.entity.Wallet;
+import com.carboncredit.repository.PaymentRepository;
 import com.carboncredit.repository.UserRepository;
 import com.carboncredit.repository.WalletRepository;
 import com.carboncredit.service.BankingService;
@@ -38,6 +40,9 @@ class WalletIntegrationTest {
     
     @Autowired
     private WalletRepository walletRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
     
     private User testUser;
     
@@ -73,7 +78,7 @@ class WalletIntegrationTest {
         Wallet updatedWallet = walletService.updateCashBalance(testUser.getId(), depositAmount);
         
         assertEquals(new BigDecimal("100.00"), updatedWallet.getCashBalance());
-        assertEquals(BigDecimal.ZERO, updatedWallet.getCreditBalance());
+        assertEquals(0, BigDecimal.ZERO.compareTo(updatedWallet.getCreditBalance()));
         
         // 4. Test credit balance updates
         BigDecimal creditAmount = new BigDecimal("50.00");
@@ -123,7 +128,7 @@ class WalletIntegrationTest {
         Wallet unchangedWallet = walletRepository.findByUserId(testUser.getId()).orElse(null);
         assertNotNull(unchangedWallet);
         assertEquals(new BigDecimal("50.00"), unchangedWallet.getCashBalance());
-        assertEquals(BigDecimal.ZERO, unchangedWallet.getCreditBalance());
+        assertEquals(0, BigDecimal.ZERO.compareTo(unchangedWallet.getCreditBalance()));
     }
     
     @Test
@@ -202,4 +207,21 @@ class WalletIntegrationTest {
         assertEquals(new BigDecimal("75.00"), finalWallet.getCreditBalance());
         assertNotNull(finalWallet.getUpdatedAt());
     }
-}
\ No newline at end of file
+
+    @Test
+    void settlePending_settlesAPaymentOnlyOnce() {
+        Payment payment = new Payment();
+        payment.setPayer(testUser);
+        payment.setAmount(new BigDecimal("20.00"));
+        payment.setPaymentMethod(Payment.PaymentMethod.MOMO);
+        payment.setPaymentStatus(Payment.PaymentStatus.PENDING);
+        payment.setPaymentReference("DEP_1");
+        payment = paymentRepository.save(payment);
+
+        assertEquals(1, paymentRepository.settlePending(payment.getId(), Payment.PaymentStatus.COMPLETED, "MOMO_1"));
+        // A second callback for the same payment, whatever its result code
+        assertEquals(0, paymentRepository.settlePending(payment.getId(), Payment.PaymentStatus.COMPLETED, "MOMO_1"));
+        assertEquals(0, paymentRepository.settlePending(payment.getId(), Payment.PaymentStatus.FAILED, "DEP_1"));
+        assertTrue(paymentRepository.findByPaymentReference("MOMO_1").isPresent());
+    }
+}
@@ -0,0 +1,254 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.BidDTO;
+import com.carboncredit.entity.Bid;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.InsufficientBalanceException;
+import com.carboncredit.repository.BidRepository;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.UserRepository;
+
+class AuctionBiddingServiceTest {
+
+    @Mock private CreditListingRepository creditListingRepository;
+    @Mock private BidRepository bidRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private WalletService walletService;
+
+    private AuctionBiddingService biddingService;
+    private CreditListing auction;
+    private User seller;
+
+    // Net cash held per user, maintained by the mocked wallet
+    private final ConcurrentHashMap<UUID, BigDecimal> reserved = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        biddingService = new AuctionBiddingService(creditListingRepository, bidRepository, userRepository,
+                walletService, new ValidationService(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        seller = user(User.UserRole.EV_OWNER);
+        CarbonCredit credit = new CarbonCredit();
+        credit.setUser(seller);
+
+        auction = CreditListing.builder()
+                .id(UUID.randomUUID())
+                .credit(credit)
+                .listingType(CreditListing.ListingType.AUCTION)
+                .status(CreditListing.ListingStatus.ACTIVE)
+                .minBid(new BigDecimal("10.00"))
+                .auctionEndTime(LocalDateTime.now().plusHours(1))
+                .build();
+
+        when(creditListingRepository.findByIdWithSeller(auction.getId())).thenReturn(Optional.of(auction));
+        when(bidRepository.findHighestBid(any())).thenReturn(Optional.empty());
+        doAnswer(i -> {
+            reserved.merge(i.getArgument(0), i.getArgument(1), BigDecimal::add);
+            return null;
+        }).when(walletService).reserveCash(any(), any());
+        doAnswer(i -> {
+            reserved.merge(i.getArgument(0), ((BigDecimal) i.getArgument(1)).negate(), BigDecimal::add);
+            return null;
+        }).when(walletService).releaseCash(any(), any());
+    }
+
+    private User user(User.UserRole role) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("user-" + user.getId());
+        user.setRole(role);
+        return user;
+    }
+
+    @Test
+    void placeBid_higherBidTakesLeadAndReleasesPreviousLeader() {
+        User first = user(User.UserRole.BUYER);
+        User second = user(User.UserRole.BUYER);
+
+        biddingService.placeBid(auction.getId(), first, new BigDecimal("12.00"));
+        BidDTO leading = biddingService.placeBid(auction.getId(), second, new BigDecimal("15.00"));
+
+        assertEquals(second.getId(), leading.getBidderId());
+        assertEquals(second.getId(), biddingService.getBestBid(auction.getId()).orElseThrow().getBidderId());
+        assertEquals(0, BigDecimal.ZERO.compareTo(reserved.get(first.getId())));
+        assertEquals(0, new BigDecimal("15.00").compareTo(reserved.get(second.getId())));
+        verify(creditListingRepository, times(1)).findByIdWithSeller(auction.getId());
+    }
+
+    @Test
+    void placeBid_staleBidRejectedWithoutTouchingWallet() {
+        biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("20.00"));
+        clearInvocations(walletService);
+
+        assertThrows(BusinessOperationException.class,
+                () -> biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("20.00")));
+        verifyNoInteractions(walletService);
+    }
+
+    @Test
+    void placeBid_belowMinimumRejected() {
+        assertThrows(BusinessOperationException.class,
+                () -> biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("5.00")));
+    }
+
+    @Test
+    void placeBid_sellerCannotBid() {
+        seller.setRole(User.UserRole.ADMIN);
+        assertThrows(BusinessOperationException.class,
+                () -> biddingService.placeBid(auction.getId(), seller, new BigDecimal("50.00")));
+    }
+
+    @Test
+    void placeBid_endedAuctionRejected() {
+        auction.setAuctionEndTime(LocalDateTime.now().minusSeconds(1));
+        assertThrows(BusinessOperationException.class,
+                () -> biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("50.00")));
+    }
+
+    @Test
+    void placeBid_insufficientCashKeepsCurrentLeader() {
+        User leader = user(User.UserRole.BUYER);
+        User broke = user(User.UserRole.BUYER);
+        biddingService.placeBid(auction.getId(), leader, new BigDecimal("12.00"));
+        doThrow(new InsufficientBalanceException("no cash")).when(walletService).reserveCash(eq(broke.getId()), any());
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> biddingService.placeBid(auction.getId(), broke, new BigDecimal("30.00")));
+        assertEquals(leader.getId(), biddingService.getBestBid(auction.getId()).orElseThrow().getBidderId());
+    }
+
+    @Test
+    void placeBid_concurrentBiddersLeaveOnlyHighestReserved() throws Exception {
+        int bidders = 16;
+        int bidsPerBidder = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(bidders);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int b = 0; b < bidders; b++) {
+            User bidder = user(User.UserRole.BUYER);
+            int offset = b;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < bidsPerBidder; i++) {
+                    BigDecimal amount = new BigDecimal(10 + i * bidders + offset).setScale(2);
+                    try {
+                        biddingService.placeBid(auction.getId(), bidder, amount);
+                    } catch (BusinessOperationException stale) {
+                        // outbid by a concurrent bidder
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        BigDecimal highest = new BigDecimal(10 + (bidsPerBidder - 1) * bidders + (bidders - 1)).setScale(2);
+        BidDTO best = biddingService.getBestBid(auction.getId()).orElseThrow();
+        assertEquals(0, highest.compareTo(best.getAmount()));
+
+        // Only the winner still has cash held, and exactly the winning amount
+        BigDecimal totalReserved = reserved.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, highest.compareTo(totalReserved));
+        assertEquals(0, highest.compareTo(reserved.get(best.getBidderId())));
+    }
+
+    @Test
+    void placeBid_writesEachAcceptedBidWithItsHold() {
+        for (int i = 0; i < 3; i++) {
+            biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal(20 + i));
+        }
+
+        verify(bidRepository, times(3)).save(any(Bid.class));
+        verify(walletService, times(3)).reserveCash(any(), any());
+        verify(walletService, times(2)).releaseCash(any(), any());
+    }
+
+    @Test
+    void placeBid_failedWriteKeepsCurrentLeader() {
+        User leader = user(User.UserRole.BUYER);
+        biddingService.placeBid(auction.getId(), leader, new BigDecimal("12.00"));
+        when(bidRepository.save(any(Bid.class))).thenThrow(new RuntimeException("database down"));
+
+        assertThrows(RuntimeException.class,
+                () -> biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("15.00")));
+
+        BidDTO best = biddingService.getBestBid(auction.getId()).orElseThrow();
+        assertEquals(leader.getId(), best.getBidderId());
+        assertEquals(0, new BigDecimal("12.00").compareTo(best.getAmount()));
+    }
+
+    @Test
+    void onListingChanged_cancelOfUnloadedAuctionReleasesHighestStoredBid() {
+        User leader = user(User.UserRole.BUYER);
+        Bid stored = new Bid();
+        stored.setBidder(leader);
+        stored.setAmount(new BigDecimal("25.00"));
+        reserved.put(leader.getId(), new BigDecimal("25.00"));
+        when(bidRepository.findHighestBid(auction.getId())).thenReturn(Optional.of(stored));
+
+        biddingService.onListingChanged(changed(CreditListing.ListingStatus.CANCELLED));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(reserved.get(leader.getId())));
+    }
+
+    @Test
+    void onListingChanged_cancelReleasesLeaderAndDropsState() {
+        User leader = user(User.UserRole.BUYER);
+        biddingService.placeBid(auction.getId(), leader, new BigDecimal("20.00"));
+        auction.setStatus(CreditListing.ListingStatus.CANCELLED);
+
+        biddingService.onListingChanged(changed(CreditListing.ListingStatus.CANCELLED));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(reserved.get(leader.getId())));
+        assertThrows(BusinessOperationException.class,
+                () -> biddingService.placeBid(auction.getId(), user(User.UserRole.BUYER), new BigDecimal("30.00")));
+        verify(creditListingRepository, times(2)).findByIdWithSeller(auction.getId());
+    }
+
+    @Test
+    void onListingChanged_closeDropsStateAndKeepsSettledHold() {
+        User winner = user(User.UserRole.BUYER);
+        biddingService.placeBid(auction.getId(), winner, new BigDecimal("20.00"));
+        biddingService.closeAuction(auction.getId());
+        auction.setStatus(CreditListing.ListingStatus.CLOSED);
+
+        biddingService.onListingChanged(changed(CreditListing.ListingStatus.CLOSED));
+
+        assertEquals(0, new BigDecimal("20.00").compareTo(reserved.get(winner.getId())));
+        assertThrows(BusinessOperationException.class, () -> biddingService.getBestBid(auction.getId()));
+    }
+
+    private ListingChangedEvent changed(CreditListing.ListingStatus status) {
+        return new ListingChangedEvent(auction.getId(), CreditListing.ListingType.AUCTION, status, null,
+                auction.getAuctionEndTime(), 1L);
+    }
+}
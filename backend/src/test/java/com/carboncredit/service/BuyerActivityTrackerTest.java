@@ -0,0 +1,194 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.Transaction.TransactionStatus;
+import com.carboncredit.entity.User;
+import com.carboncredit.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BuyerActivityTrackerTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private LoopbackInvalidationTransport transport;
+    private BuyerActivityTracker tracker;
+
+    private final UUID buyerId = UUID.randomUUID();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        transport = new LoopbackInvalidationTransport();
+        tracker = node();
+    }
+
+    private BuyerActivityTracker node() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(transport);
+        bus.start();
+        BuyerActivityTracker node = new BuyerActivityTracker(transactionRepository, bus,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), 100,
+                Duration.ofHours(1));
+        node.subscribeToRemoteChanges();
+        return node;
+    }
+
+    private Transaction transaction(String amount, LocalDateTime createdAt) {
+        User buyer = new User();
+        buyer.setId(buyerId);
+        Transaction transaction = new Transaction();
+        transaction.setBuyer(buyer);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
+
+    private void loaded(List<Object[]> recent, long completedCount, String completedSum) {
+        when(transactionRepository.findBuyerActivitySince(eq(buyerId), any())).thenReturn(recent);
+        when(transactionRepository.summarizeCompletedPurchases(buyerId)).thenReturn(List.<Object[]>of(
+                new Object[] { completedCount, new BigDecimal(completedSum) }));
+    }
+
+    @Test
+    void firstCheck_loadsBuyerFromDatabaseOnce() {
+        LocalDateTime recent = now.minusMinutes(5);
+        LocalDateTime older = now.minusMinutes(30).isBefore(now.toLocalDate().atStartOfDay())
+                ? now.toLocalDate().atStartOfDay() : now.minusMinutes(30);
+        loaded(List.of(
+                new Object[] { recent, TransactionStatus.COMPLETED, new BigDecimal("40.00") },
+                new Object[] { older, TransactionStatus.CANCELLED, new BigDecimal("99.00") },
+                new Object[] { now.minusDays(1), TransactionStatus.COMPLETED, new BigDecimal("7.00") }),
+                4L, "100.00");
+
+        assertEquals(1, tracker.countSince(buyerId, now.minusMinutes(15)));
+        assertEquals(2, tracker.countToday(buyerId));
+        assertEquals(new BigDecimal("40.00"), tracker.spentToday(buyerId));
+        assertEquals(0, new BigDecimal("25").compareTo(tracker.averagePurchase(buyerId).orElseThrow()));
+        verify(transactionRepository, times(1)).findBuyerActivitySince(eq(buyerId), any());
+        verify(transactionRepository, times(1)).summarizeCompletedPurchases(buyerId);
+    }
+
+    @Test
+    void updatesOfBuyerNotLoaded_areLeftToTheLoad() {
+        // The committed purchase is already in the database when the buyer is loaded
+        tracker.recordCreated(transaction("10.00", now));
+        loaded(List.<Object[]>of(new Object[] { now, TransactionStatus.PENDING, new BigDecimal("10.00") }),
+                0L, "0");
+
+        assertEquals(1, tracker.countToday(buyerId));
+    }
+
+    @Test
+    void unknownBuyerHasNoActivity() {
+        UUID other = UUID.randomUUID();
+        when(transactionRepository.summarizeCompletedPurchases(other)).thenReturn(List.<Object[]>of(
+                new Object[] { 0L, BigDecimal.ZERO }));
+
+        assertEquals(0, tracker.countSince(other, now.minusMinutes(15)));
+        assertEquals(0, tracker.countToday(other));
+        assertEquals(new BigDecimal("0.00"), tracker.spentToday(other));
+        assertEquals(Optional.empty(), tracker.averagePurchase(other));
+    }
+
+    @Test
+    void recordCompleted_updatesSpendingAndAverage() {
+        assertEquals(0, tracker.countToday(buyerId)); // loaded with no history
+        Transaction first = transaction("10.00", now);
+        tracker.recordCreated(first);
+        tracker.recordCompleted(first);
+        Transaction second = transaction("30.00", now);
+        tracker.recordCreated(second);
+        tracker.recordCompleted(second);
+
+        assertEquals(2, tracker.countSince(buyerId, now.minusMinutes(15)));
+        assertEquals(2, tracker.countToday(buyerId));
+        assertEquals(new BigDecimal("40.00"), tracker.spentToday(buyerId));
+        assertEquals(0, new BigDecimal("20").compareTo(tracker.averagePurchase(buyerId).orElseThrow()));
+
+        tracker.recordCompletionReverted(second);
+
+        assertEquals(new BigDecimal("10.00"), tracker.spentToday(buyerId));
+        assertEquals(0, new BigDecimal("10").compareTo(tracker.averagePurchase(buyerId).orElseThrow()));
+    }
+
+    @Test
+    void completionOfYesterdaysTransactionDoesNotCountToday() {
+        assertEquals(0, tracker.countToday(buyerId)); // loaded with no history
+        tracker.recordCreated(transaction("5.00", now));
+        tracker.recordCompleted(transaction("80.00", now.minusDays(1)));
+
+        assertEquals(1, tracker.countToday(buyerId));
+        assertEquals(new BigDecimal("0.00"), tracker.spentToday(buyerId));
+        assertTrue(tracker.averagePurchase(buyerId).isPresent());
+    }
+
+    @Test
+    void recentWindowKeepsLatestTimes() {
+        assertEquals(0, tracker.countToday(buyerId)); // loaded with no history
+        for (int i = 0; i < BuyerActivityTracker.RECENT_CAPACITY + 10; i++) {
+            tracker.recordCreated(transaction("1.00", now.minusSeconds(i)));
+        }
+
+        assertEquals(BuyerActivityTracker.RECENT_CAPACITY, tracker.countSince(buyerId, now.minusMinutes(15)));
+        assertEquals(6, tracker.countSince(buyerId, now.minusSeconds(6)));
+    }
+
+    @Test
+    void updatesWaitForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tracker.recordCreated(transaction("1.00", now));
+            assertEquals(0, tracker.countToday(buyerId));
+
+            // Rolled back: the registered update never runs
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertEquals(0, tracker.countToday(buyerId));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, tracker.countToday(buyerId));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void purchaseOnOneNode_makesTheOthersReload() {
+        loaded(List.of(), 0L, "0");
+        BuyerActivityTracker other = node();
+        assertEquals(0, other.countToday(buyerId));
+        tracker.preload(buyerId);
+
+        Transaction purchase = transaction("10.00", now);
+        loaded(List.<Object[]>of(new Object[] { now, TransactionStatus.COMPLETED, new BigDecimal("10.00") }),
+                1L, "10.00");
+        tracker.recordCreated(purchase);
+        tracker.recordCompleted(purchase);
+
+        assertEquals(new BigDecimal("10.00"), tracker.spentToday(buyerId));
+        assertEquals(new BigDecimal("10.00"), other.spentToday(buyerId));
+        assertEquals(1, other.countToday(buyerId));
+    }
+}
@@ -0,0 +1,127 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.carboncredit.config.CacheConfig;
+import com.carboncredit.config.CacheConfig.CacheProperties;
+
+/**
+ * Two nodes share one loopback transport, each with its own cache manager
+ */
+class CacheInvalidationBusTest {
+
+    private LoopbackInvalidationTransport transport;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+    private CacheManager nodeA;
+    private CacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackInvalidationTransport();
+        busA = new CacheInvalidationBus(transport);
+        busB = new CacheInvalidationBus(transport);
+        busA.start();
+        busB.start();
+        nodeA = new CacheConfig().cacheManager(new CacheProperties(), busA);
+        nodeB = new CacheConfig().cacheManager(new CacheProperties(), busB);
+    }
+
+    private static void fill(CacheManager node) {
+        Cache users = node.getCache(CacheConfig.USERS);
+        users.put("alice", "A");
+        users.put("bob", "B");
+        node.getCache(CacheConfig.SYSTEM_SETTINGS).put("all", "settings");
+    }
+
+    @Test
+    void evictOnOneNode_evictsKeyOnTheOthers() {
+        fill(nodeA);
+        fill(nodeB);
+
+        nodeA.getCache(CacheConfig.USERS).evict("alice");
+
+        assertNull(nodeB.getCache(CacheConfig.USERS).get("alice"));
+        assertNotNull(nodeB.getCache(CacheConfig.USERS).get("bob"));
+        assertNotNull(nodeB.getCache(CacheConfig.SYSTEM_SETTINGS).get("all"));
+    }
+
+    @Test
+    void evictOfUuidKey_evictsItOnTheOthers() {
+        UUID userId = UUID.randomUUID();
+        nodeA.getCache(CacheConfig.TOKEN_VERSIONS).put(userId, 3L);
+        nodeB.getCache(CacheConfig.TOKEN_VERSIONS).put(userId, 3L);
+
+        nodeA.getCache(CacheConfig.TOKEN_VERSIONS).evict(userId);
+
+        assertNull(nodeA.getCache(CacheConfig.TOKEN_VERSIONS).get(userId));
+        assertNull(nodeB.getCache(CacheConfig.TOKEN_VERSIONS).get(userId));
+    }
+
+    @Test
+    void clearOnOneNode_clearsCacheOnTheOthers() {
+        fill(nodeB);
+
+        nodeA.getCache(CacheConfig.SYSTEM_SETTINGS).clear();
+
+        assertNull(nodeB.getCache(CacheConfig.SYSTEM_SETTINGS).get("all"));
+        assertNotNull(nodeB.getCache(CacheConfig.USERS).get("alice"));
+    }
+
+    @Test
+    void listenersSeeRemoteInvalidationsOnly() {
+        List<String> seenByA = new ArrayList<>();
+        List<String> seenByB = new ArrayList<>();
+        busA.addListener((cache, key) -> seenByA.add(cache + "/" + key));
+        busB.addListener((cache, key) -> seenByB.add(cache + "/" + key));
+
+        busA.publish(CacheConfig.SYSTEM_SETTINGS, null);
+        busB.publish(CacheConfig.LISTINGS, "id:42");
+
+        assertEquals(List.of("listings/id:42"), seenByA);
+        assertEquals(List.of("systemSettings/null"), seenByB);
+    }
+
+    @Test
+    void gapInvalidatesEveryLocalCache() {
+        List<Runnable> gaps = new ArrayList<>();
+        InvalidationTransport lossy = new InvalidationTransport() {
+            @Override
+            public void publish(String message) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> consumer, Runnable onGap) {
+                gaps.add(onGap);
+            }
+        };
+        CacheInvalidationBus bus = new CacheInvalidationBus(lossy);
+        bus.start();
+        CacheManager node = new CacheConfig().cacheManager(new CacheProperties(), bus);
+        fill(node);
+
+        gaps.forEach(Runnable::run);
+
+        assertNull(node.getCache(CacheConfig.USERS).get("bob"));
+        assertNull(node.getCache(CacheConfig.SYSTEM_SETTINGS).get("all"));
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() {
+        fill(nodeB);
+
+        transport.publish("garbage");
+
+        assertNotNull(nodeB.getCache(CacheConfig.USERS).get("alice"));
+    }
+}
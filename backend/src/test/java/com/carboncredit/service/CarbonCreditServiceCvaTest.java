@@ -3,6 +3,7 @@ package com.carboncredit.service;
 import com.carboncredit.entity.CarbonCredit;
 import com.carboncredit.entity.User;
 import com.carboncredit.repository.CarbonCreditRepository;
+import com.carboncredit.service.UserCounterService.CounterChange;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -17,11 +18,13 @@ class CarbonCreditServiceCvaTest {
 
     @Mock private CarbonCreditRepository carbonCreditRepository;
     @Mock private AuditService auditService;
+    @Mock private UserCounterService userCounterService;
 
     @InjectMocks private CarbonCreditService carbonCreditService;
 
     private User cvaUser;
     private CarbonCredit pendingCredit;
+    private User owner;
 
     @BeforeEach
     void setUp() {
@@ -35,6 +38,9 @@ class CarbonCreditServiceCvaTest {
         pendingCredit.setCo2ReducedKg(new BigDecimal("20"));
         pendingCredit.setCreditAmount(new BigDecimal("0.014"));
         pendingCredit.setStatus(CarbonCredit.CreditStatus.PENDING);
+        owner = new User();
+        owner.setId(UUID.randomUUID());
+        pendingCredit.setUser(owner);
 
         when(carbonCreditRepository.findById(pendingCredit.getId())).thenReturn(Optional.of(pendingCredit));
         when(carbonCreditRepository.save(any())).thenAnswer(i -> i.getArgument(0));
@@ -45,6 +51,7 @@ class CarbonCreditServiceCvaTest {
         CarbonCredit result = carbonCreditService.verifyCarbonCredit(pendingCredit.getId(), cvaUser, "verified ok");
         assertEquals(CarbonCredit.CreditStatus.VERIFIED, result.getStatus());
         verify(auditService, times(1)).logVerification(eq(result), eq(cvaUser), any(), any(), eq("verified ok"));
+        verify(userCounterService, times(1)).apply(eq(owner.getId()), any(CounterChange.class));
     }
 
     @Test
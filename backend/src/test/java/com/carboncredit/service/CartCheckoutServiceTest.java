@@ -0,0 +1,236 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.CartCheckoutResultDTO;
+import com.carboncredit.dto.CartCheckoutResultDTO.LineStatus;
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.InsufficientBalanceException;
+import com.carboncredit.exception.PaymentException;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.TransactionRepository;
+import com.carboncredit.service.PaymentService.PaymentResult;
+import com.carboncredit.service.WalletPostingService.BalanceChange;
+
+class CartCheckoutServiceTest {
+
+    @Mock private CreditListingRepository creditListingRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private ValidationService validationService;
+    @Mock private WalletService walletService;
+    @Mock private WalletPostingService walletPostingService;
+    @Mock private PaymentService paymentService;
+    @Mock private SystemSettingService systemSettingService;
+    @Mock private PlatformRevenueService platformRevenueService;
+    @Mock private LedgerService ledgerService;
+    @Mock private OutboxService outboxService;
+    @Mock private NotificationService notificationService;
+    @Mock private BuyerActivityTracker buyerActivityTracker;
+    @Mock private UserCounterService userCounterService;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    @InjectMocks private CartCheckoutService cartCheckoutService;
+
+    private User buyer;
+    private User seller;
+    private User platform;
+    private final Map<UUID, Transaction> stored = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        buyer = user("buyer");
+        seller = user("seller");
+        platform = user("platform");
+
+        when(systemSettingService.getPlatformFeePpm()).thenReturn(50_000L);
+        when(paymentService.processPayment(any(), any(), any(), any()))
+                .thenReturn(new PaymentResult(true, "PAY_1", null));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> {
+            List<Transaction> saved = new ArrayList<>(i.getArgument(0));
+            for (Transaction transaction : saved) {
+                if (transaction.getId() == null) {
+                    transaction.setId(UUID.randomUUID());
+                }
+                stored.put(transaction.getId(), transaction);
+            }
+            return saved;
+        });
+        when(transactionRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(i -> ((Collection<UUID>) i
+                .getArgument(0)).stream().map(stored::get).toList());
+        // Run callbacks inline
+        when(transactionTemplate.execute(any())).thenAnswer(
+                i -> ((TransactionCallback<Object>) i.getArgument(0)).doInTransaction(null));
+        doAnswer(i -> {
+            ((Consumer<TransactionStatus>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername(username);
+        user.setRole(User.UserRole.BUYER);
+        return user;
+    }
+
+    private CreditListing listing(String price) {
+        CarbonCredit credit = new CarbonCredit();
+        credit.setId(UUID.randomUUID());
+        credit.setUser(seller);
+        credit.setCreditAmount(BigDecimal.ONE);
+        credit.setStatus(CarbonCredit.CreditStatus.LISTED);
+        return CreditListing.builder()
+                .id(UUID.randomUUID())
+                .credit(credit)
+                .listingType(CreditListing.ListingType.FIXED)
+                .status(CreditListing.ListingStatus.ACTIVE)
+                .price(new BigDecimal(price))
+                .build();
+    }
+
+    @Test
+    void checkout_allOrNothingRejectsWholeCartWhenListingMissing() {
+        CreditListing available = listing("10.00");
+        UUID missing = UUID.randomUUID();
+        when(creditListingRepository.findAllForCheckout(anyList())).thenReturn(List.of(available));
+
+        CartCheckoutResultDTO result = cartCheckoutService.checkout(List.of(available.getId(), missing), buyer, true);
+
+        assertEquals(0, result.getFilledListings());
+        assertTrue(result.getLines().stream().allMatch(line -> line.getStatus() == LineStatus.REJECTED));
+        assertEquals(CreditListing.ListingStatus.ACTIVE, available.getStatus());
+        verifyNoInteractions(walletPostingService, paymentService);
+    }
+
+    @Test
+    void checkout_allOrNothingFailsWhenBalanceTooLow() {
+        CreditListing first = listing("10.00");
+        CreditListing second = listing("10.00");
+        when(creditListingRepository.findAllForCheckout(anyList())).thenReturn(List.of(first, second));
+        when(walletPostingService.lockCashBalance(buyer.getId())).thenReturn(new BigDecimal("15.00"));
+
+        assertThrows(InsufficientBalanceException.class,
+                () -> cartCheckoutService.checkout(List.of(first.getId(), second.getId()), buyer, true));
+        verify(walletPostingService, never()).post(any());
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkout_partialFillPaysOnceAndPostsOneBatch() {
+        CreditListing first = listing("10.00");
+        CreditListing second = listing("10.00");
+        CreditListing tooExpensive = listing("50.00");
+        when(creditListingRepository.findAllForCheckout(anyList())).thenReturn(List.of(first, second, tooExpensive));
+        when(walletPostingService.lockCashBalance(buyer.getId())).thenReturn(new BigDecimal("25.00"));
+
+        CartCheckoutResultDTO result = cartCheckoutService.checkout(
+                List.of(first.getId(), tooExpensive.getId(), second.getId()), buyer, false);
+
+        assertEquals(2, result.getFilledListings());
+        assertEquals(0, new BigDecimal("20.00").compareTo(result.getTotalCost()));
+        assertEquals(List.of(LineStatus.FILLED, LineStatus.SKIPPED_INSUFFICIENT_FUNDS, LineStatus.FILLED),
+                result.getLines().stream().map(CartCheckoutResultDTO.LineResult::getStatus).toList());
+        assertEquals(CreditListing.ListingStatus.CLOSED, first.getStatus());
+        assertEquals(CreditListing.ListingStatus.ACTIVE, tooExpensive.getStatus());
+
+        verify(paymentService, times(1)).processPayment(any(), eq(new BigDecimal("20.00")), any(), any());
+        ArgumentCaptor<Map<UUID, BalanceChange>> changes = ArgumentCaptor.forClass(Map.class);
+        verify(walletPostingService, times(1)).post(changes.capture());
+
+        Map<UUID, BalanceChange> posted = changes.getValue();
+        assertEquals(0, new BigDecimal("-20.00").compareTo(posted.get(buyer.getId()).getCash()));
+        assertEquals(0, new BigDecimal("2").compareTo(posted.get(buyer.getId()).getCredit()));
+        assertEquals(0, new BigDecimal("19.00").compareTo(posted.get(seller.getId()).getCash()));
+        assertEquals(0, new BigDecimal("-2").compareTo(posted.get(seller.getId()).getCredit()));
+        assertFalse(posted.containsKey(platform.getId()));
+        verify(platformRevenueService).accrueFee(new BigDecimal("1.00"));
+
+        ArgumentCaptor<List<LedgerService.Journal>> journals = ArgumentCaptor.forClass(List.class);
+        verify(ledgerService, times(1)).record(journals.capture());
+        assertEquals(2, journals.getValue().size());
+        journals.getValue().forEach(LedgerService.Journal::validate);
+
+        verify(walletService).reserveCash(buyer.getId(), new BigDecimal("20.00"));
+        verify(walletService).releaseCash(buyer.getId(), new BigDecimal("20.00"));
+        verify(outboxService, times(2)).enqueueTransactionCompleted(any());
+        verify(paymentService, never()).refundPayment(any(), any());
+    }
+
+    @Test
+    void checkout_failedPaymentReleasesHoldAndReopensListings() {
+        CreditListing first = listing("10.00");
+        CreditListing second = listing("10.00");
+        when(creditListingRepository.findAllForCheckout(anyList())).thenReturn(List.of(first, second));
+        when(walletPostingService.lockCashBalance(buyer.getId())).thenReturn(new BigDecimal("25.00"));
+        when(paymentService.processPayment(any(), any(), any(), any()))
+                .thenReturn(new PaymentResult(false, null, "declined"));
+
+        assertThrows(PaymentException.class,
+                () -> cartCheckoutService.checkout(List.of(first.getId(), second.getId()), buyer, false));
+
+        verify(walletService).releaseCash(buyer.getId(), new BigDecimal("20.00"));
+        assertEquals(CreditListing.ListingStatus.ACTIVE, first.getStatus());
+        assertEquals(CreditListing.ListingStatus.ACTIVE, second.getStatus());
+        assertTrue(stored.values().stream()
+                .allMatch(t -> t.getStatus() == Transaction.TransactionStatus.CANCELLED));
+        verify(walletPostingService, never()).post(any());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void checkout_purchaseCancelledDuringPaymentIsRefunded() {
+        CreditListing first = listing("10.00");
+        CreditListing second = listing("10.00");
+        when(creditListingRepository.findAllForCheckout(anyList())).thenReturn(List.of(first, second));
+        when(walletPostingService.lockCashBalance(buyer.getId())).thenReturn(new BigDecimal("25.00"));
+        when(paymentService.processPayment(any(), any(), any(), any())).thenAnswer(i -> {
+            // The seller cancels one purchase while the gateway is charging
+            Transaction cancelled = stored.values().stream()
+                    .filter(t -> t.getListing() == first).findFirst().orElseThrow();
+            cancelled.setStatus(Transaction.TransactionStatus.CANCELLED);
+            first.setStatus(CreditListing.ListingStatus.ACTIVE);
+            return new PaymentResult(true, "PAY_1", null);
+        });
+        when(paymentService.refundPayment(any(), any())).thenReturn(true);
+
+        CartCheckoutResultDTO result = cartCheckoutService.checkout(List.of(first.getId(), second.getId()), buyer,
+                false);
+
+        assertEquals(1, result.getFilledListings());
+        assertEquals(List.of(LineStatus.REJECTED, LineStatus.FILLED),
+                result.getLines().stream().map(CartCheckoutResultDTO.LineResult::getStatus).toList());
+        assertEquals(CreditListing.ListingStatus.ACTIVE, first.getStatus());
+        assertEquals(CreditListing.ListingStatus.CLOSED, second.getStatus());
+        verify(walletService).releaseCash(buyer.getId(), new BigDecimal("10.00"));
+        verify(paymentService).refundPayment("PAY_1", new BigDecimal("10.00"));
+        verify(outboxService, times(1)).enqueueTransactionCompleted(any());
+    }
+}
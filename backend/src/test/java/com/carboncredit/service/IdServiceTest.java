@@ -0,0 +1,95 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.util.Snowflake;
+
+/**
+ * The lease statement is a Postgres upsert, so the table is mocked: each
+ * test decides which worker IDs the statement manages to claim.
+ */
+class IdServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1", "sa", "")));
+    }
+
+    private IdService leasing() {
+        IdService idService = new IdService(jdbcTemplate, transactionTemplate, -1, Duration.ofMinutes(10));
+        idService.acquireLease();
+        return idService;
+    }
+
+    // Only the given worker ID is free
+    private void free(int workerId) {
+        when(jdbcTemplate.update(startsWith("INSERT"), any(), any(), any(), any())).thenAnswer(
+                i -> (Integer) i.getArgument(1) == workerId ? 1 : 0);
+    }
+
+    @Test
+    void configuredWorkerId_isUsedWithoutLease() {
+        IdService idService = new IdService(jdbcTemplate, transactionTemplate, 513, Duration.ofMinutes(10));
+        idService.acquireLease();
+        idService.renewLease();
+
+        assertEquals(513, Snowflake.workerId(idService.nextId()));
+        assertEquals(-1, idService.getLeasedWorkerId());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void startup_leasesAFreeWorkerIdOrFails() {
+        free(42);
+        IdService idService = leasing();
+        assertEquals(42, idService.getLeasedWorkerId());
+        assertEquals(42, Snowflake.workerId(idService.nextId()));
+
+        free(-1);
+        assertThrows(IllegalStateException.class, this::leasing);
+    }
+
+    @Test
+    void lostLease_stopsIdsUntilANewOneIsLeased() {
+        free(42);
+        IdService idService = leasing();
+
+        // Another node took the ID over while renewals were failing, and no other ID is free
+        when(jdbcTemplate.update(startsWith("UPDATE"), any(), any(), any())).thenReturn(0);
+        free(-1);
+        assertThrows(IllegalStateException.class, idService::renewLease);
+        assertThrows(IllegalStateException.class, idService::nextId);
+
+        free(7);
+        idService.renewLease();
+        assertEquals(7, idService.getLeasedWorkerId());
+        assertEquals(7, Snowflake.workerId(idService.nextId()));
+    }
+
+    @Test
+    void releasedLease_issuesNoMoreIds() {
+        free(42);
+        IdService idService = leasing();
+        idService.releaseLease();
+
+        verify(jdbcTemplate).update(startsWith("DELETE"), eq(42), anyString());
+        assertEquals(-1, idService.getLeasedWorkerId());
+        assertThrows(IllegalStateException.class, idService::nextId);
+    }
+}
@@ -0,0 +1,220 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.ValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the idempotency store against an in-memory H2 database so
+ * concurrent claims really race on the primary key.
+ */
+class IdempotencyServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private IdempotencyService idempotencyService;
+    private static final Map<String, String> REQUEST = Map.of("amount", "100");
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:idempotency-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE idempotency_keys (idempotency_key VARCHAR(255) PRIMARY KEY, "
+                + "request_hash VARCHAR(64), status VARCHAR(20) NOT NULL, response_status INT, response_body CLOB, "
+                + "response_location VARCHAR(1000), created_at TIMESTAMP NOT NULL, expires_at TIMESTAMP NOT NULL)");
+        idempotencyService = newService();
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(jdbcTemplate, new ObjectMapper(), 24, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private ResponseEntity<Map<String, Object>> credit() {
+        runs.incrementAndGet();
+        return ResponseEntity.ok(Map.of("message", "Payment successful"));
+    }
+
+    @Test
+    void execute_replaysStoredResponseWithoutRunningAgain() {
+        ResponseEntity<Map<String, Object>> first = idempotencyService.execute("momo", "DEP_1:0", REQUEST,
+                this::credit);
+        ResponseEntity<Map<String, Object>> second = idempotencyService.execute("momo", "DEP_1:0", REQUEST,
+                this::credit);
+        // A fresh instance has an empty LRU and must replay from the table
+        ResponseEntity<Map<String, Object>> third = newService().execute("momo", "DEP_1:0", REQUEST, this::credit);
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        for (ResponseEntity<?> replay : List.of(second, third)) {
+            assertEquals(HttpStatus.OK, replay.getStatusCode());
+            assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            assertEquals("{\"message\":\"Payment successful\"}", replay.getBody());
+        }
+    }
+
+    @Test
+    void execute_keysAreScoped() {
+        idempotencyService.execute("purchase:alice", "k1", REQUEST, this::credit);
+        idempotencyService.execute("purchase:bob", "k1", REQUEST, this::credit);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void execute_withoutKeyAlwaysRuns() {
+        idempotencyService.execute("deposit:alice", null, REQUEST, this::credit);
+        idempotencyService.execute("deposit:alice", " ", REQUEST, this::credit);
+
+        assertEquals(2, runs.get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Integer.class));
+    }
+
+    @Test
+    void execute_replaysRedirectLocation() {
+        idempotencyService.execute("vnpay", "DEP_2:00", REQUEST, () -> ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, "http://localhost:3000/wallet?status=success").build());
+
+        ResponseEntity<?> replay = newService().execute("vnpay", "DEP_2:00", REQUEST, this::credit);
+
+        assertEquals(HttpStatus.FOUND, replay.getStatusCode());
+        assertEquals("http://localhost:3000/wallet?status=success", replay.getHeaders().getLocation().toString());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void execute_serverErrorsKeepTheKeyAndRejectionsReleaseIt() {
+        idempotencyService.execute("deposit:alice", "k2", REQUEST, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.internalServerError().build();
+        });
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                idempotencyService.execute("deposit:alice", "k2", REQUEST, this::credit).getStatusCode());
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("deposit:alice", "k5",
+                REQUEST, () -> {
+                    runs.incrementAndGet();
+                    throw new IllegalStateException("failed after commit");
+                }));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                newService().execute("deposit:alice", "k5", REQUEST, this::credit).getStatusCode());
+
+        assertThrows(BusinessOperationException.class, () -> idempotencyService.execute("deposit:alice", "k6",
+                REQUEST, () -> {
+                    runs.incrementAndGet();
+                    throw new BusinessOperationException("Amount too small");
+                }));
+        ResponseEntity<Map<String, Object>> retried = idempotencyService.execute("deposit:alice", "k6", REQUEST,
+                this::credit);
+
+        assertEquals(4, runs.get());
+        assertEquals(HttpStatus.OK, retried.getStatusCode());
+    }
+
+    @Test
+    void execute_concurrentRetriesRunOnce() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        idempotencyService.execute("momo", "DEP_3:0", REQUEST, () -> {
+                            running.countDown();
+                            sleep(200);
+                            return credit();
+                        });
+                    } catch (IllegalStateException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, runs.get());
+        assertTrue(conflicts.get() > 0, "requests racing the first one are told it is in progress");
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+                "SELECT status FROM idempotency_keys WHERE idempotency_key = 'momo:DEP_3:0'", String.class));
+    }
+
+    @Test
+    void execute_rejectsKeyReusedForDifferentRequest() {
+        idempotencyService.execute("deposit:alice", "k3", REQUEST, this::credit);
+
+        assertThrows(BusinessOperationException.class, () -> idempotencyService.execute("deposit:alice", "k3",
+                Map.of("amount", "999"), this::credit));
+        assertThrows(BusinessOperationException.class, () -> newService().execute("deposit:alice", "k3",
+                Map.of("amount", "999"), this::credit));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_failedStoreKeepsTheKeyWithoutBody() {
+        jdbcTemplate.execute("ALTER TABLE idempotency_keys ALTER COLUMN response_location VARCHAR(5)");
+        ResponseEntity<?> first = idempotencyService.execute("vnpay", "DEP_4:00", REQUEST, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, "http://too-long").build();
+        });
+        ResponseEntity<?> replay = newService().execute("vnpay", "DEP_4:00", REQUEST, this::credit);
+
+        assertEquals(HttpStatus.FOUND, first.getStatusCode());
+        assertEquals(HttpStatus.FOUND, replay.getStatusCode());
+        assertNull(replay.getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_rejectsOverlongKey() {
+        String key = "x".repeat(IdempotencyService.MAX_KEY_LENGTH + 1);
+        assertThrows(ValidationException.class,
+                () -> idempotencyService.execute("deposit:alice", key, REQUEST, this::credit));
+        assertEquals(0, runs.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.JourneyImportResultDTO;
+import com.carboncredit.dto.JourneyImportResultDTO.RowStatus;
+import com.carboncredit.entity.User;
+import com.carboncredit.entity.Vehicle;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.VehicleRepository;
+import com.carboncredit.service.JourneyImportService.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs bulk journey imports against an in-memory H2 database.
+ */
+class JourneyImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private VehicleRepository vehicleRepository;
+    private final User user = new User();
+    private final UUID vehicleId = UUID.randomUUID();
+    private JourneyOverlapIndex journeyOverlapIndex;
+    private int rowsWritten;
+    private final LocalDateTime start = LocalDateTime.now().minusDays(1).withNano(0);
+
+    static void createJourneyTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE journey_data (journey_id UUID PRIMARY KEY, vehicle_id UUID, user_id UUID, "
+                + "distance_km DECIMAL(10,2), energy_consumed_kwh DECIMAL(10,2), start_time TIMESTAMP, "
+                + "end_time TIMESTAMP, co2_reduced_kg DECIMAL(10,2), created_at TIMESTAMP, "
+                + "verification_status VARCHAR(30))");
+        jdbcTemplate.execute("CREATE TABLE carbon_credits (credit_id UUID PRIMARY KEY, user_id UUID, journey_id UUID, "
+                + "co2_reduced_kg DECIMAL(10,2) NOT NULL, credit_amount DECIMAL(10,2) NOT NULL, "
+                + "status VARCHAR(20) NOT NULL, created_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (audit_id UUID PRIMARY KEY, credit_id UUID, verifier_id UUID, "
+                + "action VARCHAR(50) NOT NULL, comments VARCHAR(1000), created_at TIMESTAMP)");
+        UserCounterServiceTest.createCountersTable(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:journeys-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        createJourneyTables(jdbcTemplate);
+
+        user.setId(UUID.randomUUID());
+        user.setUsername("fleet1");
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(vehicleId);
+        vehicleRepository = mock(VehicleRepository.class);
+        when(vehicleRepository.findByUser(user)).thenReturn(List.of(vehicle));
+        // No journeys are stored before a test, so the index starts empty
+        journeyOverlapIndex = new JourneyOverlapIndex(mock(JourneyDataRepository.class),
+                mock(CacheInvalidationBus.class), transactionTemplate, new SimpleMeterRegistry(), 100,
+                Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private JourneyImportService service(int batchSize, int maxRows) {
+        return new JourneyImportService(jdbcTemplate, transactionTemplate, new ValidationService(),
+                new CarbonCreditService(null, null, null, null), vehicleRepository,
+                new UserCounterService(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry()),
+                journeyOverlapIndex, new ObjectMapper().registerModule(new JavaTimeModule()), batchSize, maxRows);
+    }
+
+    private JourneyImportResultDTO upload(JourneyImportService service, Format format, String body)
+            throws IOException {
+        return service.importJourneys(user, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    // Each row an hour after the previous one, so rows of a vehicle do not overlap
+    private String json(Object vehicle, String distance, String energy) {
+        return json(vehicle, distance, energy, start.minusHours(rowsWritten++));
+    }
+
+    private String json(Object vehicle, String distance, String energy, LocalDateTime begin) {
+        return String.format("{\"vehicleId\":%s,\"distanceKm\":%s,\"energyConsumedKwh\":%s,"
+                + "\"startTime\":\"%s\",\"endTime\":\"%s\"}%n",
+                vehicle == null ? "null" : "\"" + vehicle + "\"", distance, energy, begin, begin.plusHours(1));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    @Test
+    void ndjson_insertsValidRowsAndReportsEachRow() throws Exception {
+        String body = json(vehicleId, "100", "18")
+                + "{not json\n"
+                + json(vehicleId, "-5", "18")
+                + json(UUID.randomUUID(), "100", "18")
+                + json(null, "50", "9");
+
+        JourneyImportResultDTO result = upload(service(500, 1000), Format.NDJSON, body);
+
+        assertEquals(5, result.getTotalRows());
+        assertEquals(2, result.getAcceptedRows());
+        assertEquals(3, result.getRejectedRows());
+        assertEquals(List.of(RowStatus.ACCEPTED, RowStatus.REJECTED, RowStatus.REJECTED, RowStatus.REJECTED,
+                RowStatus.ACCEPTED), result.getRows().stream().map(r -> r.getStatus()).toList());
+        assertEquals(3, result.getRows().get(2).getLine());
+        assertTrue(result.getRows().get(2).getReason().contains("Distance"));
+        assertTrue(result.getRows().get(3).getReason().contains("Vehicle not found"));
+        // 100 km * 0.21 - 18 kWh * 0.5
+        assertEquals(0, new BigDecimal("12.00").compareTo(result.getRows().get(0).getCo2ReducedKg()));
+
+        assertEquals(2, count("journey_data"));
+        assertEquals(2, count("carbon_credits"));
+        assertEquals(2, count("audit_logs"));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT journey_count FROM user_counters WHERE user_id = ?", Long.class, user.getId()));
+        assertEquals(0, new BigDecimal("150.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT distance_km FROM user_counters WHERE user_id = ?", BigDecimal.class, user.getId())));
+        UUID journeyId = result.getRows().get(0).getJourneyId();
+        assertEquals("PENDING_VERIFICATION", jdbcTemplate.queryForObject(
+                "SELECT verification_status FROM journey_data WHERE journey_id = ?", String.class, journeyId));
+        assertEquals("PENDING", jdbcTemplate.queryForObject(
+                "SELECT status FROM carbon_credits WHERE journey_id = ?", String.class, journeyId));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs a JOIN carbon_credits c "
+                + "ON a.credit_id = c.credit_id WHERE c.journey_id = ? AND a.action = 'SUBMITTED'",
+                Integer.class, journeyId));
+    }
+
+    @Test
+    void csv_isReadByHeaderInSeveralBatches() throws Exception {
+        StringBuilder body = new StringBuilder("startTime,endTime,distanceKm,energyConsumedKwh,vehicleId\n");
+        for (int i = 0; i < 5; i++) {
+            LocalDateTime begin = start.minusHours(i);
+            body.append(begin).append(',').append(begin.plusHours(1)).append(",40,7,").append(vehicleId).append('\n');
+        }
+        body.append('\n').append(start).append(',').append(start.plusHours(1)).append(",abc,7,\n");
+
+        JourneyImportResultDTO result = upload(service(2, 1000), Format.CSV, body.toString());
+
+        assertEquals(6, result.getTotalRows());
+        assertEquals(5, result.getAcceptedRows());
+        assertEquals(8, result.getRows().get(5).getLine());
+        assertEquals(5, count("journey_data"));
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM journey_data WHERE vehicle_id = ?", Integer.class, vehicleId));
+    }
+
+    @Test
+    void failedBatch_rejectsItsRowsAndRollsBack() throws Exception {
+        jdbcTemplate.execute("DROP TABLE audit_logs");
+
+        JourneyImportResultDTO result = upload(service(500, 1000), Format.NDJSON,
+                json(vehicleId, "100", "18") + json(vehicleId, "80", "15"));
+
+        assertEquals(0, result.getAcceptedRows());
+        assertEquals(2, result.getRejectedRows());
+        assertTrue(result.getRows().get(0).getReason().startsWith("Could not be saved"));
+        assertEquals(0, count("journey_data"));
+        assertEquals(0, count("carbon_credits"));
+        assertEquals(0, count("user_counters"));
+    }
+
+    @Test
+    void overlappingRows_areRejected() throws Exception {
+        JourneyImportService service = service(2, 1000);
+        upload(service, Format.NDJSON, json(vehicleId, "100", "18", start));
+
+        JourneyImportResultDTO result = upload(service, Format.NDJSON,
+                json(vehicleId, "80", "15", start.plusMinutes(30))
+                        + json(vehicleId, "80", "15", start.plusHours(1))
+                        + json(vehicleId, "80", "15", start.plusHours(1).plusMinutes(59)));
+
+        assertEquals(List.of(RowStatus.REJECTED, RowStatus.ACCEPTED, RowStatus.REJECTED),
+                result.getRows().stream().map(r -> r.getStatus()).toList());
+        assertTrue(result.getRows().get(0).getReason().startsWith("Overlaps journey"));
+        assertTrue(result.getRows().get(2).getReason()
+                .contains(result.getRows().get(1).getJourneyId().toString()));
+        assertEquals(2, count("journey_data"));
+    }
+
+    @Test
+    void failedBatch_releasesItsSpans() throws Exception {
+        JourneyImportService service = service(500, 1000);
+        jdbcTemplate.execute("DROP TABLE audit_logs");
+        upload(service, Format.NDJSON, json(vehicleId, "100", "18", start));
+        jdbcTemplate.execute("CREATE TABLE audit_logs (audit_id UUID PRIMARY KEY, credit_id UUID, verifier_id UUID, "
+                + "action VARCHAR(50) NOT NULL, comments VARCHAR(1000), created_at TIMESTAMP)");
+
+        JourneyImportResultDTO result = upload(service, Format.NDJSON, json(vehicleId, "100", "18", start));
+
+        assertEquals(1, result.getAcceptedRows());
+    }
+
+    @Test
+    void rowsBeyondTheLimit_areNotRead() throws Exception {
+        JourneyImportResultDTO result = upload(service(500, 2), Format.NDJSON,
+                json(vehicleId, "100", "18") + json(vehicleId, "80", "15") + json(vehicleId, "60", "11"));
+
+        assertTrue(result.isTruncated());
+        assertEquals(2, result.getTotalRows());
+        assertEquals(2, count("journey_data"));
+    }
+}
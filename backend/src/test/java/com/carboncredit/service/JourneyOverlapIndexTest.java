@@ -0,0 +1,187 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.JourneyDataRepository.JourneyInterval;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two nodes share one loopback transport and one mocked journey table
+ */
+class JourneyOverlapIndexTest {
+
+    private final UUID vehicleId = UUID.randomUUID();
+    private final LocalDateTime nine = LocalDateTime.of(2026, 10, 1, 9, 0);
+    private final List<JourneyInterval> stored = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JourneyDataRepository journeyDataRepository;
+    private JourneyOverlapIndex nodeA;
+    private JourneyOverlapIndex nodeB;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:overlap-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        journeyDataRepository = mock(JourneyDataRepository.class);
+        when(journeyDataRepository.findIntervalsByVehicleId(vehicleId)).thenAnswer(invocation -> List.copyOf(stored));
+
+        LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport();
+        nodeA = node(bus(transport));
+        busB = bus(transport);
+        nodeB = node(busB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private static CacheInvalidationBus bus(LoopbackInvalidationTransport transport) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(transport);
+        bus.start();
+        return bus;
+    }
+
+    private JourneyOverlapIndex node(CacheInvalidationBus bus) {
+        JourneyOverlapIndex index = new JourneyOverlapIndex(journeyDataRepository, bus, transactionTemplate,
+                new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+        index.subscribeToRemoteChanges();
+        return index;
+    }
+
+    private static JourneyInterval span(UUID id, LocalDateTime startTime, LocalDateTime endTime) {
+        return new JourneyInterval() {
+            public UUID getId() {
+                return id;
+            }
+
+            public LocalDateTime getStartTime() {
+                return startTime;
+            }
+
+            public LocalDateTime getEndTime() {
+                return endTime;
+            }
+        };
+    }
+
+    @Test
+    void reserve_rejectsOverlapWithStoredJourneys() {
+        UUID storedId = UUID.randomUUID();
+        stored.add(span(storedId, nine, nine.plusHours(1)));
+
+        assertEquals(Optional.of(storedId),
+                nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusMinutes(30), nine.plusHours(2)));
+        assertEquals(Optional.empty(),
+                nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusHours(1), nine.plusHours(2)));
+        assertEquals(Optional.empty(),
+                nodeA.reserve(UUID.randomUUID(), UUID.randomUUID(), nine, nine.plusHours(1)));
+        verify(journeyDataRepository, times(1)).findIntervalsByVehicleId(vehicleId);
+    }
+
+    @Test
+    void reserve_replacesTheJourneysOwnSpan() {
+        UUID journeyId = UUID.randomUUID();
+        nodeA.reserve(vehicleId, journeyId, nine, nine.plusHours(1));
+
+        assertEquals(Optional.empty(), nodeA.reserve(vehicleId, journeyId, nine.plusMinutes(30), nine.plusHours(2)));
+        assertEquals(Optional.empty(), nodeA.reserve(vehicleId, UUID.randomUUID(), nine, nine.plusMinutes(30)));
+    }
+
+    @Test
+    void reserve_treatsAnInstantAsOccupied() {
+        UUID journeyId = UUID.randomUUID();
+        nodeA.reserve(vehicleId, journeyId, nine, nine);
+
+        assertEquals(Optional.of(journeyId), nodeA.reserve(vehicleId, UUID.randomUUID(), nine, nine));
+    }
+
+    @Test
+    void rollback_restoresThePreviousSpans() {
+        UUID updated = UUID.randomUUID();
+        stored.add(span(updated, nine, nine.plusHours(1)));
+        UUID created = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(Optional.empty(), nodeA.reserve(vehicleId, updated, nine.plusHours(3), nine.plusHours(4)));
+            assertEquals(Optional.empty(), nodeA.reserve(vehicleId, created, nine, nine.plusHours(1)));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Optional.of(updated),
+                nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusMinutes(10), nine.plusMinutes(20)));
+        assertEquals(Optional.empty(),
+                nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusHours(3), nine.plusHours(4)));
+    }
+
+    @Test
+    void remove_freesTheSpanOnlyOnCommit() {
+        UUID journeyId = UUID.randomUUID();
+        stored.add(span(journeyId, nine, nine.plusHours(1)));
+        nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusHours(5), nine.plusHours(6));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodeA.remove(vehicleId, journeyId);
+            status.setRollbackOnly();
+        });
+        assertEquals(Optional.of(journeyId), nodeA.reserve(vehicleId, UUID.randomUUID(), nine, nine.plusHours(1)));
+
+        transactionTemplate.executeWithoutResult(status -> nodeA.remove(vehicleId, journeyId));
+        assertEquals(Optional.empty(), nodeA.reserve(vehicleId, UUID.randomUUID(), nine, nine.plusHours(1)));
+    }
+
+    @Test
+    void commitOnOneNode_makesTheOthersReload() {
+        assertEquals(Optional.empty(), nodeB.reserve(vehicleId, UUID.randomUUID(), nine.plusHours(5),
+                nine.plusHours(6)));
+        UUID journeyId = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodeA.reserve(vehicleId, journeyId, nine, nine.plusHours(1));
+            // Node B has not heard of the journey before it commits
+            assertEquals(1, nodeB.cachedVehicles());
+            stored.add(span(journeyId, nine, nine.plusHours(1)));
+        });
+
+        assertEquals(0, nodeB.cachedVehicles());
+        assertEquals(Optional.of(journeyId), nodeB.reserve(vehicleId, UUID.randomUUID(), nine, nine.plusHours(1)));
+    }
+
+    @Test
+    void reloadDuringTheTransaction_isDroppedOnCommit() {
+        UUID journeyId = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodeA.reserve(vehicleId, journeyId, nine, nine.plusHours(1));
+            // Another node invalidates the vehicle and node A reloads it before this journey is committed
+            busB.publish(JourneyOverlapIndex.CACHE_NAME, vehicleId);
+            assertEquals(Optional.empty(),
+                    nodeA.reserve(vehicleId, UUID.randomUUID(), nine.plusHours(5), nine.plusHours(6)));
+            stored.add(span(journeyId, nine, nine.plusHours(1)));
+        });
+
+        assertEquals(Optional.of(journeyId), nodeA.reserve(vehicleId, UUID.randomUUID(), nine, nine.plusHours(1)));
+    }
+}
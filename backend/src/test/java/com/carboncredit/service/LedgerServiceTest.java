@@ -0,0 +1,145 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.LedgerPageDTO;
+import com.carboncredit.entity.LedgerEntry;
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.repository.LedgerEntryRepository;
+import com.carboncredit.service.LedgerService.Journal;
+
+/**
+ * Runs the ledger against an in-memory H2 database.
+ */
+class LedgerServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private LedgerEntryRepository ledgerEntryRepository;
+    private LedgerService ledgerService;
+    private final UUID user = UUID.randomUUID();
+
+    static void createLedgerTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE ledger_entries (entry_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "journal_id UUID NOT NULL, account VARCHAR(30) NOT NULL, user_id UUID, asset VARCHAR(10) NOT NULL, "
+                + "amount DECIMAL(15,2) NOT NULL, entry_type VARCHAR(30) NOT NULL, reference VARCHAR(100), "
+                + "description VARCHAR(255), created_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE ledger_snapshots (snapshot_id BIGINT GENERATED BY DEFAULT AS IDENTITY "
+                + "PRIMARY KEY, account VARCHAR(30) NOT NULL, user_id UUID, asset VARCHAR(10) NOT NULL, "
+                + "balance DECIMAL(15,2) NOT NULL, last_entry_id BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ledger-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        createLedgerTables(jdbcTemplate);
+        ledgerEntryRepository = mock(LedgerEntryRepository.class);
+        // Negative lag so snapshots cover entries written a moment ago
+        ledgerService = new LedgerService(jdbcTemplate, ledgerEntryRepository, -60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private void deposit(String amount) {
+        transactionTemplate.executeWithoutResult(status -> ledgerService.record(
+                Journal.of(EntryType.DEPOSIT, "PAY", "Wallet deposit")
+                        .cash(LedgerAccount.USER, user, new BigDecimal(amount))
+                        .cash(LedgerAccount.EXTERNAL, null, new BigDecimal(amount).negate())));
+    }
+
+    private BigDecimal cash() {
+        return ledgerService.getBalance(LedgerAccount.USER, user, Asset.CASH);
+    }
+
+    @Test
+    void record_rejectsUnbalancedJournal() {
+        Journal journal = Journal.of(EntryType.TRANSFER, null, null)
+                .cash(LedgerAccount.USER, user, new BigDecimal("10.00"))
+                .cash(LedgerAccount.EXTERNAL, null, new BigDecimal("-9.99"));
+
+        assertThrows(BusinessOperationException.class,
+                () -> transactionTemplate.executeWithoutResult(status -> ledgerService.record(journal)));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_entries", Integer.class));
+    }
+
+    @Test
+    void getBalance_snapshotPlusTailEqualsFullHistory() {
+        deposit("100.00");
+        deposit("25.50");
+        assertEquals(2, ledgerService.takeSnapshots()); // USER and EXTERNAL
+        deposit("4.50");
+
+        assertEquals(0, new BigDecimal("130.00").compareTo(cash()));
+        assertEquals(0, new BigDecimal("-130.00").compareTo(
+                ledgerService.getBalance(LedgerAccount.EXTERNAL, null, Asset.CASH)));
+
+        // A second snapshot builds on the first and only sees the new tail
+        assertEquals(2, ledgerService.takeSnapshots());
+        assertEquals(0, ledgerService.takeSnapshots());
+        assertEquals(0, new BigDecimal("130.00").compareTo(cash()));
+        assertEquals(0, new BigDecimal("130.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT balance FROM ledger_snapshots WHERE account = 'USER' ORDER BY last_entry_id DESC LIMIT 1",
+                BigDecimal.class)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledgerService.getBalance(LedgerAccount.USER, user, Asset.CREDIT)));
+    }
+
+    @Test
+    void getHistory_continuesBeforeCursorAndStopsOnShortPage() {
+        List<LedgerEntry> fullPage = LongStream.rangeClosed(1, 3).map(i -> 100 - i).mapToObj(this::entry).toList();
+        List<LedgerEntry> lastPage = List.of(entry(42));
+        when(ledgerEntryRepository.findPageBefore(eq(user), eq(LedgerAccount.USER), eq(Long.MAX_VALUE), any()))
+                .thenReturn(fullPage);
+        when(ledgerEntryRepository.findPageBefore(eq(user), eq(LedgerAccount.USER), eq(97L), any()))
+                .thenReturn(lastPage);
+
+        LedgerPageDTO first = ledgerService.getHistory(user, null, 3);
+        assertEquals(List.of(99L, 98L, 97L), first.getEntries().stream().map(e -> e.getEntryId()).toList());
+        assertEquals(97L, first.getNextCursor());
+
+        LedgerPageDTO second = ledgerService.getHistory(user, first.getNextCursor(), 3);
+        assertEquals(1, second.getEntries().size());
+        assertNull(second.getNextCursor());
+        verify(ledgerEntryRepository).findPageBefore(user, LedgerAccount.USER, 97L, Pageable.ofSize(3));
+    }
+
+    @Test
+    void getHistory_capsPageSize() {
+        when(ledgerEntryRepository.findPageBefore(any(), any(), anyLong(), any())).thenReturn(List.of());
+
+        ledgerService.getHistory(user, null, 10_000);
+
+        verify(ledgerEntryRepository).findPageBefore(user, LedgerAccount.USER, Long.MAX_VALUE,
+                Pageable.ofSize(LedgerService.MAX_PAGE_SIZE));
+    }
+
+    private LedgerEntry entry(long id) {
+        return new LedgerEntry(id, UUID.randomUUID(), LedgerAccount.USER, user, Asset.CASH, BigDecimal.ONE,
+                EntryType.DEPOSIT, null, null, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,47 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.carboncredit.config.CacheConfig;
+import com.carboncredit.entity.CreditListing.ListingStatus;
+import com.carboncredit.entity.CreditListing.ListingType;
+import com.carboncredit.entity.CreditListingListener.ListingChangedEvent;
+
+class ListingCacheInvalidatorTest {
+
+    private final CacheManager cacheManager = new TransactionAwareCacheManagerProxy(
+            new ConcurrentMapCacheManager(CacheConfig.LISTINGS, CacheConfig.MARKETPLACE_STATS));
+    private final ListingCacheInvalidator invalidator = new ListingCacheInvalidator(cacheManager);
+
+    @Test
+    void committedStatusChange_dropsListingPagesAndStats() {
+        UUID listingId = UUID.randomUUID();
+        cacheManager.getCache(CacheConfig.LISTINGS).put("id:" + listingId, "listing");
+        cacheManager.getCache(CacheConfig.LISTINGS).put("active:0:20:createdAt", "page");
+        cacheManager.getCache(CacheConfig.MARKETPLACE_STATS).put("all", "stats");
+
+        // Runs from an after-commit callback, where evictions deferred to commit would be lost
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            invalidator.onListingChanged(new ListingChangedEvent(listingId, ListingType.FIXED, ListingStatus.CLOSED,
+                    BigDecimal.TEN, null, 2L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(cacheManager.getCache(CacheConfig.LISTINGS).get("id:" + listingId));
+        assertNull(cacheManager.getCache(CacheConfig.LISTINGS).get("active:0:20:createdAt"));
+        assertNull(cacheManager.getCache(CacheConfig.MARKETPLACE_STATS).get("all"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.OutboxEvent;
+import com.carboncredit.entity.OutboxEvent.EventType;
+import com.carboncredit.entity.OutboxEvent.OutboxStatus;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.User;
+import com.carboncredit.repository.CertificateRepository;
+import com.carboncredit.repository.OutboxEventRepository;
+import com.carboncredit.repository.TransactionRepository;
+
+class OutboxServiceTest {
+
+    @Mock private OutboxEventRepository outboxEventRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private CertificateRepository certificateRepository;
+    @Mock private CertificateService certificateService;
+    @Mock private AuditService auditService;
+    @Mock private NotificationService notificationService;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    @InjectMocks private OutboxService outboxService;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                i -> ((TransactionCallback<Object>) i.getArgument(0)).doInTransaction(null));
+        doAnswer(i -> {
+            ((Consumer<TransactionStatus>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        User buyer = new User();
+        buyer.setId(UUID.randomUUID());
+        User seller = new User();
+        seller.setId(UUID.randomUUID());
+        transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setBuyer(buyer);
+        transaction.setSeller(seller);
+        when(transactionRepository.findById(transaction.getId())).thenReturn(Optional.of(transaction));
+    }
+
+    private OutboxEvent event(EventType type) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(UUID.randomUUID());
+        event.setEventType(type);
+        event.setAggregateId(transaction.getId());
+        event.setStatus(OutboxStatus.PENDING);
+        event.setNextAttemptAt(LocalDateTime.now());
+        event.setCreatedAt(LocalDateTime.now());
+        when(outboxEventRepository.findById(event.getId())).thenReturn(Optional.of(event));
+        return event;
+    }
+
+    @Test
+    void enqueueTransactionCompleted_recordsOneEventPerSideEffect() {
+        outboxService.enqueueTransactionCompleted(transaction.getId());
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(3)).save(saved.capture());
+        assertEquals(List.of(EventType.TRANSACTION_CERTIFICATE, EventType.TRANSACTION_AUDIT,
+                EventType.TRANSACTION_NOTIFICATION), saved.getAllValues().stream().map(OutboxEvent::getEventType).toList());
+        assertTrue(saved.getAllValues().stream().allMatch(e -> e.getStatus() == OutboxStatus.PENDING));
+        verifyNoInteractions(certificateService, auditService, notificationService);
+    }
+
+    @Test
+    void dispatchPending_handlesBatchInOneTransaction() {
+        List<OutboxEvent> events = List.of(event(EventType.TRANSACTION_CERTIFICATE),
+                event(EventType.TRANSACTION_AUDIT), event(EventType.TRANSACTION_NOTIFICATION));
+        when(outboxEventRepository.findDueForDispatch(eq(OutboxStatus.PENDING), any(), any()))
+                .thenReturn(events);
+        when(outboxEventRepository.findAllById(anyList())).thenReturn(events);
+
+        outboxService.dispatchPending();
+
+        verify(certificateService).generateCertificate(transaction);
+        verify(auditService).logTransactionCompleted(eq(transaction.getId().toString()), any(), any());
+        verify(notificationService).notifyTransactionCompleted(transaction.getBuyer(), transaction.getSeller(),
+                transaction.getId());
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        assertTrue(events.stream().allMatch(e -> e.getStatus() == OutboxStatus.DISPATCHED));
+    }
+
+    @Test
+    void dispatchBatch_failedEventIsRetriedAloneWithBackoff() {
+        OutboxEvent audit = event(EventType.TRANSACTION_AUDIT);
+        OutboxEvent notification = event(EventType.TRANSACTION_NOTIFICATION);
+        // The batch transaction rolls back, so every event is back to PENDING when retried alone
+        List<OutboxEvent> batch = List.of(copy(audit), copy(notification));
+        when(outboxEventRepository.findAllById(anyList())).thenReturn(batch);
+        doThrow(new RuntimeException("mail server down")).when(notificationService)
+                .notifyTransactionCompleted(any(), any(), any());
+
+        outboxService.dispatchBatch(new ArrayList<>(List.of(audit.getId(), notification.getId())));
+
+        assertEquals(OutboxStatus.DISPATCHED, audit.getStatus());
+        assertEquals(OutboxStatus.PENDING, notification.getStatus());
+        assertEquals(1, notification.getAttempts());
+        assertEquals("mail server down", notification.getLastError());
+        assertTrue(notification.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void dispatchBatch_eventMarkedFailedAfterMaxAttempts() {
+        OutboxEvent notification = event(EventType.TRANSACTION_NOTIFICATION);
+        notification.setAttempts(OutboxService.MAX_ATTEMPTS - 1);
+        when(outboxEventRepository.findAllById(anyList())).thenReturn(List.of(copy(notification)));
+        doThrow(new RuntimeException("boom")).when(notificationService)
+                .notifyTransactionCompleted(any(), any(), any());
+
+        outboxService.dispatchBatch(List.of(notification.getId()));
+
+        assertEquals(OutboxStatus.FAILED, notification.getStatus());
+        assertEquals(OutboxService.MAX_ATTEMPTS, notification.getAttempts());
+    }
+
+    @Test
+    void dispatchBatch_skipsCertificateAlreadyIssued() {
+        OutboxEvent certificate = event(EventType.TRANSACTION_CERTIFICATE);
+        when(outboxEventRepository.findAllById(anyList())).thenReturn(List.of(certificate));
+        when(certificateRepository.existsByTransactionId(transaction.getId())).thenReturn(true);
+
+        outboxService.dispatchBatch(List.of(certificate.getId()));
+
+        verify(certificateService, never()).generateCertificate(any());
+        assertEquals(OutboxStatus.DISPATCHED, certificate.getStatus());
+    }
+
+    private static OutboxEvent copy(OutboxEvent event) {
+        return new OutboxEvent(event.getId(), event.getEventType(), event.getAggregateId(), event.getStatus(),
+                event.getAttempts(), event.getNextAttemptAt(), event.getLastError(), event.getCreatedAt(),
+                event.getDispatchedAt());
+    }
+}
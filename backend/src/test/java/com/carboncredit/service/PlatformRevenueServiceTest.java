@@ -0,0 +1,149 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.User;
+
+/**
+ * Runs the revenue shards against an in-memory H2 database so accruals and
+ * folds really contend for row locks.
+ */
+class PlatformRevenueServiceTest {
+
+    private static final int SHARDS = 4;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PlatformRevenueService platformRevenueService;
+    private User platform;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:revenue-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE wallets (user_id UUID PRIMARY KEY, cash_balance DECIMAL(15,2) NOT NULL, "
+                + "credit_balance DECIMAL(15,2) NOT NULL, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE platform_revenue_shards (shard_id INT PRIMARY KEY, "
+                + "pending_amount DECIMAL(15,2) NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        LedgerServiceTest.createLedgerTables(jdbcTemplate);
+
+        platform = new User();
+        platform.setId(UUID.randomUUID());
+        platform.setUsername("platform");
+        jdbcTemplate.update("INSERT INTO wallets VALUES (?, 100.00, 0, NULL)", platform.getId());
+
+        SystemSettingService systemSettingService = mock(SystemSettingService.class);
+        UserService userService = mock(UserService.class);
+        when(systemSettingService.getSettingValue("PLATFORM_REVENUE_USERNAME")).thenReturn("platform");
+        when(userService.findByUsername("platform")).thenReturn(Optional.of(platform));
+
+        platformRevenueService = new PlatformRevenueService(jdbcTemplate, new WalletPostingService(jdbcTemplate),
+                new LedgerService(jdbcTemplate, null, 300), systemSettingService, userService, transactionTemplate,
+                SHARDS);
+        platformRevenueService.createShards();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private BigDecimal walletCash() {
+        return jdbcTemplate.queryForObject("SELECT cash_balance FROM wallets WHERE user_id = ?", BigDecimal.class,
+                platform.getId());
+    }
+
+    private void accrue(String fee) {
+        transactionTemplate.executeWithoutResult(status -> platformRevenueService.accrueFee(new BigDecimal(fee)));
+    }
+
+    @Test
+    void createShards_isIdempotent() {
+        platformRevenueService.createShards();
+        assertEquals(SHARDS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM platform_revenue_shards", Integer.class));
+    }
+
+    @Test
+    void accrueFee_leavesWalletUntilFold() {
+        accrue("1.25");
+        accrue("0.75");
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(walletCash()));
+        assertEquals(0, new BigDecimal("2.00").compareTo(platformRevenueService.getUnfoldedRevenue()));
+        assertEquals(0, new BigDecimal("102.00").compareTo(platformRevenueService.getTotalRevenue(platform.getId())));
+
+        assertEquals(0, new BigDecimal("2.00").compareTo(platformRevenueService.foldShards()));
+        assertEquals(0, new BigDecimal("102.00").compareTo(walletCash()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(platformRevenueService.getUnfoldedRevenue()));
+        assertEquals(0, new BigDecimal("-2.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT SUM(amount) FROM ledger_entries WHERE account = 'PLATFORM_REVENUE'", BigDecimal.class)));
+    }
+
+    @Test
+    void accrueFee_rolledBackWithCallerTransaction() {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            platformRevenueService.accrueFee(new BigDecimal("5.00"));
+            throw new IllegalStateException("purchase failed");
+        }));
+        assertEquals(0, BigDecimal.ZERO.compareTo(platformRevenueService.getUnfoldedRevenue()));
+    }
+
+    @Test
+    void concurrentAccrualsAndFolds_totalIsExact() throws Exception {
+        int threads = 8;
+        int feesPerThread = 250;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<?> folder = pool.submit(() -> {
+                while (running.get()) {
+                    platformRevenueService.foldShards();
+                }
+            });
+            List<Future<?>> accruers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                accruers.add(pool.submit(() -> {
+                    for (int i = 0; i < feesPerThread; i++) {
+                        accrue("0.05");
+                    }
+                }));
+            }
+            for (Future<?> accruer : accruers) {
+                accruer.get();
+            }
+            running.set(false);
+            folder.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BigDecimal expected = new BigDecimal("100.00").add(new BigDecimal("0.05").multiply(
+                BigDecimal.valueOf((long) threads * feesPerThread)));
+        assertEquals(0, expected.compareTo(platformRevenueService.getTotalRevenue(platform.getId())));
+
+        platformRevenueService.foldShards();
+        assertEquals(0, expected.compareTo(walletCash()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(platformRevenueService.getUnfoldedRevenue()));
+    }
+}
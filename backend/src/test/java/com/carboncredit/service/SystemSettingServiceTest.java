@@ -0,0 +1,75 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.carboncredit.entity.SystemSetting;
+import jakarta.persistence.EntityNotFoundException;
+import com.carboncredit.repository.SystemSettingRepository;
+
+class SystemSettingServiceTest {
+
+    @Mock
+    private SystemSettingRepository settingRepository;
+
+    @InjectMocks
+    private SystemSettingService systemSettingService;
+
+    private SystemSetting feeSetting;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        feeSetting = new SystemSetting(SystemSettingService.PLATFORM_FEE_PERCENT, "5.0", "Platform fee", "DECIMAL");
+        feeSetting.setIsEditable(true);
+        when(settingRepository.findBySettingKey(SystemSettingService.PLATFORM_FEE_PERCENT))
+                .thenReturn(Optional.of(feeSetting));
+        when(settingRepository.findAllOrderedByKey()).thenReturn(List.of(feeSetting));
+        when(settingRepository.save(any(SystemSetting.class))).thenAnswer(i -> i.getArgument(0));
+    }
+
+    @Test
+    void getPlatformFeePpm_parsesOnceUntilSettingChanges() {
+        assertEquals(50_000, systemSettingService.getPlatformFeePpm());
+        assertEquals(50_000, systemSettingService.getPlatformFeePpm());
+        assertEquals(5.0, systemSettingService.getSettingAsDouble(SystemSettingService.PLATFORM_FEE_PERCENT));
+        verify(settingRepository, times(1)).findAllOrderedByKey();
+        long version = systemSettingService.getSnapshot().getVersion();
+
+        systemSettingService.updateSetting(SystemSettingService.PLATFORM_FEE_PERCENT, "7.5");
+
+        assertEquals(75_000, systemSettingService.getPlatformFeePpm());
+        assertEquals(version + 1, systemSettingService.getSnapshot().getVersion());
+    }
+
+    @Test
+    void maintenanceMode_defaultsToOffAndFollowsWrites() {
+        assertFalse(systemSettingService.isMaintenanceMode());
+        assertThrows(EntityNotFoundException.class,
+                () -> systemSettingService.getSettingAsBoolean(SystemSettingService.MAINTENANCE_MODE));
+
+        SystemSetting maintenance = new SystemSetting(SystemSettingService.MAINTENANCE_MODE, "true", "Maintenance",
+                "BOOLEAN");
+        when(settingRepository.findAllOrderedByKey()).thenReturn(List.of(feeSetting, maintenance));
+        systemSettingService.createSetting(SystemSettingService.MAINTENANCE_MODE, "true", "Maintenance", "BOOLEAN");
+
+        assertTrue(systemSettingService.isMaintenanceMode());
+        assertTrue(systemSettingService.getSettingAsBoolean(SystemSettingService.MAINTENANCE_MODE));
+    }
+
+    @Test
+    void getPlatformFeePpm_rejectsInvalidValue() {
+        feeSetting.setSettingValue("abc");
+
+        assertThrows(IllegalStateException.class, () -> systemSettingService.getPlatformFeePpm());
+    }
+}
@@ -0,0 +1,172 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.exception.PaymentException;
+import com.carboncredit.repository.CarbonCreditRepository;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.TransactionRepository;
+import com.carboncredit.service.PaymentService.PaymentResult;
+
+class TransactionServicePurchaseTest {
+
+    @Mock private ValidationService validationService;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private CreditListingRepository creditListingRepository;
+    @Mock private CarbonCreditRepository carbonCreditRepository;
+    @Mock private PaymentService paymentService;
+    @Mock private NotificationService notificationService;
+    @Mock private AuditService auditService;
+    @Mock private WalletService walletService;
+    @Mock private SystemSettingService systemSettingService;
+    @Mock private UserService userService;
+    @Mock private OutboxService outboxService;
+    @Mock private TransactionTemplate transactionTemplate;
+    @Mock private BuyerActivityTracker buyerActivityTracker;
+    @Mock private UserCounterService userCounterService;
+
+    @InjectMocks private TransactionService transactionService;
+
+    private final ExecutorService paymentExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean inDatabaseTransaction = new AtomicBoolean();
+
+    private User buyer;
+    private CreditListing listing;
+    private Transaction saved;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(transactionService, "paymentExecutor", paymentExecutor);
+        ReflectionTestUtils.setField(transactionService, "paymentTimeoutMs", 500L);
+
+        // Run callbacks inline, remembering when we are inside a transaction
+        when(transactionTemplate.execute(any())).thenAnswer(i -> {
+            inDatabaseTransaction.set(true);
+            try {
+                return ((TransactionCallback<Object>) i.getArgument(0)).doInTransaction(null);
+            } finally {
+                inDatabaseTransaction.set(false);
+            }
+        });
+
+        buyer = new User();
+        buyer.setId(UUID.randomUUID());
+        buyer.setUsername("buyer");
+        User seller = new User();
+        seller.setId(UUID.randomUUID());
+
+        CarbonCredit credit = new CarbonCredit();
+        credit.setUser(seller);
+        listing = CreditListing.builder()
+                .id(UUID.randomUUID())
+                .credit(credit)
+                .listingType(CreditListing.ListingType.FIXED)
+                .status(CreditListing.ListingStatus.ACTIVE)
+                .price(new BigDecimal("10.00"))
+                .build();
+
+        when(creditListingRepository.findById(listing.getId())).thenReturn(Optional.of(listing));
+        when(walletService.hasSufficientBalance(any(), any(), eq("CASH"))).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
+            Transaction transaction = i.getArgument(0);
+            if (transaction.getId() == null) {
+                transaction.setId(UUID.randomUUID());
+            }
+            saved = transaction;
+            return transaction;
+        });
+        when(transactionRepository.findById(any())).thenAnswer(i -> Optional.ofNullable(saved));
+        when(transactionRepository.findByIdForUpdate(any())).thenAnswer(i -> Optional.ofNullable(saved));
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentExecutor.shutdownNow();
+    }
+
+    @Test
+    void initiatePurchase_gatewayCalledOutsideDatabaseTransaction() {
+        AtomicBoolean calledInTransaction = new AtomicBoolean(true);
+        when(paymentService.processPayment(any(), any(), any(), any())).thenAnswer(i -> {
+            calledInTransaction.set(inDatabaseTransaction.get());
+            return new PaymentResult(false, null, "declined");
+        });
+
+        assertThrows(PaymentException.class, () -> transactionService.initiatePurchase(listing.getId(), buyer));
+
+        assertFalse(calledInTransaction.get());
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    @Test
+    void initiatePurchase_failedPaymentReleasesHoldAndReopensListing() {
+        when(paymentService.processPayment(any(), any(), any(), any()))
+                .thenReturn(new PaymentResult(false, null, "declined"));
+
+        assertThrows(PaymentException.class, () -> transactionService.initiatePurchase(listing.getId(), buyer));
+
+        verify(walletService).reserveCash(buyer.getId(), new BigDecimal("10.00"));
+        verify(walletService).releaseCash(buyer.getId(), new BigDecimal("10.00"));
+        assertEquals(Transaction.TransactionStatus.CANCELLED, saved.getStatus());
+        assertEquals(CreditListing.ListingStatus.ACTIVE, listing.getStatus());
+    }
+
+    @Test
+    void initiatePurchase_gatewayTimeoutIsCompensated() {
+        when(paymentService.processPayment(any(), any(), any(), any())).thenAnswer(i -> {
+            Thread.sleep(5_000);
+            return new PaymentResult(true, "PAY_LATE", null);
+        });
+
+        PaymentException e = assertThrows(PaymentException.class,
+                () -> transactionService.initiatePurchase(listing.getId(), buyer));
+
+        assertTrue(e.getMessage().contains("timed out"));
+        verify(walletService).releaseCash(buyer.getId(), new BigDecimal("10.00"));
+        assertEquals(CreditListing.ListingStatus.ACTIVE, listing.getStatus());
+    }
+
+    @Test
+    void initiatePurchase_cancelledDuringPaymentIsRefundedNotCompleted() {
+        when(paymentService.processPayment(any(), any(), any(), any())).thenAnswer(i -> {
+            transactionService.cancelTransaction(saved.getId(), buyer);
+            return new PaymentResult(true, "PAY_1", null);
+        });
+        when(paymentService.refundPayment(any(), any())).thenReturn(true);
+
+        assertThrows(BusinessOperationException.class,
+                () -> transactionService.initiatePurchase(listing.getId(), buyer));
+
+        verify(paymentService).refundPayment("PAY_1", new BigDecimal("10.00"));
+        verify(walletService, times(1)).releaseCash(buyer.getId(), new BigDecimal("10.00"));
+        verify(walletService, never()).post(any());
+        assertEquals(Transaction.TransactionStatus.CANCELLED, saved.getStatus());
+        assertEquals(CreditListing.ListingStatus.ACTIVE, listing.getStatus());
+    }
+}
@@ -0,0 +1,190 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.JourneyData;
+import com.carboncredit.entity.Transaction;
+import com.carboncredit.entity.User;
+import com.carboncredit.entity.UserCounters;
+import com.carboncredit.service.UserCounterService.CounterChange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the user counters and their reconciliation against an in-memory H2
+ * database.
+ */
+class UserCounterServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private UserCounterService service;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    static void createCountersTable(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE user_counters (user_id UUID PRIMARY KEY, journey_count BIGINT NOT NULL, "
+                + "distance_km DECIMAL(19,2) NOT NULL, energy_consumed_kwh DECIMAL(19,2) NOT NULL, "
+                + "co2_reduced_kg DECIMAL(19,2) NOT NULL, credits_issued BIGINT NOT NULL, "
+                + "credits_issued_amount DECIMAL(19,2) NOT NULL, sales_count BIGINT NOT NULL, "
+                + "sales_amount DECIMAL(19,2) NOT NULL, purchase_count BIGINT NOT NULL, "
+                + "purchase_amount DECIMAL(19,2) NOT NULL, updated_at TIMESTAMP NOT NULL)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:counters-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        createCountersTable(jdbcTemplate);
+        jdbcTemplate.execute("CREATE TABLE journey_data (journey_id UUID PRIMARY KEY, user_id UUID, "
+                + "distance_km DECIMAL(10,2), energy_consumed_kwh DECIMAL(10,2), co2_reduced_kg DECIMAL(10,2))");
+        jdbcTemplate.execute("CREATE TABLE carbon_credits (credit_id UUID PRIMARY KEY, user_id UUID, "
+                + "credit_amount DECIMAL(10,2) NOT NULL, status VARCHAR(20) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE transactions (transaction_id UUID PRIMARY KEY, buyer_id UUID, "
+                + "seller_id UUID, amount DECIMAL(10,2) NOT NULL, status VARCHAR(20) NOT NULL)");
+        meterRegistry = new SimpleMeterRegistry();
+        service = new UserCounterService(jdbcTemplate, transactionTemplate, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private void inTransaction(Runnable work) {
+        transactionTemplate.executeWithoutResult(status -> work.run());
+    }
+
+    private static JourneyData journey(String distanceKm, String energyKwh, String co2Kg) {
+        JourneyData journey = new JourneyData();
+        journey.setDistanceKm(new BigDecimal(distanceKm));
+        journey.setEnergyConsumedKwh(new BigDecimal(energyKwh));
+        journey.setCo2ReducedKg(new BigDecimal(co2Kg));
+        return journey;
+    }
+
+    private static Transaction trade(UUID buyerId, UUID sellerId, String amount) {
+        User buyer = new User();
+        buyer.setId(buyerId);
+        User seller = new User();
+        seller.setId(sellerId);
+        Transaction transaction = new Transaction();
+        transaction.setBuyer(buyer);
+        transaction.setSeller(seller);
+        transaction.setAmount(new BigDecimal(amount));
+        return transaction;
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    @Test
+    void changes_createTheRowAndThenAddToIt() {
+        assertEquals(0L, service.getCounters(alice).getJourneyCount());
+
+        inTransaction(() -> service.apply(alice, new CounterChange().addJourney(journey("100", "18", "12"))));
+        inTransaction(() -> service.apply(Map.of(
+                alice, new CounterChange().addJourney(journey("50", "9", "6")),
+                bob, new CounterChange().addJourney(journey("10", "2", "1.10")))));
+        inTransaction(() -> service.apply(alice, new CounterChange().removeJourney(journey("100", "18", "12"))
+                .addJourney(journey("80", "15", "9.30"))));
+
+        UserCounters counters = service.getCounters(alice);
+        assertEquals(2L, counters.getJourneyCount());
+        assertAmount("130", counters.getDistanceKm());
+        assertAmount("24", counters.getEnergyConsumedKwh());
+        assertAmount("15.30", counters.getCo2ReducedKg());
+        assertEquals(1L, service.getCounters(bob).getJourneyCount());
+    }
+
+    @Test
+    void trades_countAsSalesAndPurchases() {
+        inTransaction(() -> service.recordCompleted(List.of(trade(alice, bob, "25.00"), trade(alice, bob, "5.50"))));
+        Transaction disputed = trade(bob, alice, "7.00");
+        inTransaction(() -> service.recordCompleted(disputed));
+        inTransaction(() -> service.recordCompletionReverted(disputed));
+
+        UserCounters buyer = service.getCounters(alice);
+        assertEquals(2L, buyer.getPurchaseCount());
+        assertAmount("30.50", buyer.getPurchaseAmount());
+        assertEquals(0L, buyer.getSalesCount());
+        assertAmount("0", buyer.getSalesAmount());
+        UserCounters seller = service.getCounters(bob);
+        assertEquals(2L, seller.getSalesCount());
+        assertAmount("30.50", seller.getSalesAmount());
+        assertEquals(0L, seller.getPurchaseCount());
+    }
+
+    @Test
+    void issuedCredits_followTheCreditStatus() {
+        CarbonCredit credit = new CarbonCredit();
+        credit.setCreditAmount(new BigDecimal("4.20"));
+        inTransaction(() -> service.apply(alice, new CounterChange().addIssuedCredit(credit)));
+        inTransaction(() -> service.apply(alice, new CounterChange().addIssuedCredit(credit)));
+        inTransaction(() -> service.apply(alice, new CounterChange().removeIssuedCredit(credit)));
+
+        assertEquals(1L, service.getCounters(alice).getCreditsIssued());
+        assertAmount("4.20", service.getCounters(alice).getCreditsIssuedAmount());
+        assertTrue(UserCounterService.isIssued(CarbonCredit.CreditStatus.SOLD));
+        assertFalse(UserCounterService.isIssued(CarbonCredit.CreditStatus.PENDING));
+    }
+
+    @Test
+    void reconcile_rewritesDriftedRowsOnly() {
+        jdbcTemplate.update("INSERT INTO journey_data VALUES (?, ?, 100, 18, 12)", UUID.randomUUID(), alice);
+        jdbcTemplate.update("INSERT INTO journey_data VALUES (?, ?, 50, 9, 6)", UUID.randomUUID(), alice);
+        jdbcTemplate.update("INSERT INTO carbon_credits VALUES (?, ?, 12, 'SOLD')", UUID.randomUUID(), alice);
+        jdbcTemplate.update("INSERT INTO carbon_credits VALUES (?, ?, 6, 'PENDING')", UUID.randomUUID(), alice);
+        jdbcTemplate.update("INSERT INTO transactions VALUES (?, ?, ?, 20, 'COMPLETED')", UUID.randomUUID(), bob,
+                alice);
+        jdbcTemplate.update("INSERT INTO transactions VALUES (?, ?, ?, 99, 'CANCELLED')", UUID.randomUUID(), bob,
+                alice);
+        // Alice's row missed a journey, Bob has none, a deleted user's row is left behind
+        UUID gone = UUID.randomUUID();
+        inTransaction(() -> service.apply(Map.of(
+                alice, new CounterChange().addJourney(journey("100", "18", "12")).addSales(1, new BigDecimal("20"))
+                        .addIssuedCredit(credit("12")),
+                gone, new CounterChange().addPurchases(1, BigDecimal.TEN))));
+
+        assertEquals(3, service.reconcile());
+
+        UserCounters counters = service.getCounters(alice);
+        assertEquals(2L, counters.getJourneyCount());
+        assertAmount("150", counters.getDistanceKm());
+        assertAmount("18", counters.getCo2ReducedKg());
+        assertEquals(1L, counters.getCreditsIssued());
+        assertAmount("12", counters.getCreditsIssuedAmount());
+        assertEquals(1L, counters.getSalesCount());
+        assertAmount("20", counters.getSalesAmount());
+        assertEquals(1L, service.getCounters(bob).getPurchaseCount());
+        assertAmount("20", service.getCounters(bob).getPurchaseAmount());
+        assertEquals(0L, service.getCounters(gone).getPurchaseCount());
+        assertEquals(3.0, meterRegistry.counter("user.counters.drift").count());
+
+        assertEquals(0, service.reconcile());
+    }
+
+    private static CarbonCredit credit(String amount) {
+        CarbonCredit credit = new CarbonCredit();
+        credit.setCreditAmount(new BigDecimal(amount));
+        return credit;
+    }
+}
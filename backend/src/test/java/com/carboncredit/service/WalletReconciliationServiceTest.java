@@ -0,0 +1,107 @@
+package com.carboncredit.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.EntryType;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
+import com.carboncredit.repository.LedgerEntryRepository;
+import com.carboncredit.service.LedgerService.Journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the wallet reconciliation against an in-memory H2 database.
+ */
+class WalletReconciliationServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerService ledgerService;
+    private WalletReconciliationService service;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:wallets-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        LedgerServiceTest.createLedgerTables(jdbcTemplate);
+        jdbcTemplate.execute("CREATE TABLE wallets (user_id UUID PRIMARY KEY, cash_balance DECIMAL(15,2) NOT NULL, "
+                + "credit_balance DECIMAL(15,2) NOT NULL)");
+        meterRegistry = new SimpleMeterRegistry();
+        ledgerService = new LedgerService(jdbcTemplate, mock(LedgerEntryRepository.class), 300);
+        service = new WalletReconciliationService(jdbcTemplate, transactionTemplate, ledgerService, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private void wallet(UUID userId, String cash, String credits) {
+        jdbcTemplate.update("INSERT INTO wallets VALUES (?, ?, ?)", userId, new BigDecimal(cash),
+                new BigDecimal(credits));
+    }
+
+    private void deposit(UUID userId, String amount) {
+        transactionTemplate.executeWithoutResult(status -> ledgerService.record(
+                Journal.of(EntryType.DEPOSIT, null, "Deposit")
+                        .cash(LedgerAccount.USER, userId, new BigDecimal(amount))
+                        .cash(LedgerAccount.EXTERNAL, null, new BigDecimal(amount).negate())));
+    }
+
+    private BigDecimal walletCash(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT cash_balance FROM wallets WHERE user_id = ?", BigDecimal.class,
+                userId);
+    }
+
+    @Test
+    void reconcile_opensWalletsWithoutEntriesAndRewritesDriftedOnes() {
+        // Alice predates the ledger, Bob's row lost a deposit, Carol is in step
+        wallet(alice, "50.00", "3");
+        wallet(bob, "10.00", "0");
+        deposit(bob, "10.00");
+        deposit(bob, "5.00");
+        wallet(carol, "7.00", "0");
+        deposit(carol, "7.00");
+
+        assertEquals(2, service.reconcile());
+
+        assertEquals(0, new BigDecimal("50.00").compareTo(
+                ledgerService.getBalance(LedgerAccount.USER, alice, Asset.CASH)));
+        assertEquals(0, new BigDecimal("3").compareTo(
+                ledgerService.getBalance(LedgerAccount.USER, alice, Asset.CREDIT)));
+        assertEquals(0, new BigDecimal("50.00").compareTo(walletCash(alice)));
+        assertEquals(0, new BigDecimal("15.00").compareTo(walletCash(bob)));
+        assertEquals(0, new BigDecimal("7.00").compareTo(walletCash(carol)));
+        // Opening a wallet is not drift
+        assertEquals(1.0, meterRegistry.counter("wallet.balance.drift").count());
+
+        assertEquals(0, service.reconcile());
+    }
+
+    @Test
+    void reconcile_leavesEmptyWalletsAlone() {
+        wallet(alice, "0", "0");
+
+        assertEquals(0, service.reconcile());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_entries", Integer.class));
+    }
+}
@@ -15,8 +15,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.carboncredit.entity.LedgerEntry.Asset;
+import com.carboncredit.entity.LedgerEntry.LedgerAccount;
 import com.carboncredit.entity.User;
 import com.carboncredit.entity.Wallet;
+import com.carboncredit.exception.BusinessOperationException;
 import com.carboncredit.repository.WalletRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +27,9 @@ class WalletServiceTest {
 
     @Mock
     private WalletRepository walletRepository;
+
+    @Mock
+    private LedgerService ledgerService;
     
     private WalletService walletService;
     
@@ -33,7 +39,7 @@ class WalletServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        walletService = new WalletService(walletRepository);
+        walletService = new WalletService(walletRepository, ledgerService);
         
         // Create test user
         testUser = new User();
@@ -152,8 +158,8 @@ class WalletServiceTest {
         updatedWallet.setCreditBalance(new BigDecimal("75.00")); // 50 + 25
         updatedWallet.setCashBalance(testWallet.getCashBalance());
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletRepository.addToBalances(testUser.getId(), BigDecimal.ZERO, addAmount)).thenReturn(1);
+        when(walletRepository.findCurrentByUserId(testUser.getId())).thenReturn(Optional.of(updatedWallet));
         
         // Act
         Wallet result = walletService.updateCreditBalance(testUser.getId(), addAmount);
@@ -161,8 +167,8 @@ class WalletServiceTest {
         // Assert
         assertEquals(new BigDecimal("75.00"), result.getCreditBalance());
         
-        verify(walletRepository).findByUserId(testUser.getId());
-        verify(walletRepository).save(any(Wallet.class));
+        verify(walletRepository).addToBalances(testUser.getId(), BigDecimal.ZERO, addAmount);
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
     
     @Test
@@ -175,8 +181,8 @@ class WalletServiceTest {
         updatedWallet.setCreditBalance(new BigDecimal("30.00")); // 50 - 20
         updatedWallet.setCashBalance(testWallet.getCashBalance());
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletRepository.addToBalances(testUser.getId(), BigDecimal.ZERO, deductAmount)).thenReturn(1);
+        when(walletRepository.findCurrentByUserId(testUser.getId())).thenReturn(Optional.of(updatedWallet));
         
         // Act
         Wallet result = walletService.updateCreditBalance(testUser.getId(), deductAmount);
@@ -184,8 +190,8 @@ class WalletServiceTest {
         // Assert
         assertEquals(new BigDecimal("30.00"), result.getCreditBalance());
         
-        verify(walletRepository).findByUserId(testUser.getId());
-        verify(walletRepository).save(any(Wallet.class));
+        verify(walletRepository).addToBalances(testUser.getId(), BigDecimal.ZERO, deductAmount);
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
     
     @Test
@@ -193,7 +199,9 @@ class WalletServiceTest {
         // Arrange
         BigDecimal deductAmount = new BigDecimal("-75.00"); // More than available 50
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
+        // The guarded update matches no row
+        when(walletRepository.addToBalances(testUser.getId(), BigDecimal.ZERO, deductAmount)).thenReturn(0);
+        when(walletRepository.existsByUserId(testUser.getId())).thenReturn(true);
         
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -202,7 +210,7 @@ class WalletServiceTest {
         
         assertEquals("Insufficient credit balance", exception.getMessage());
         
-        verify(walletRepository).findByUserId(testUser.getId());
+        verify(walletRepository).addToBalances(testUser.getId(), BigDecimal.ZERO, deductAmount);
         verify(walletRepository, never()).save(any(Wallet.class));
     }
     
@@ -212,7 +220,8 @@ class WalletServiceTest {
         UUID nonExistentUserId = UUID.randomUUID();
         BigDecimal amount = new BigDecimal("10.00");
         
-        when(walletRepository.findByUserId(nonExistentUserId)).thenReturn(Optional.empty());
+        when(walletRepository.addToBalances(nonExistentUserId, BigDecimal.ZERO, amount)).thenReturn(0);
+        when(walletRepository.existsByUserId(nonExistentUserId)).thenReturn(false);
         
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -221,7 +230,7 @@ class WalletServiceTest {
         
         assertEquals("Wallet not found for user: " + nonExistentUserId, exception.getMessage());
         
-        verify(walletRepository).findByUserId(nonExistentUserId);
+        verify(walletRepository).existsByUserId(nonExistentUserId);
         verify(walletRepository, never()).save(any(Wallet.class));
     }
     
@@ -235,8 +244,8 @@ class WalletServiceTest {
         updatedWallet.setCreditBalance(testWallet.getCreditBalance());
         updatedWallet.setCashBalance(new BigDecimal("150.00")); // 100 + 50
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletRepository.addToBalances(testUser.getId(), addAmount, BigDecimal.ZERO)).thenReturn(1);
+        when(walletRepository.findCurrentByUserId(testUser.getId())).thenReturn(Optional.of(updatedWallet));
         
         // Act
         Wallet result = walletService.updateCashBalance(testUser.getId(), addAmount);
@@ -244,8 +253,9 @@ class WalletServiceTest {
         // Assert
         assertEquals(new BigDecimal("150.00"), result.getCashBalance());
         
-        verify(walletRepository).findByUserId(testUser.getId());
-        verify(walletRepository).save(any(Wallet.class));
+        verify(walletRepository).addToBalances(testUser.getId(), addAmount, BigDecimal.ZERO);
+        verify(ledgerService).record(any(LedgerService.Journal.class));
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
     
     @Test
@@ -258,8 +268,8 @@ class WalletServiceTest {
         updatedWallet.setCreditBalance(testWallet.getCreditBalance());
         updatedWallet.setCashBalance(new BigDecimal("70.00")); // 100 - 30
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(updatedWallet);
+        when(walletRepository.addToBalances(testUser.getId(), deductAmount, BigDecimal.ZERO)).thenReturn(1);
+        when(walletRepository.findCurrentByUserId(testUser.getId())).thenReturn(Optional.of(updatedWallet));
         
         // Act
         Wallet result = walletService.updateCashBalance(testUser.getId(), deductAmount);
@@ -267,8 +277,8 @@ class WalletServiceTest {
         // Assert
         assertEquals(new BigDecimal("70.00"), result.getCashBalance());
         
-        verify(walletRepository).findByUserId(testUser.getId());
-        verify(walletRepository).save(any(Wallet.class));
+        verify(walletRepository).addToBalances(testUser.getId(), deductAmount, BigDecimal.ZERO);
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
     
     @Test
@@ -276,7 +286,9 @@ class WalletServiceTest {
         // Arrange
         BigDecimal deductAmount = new BigDecimal("-150.00"); // More than available 100
         
-        when(walletRepository.findByUserId(testUser.getId())).thenReturn(Optional.of(testWallet));
+        // The guarded update matches no row
+        when(walletRepository.addToBalances(testUser.getId(), deductAmount, BigDecimal.ZERO)).thenReturn(0);
+        when(walletRepository.existsByUserId(testUser.getId())).thenReturn(true);
         
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -285,7 +297,8 @@ class WalletServiceTest {
         
         assertEquals("Insufficient cash balance", exception.getMessage());
         
-        verify(walletRepository).findByUserId(testUser.getId());
+        verify(walletRepository).addToBalances(testUser.getId(), deductAmount, BigDecimal.ZERO);
+        verifyNoInteractions(ledgerService);
         verify(walletRepository, never()).save(any(Wallet.class));
     }
     
@@ -295,7 +308,8 @@ class WalletServiceTest {
         UUID nonExistentUserId = UUID.randomUUID();
         BigDecimal amount = new BigDecimal("10.00");
         
-        when(walletRepository.findByUserId(nonExistentUserId)).thenReturn(Optional.empty());
+        when(walletRepository.addToBalances(nonExistentUserId, amount, BigDecimal.ZERO)).thenReturn(0);
+        when(walletRepository.existsByUserId(nonExistentUserId)).thenReturn(false);
         
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -304,7 +318,18 @@ class WalletServiceTest {
         
         assertEquals("Wallet not found for user: " + nonExistentUserId, exception.getMessage());
         
-        verify(walletRepository).findByUserId(nonExistentUserId);
+        verify(walletRepository).existsByUserId(nonExistentUserId);
         verify(walletRepository, never()).save(any(Wallet.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void releaseCash_WithoutHold_ThrowsException() {
+        BigDecimal amount = new BigDecimal("20.00");
+        when(walletRepository.addToBalances(testUser.getId(), amount, BigDecimal.ZERO)).thenReturn(1);
+        when(ledgerService.getBalance(LedgerAccount.HOLD, testUser.getId(), Asset.CASH))
+                .thenReturn(new BigDecimal("10.00"));
+
+        assertThrows(BusinessOperationException.class, () -> walletService.releaseCash(testUser.getId(), amount));
+        verify(ledgerService, never()).record(any(LedgerService.Journal.class));
+    }
+}
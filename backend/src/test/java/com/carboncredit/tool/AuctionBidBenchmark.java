@@ -0,0 +1,131 @@
+package com.carboncredit.tool;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.entity.CarbonCredit;
+import com.carboncredit.entity.CreditListing;
+import com.carboncredit.entity.User;
+import com.carboncredit.exception.BusinessOperationException;
+import com.carboncredit.repository.BidRepository;
+import com.carboncredit.repository.CreditListingRepository;
+import com.carboncredit.repository.UserRepository;
+import com.carboncredit.service.AuctionBiddingService;
+import com.carboncredit.service.ValidationService;
+import com.carboncredit.service.WalletService;
+
+/**
+ * Throughput benchmark for the auction bidding engine.
+ * Hammers a few hot auctions from many threads and reports accepted and
+ * rejected bids per second. The wallet and bids table are no-op stand-ins
+ * so the numbers show the engine itself, not database latency.
+ *
+ * Usage: AuctionBidBenchmark [threads] [auctions] [seconds]
+ */
+public class AuctionBidBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int auctionCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        CreditListingRepository listingRepository = mock(CreditListingRepository.class);
+        BidRepository bidRepository = mock(BidRepository.class);
+        when(bidRepository.findHighestBid(any())).thenReturn(Optional.empty());
+
+        User seller = new User();
+        seller.setId(UUID.randomUUID());
+        CarbonCredit credit = new CarbonCredit();
+        credit.setUser(seller);
+
+        List<UUID> auctionIds = new ArrayList<>();
+        for (int i = 0; i < auctionCount; i++) {
+            CreditListing auction = CreditListing.builder()
+                    .id(UUID.randomUUID())
+                    .credit(credit)
+                    .listingType(CreditListing.ListingType.AUCTION)
+                    .status(CreditListing.ListingStatus.ACTIVE)
+                    .minBid(new BigDecimal("1.00"))
+                    .auctionEndTime(LocalDateTime.now().plusHours(1))
+                    .build();
+            when(listingRepository.findByIdWithSeller(auction.getId())).thenReturn(Optional.of(auction));
+            auctionIds.add(auction.getId());
+        }
+
+        WalletService noOpWallet = new WalletService(null, null) {
+            @Override
+            public void reserveCash(UUID userId, BigDecimal amount) {
+            }
+
+            @Override
+            public void releaseCash(UUID userId, BigDecimal amount) {
+            }
+        };
+
+        AuctionBiddingService engine = new AuctionBiddingService(listingRepository, bidRepository,
+                mock(UserRepository.class), noOpWallet, new ValidationService(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        LongAdder accepted = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                User bidder = new User();
+                bidder.setId(UUID.randomUUID());
+                bidder.setUsername("bidder-" + bidder.getId());
+                bidder.setRole(User.UserRole.BUYER);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                long cents = 100;
+                while (System.nanoTime() < deadline) {
+                    UUID auctionId = auctionIds.get(random.nextInt(auctionIds.size()));
+                    // Mostly rising bids with some stale ones mixed in
+                    cents += random.nextInt(-5, 20);
+                    BigDecimal amount = BigDecimal.valueOf(Math.min(Math.max(cents, 100), 999_999), 2);
+                    try {
+                        engine.placeBid(auctionId, bidder, amount);
+                        accepted.increment();
+                    } catch (BusinessOperationException e) {
+                        rejected.increment();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        long total = accepted.sum() + rejected.sum();
+        System.out.println("=".repeat(60));
+        System.out.printf("Threads: %d, hot auctions: %d, duration: %.1fs%n", threads, auctionCount, elapsed);
+        System.out.printf("Total bids:    %,d (%,.0f bids/s)%n", total, total / elapsed);
+        System.out.printf("Accepted bids: %,d (%,.0f bids/s)%n", accepted.sum(), accepted.sum() / elapsed);
+        System.out.printf("Rejected bids: %,d (%,.0f bids/s)%n", rejected.sum(), rejected.sum() / elapsed);
+        System.out.println("=".repeat(60));
+    }
+}
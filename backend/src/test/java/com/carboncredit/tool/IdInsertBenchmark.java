@@ -0,0 +1,89 @@
+package com.carboncredit.tool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.carboncredit.util.Snowflake;
+import com.carboncredit.util.UuidV7;
+
+/**
+ * Insert throughput of random version 4 UUID keys, the previous entity
+ * default, against time-ordered version 7 UUIDs and Snowflake longs.
+ * Each run fills a fresh table with a primary key and a small payload in
+ * JDBC batches and reports rows per second for the last slice of rows,
+ * when the index no longer fits in the cache and random keys start paying
+ * for page splits.
+ *
+ * Runs against in-memory H2 by default; pass a Postgres URL to measure
+ * the production database, where the table's size on disk is printed too.
+ *
+ * Usage: IdInsertBenchmark [rows] [jdbc-url] [user] [password]
+ */
+public class IdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String url = args.length > 1 ? args[1] : "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1";
+        String user = args.length > 2 ? args[2] : "sa";
+        String password = args.length > 3 ? args[3] : "";
+
+        Snowflake snowflake = new Snowflake(1);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(false);
+            boolean postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+
+            System.out.printf("%-14s %14s %14s %12s%n", "key", "rows/s", "last 10% r/s", "size");
+            run(connection, postgres, "uuid v4", "UUID", rows, UUID::randomUUID);
+            run(connection, postgres, "uuid v7", "UUID", rows, UuidV7::next);
+            run(connection, postgres, "snowflake", "BIGINT", rows, snowflake::next);
+        }
+    }
+
+    private static void run(Connection connection, boolean postgres, String name, String keyType, int rows,
+            Supplier<Object> keys) throws Exception {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS id_benchmark");
+            ddl.execute("CREATE TABLE id_benchmark (id " + keyType + " PRIMARY KEY, amount DECIMAL(15, 2), "
+                    + "reference VARCHAR(50))");
+        }
+        connection.commit();
+
+        int tail = Math.max(rows / 10, BATCH_SIZE);
+        long start = System.nanoTime();
+        long tailStart = start;
+        try (PreparedStatement insert = connection
+                .prepareStatement("INSERT INTO id_benchmark (id, amount, reference) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                if (i == rows - tail) {
+                    tailStart = System.nanoTime();
+                }
+                insert.setObject(1, keys.get());
+                insert.setLong(2, i);
+                insert.setString(3, "DEP_" + i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == rows - 1) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        long end = System.nanoTime();
+
+        String size = "-";
+        if (postgres) {
+            try (Statement query = connection.createStatement();
+                    var rs = query.executeQuery("SELECT pg_size_pretty(pg_total_relation_size('id_benchmark'))")) {
+                rs.next();
+                size = rs.getString(1);
+            }
+        }
+        System.out.printf("%-14s %14.0f %14.0f %12s%n", name, rows / ((end - start) / 1e9),
+                tail / ((end - tailStart) / 1e9), size);
+    }
+}
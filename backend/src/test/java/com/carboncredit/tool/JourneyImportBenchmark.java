@@ -0,0 +1,130 @@
+package com.carboncredit.tool;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.carboncredit.dto.JourneyImportResultDTO;
+import com.carboncredit.entity.User;
+import com.carboncredit.entity.Vehicle;
+import com.carboncredit.repository.JourneyDataRepository;
+import com.carboncredit.repository.VehicleRepository;
+import com.carboncredit.service.CacheInvalidationBus;
+import com.carboncredit.service.CarbonCreditService;
+import com.carboncredit.service.JourneyImportService;
+import com.carboncredit.service.JourneyOverlapIndex;
+import com.carboncredit.service.UserCounterService;
+import com.carboncredit.service.ValidationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Journeys ingested per second through the bulk upload path at several
+ * JDBC batch sizes, to pick journeys.import.batch-size. Each run parses
+ * and validates an NDJSON upload, writes the journey, its pending credit
+ * and the audit entry for every row and updates the user's counters; a
+ * batch size of 1 is the cost of saving journeys one at a time.
+ *
+ * Runs against in-memory H2 by default; pass the URL of a scratch Postgres
+ * database with the schema applied and the foreign keys on journey_data
+ * and carbon_credits dropped to measure the production database.
+ *
+ * Usage: JourneyImportBenchmark [rows] [jdbc-url] [user] [password]
+ */
+public class JourneyImportBenchmark {
+
+    private static final int[] BATCH_SIZES = { 1, 50, 500, 2000 };
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String url = args.length > 1 ? args[1] : "jdbc:h2:mem:journeys;DB_CLOSE_DELAY=-1";
+        String dbUser = args.length > 2 ? args[2] : "sa";
+        String password = args.length > 3 ? args[3] : "";
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, dbUser, password);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        if (url.startsWith("jdbc:h2:")) {
+            createTables(jdbcTemplate);
+        }
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("benchmark");
+        VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+        System.out.printf("%d rows, %.1f MB upload%n", rows, upload(UUID.randomUUID(), rows).length / 1e6);
+        System.out.printf("%-7s %12s %10s%n", "batch", "rows/s", "accepted");
+        for (int batchSize : BATCH_SIZES) {
+            // every pass, warm-up included, uploads to a vehicle of its own so earlier passes do not overlap it
+            Vehicle warmUpVehicle = new Vehicle();
+            warmUpVehicle.setId(UUID.randomUUID());
+            Vehicle vehicle = new Vehicle();
+            vehicle.setId(UUID.randomUUID());
+            when(vehicleRepository.findByUser(user)).thenReturn(List.of(warmUpVehicle, vehicle));
+            byte[] upload = upload(vehicle.getId(), rows);
+            JourneyOverlapIndex overlapIndex = new JourneyOverlapIndex(mock(JourneyDataRepository.class),
+                    mock(CacheInvalidationBus.class), transactionTemplate, new SimpleMeterRegistry(), 100,
+                    Duration.ofHours(1));
+            JourneyImportService service = new JourneyImportService(jdbcTemplate, transactionTemplate,
+                    new ValidationService(), new CarbonCreditService(null, null, null, null), vehicleRepository,
+                    new UserCounterService(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry()),
+                    overlapIndex, new ObjectMapper().registerModule(new JavaTimeModule()), batchSize, rows);
+            // one warm-up pass so the first batch size does not pay for class loading and JIT
+            service.importJourneys(user, new ByteArrayInputStream(upload(warmUpVehicle.getId(), 2000)),
+                    JourneyImportService.Format.NDJSON);
+
+            long started = System.nanoTime();
+            JourneyImportResultDTO result = service.importJourneys(user, new ByteArrayInputStream(upload),
+                    JourneyImportService.Format.NDJSON);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("%-7d %12.0f %10d%n", batchSize, result.getTotalRows() / seconds,
+                    result.getAcceptedRows());
+        }
+    }
+
+    private static byte[] upload(UUID vehicleId, int rows) {
+        StringBuilder body = new StringBuilder(rows * 180);
+        // back to back 45 minute journeys ending a day ago
+        LocalDateTime start = LocalDateTime.now().minusDays(1).minusMinutes(rows * 45L).withNano(0);
+        for (int i = 0; i < rows; i++) {
+            LocalDateTime begin = start.plusMinutes(i * 45L);
+            body.append("{\"vehicleId\":\"").append(vehicleId)
+                    .append("\",\"distanceKm\":").append(20 + i % 200)
+                    .append(",\"energyConsumedKwh\":").append(2 + i % 200 / 6)
+                    .append(",\"startTime\":\"").append(begin)
+                    .append("\",\"endTime\":\"").append(begin.plusMinutes(45)).append("\"}\n");
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void createTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE journey_data (journey_id UUID PRIMARY KEY, vehicle_id UUID, user_id UUID, "
+                + "distance_km DECIMAL(10,2), energy_consumed_kwh DECIMAL(10,2), start_time TIMESTAMP, "
+                + "end_time TIMESTAMP, co2_reduced_kg DECIMAL(10,2), created_at TIMESTAMP, "
+                + "verification_status VARCHAR(30))");
+        jdbcTemplate.execute("CREATE TABLE carbon_credits (credit_id UUID PRIMARY KEY, user_id UUID, journey_id UUID, "
+                + "co2_reduced_kg DECIMAL(10,2) NOT NULL, credit_amount DECIMAL(10,2) NOT NULL, "
+                + "status VARCHAR(20) NOT NULL, created_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (audit_id UUID PRIMARY KEY, credit_id UUID, verifier_id UUID, "
+                + "action VARCHAR(50) NOT NULL, comments VARCHAR(1000), created_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE user_counters (user_id UUID PRIMARY KEY, journey_count BIGINT NOT NULL, "
+                + "distance_km DECIMAL(19,2) NOT NULL, energy_consumed_kwh DECIMAL(19,2) NOT NULL, "
+                + "co2_reduced_kg DECIMAL(19,2) NOT NULL, credits_issued BIGINT NOT NULL, "
+                + "credits_issued_amount DECIMAL(19,2) NOT NULL, sales_count BIGINT NOT NULL, "
+                + "sales_amount DECIMAL(19,2) NOT NULL, purchase_count BIGINT NOT NULL, "
+                + "purchase_amount DECIMAL(19,2) NOT NULL, updated_at TIMESTAMP NOT NULL)");
+    }
+}
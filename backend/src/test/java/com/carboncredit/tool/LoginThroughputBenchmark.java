@@ -0,0 +1,105 @@
+package com.carboncredit.tool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.carboncredit.config.BoundedPasswordEncoder;
+import com.carboncredit.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Password checks per second at each BCrypt strength, with many concurrent
+ * clients going through the bounded hashing pool the way logins do.
+ * Reports accepted logins per second, latency percentiles of accepted
+ * logins and how many were turned away, to pick password-hashing.strength
+ * (or the adaptive target time) and the pool size for the hardware.
+ *
+ * Usage: LoginThroughputBenchmark [minStrength] [maxStrength] [clients] [seconds] [threads] [queueCapacity]
+ */
+public class LoginThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int minStrength = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxStrength = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int queueCapacity = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+
+        System.out.printf("%d clients, %d hashing threads, queue %d, %d s per strength%n",
+                clients, threads, queueCapacity, seconds);
+        System.out.printf("%-9s %12s %9s %9s %9s%n", "strength", "logins/s", "p50 ms", "p99 ms", "rejected");
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            run(strength, clients, seconds, threads, queueCapacity);
+        }
+        System.out.printf("adaptive strength for 250 ms target: %d%n",
+                BoundedPasswordEncoder.calibrateStrength(minStrength, maxStrength, Duration.ofMillis(250)));
+    }
+
+    private static void run(int strength, int clients, int seconds, int threads, int queueCapacity)
+            throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads,
+                queueCapacity, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        String hash = encoder.encode("benchmark-password");
+        ExecutorService clientPool = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            results.add(clientPool.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                long rejected = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        encoder.matches("benchmark-password", hash);
+                    } catch (ServiceBusyException e) {
+                        rejected++;
+                        Thread.sleep(5); // a client retrying after a 503
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                long[] result = Arrays.copyOf(latencies, count + 1);
+                result[count] = rejected; // last slot carries the rejections
+                return result;
+            }));
+        }
+
+        long[] all = new long[0];
+        long rejected = 0;
+        for (Future<long[]> future : results) {
+            long[] result = future.get();
+            rejected += result[result.length - 1];
+            int accepted = result.length - 1;
+            all = Arrays.copyOf(all, all.length + accepted);
+            System.arraycopy(result, 0, all, all.length - accepted, accepted);
+        }
+        clientPool.shutdown();
+        encoder.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("%-9d %12.1f %9.1f %9.1f %9d%n", strength, all.length / (double) seconds,
+                percentile(all, 0.50), percentile(all, 0.99), rejected);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.carboncredit.tool;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongUnaryOperator;
+
+import com.carboncredit.util.Money;
+
+/**
+ * Compares the old BigDecimal fee and currency arithmetic with the long
+ * fixed-point versions used by TransactionService, CartCheckoutService and
+ * CurrencyService. Reports nanoseconds and bytes allocated per operation,
+ * measured with the JVM's per-thread allocation counter after a warmup.
+ *
+ * Usage: MoneyArithmeticBenchmark [operations] [rounds]
+ */
+public class MoneyArithmeticBenchmark {
+
+    private static final String FEE_PERCENT = "5.0";
+    private static final BigDecimal RATE = new BigDecimal("26330");
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        long[] pricesCents = new long[1024];
+        BigDecimal[] prices = new BigDecimal[pricesCents.length];
+        for (int i = 0; i < pricesCents.length; i++) {
+            pricesCents[i] = ThreadLocalRandom.current().nextLong(100, 10_000_000);
+            prices[i] = Money.fromCents(pricesCents[i]);
+        }
+        int mask = pricesCents.length - 1;
+
+        long feePpm = Money.percentToPpm(FEE_PERCENT);
+        long vndPerCentPpm = Money.toPpm(RATE.movePointLeft(2));
+
+        // Previous code: the percentage was reparsed and the fee computed in BigDecimal on every call
+        LongUnaryOperator bigDecimalFee = i -> {
+            BigDecimal price = prices[(int) i & mask];
+            Double feePercent = Double.parseDouble(FEE_PERCENT);
+            BigDecimal fee = price.multiply(BigDecimal.valueOf(feePercent)).divide(BigDecimal.valueOf(100), 2,
+                    RoundingMode.HALF_UP);
+            return price.subtract(fee).scale();
+        };
+        LongUnaryOperator longFee = i -> {
+            long price = pricesCents[(int) i & mask];
+            long fee = Money.applyPpm(price, feePpm);
+            return price - fee;
+        };
+        LongUnaryOperator bigDecimalConvert = i -> prices[(int) i & mask].multiply(RATE)
+                .setScale(0, RoundingMode.HALF_UP).signum();
+        LongUnaryOperator longConvert = i -> Money.applyPpm(pricesCents[(int) i & mask], vndPerCentPpm);
+
+        System.out.printf("%-22s %12s %12s%n", "operation", "ns/op", "bytes/op");
+        for (int round = 0; round < rounds; round++) {
+            boolean report = round == rounds - 1;
+            run("fee BigDecimal", bigDecimalFee, operations, report);
+            run("fee long", longFee, operations, report);
+            run("usd->vnd BigDecimal", bigDecimalConvert, operations, report);
+            run("usd->vnd long", longConvert, operations, report);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void run(String name, LongUnaryOperator operation, int operations, boolean report) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long result = 0;
+        for (int i = 0; i < operations; i++) {
+            result += operation.applyAsLong(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        sink += result;
+        if (report) {
+            System.out.printf("%-22s %12.1f %12.1f%n", name, (double) elapsed / operations,
+                    (double) allocated / operations);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.carboncredit.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.carboncredit.util.IntervalTree.Interval;
+
+class IntervalTreeTest {
+
+    private final IntervalTree<String> tree = new IntervalTree<>();
+
+    @Test
+    void findOverlap_ignoresIntervalsThatOnlyTouch() {
+        tree.put("a", new Interval(10, 20));
+        tree.put("b", new Interval(30, 40));
+
+        assertEquals("a", tree.findOverlap(15, 16));
+        assertEquals("b", tree.findOverlap(21, 31));
+        assertNull(tree.findOverlap(20, 30));
+        assertNull(tree.findOverlap(0, 10));
+        assertNull(tree.findOverlap(40, 50));
+    }
+
+    @Test
+    void put_replacesTheKeysInterval() {
+        tree.put("a", new Interval(10, 20));
+
+        assertEquals(new Interval(10, 20), tree.put("a", new Interval(50, 60)));
+        assertNull(tree.findOverlap(10, 20));
+        assertEquals("a", tree.findOverlap(55, 56));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void remove_dropsTheInterval() {
+        tree.put("a", new Interval(10, 20));
+        tree.put("b", new Interval(10, 20));
+
+        assertEquals(new Interval(10, 20), tree.remove("a"));
+        assertNull(tree.remove("a"));
+        assertEquals("b", tree.findOverlap(0, 100));
+        tree.remove("b");
+        assertNull(tree.findOverlap(0, 100));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void findOverlap_matchesALinearScan() {
+        Random random = new Random(42);
+        Map<Integer, Interval> expected = new HashMap<>();
+        IntervalTree<Integer> randomTree = new IntervalTree<>();
+        for (int step = 0; step < 20_000; step++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), randomTree.remove(key));
+            } else {
+                long start = random.nextInt(100_000);
+                Interval interval = new Interval(start, start + 1 + random.nextInt(300));
+                assertEquals(expected.put(key, interval), randomTree.put(key, interval));
+            }
+
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(300);
+            Integer found = randomTree.findOverlap(start, end);
+            boolean overlapExists = expected.values().stream().anyMatch(i -> i.start() < end && start < i.end());
+            assertEquals(overlapExists, found != null, "query [" + start + ", " + end + ")");
+            if (found != null) {
+                Interval interval = expected.get(found);
+                assertTrue(interval.start() < end && start < interval.end());
+            }
+        }
+        assertEquals(expected.size(), randomTree.size());
+    }
+}
@@ -0,0 +1,73 @@
+package com.carboncredit.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void centsRoundTrip() {
+        assertEquals(1234, Money.toCents(new BigDecimal("12.34")));
+        assertEquals(1235, Money.toCents(new BigDecimal("12.345")));
+        assertEquals(-1235, Money.toCents(new BigDecimal("-12.345")));
+        assertEquals(new BigDecimal("12.34"), Money.fromCents(1234));
+    }
+
+    @Test
+    void percentToPpm() {
+        assertEquals(50_000, Money.percentToPpm("5.0"));
+        assertEquals(51_250, Money.percentToPpm(" 5.125 "));
+        assertEquals(0, Money.percentToPpm("0"));
+        assertThrows(NumberFormatException.class, () -> Money.percentToPpm("five"));
+    }
+
+    @Test
+    void divideHalfUp_roundsHalvesAwayFromZero() {
+        assertEquals(3, Money.divideHalfUp(5, 2));
+        assertEquals(-3, Money.divideHalfUp(-5, 2));
+        assertEquals(2, Money.divideHalfUp(7, 4));
+        assertEquals(1, Money.divideHalfUp(5, 4));
+        assertEquals(0, Money.divideHalfUp(1, 3));
+    }
+
+    @Test
+    void applyPpm_overflowIsDetected() {
+        assertThrows(ArithmeticException.class, () -> Money.applyPpm(Long.MAX_VALUE / 2, 50_000));
+    }
+
+    @Test
+    void feeMatchesBigDecimalCalculation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal price = BigDecimal.valueOf(random.nextLong(1, 100_000_000), 2);
+            double percent = random.nextInt(0, 2_000) / 100.0;
+            BigDecimal expected = price.multiply(BigDecimal.valueOf(percent))
+                    .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+
+            long fee = Money.applyPpm(Money.toCents(price), Money.percentToPpm(Double.toString(percent)));
+
+            assertEquals(expected, Money.fromCents(fee), "fee of " + price + " at " + percent + "%");
+        }
+    }
+
+    @Test
+    void rateConversionMatchesBigDecimalCalculation() {
+        BigDecimal rate = new BigDecimal("26330");
+        long vndPerCentPpm = Money.toPpm(rate.movePointLeft(2));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal usd = BigDecimal.valueOf(random.nextLong(1, 100_000_000), 2);
+            BigDecimal vnd = usd.multiply(rate).setScale(0, RoundingMode.HALF_UP);
+            assertEquals(vnd.longValueExact(), Money.applyPpm(Money.toCents(usd), vndPerCentPpm));
+
+            long anyVnd = random.nextLong(1, 10_000_000_000L);
+            BigDecimal back = BigDecimal.valueOf(anyVnd).divide(rate, 2, RoundingMode.HALF_UP);
+            assertEquals(back, Money.fromCents(Money.divideByPpm(anyVnd, vndPerCentPpm)));
+        }
+    }
+}
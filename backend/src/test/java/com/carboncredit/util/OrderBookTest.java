@@ -0,0 +1,133 @@
+package com.carboncredit.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.carboncredit.service.OrderBookService;
+
+class OrderBookTest {
+
+    private OrderBook book;
+    private UUID seller;
+    private UUID buyer;
+
+    @BeforeEach
+    void setUp() {
+        book = new OrderBook(OrderBookService.DEFAULT_CREDIT_CLASS);
+        seller = UUID.randomUUID();
+        buyer = UUID.randomUUID();
+    }
+
+    private UUID add(String price, String credits) {
+        return add(price, credits, seller);
+    }
+
+    private UUID add(String price, String credits, UUID owner) {
+        UUID listingId = UUID.randomUUID();
+        book.upsert(listingId, new BigDecimal(price), new BigDecimal(credits), owner, LocalDateTime.now(), 0);
+        return listingId;
+    }
+
+    @Test
+    void bestAsk_isLowestPriceThenEarliest() {
+        add("12.00", "1");
+        UUID first = add("10.00", "1");
+        add("10.00", "1");
+
+        assertEquals(first, book.bestAsk().orElseThrow().getListingId());
+    }
+
+    @Test
+    void bestAsk_emptyBook() {
+        assertTrue(book.bestAsk().isEmpty());
+    }
+
+    @Test
+    void upsert_priceChangeLosesTimePriority() {
+        UUID first = add("10.00", "1");
+        UUID second = add("10.00", "1");
+
+        book.upsert(first, new BigDecimal("10.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 1);
+        assertEquals(first, book.bestAsk().orElseThrow().getListingId());
+
+        book.upsert(first, new BigDecimal("11.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 2);
+        book.upsert(first, new BigDecimal("10.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 3);
+        assertEquals(second, book.bestAsk().orElseThrow().getListingId());
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void remove_dropsListing() {
+        UUID listing = add("10.00", "1");
+        assertTrue(book.remove(listing, 1));
+        assertFalse(book.remove(listing, 2));
+        assertFalse(book.contains(listing));
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void staleChanges_areIgnored() {
+        UUID listing = add("10.00", "1");
+        assertTrue(book.upsert(listing, new BigDecimal("9.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 2));
+
+        // The re-read of an earlier change lands after a newer one
+        assertFalse(book.upsert(listing, new BigDecimal("10.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 1));
+        assertFalse(book.remove(listing, 1));
+        assertEquals(0, new BigDecimal("9.00").compareTo(book.bestAsk().orElseThrow().getPrice()));
+
+        // Sold at version 3, then the version 2 listener catches up
+        assertTrue(book.remove(listing, 3));
+        assertFalse(book.upsert(listing, new BigDecimal("9.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 2));
+        assertFalse(book.contains(listing));
+
+        // Relisted
+        assertTrue(book.upsert(listing, new BigDecimal("9.00"), BigDecimal.ONE, seller, LocalDateTime.now(), 4));
+        assertTrue(book.contains(listing));
+    }
+
+    @Test
+    void depth_aggregatesPriceLevels() {
+        add("10.00", "1.5");
+        add("10.00", "2");
+        add("11.00", "1");
+        add("12.00", "1");
+
+        List<OrderBook.PriceLevel> levels = book.depth(2);
+
+        assertEquals(2, levels.size());
+        assertEquals(0, new BigDecimal("10.00").compareTo(levels.get(0).getPrice()));
+        assertEquals(2, levels.get(0).getOrderCount());
+        assertEquals(0, new BigDecimal("3.5").compareTo(levels.get(0).getCreditAmount()));
+        assertEquals(0, new BigDecimal("11.00").compareTo(levels.get(1).getPrice()));
+    }
+
+    @Test
+    void match_takesCheapestListingsWithinLimit() {
+        UUID cheap = add("9.00", "1");
+        UUID mid = add("10.00", "2");
+        add("15.00", "1");
+
+        List<OrderBook.Order> fills = book.match(new BigDecimal("12.00"), new BigDecimal("5"), buyer);
+
+        assertEquals(List.of(cheap, mid), fills.stream().map(OrderBook.Order::getListingId).toList());
+    }
+
+    @Test
+    void match_skipsOwnListingsAndOversizedListings() {
+        add("8.00", "1", buyer);
+        add("9.00", "3");
+        UUID fits = add("9.50", "1");
+
+        List<OrderBook.Order> fills = book.match(new BigDecimal("10.00"), new BigDecimal("2"), buyer);
+
+        assertEquals(1, fills.size());
+        assertEquals(fits, fills.get(0).getListingId());
+    }
+}
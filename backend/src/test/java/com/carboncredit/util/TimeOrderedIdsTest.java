@@ -0,0 +1,95 @@
+package com.carboncredit.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdsTest {
+
+    @Test
+    void uuidV7_isVersion7AndStrictlyIncreasing() {
+        long before = System.currentTimeMillis();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(UuidV7.next());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "ids must sort in issue order");
+            // Also in the unsigned byte order Postgres uses for uuid columns
+            assertTrue(ids.get(i - 1).toString().compareTo(ids.get(i).toString()) < 0);
+        }
+        UUID first = ids.get(0);
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertTrue(UuidV7.timestamp(first) >= before);
+        assertTrue(UuidV7.timestamp(first) <= System.currentTimeMillis());
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestamp(UUID.randomUUID()));
+    }
+
+    @Test
+    void snowflake_encodesWorkerAndTime() {
+        Snowflake snowflake = new Snowflake(513);
+        long before = System.currentTimeMillis();
+        long id = snowflake.next();
+
+        assertTrue(id > 0);
+        assertEquals(513, Snowflake.workerId(id));
+        assertTrue(Snowflake.timestamp(id) >= before);
+        assertTrue(Snowflake.timestamp(id) <= System.currentTimeMillis());
+        assertThrows(IllegalArgumentException.class, () -> new Snowflake(Snowflake.MAX_WORKER_ID + 1));
+    }
+
+    @Test
+    void snowflake_isUniqueAcrossThreadsAndWorkers() throws Exception {
+        Snowflake workerA = new Snowflake(1);
+        Snowflake workerB = new Snowflake(2);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Snowflake snowflake = t % 2 == 0 ? workerA : workerB;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 25_000; i++) {
+                        assertTrue(seen.add(snowflake.next()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(200_000, seen.size());
+    }
+
+    @Test
+    void base32_isFixedWidthAndSortsLikeTheId() {
+        Snowflake snowflake = new Snowflake(0);
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            codes.add(Snowflake.toBase32(snowflake.next()));
+        }
+        List<String> sorted = new ArrayList<>(codes);
+        Collections.sort(sorted);
+
+        assertEquals(codes, sorted);
+        assertEquals(1000, new HashSet<>(codes).size());
+        assertEquals("0000000000000", Snowflake.toBase32(0));
+        assertEquals("7ZZZZZZZZZZZZ", Snowflake.toBase32(Long.MAX_VALUE));
+        assertTrue(codes.get(0).matches("[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.carboncredit.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    // 10 ms ticks, 8 buckets: level 0 spans 80 ms, level 1 spans 640 ms, level 2 spans 5120 ms
+    private TimingWheel<String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(10, 8, 0);
+    }
+
+    @Test
+    void advance_firesOnlyExpiredDeadlines() {
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 55);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(30));
+        assertEquals(List.of("b"), wheel.advance(60));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_cascadesFromHigherLevels() {
+        wheel.schedule("level1", 300);
+        wheel.schedule("level2", 4000);
+
+        assertTrue(wheel.advance(299).isEmpty());
+        assertEquals(List.of("level1"), wheel.advance(310));
+        assertTrue(wheel.advance(3990).isEmpty());
+        assertEquals(List.of("level2"), wheel.advance(4010));
+    }
+
+    @Test
+    void advance_firesWithinOneTickOfDeadline() {
+        List<Long> deadlines = List.of(13L, 97L, 640L, 1234L, 5119L, 7777L);
+        deadlines.forEach(deadline -> wheel.schedule("k" + deadline, deadline));
+
+        List<Long> firedAt = new ArrayList<>();
+        for (long now = 0; now <= 8000; now++) {
+            if (!wheel.advance(now).isEmpty()) {
+                firedAt.add(now);
+            }
+        }
+
+        assertEquals(deadlines.size(), firedAt.size());
+        for (int i = 0; i < deadlines.size(); i++) {
+            assertTrue(firedAt.get(i) >= deadlines.get(i));
+            assertTrue(firedAt.get(i) - deadlines.get(i) <= 10, "fired late at " + firedAt.get(i));
+        }
+    }
+
+    @Test
+    void schedule_pastDeadlineFiresOnNextAdvance() {
+        wheel.advance(500);
+        wheel.schedule("late", 100);
+
+        assertEquals(List.of("late"), wheel.advance(500));
+    }
+
+    @Test
+    void cancel_preventsFiring() {
+        wheel.schedule("a", 300);
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+
+        assertTrue(wheel.advance(1000).isEmpty());
+    }
+
+    @Test
+    void schedule_rescheduleReplacesOldDeadline() {
+        wheel.schedule("a", 50);
+        wheel.schedule("a", 700);
+
+        assertTrue(wheel.advance(600).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(710));
+    }
+
+    @Test
+    void advance_idleWheelJumpsAhead() {
+        assertTrue(wheel.advance(1_000_000).isEmpty());
+        wheel.schedule("a", 1_000_050);
+
+        assertEquals(List.of("a"), wheel.advance(1_000_060));
+    }
+}